@@ -22,7 +22,6 @@ import lombok.Getter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Action is a group of steps to be executed sequentially.
@@ -39,9 +38,6 @@ public class Action implements SequenceElement {
     @Getter
     private final String name;
 
-    @Getter
-    private final String id = UUID.randomUUID().toString();
-
     private List<SequenceElement> executionSequence = new ArrayList<>();
 
     /**
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.dsl;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A step whose code completes asynchronously, e.g. a non-blocking HTTP request.
+ * The step is complete when the returned stage completes, but the runner executing it doesn't wait for it:
+ * it starts, or continues, other iterations meanwhile, see {@link DSL#execAsync(String, AsyncExecutable)}.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public interface AsyncExecutable extends SequenceElement {
+    /**
+     * Implement this method to start the operation whose performance is to be measured.
+     * @param session The session of the current iteration. The iteration doesn't continue until the returned
+     *                stage completes, hence the stage may use the session, but it must not be used by any other
+     *                thread after the stage has completed.
+     * @return A stage which completes when the operation is complete, or completes exceptionally if the operation
+     *         fails. If null, the step is complete when the method returns.
+     * @throws Exception Allows the user code to throw any kind of exception. If any exception is thrown, the
+     *          execution is treated as failed and the reports are generated accordingly.
+     * @since 1.0
+     */
+    CompletionStage<?> function(Session session) throws Exception;
+}
@@ -58,6 +58,20 @@ public class DSL {
         return new Action(name, executable);
     }
 
+    /**
+     * Defines a step whose code completes asynchronously, e.g. a non-blocking HTTP request.
+     * The step ends when the stage returned by the executable completes. Meanwhile, the runner executing the
+     * iteration is free to execute other iterations, up to the {@code max-iterations-in-flight} of the simulation,
+     * so that a single runner can keep many requests in flight.
+     * @param name The name by which to identify the step in the report.
+     * @param executable The code which starts the operation and returns a stage that completes with it.
+     * @return An {@link Action} object encapsulating the provided AsyncExecutable and its name.
+     * @since 1.0
+     */
+    public static Action execAsync(String name, AsyncExecutable executable) {
+        return new Action(name, executable);
+    }
+
     /**
      * A named boolean 'check'. It can be used as a boolean evaluation step that can be used to find if the simulation is
      * passing or failing required use cases. For example, you can check if the HTTP request that
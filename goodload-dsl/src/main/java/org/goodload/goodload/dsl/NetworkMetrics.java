@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.dsl;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The network timings of the requests made by an iteration, broken down by the phases of the requests,
+ * and the number of bytes received by them.
+ * The protocol modules add the time spent in every phase of their requests, and the engine records the time
+ * spent in every phase by every step of the iteration into a histogram per phase, next to the time taken by the
+ * step. See {@link Session#getNetworkMetrics()}.
+ * <br>
+ * The times are accumulated over the whole iteration, so recording a phase doesn't allocate. A step which doesn't
+ * go through a phase, e.g. because its requests reused a kept-alive connection, is not recorded in the histogram
+ * of that phase.
+ * <br>
+ * It is thread-safe, as the phases of async requests are recorded by the threads of the protocol clients.
+ * It is guarded by a {@link ReentrantLock} rather than a monitor, so that the runners on virtual threads don't pin
+ * their carrier threads, and the protocol modules should record each request at once with
+ * {@link #record(long[], long[], long)}.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public final class NetworkMetrics {
+
+    /**
+     * The phases of a request.
+     * @since 1.0
+     */
+    public enum Phase {
+        /**
+         * Resolving the host name of the server.
+         */
+        DNS("dns"),
+        /**
+         * Opening the connection to the server, excluding the TLS handshake.
+         */
+        CONNECT("connect"),
+        /**
+         * The TLS handshake.
+         */
+        TLS("tls"),
+        /**
+         * From sending the request until the first byte of the response is received.
+         */
+        TIME_TO_FIRST_BYTE("time-to-first-byte"),
+        /**
+         * Receiving the body of the response.
+         */
+        BODY("body");
+
+        private final String reportName;
+
+        Phase(String reportName) {
+            this.reportName = reportName;
+        }
+
+        /**
+         * @return The name of the phase in the reports.
+         * @since 1.0
+         */
+        public String getReportName() {
+            return reportName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    /**
+     * The number of phases.
+     * @since 1.0
+     */
+    public static final int PHASE_COUNT = PHASES.length;
+
+    /**
+     * The total time spent in every phase, in nanoseconds, indexed by {@link Phase#ordinal()}.
+     */
+    private final long[] phaseNanos = new long[PHASE_COUNT];
+
+    /**
+     * The number of times every phase was recorded, indexed by {@link Phase#ordinal()}.
+     */
+    private final long[] phaseCounts = new long[PHASE_COUNT];
+
+    /**
+     * The total number of bytes received, including the headers.
+     */
+    private long bytesReceived;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param ordinal The {@link Phase#ordinal()} of a phase.
+     * @return The phase.
+     * @since 1.0
+     */
+    public static Phase phase(int ordinal) {
+        return PHASES[ordinal];
+    }
+
+    /**
+     * Adds the time spent in a phase of a request.
+     * @param phase The phase.
+     * @param nanos The time spent in the phase, in nanoseconds.
+     * @since 1.0
+     */
+    public void recordPhase(Phase phase, long nanos) {
+        lock.lock();
+        try {
+            phaseNanos[phase.ordinal()] += Math.max(0, nanos);
+            phaseCounts[phase.ordinal()]++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the phases and the bytes received of a whole request at once, which is cheaper than recording them one
+     * by one. The arrays are not retained.
+     * @param nanos         The time spent in every phase, in nanoseconds, indexed by {@link Phase#ordinal()}.
+     * @param counts        The number of times every phase was gone through, indexed likewise.
+     * @param bytesReceived The number of bytes received, including the headers.
+     * @since 1.0
+     */
+    public void record(long[] nanos, long[] counts, long bytesReceived) {
+        lock.lock();
+        try {
+            for (var phase = 0; phase < PHASE_COUNT; phase++) {
+                phaseNanos[phase] += Math.max(0, nanos[phase]);
+                phaseCounts[phase] += counts[phase];
+            }
+            this.bytesReceived += Math.max(0, bytesReceived);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the bytes received by a request.
+     * @param bytes The number of bytes received, including the headers.
+     * @since 1.0
+     */
+    public void recordBytesReceived(long bytes) {
+        lock.lock();
+        try {
+            bytesReceived += Math.max(0, bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the totals recorded so far.
+     * @param nanos  Receives the total time spent in every phase, indexed by {@link Phase#ordinal()}
+     *               from {@code offset}.
+     * @param counts Receives the number of times every phase was recorded, indexed likewise.
+     * @param offset The index at which to copy the totals of the first phase.
+     * @return The total number of bytes received so far, including the headers.
+     * @since 1.0
+     */
+    public long copyTo(long[] nanos, long[] counts, int offset) {
+        lock.lock();
+        try {
+            System.arraycopy(phaseNanos, 0, nanos, offset, PHASE_COUNT);
+            System.arraycopy(phaseCounts, 0, counts, offset, PHASE_COUNT);
+            return bytesReceived;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Clears the totals, so that the instance can be reused by another iteration.
+     * @since 1.0
+     */
+    public void reset() {
+        lock.lock();
+        try {
+            Arrays.fill(phaseNanos, 0);
+            Arrays.fill(phaseCounts, 0);
+            bytesReceived = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -52,6 +52,34 @@ public class Session {
     @Setter
     private LinkedHashMap<String, Object> customConfigurationProperties = new LinkedHashMap<>();
 
+    /**
+     * The ID of the virtual user executing the iteration, unique within the simulation.
+     * A runner executes as many virtual users as it may have iterations in flight, hence the iterations in flight
+     * at the same time have different IDs, and the ID is reused by the iterations started after one of them ends.
+     * @since 1.0
+     */
+    @Getter
+    @Setter
+    private int virtualUserId;
+
+    /**
+     * The modules started for the simulation, by their classes. Shared by all the sessions of the simulation.
+     */
+    @Setter
+    @EqualsAndHashCode.Exclude
+    private Map<Class<?>, SimulationModule<?>> modules = Map.of();
+
+    /**
+     * The network timings of the requests made by the iteration, see {@link NetworkMetrics}.
+     * The protocol modules record the phases of their requests in it.
+     * @since 1.0
+     */
+    @Getter
+    @Setter
+    @NonNull
+    @EqualsAndHashCode.Exclude
+    private NetworkMetrics networkMetrics = new NetworkMetrics();
+
     /**
      * Save a key-value pair in the current session.
      * @param name The name/key/identifier of the object to save.
@@ -70,4 +98,16 @@ public class Session {
         return Optional.of(properties.get(name));
     }
 
+    /**
+     * Retrieve a module started for the current simulation, see {@link SimulationModule}.
+     * @param moduleClass The class of the module.
+     * @param <T> The type of the module.
+     * @return The module, or null if the module is not on the classpath of the simulation.
+     * Its configuration is available with {@link SimulationModule#getConfiguration()}.
+     * @since 1.0
+     */
+    public <T extends SimulationModule<?>> T getModule(Class<T> moduleClass) {
+        return moduleClass.cast(modules.get(moduleClass));
+    }
+
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.dsl;
+
+/**
+ * A module provides the steps of a simulation with resources that live as long as the simulation,
+ * e.g. the connection pools of a protocol, instead of creating them in every step.
+ * Likewise, its configuration under {@code goodload.custom} is bound to its configuration class once per simulation
+ * by the engine, so that the steps never parse it.
+ * <br>
+ * Modules are discovered with {@link java.util.ServiceLoader} on the classpath of the simulations, so a module
+ * registers its implementation in {@code META-INF/services/org.goodload.goodload.dsl.SimulationModule}.
+ * A new instance of every module is started before the first iteration of each simulation, and closed after
+ * the last one. The steps get the module of the current simulation with {@link Session#getModule(Class)}.
+ * <br>
+ * The module is shared by all the virtual users of the simulation, hence it must be thread-safe.
+ *
+ * @param <C> The type to which the configuration of the module is bound.
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public interface SimulationModule<C> extends AutoCloseable {
+    /**
+     * @return The name of the module, which is also the key of its configuration under {@code goodload.custom}.
+     * @since 1.0
+     */
+    String getName();
+
+    /**
+     * @return The class to which the configuration of the module is bound, with Jackson.
+     * It must have a public no-args constructor, which provides the defaults when there is no configuration.
+     * @since 1.0
+     */
+    Class<C> getConfigurationClass();
+
+    /**
+     * Starts the module for a simulation.
+     * @param simulationName The name of the simulation.
+     * @param configuration The configuration of the module under {@code goodload.custom}, bound to
+     *                      {@link #getConfigurationClass()}.
+     * @throws IllegalArgumentException If the configuration is invalid, which the engine reports as an invalid
+     *                                  configuration of the module.
+     * @since 1.0
+     */
+    void start(String simulationName, C configuration);
+
+    /**
+     * @return The configuration with which the module was started.
+     * @since 1.0
+     */
+    C getConfiguration();
+
+    /**
+     * Releases the resources of the module after the simulation has ended.
+     * @since 1.0
+     */
+    @Override
+    void close();
+}
@@ -23,18 +23,24 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.cli.*;
+import org.goodload.goodload.config.GoodloadConfigurationProperties;
+import org.goodload.goodload.criteria.CriteriaParser;
 import org.goodload.goodload.criteria.MinimumFailCountCriteria;
-import org.goodload.goodload.criteria.PercentFailCriteria;
 import org.goodload.goodload.exceptions.GoodloadRuntimeException;
 import org.goodload.goodload.exceptions.InvalidSimulationConfigFileException;
 import org.goodload.goodload.exceptions.JarFileNotFoundException;
+import org.goodload.goodload.exceptions.UnknownExportFormatException;
 import org.goodload.goodload.exceptions.UnsupportedCriteriaException;
 import org.goodload.goodload.execution.Simulator;
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.reporting.export.ExportFormat;
 import org.goodload.goodload.userconfig.GoodloadUserConfigurationProperties;
 import org.goodload.goodload.userconfig.ParsedUserArgs;
+import org.goodload.goodload.userconfig.ReportingConfiguration;
 import org.goodload.goodload.userconfig.SimulationConfiguration;
 import org.goodload.goodload.userconfig.UserArgs;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.ExitCodeGenerator;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
@@ -45,16 +51,20 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * The main class that starts the simulation.
+ * The engine exits with {@link #CRITERIA_FAILED_EXIT_CODE} if any simulation breaches its criteria,
+ * and with the codes of {@link org.goodload.goodload.config.DefaultExceptionHandlerConfiguration} if it fails.
  *
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
  * @since 1.0
@@ -62,7 +72,17 @@ import java.util.stream.Collectors;
 @SpringBootApplication(scanBasePackages = "org.goodload")
 @Slf4j
 @ConfigurationPropertiesScan
-public class GoodloadApplication implements CommandLineRunner {
+public class GoodloadApplication implements CommandLineRunner, ExitCodeGenerator {
+
+    /**
+     * Exit code when the arguments of a command are invalid, the same as for a {@link ParseException}.
+     */
+    public static final int INVALID_ARGUMENTS_EXIT_CODE = 2;
+
+    /**
+     * Exit code when a simulation, or the aggregate of a raw log, fails its criteria.
+     */
+    public static final int CRITERIA_FAILED_EXIT_CODE = 8;
 
     @Resource
     private UserArgs userArgs;
@@ -73,6 +93,14 @@ public class GoodloadApplication implements CommandLineRunner {
     @Resource
     private Simulator simulator;
 
+    @Resource
+    private ReaggregateCommand reaggregateCommand;
+
+    @Resource
+    private GoodloadConfigurationProperties goodloadConfigurationProperties;
+
+    private int exitCode = 0;
+
     public static void main(String... args) {
         System.out.println("Goodload Engine Copyright (C) 2021  Goodload\n" +
                 "This program has been distributed under GNU General Public License " +
@@ -98,6 +126,16 @@ public class GoodloadApplication implements CommandLineRunner {
 
         log.debug("Current path: {}", System.getProperty("user.dir"));
 
+        if (args.length > 0 && ReaggregateCommand.NAME.equals(args[0])) {
+            var aggregateReport = reaggregateCommand.run(Arrays.copyOfRange(args, 1, args.length));
+            if (aggregateReport == null) {
+                exitCode = INVALID_ARGUMENTS_EXIT_CODE;
+            } else if (!aggregateReport.isPassed()) {
+                exitCode = CRITERIA_FAILED_EXIT_CODE;
+            }
+            return;
+        }
+
         parseArguments(args);
 
         loadExecutionConfiguration();
@@ -111,23 +149,70 @@ public class GoodloadApplication implements CommandLineRunner {
             if (userArgs.getSimulationsToExecute() != null && !userArgs.getSimulationsToExecute().contains(simulation.getName())) {
                 continue;
             }
-            simulator.execute(simulation, i);
+            var aggregateReport = simulator.execute(simulation, i);
+            if (aggregateReport != null && !aggregateReport.isPassed()) {
+                exitCode = CRITERIA_FAILED_EXIT_CODE;
+            }
         }
     }
 
+    /**
+     * @return {@link #CRITERIA_FAILED_EXIT_CODE} if any simulation failed its criteria,
+     * {@link #INVALID_ARGUMENTS_EXIT_CODE} if the arguments of the reaggregate command are invalid, else 0.
+     */
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
     /**
      * Creates thread pool to execute simulations.
-     * Uses the maximum value of concurrency across simulations as the size of the pool
+     * In {@link GoodloadConfigurationProperties.ExecutionMode#PLATFORM_THREADS} mode, uses the maximum value of
+     * concurrency (including the runners that may be added to maintain an arrival rate) across simulations
+     * as the size of the pool.
+     * In {@link GoodloadConfigurationProperties.ExecutionMode#VIRTUAL_THREADS} mode, every runner is started in
+     * a new virtual thread.
      */
     private void createSimulationExecutionThreadPool() {
+        if (goodloadConfigurationProperties.getExecutionMode()
+                == GoodloadConfigurationProperties.ExecutionMode.VIRTUAL_THREADS) {
+            var virtualThreadExecutor = createVirtualThreadPerTaskExecutor();
+            if (virtualThreadExecutor != null) {
+                log.info("Simulation runners will be executed on virtual threads.");
+                parsedUserArgs.setSimulationExecutorService(virtualThreadExecutor);
+                return;
+            }
+            log.warn("Virtual threads are not supported by the current Java runtime ({}). " +
+                            "Simulation runners will be executed on platform threads instead.",
+                    System.getProperty("java.version"));
+        }
+
         int maxConcurrency = userArgs.getYamlConfiguration().getSimulations().stream()
-                .map(SimulationConfiguration::getConcurrency)
+                .map(SimulationConfiguration::getEffectiveMaxConcurrency)
                 .max(Comparator.comparingInt(o -> o))
                 .orElseThrow(NoSuchElementException::new);
 
         parsedUserArgs.setSimulationExecutorService(Executors.newFixedThreadPool(maxConcurrency));
     }
 
+    /**
+     * Creates an executor that starts a new virtual thread for every task.
+     * The engine is compiled for Java 17, hence the executor is looked up reflectively
+     * so that the virtual threads can be used whenever the engine is run on Java 21 or above.
+     *
+     * @return The virtual thread executor, or {@code null} if the runtime doesn't support virtual threads.
+     */
+    private static ExecutorService createVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Failed to create virtual thread executor", e);
+            return null;
+        }
+    }
+
     /**
      * Loads the simulation jar file from the path passed as command line argument.
      *
@@ -165,9 +250,15 @@ public class GoodloadApplication implements CommandLineRunner {
             var config = mapper.readValue(new File(userArgs.getConfigFilePath()), GoodloadUserConfigurationProperties.class);
             userArgs.setYamlConfiguration(config);
 
+            validateLoadProfiles(config);
+
+            validateHistogramInterval(config);
+
             parseCriteria(config);
 
-        } catch (UnsupportedCriteriaException e) {
+            parseExportFormats(config);
+
+        } catch (UnsupportedCriteriaException | UnknownExportFormatException e) {
             throw new InvalidSimulationConfigFileException(e.getMessage(), e);
         } catch (JsonParseException | JsonMappingException e) {
             throw new InvalidSimulationConfigFileException(
@@ -184,6 +275,54 @@ public class GoodloadApplication implements CommandLineRunner {
         }
     }
 
+    /**
+     * Validates the stages of the simulations' load profiles.
+     *
+     * @param config The used defined config
+     * @throws InvalidSimulationConfigFileException If any of the stages is invalid.
+     */
+    private void validateLoadProfiles(GoodloadUserConfigurationProperties config)
+            throws InvalidSimulationConfigFileException {
+        for (var simulation : config.getSimulations()) {
+            if (!simulation.hasStages()) {
+                continue;
+            }
+            boolean openWorkload = simulation.isOpenWorkload();
+            for (var stage : simulation.getStages()) {
+                if (stage.getDuration() == null
+                        || (stage.getConcurrency() == null) == (stage.getArrivalRate() == null)
+                        || (stage.getArrivalRate() != null) != openWorkload) {
+                    throw new InvalidSimulationConfigFileException(String.format(
+                            "The stages of simulation `%s` are invalid. Every stage must have a duration, " +
+                                    "and all the stages must have either concurrency or arrival-rate.",
+                            simulation.getName()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Validates the length of the intervals of the histograms, which the runners use to align the snapshots.
+     *
+     * @param config The used defined config
+     * @throws InvalidSimulationConfigFileException If the interval is invalid.
+     */
+    private void validateHistogramInterval(GoodloadUserConfigurationProperties config)
+            throws InvalidSimulationConfigFileException {
+        var histogramInterval = config.getReporting().getHistogramInterval();
+        long intervalNanos;
+        try {
+            intervalNanos = TimeUnit.MILLISECONDS.toNanos(Util.parseDurationToMillis(histogramInterval));
+        } catch (DateTimeParseException e) {
+            intervalNanos = 0;
+        }
+        if (!ReportingConfiguration.isValidHistogramInterval(intervalNanos)) {
+            throw new InvalidSimulationConfigFileException(String.format(
+                    "The histogram-interval `%s` is invalid. It must be at most 1s and divide 1s, e.g. 1s or 0.1s.",
+                    histogramInterval));
+        }
+    }
+
     /**
      * Read the user defined fail-when criteria and create Criteria objects for them.
      *
@@ -191,37 +330,29 @@ public class GoodloadApplication implements CommandLineRunner {
      * @throws UnsupportedCriteriaException If any of the fail-when criteria is not recognized.
      */
     private void parseCriteria(GoodloadUserConfigurationProperties config) throws UnsupportedCriteriaException {
-        final var percentFailCriteriaPattern =
-                Pattern.compile("([0-9]*)%[ ]+failure(s)?", Pattern.CASE_INSENSITIVE);
-        final var minimumFailCriteriaPattern =
-                Pattern.compile("atleast ([0-9]*) +failure[s]?", Pattern.CASE_INSENSITIVE);
-
         for (var criteriaStr : config.getFailPassCriteria()) {
-            final var percentFailCriteriaPatternMatcher = percentFailCriteriaPattern.matcher(criteriaStr);
-            final var minimumFailCountCriteriaPatternMatcher = minimumFailCriteriaPattern.matcher(criteriaStr);
-            if (percentFailCriteriaPatternMatcher.matches()) {
-                parsedUserArgs.getFailPassCriteria().add(new PercentFailCriteria(
-                        Long.parseLong(percentFailCriteriaPatternMatcher.group(1))
-                ));
-            } else if (minimumFailCountCriteriaPatternMatcher.matches()) {
-                parsedUserArgs.getFailPassCriteria().add(new MinimumFailCountCriteria(
-                        Long.parseLong(minimumFailCountCriteriaPatternMatcher.group(1))
-                ));
-            } else {
-                throw new UnsupportedCriteriaException(String.format(
-                        "The fail-when criterion '%s' is invalid. Make sure the syntax is correct. " +
-                                "The recognized criteria formats/syntax are %s",
-                        criteriaStr,
-                        Arrays.toString(new String[]{
-                                minimumFailCriteriaPattern.pattern(),
-                                percentFailCriteriaPattern.pattern()
-                        })
-                ));
-            }
+            parsedUserArgs.getFailPassCriteria().add(CriteriaParser.parse(criteriaStr));
         }
         if (parsedUserArgs.getFailPassCriteria().isEmpty()) {
             parsedUserArgs.getFailPassCriteria().add(new MinimumFailCountCriteria(1));
         }
+        parsedUserArgs.setAbortOnFail(config.isAbortOnFail());
+    }
+
+    /**
+     * Read the user defined export formats.
+     *
+     * @param config The used defined config
+     * @throws UnknownExportFormatException If any of the export formats is not recognized.
+     */
+    private void parseExportFormats(GoodloadUserConfigurationProperties config) throws UnknownExportFormatException {
+        var exportFormats = config.getReporting().getExportFormats();
+        if (exportFormats == null) {
+            return;
+        }
+        for (var exportFormat : exportFormats) {
+            parsedUserArgs.getExportFormats().add(ExportFormat.of(exportFormat));
+        }
     }
 
     /**
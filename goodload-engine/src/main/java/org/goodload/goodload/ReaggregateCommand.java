@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.goodload.goodload.criteria.Criteria;
+import org.goodload.goodload.criteria.CriteriaEvaluator;
+import org.goodload.goodload.criteria.CriteriaParser;
+import org.goodload.goodload.criteria.MinimumFailCountCriteria;
+import org.goodload.goodload.exceptions.UnknownExportFormatException;
+import org.goodload.goodload.exceptions.UnsupportedCriteriaException;
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.plugin.datasink.rawlog.RawLogReader;
+import org.goodload.goodload.reporting.SimulationReportAggregator;
+import org.goodload.goodload.reporting.StepLatencyStatistics;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.data.StepSkeletonData;
+import org.goodload.goodload.reporting.datasink.SinkSubscriber;
+import org.goodload.goodload.reporting.export.ExportFormat;
+import org.goodload.goodload.reporting.export.ReportExporter;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateSimulationReport;
+import org.goodload.goodload.userconfig.ReportingConfiguration;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code reaggregate} command, which aggregates the raw log of a simulation that has already been executed,
+ * see {@link org.goodload.goodload.plugin.datasink.rawlog.RawLogSink}. It allows computing other percentiles,
+ * evaluating other criteria and exporting the report again without executing the simulation again.
+ * <br>
+ * The records of the log are recorded into histogram snapshots per step and interval, like the runners do, and the
+ * snapshots go through the same aggregator, criteria and exporters as those of a simulation.
+ * <br>
+ * The raw log doesn't record the criteria of the simulation, so they must be passed again with {@code --fail-when}.
+ * Without them, the re-aggregation fails if any step failed, like a simulation without criteria.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class ReaggregateCommand {
+
+    public static final String NAME = "reaggregate";
+
+    /**
+     * The snapshots of an interval are published once the records of this many intervals later are read.
+     * The records are logged in the order in which they were delivered, which is nearly the order of their end.
+     */
+    private static final int GRACE_INTERVALS = 10;
+
+    /**
+     * Aggregates the raw log as specified by the arguments.
+     *
+     * @param args The arguments following the name of the command.
+     * @return The aggregate report, or null if the arguments are invalid.
+     * @throws IOException If the log can't be read.
+     */
+    public AggregateSimulationReport run(String... args) throws IOException {
+        var options = ReaggregateOptions.all();
+        CommandLine cmd;
+        double[] percentiles;
+        long intervalNanos;
+        var criteria = new ArrayList<Criteria>();
+        var exportFormats = EnumSet.noneOf(ExportFormat.class);
+        try {
+            cmd = new DefaultParser().parse(options, args);
+            percentiles = parsePercentiles(cmd.getOptionValue(ReaggregateOptions.PERCENTILES_OPTION.getLongOpt()));
+            intervalNanos = TimeUnit.MILLISECONDS.toNanos(Util.parseDurationToMillis(
+                    cmd.getOptionValue(ReaggregateOptions.INTERVAL_OPTION.getLongOpt(), "1s")));
+            if (!ReportingConfiguration.isValidHistogramInterval(intervalNanos)) {
+                throw new ParseException("The interval must be at most 1s and divide 1s, e.g. 1s or 0.1s");
+            }
+            var criteriaStrs = cmd.getOptionValues(ReaggregateOptions.FAIL_WHEN_OPTION.getLongOpt());
+            if (criteriaStrs != null) {
+                for (var criteriaStr : criteriaStrs) {
+                    criteria.add(CriteriaParser.parse(criteriaStr));
+                }
+            }
+            var formats = cmd.getOptionValue(ReaggregateOptions.EXPORT_FORMATS_OPTION.getLongOpt());
+            if (formats != null) {
+                for (var format : formats.split(",")) {
+                    exportFormats.add(ExportFormat.of(format.trim()));
+                }
+            }
+        } catch (ParseException | UnsupportedCriteriaException | UnknownExportFormatException
+                 | NumberFormatException | DateTimeParseException e) {
+            log.error(e.getMessage());
+            new HelpFormatter().printHelp("goodload " + NAME, null, options,
+                    "Report issues at https://github.com/divyanshshekhar/goodload/issues", true);
+            return null;
+        }
+        if (criteria.isEmpty()) {
+            // The raw log doesn't record the criteria of the simulation, hence the default of the configuration
+            criteria.add(new MinimumFailCountCriteria(1));
+        }
+
+        var reader = new RawLogReader(Path.of(cmd.getOptionValue(ReaggregateOptions.RAW_LOG_OPTION.getLongOpt())));
+        var simulationTree = reader.getSimulationTree();
+        var simulationName = simulationTree.getSimulationName();
+        log.info("Simulation `{}`: Aggregating the raw log {}", simulationName, reader);
+
+        var subscribers = new ArrayList<SinkSubscriber>();
+        var aggregator = new SimulationReportAggregator(simulationName, simulationTree, reader.getFirstTimestamp());
+        subscribers.add(aggregator);
+        var criteriaEvaluator = new CriteriaEvaluator(simulationName, simulationTree, criteria, null);
+        subscribers.add(criteriaEvaluator);
+        ReportExporter exporter = null;
+        if (!exportFormats.isEmpty()) {
+            exporter = new ReportExporter(
+                    Path.of(cmd.getOptionValue(ReaggregateOptions.EXPORT_DIRECTORY_OPTION.getLongOpt(), ".")),
+                    exportFormats,
+                    cmd.hasOption(ReaggregateOptions.GZIP_OPTION.getLongOpt()),
+                    cmd.hasOption(ReaggregateOptions.INCLUDE_RAW_REPORT_OPTION.getLongOpt()),
+                    simulationName,
+                    simulationTree);
+            subscribers.add(exporter);
+        }
+
+        try {
+            var recorder = new SnapshotRecorder(countSteps(simulationTree), intervalNanos, subscribers);
+            var exportedRaw = exporter;
+            long records = reader.read(report -> {
+                recorder.record(report);
+                if (exportedRaw != null) {
+                    exportedRaw.onNext(report);
+                }
+            });
+            recorder.flush();
+            log.info("Simulation `{}`: Read {} records", simulationName, records);
+
+            var aggregateReport = aggregator.aggregate(percentiles);
+            criteriaEvaluator.applyTo(aggregateReport);
+            log.info("Simulation `{}` {}.", simulationName, aggregateReport.isPassed() ? "passed" : "failed");
+            if (exporter != null) {
+                exporter.export(aggregateReport);
+                exporter = null;
+            }
+            return aggregateReport;
+        } finally {
+            if (exporter != null) {
+                exporter.close();
+            }
+        }
+    }
+
+    private static double[] parsePercentiles(String percentiles) throws ParseException {
+        if (percentiles == null) {
+            return StepLatencyStatistics.DEFAULT_PERCENTILES;
+        }
+        var values = percentiles.split(",");
+        var parsed = new double[values.length];
+        for (var i = 0; i < values.length; i++) {
+            parsed[i] = Double.parseDouble(values[i].trim());
+            if (parsed[i] < 0 || parsed[i] > 100) {
+                throw new ParseException(String.format("Invalid percentile %s", values[i]));
+            }
+        }
+        return parsed;
+    }
+
+    private static int countSteps(SimulationTree simulationTree) {
+        var count = 0;
+        for (var scenario : simulationTree.getSteps()) {
+            count += countSteps(scenario);
+        }
+        return count;
+    }
+
+    private static int countSteps(StepSkeletonData step) {
+        var count = 1;
+        for (var subStep : step.getSubSteps()) {
+            count += countSteps(subStep);
+        }
+        return count;
+    }
+
+    /**
+     * Records the timings of the records into a histogram snapshot per step and interval, by the end of the
+     * records like the runners, and publishes the snapshots to the subscribers. A record read after the snapshot
+     * of its interval was published is recorded into another snapshot of the same interval.
+     */
+    private static final class SnapshotRecorder {
+        private final int stepCount;
+        private final long intervalNanos;
+        private final List<SinkSubscriber> subscribers;
+
+        /**
+         * The snapshots being recorded, by interval and step index.
+         */
+        private final Map<Long, HistogramSnapshot> snapshots = new HashMap<>();
+
+        private long newestInterval = Long.MIN_VALUE;
+
+        private SnapshotRecorder(int stepCount, long intervalNanos, List<SinkSubscriber> subscribers) {
+            this.stepCount = stepCount;
+            this.intervalNanos = intervalNanos;
+            this.subscribers = subscribers;
+        }
+
+        private void record(ActionReport report) {
+            if (report.getStepIndex() < 0 || report.getStepIndex() >= stepCount) {
+                return;
+            }
+            long interval = Math.floorDiv(report.getEndTimestampInNanos(), intervalNanos);
+            if (interval > newestInterval) {
+                newestInterval = interval;
+                publishBefore(newestInterval - GRACE_INTERVALS);
+            }
+
+            var snapshot = snapshots.computeIfAbsent(interval * stepCount + report.getStepIndex(), key -> {
+                var newSnapshot = new HistogramSnapshot();
+                newSnapshot.setStepIndex(report.getStepIndex());
+                newSnapshot.setRunnerId(report.getRunnerId());
+                newSnapshot.setIntervalStartTimestampInNanos(interval * intervalNanos);
+                newSnapshot.setIntervalLengthInNanos(intervalNanos);
+                newSnapshot.setFirstStartTimestampInNanos(Long.MAX_VALUE);
+                newSnapshot.setLastEndTimestampInNanos(Long.MIN_VALUE);
+                newSnapshot.setLatency(new LatencyHistogram());
+                newSnapshot.setCorrectedLatency(new LatencyHistogram());
+                return newSnapshot;
+            });
+            snapshot.getLatency().recordValue(Math.max(0, report.getTotalTimeInNanos()));
+            snapshot.getCorrectedLatency().recordValue(Math.max(0, report.getCorrectedTotalTimeInNanos()));
+            if (!report.isEndedNormally()) {
+                snapshot.setErrorCount(snapshot.getErrorCount() + 1);
+            }
+            snapshot.setFirstStartTimestampInNanos(
+                    Math.min(snapshot.getFirstStartTimestampInNanos(), report.getStartTimestampInNanos()));
+            snapshot.setLastEndTimestampInNanos(
+                    Math.max(snapshot.getLastEndTimestampInNanos(), report.getEndTimestampInNanos()));
+        }
+
+        private void publishBefore(long interval) {
+            var iterator = snapshots.values().iterator();
+            while (iterator.hasNext()) {
+                var snapshot = iterator.next();
+                if (snapshot.getIntervalStartTimestampInNanos() < interval * intervalNanos) {
+                    iterator.remove();
+                    publish(snapshot);
+                }
+            }
+        }
+
+        private void publish(HistogramSnapshot snapshot) {
+            for (var subscriber : subscribers) {
+                subscriber.onHistogramSnapshot(snapshot);
+            }
+        }
+
+        private void flush() {
+            snapshots.values().stream()
+                    .sorted((a, b) -> Long.compare(
+                            a.getIntervalStartTimestampInNanos(), b.getIntervalStartTimestampInNanos()))
+                    .forEach(this::publish);
+            snapshots.clear();
+        }
+    }
+
+    /**
+     * The options of the command.
+     */
+    private static class ReaggregateOptions {
+        static final Option RAW_LOG_OPTION = Option
+                .builder("l")
+                .longOpt("raw-log")
+                .argName("path to raw log directory")
+                .desc("the directory of the raw log of the simulation")
+                .required()
+                .hasArg()
+                .build();
+
+        static final Option PERCENTILES_OPTION = Option
+                .builder("p")
+                .longOpt("percentiles")
+                .argName("percentiles")
+                .desc("comma separated percentiles of the latencies, e.g. 50,99,99.9")
+                .hasArg()
+                .build();
+
+        static final Option INTERVAL_OPTION = Option
+                .builder("i")
+                .longOpt("interval")
+                .argName("duration")
+                .desc("the length of the intervals of the histograms, which the windows of the criteria are made "
+                        + "of, e.g. 1s. Defaults to 1s.")
+                .hasArg()
+                .build();
+
+        static final Option FAIL_WHEN_OPTION = Option
+                .builder("f")
+                .longOpt("fail-when")
+                .argName("criterion")
+                .desc("a fail-when criterion, can be repeated. The criteria of the simulation are not in the raw log, "
+                        + "without this the re-aggregation fails when there is atleast 1 failure.")
+                .hasArg()
+                .build();
+
+        static final Option EXPORT_FORMATS_OPTION = Option
+                .builder("e")
+                .longOpt("export-formats")
+                .argName("formats")
+                .desc("comma separated formats in which to export the report: json, json-pretty, yaml or html")
+                .hasArg()
+                .build();
+
+        static final Option EXPORT_DIRECTORY_OPTION = Option
+                .builder("d")
+                .longOpt("export-directory")
+                .argName("path to directory")
+                .desc("the directory in which to export the report. Defaults to the current directory.")
+                .hasArg()
+                .build();
+
+        static final Option INCLUDE_RAW_REPORT_OPTION = Option
+                .builder("r")
+                .longOpt("include-raw-report")
+                .desc("include the raw reports in the exported report")
+                .build();
+
+        static final Option GZIP_OPTION = Option
+                .builder("z")
+                .longOpt("gzip")
+                .desc("compress the exported report with gzip")
+                .build();
+
+        static Options all() {
+            return new Options()
+                    .addOption(RAW_LOG_OPTION)
+                    .addOption(PERCENTILES_OPTION)
+                    .addOption(INTERVAL_OPTION)
+                    .addOption(FAIL_WHEN_OPTION)
+                    .addOption(EXPORT_FORMATS_OPTION)
+                    .addOption(EXPORT_DIRECTORY_OPTION)
+                    .addOption(INCLUDE_RAW_REPORT_OPTION)
+                    .addOption(GZIP_OPTION);
+        }
+    }
+}
@@ -45,6 +45,31 @@ public class GoodloadConfigurationProperties {
      */
     private int gracePeriodPercentage = 20;
 
+    /**
+     * The kind of threads on which the simulation runners are executed.
+     * With {@link ExecutionMode#PLATFORM_THREADS} one OS thread is reserved for every unit of concurrency,
+     * which limits the number of concurrent users to a few thousands.
+     * With {@link ExecutionMode#VIRTUAL_THREADS} every runner gets its own virtual thread, which allows
+     * tens of thousands of concurrent users on a single machine. Virtual threads require Java 21 or above,
+     * on older runtimes the engine falls back to platform threads.
+     */
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM_THREADS;
+
+    /**
+     * Number of reports each simulation runner can buffer until they are delivered to the sink.
+     * Every runner has its own buffer, and a runner waits when its buffer is full, so it should be large enough
+     * to absorb the bursts of reports generated while the sink is busy. It is rounded up to a power of 2.
+     * <br>
+     * Only the sampled iterations generate reports, so the buffers are scaled down by the
+     * {@code raw-report-sampling-rate}, and the runners get no buffer at all when the rate is 0, the default.
+     */
+    private int reportBufferSize = 1024;
+
+    /**
+     * Properties of the metrics reported while a simulation runs.
+     */
+    private LiveMetricsProperties liveMetrics = new LiveMetricsProperties();
+
     /**
      * Properties related to debugging
      */
@@ -66,4 +91,39 @@ public class GoodloadConfigurationProperties {
         private boolean exportTransformedRawReport = false;
     }
 
+    @Data
+    public static class LiveMetricsProperties {
+        /**
+         * If true, a summary of the metrics of the last second is logged every console-interval.
+         */
+        private boolean consoleEnabled = true;
+
+        private String consoleInterval = "10s";
+
+        /**
+         * If true, the metrics of the last second are served over HTTP at /metrics, in the OpenMetrics format,
+         * and at /metrics.json.
+         */
+        private boolean httpEnabled = false;
+
+        /**
+         * The address to serve the metrics at. Only local clients can connect by default.
+         */
+        private String httpHost = "127.0.0.1";
+
+        private int httpPort = 9464;
+    }
+
+    public enum ExecutionMode {
+        /**
+         * Every simulation runner is executed on a thread from a fixed size pool of OS threads.
+         */
+        PLATFORM_THREADS,
+
+        /**
+         * Every simulation runner is executed on its own virtual thread.
+         */
+        VIRTUAL_THREADS
+    }
+
 }
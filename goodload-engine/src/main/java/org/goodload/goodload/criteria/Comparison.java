@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.criteria;
+
+/**
+ * How the value of a metric is compared with the threshold of a criterion.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public enum Comparison {
+    LESS_THAN("<"),
+    LESS_THAN_OR_EQUAL("<="),
+    GREATER_THAN(">"),
+    GREATER_THAN_OR_EQUAL(">=");
+
+    private final String symbol;
+
+    Comparison(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * @param symbol One of {@code <}, {@code <=}, {@code >} and {@code >=}.
+     * @return The comparison written with the given symbol.
+     */
+    public static Comparison of(String symbol) {
+        for (var comparison : values()) {
+            if (comparison.symbol.equals(symbol)) {
+                return comparison;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown comparison `%s`", symbol));
+    }
+
+    /**
+     * @return {@code true} if the value compares with the threshold as required.
+     */
+    public boolean test(double value, double threshold) {
+        return switch (this) {
+            case LESS_THAN -> value < threshold;
+            case LESS_THAN_OR_EQUAL -> value <= threshold;
+            case GREATER_THAN -> value > threshold;
+            case GREATER_THAN_OR_EQUAL -> value >= threshold;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
+}
@@ -14,17 +14,29 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
-
 package org.goodload.goodload.criteria;
 
-import org.goodload.goodload.reporting.data.Report;
-
-import java.util.List;
-
 /**
+ * A fail-when criterion. A step fails if it meets any of the criteria.
+ * <br>
+ * The criteria are evaluated incrementally, from the timings of the step published while the simulation runs,
+ * so that they don't need the raw reports and their result is known at any time during the simulation.
+ *
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
  * @since 1.0
  */
 public interface Criteria {
-    boolean matches(List<? extends Report> rawReports);
+
+    /**
+     * @return A new evaluation of the criterion for one step, with no timings added to it yet.
+     */
+    CriteriaEvaluation newEvaluation();
+
+    /**
+     * @param stepName The name of a step.
+     * @return {@code true} if the criterion applies to the step. The default implementation applies to all steps.
+     */
+    default boolean appliesTo(String stepName) {
+        return true;
+    }
 }
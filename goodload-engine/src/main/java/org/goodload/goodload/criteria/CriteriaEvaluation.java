@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.criteria;
+
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+
+/**
+ * The evaluation of a {@link Criteria} for one step, updated as the timings of the step are added to it.
+ * An evaluation is used by a single thread.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public interface CriteriaEvaluation {
+
+    /**
+     * Adds the timings of the step recorded by a runner in an interval.
+     *
+     * @param snapshot The snapshot of the timings of the step.
+     */
+    void add(HistogramSnapshot snapshot);
+
+    /**
+     * Extends the time covered by the simulation, over which the step is evaluated whether it completed anything
+     * in it or not. Adding a snapshot covers its interval. The default implementation ignores it.
+     *
+     * @param fromTimestampInNanos The start of the time covered, since the epoch.
+     * @param toTimestampInNanos   The end of the time covered, since the epoch.
+     */
+    default void cover(long fromTimestampInNanos, long toTimestampInNanos) {
+    }
+
+    /**
+     * @return {@code true} if the step meets the criterion with the timings added so far, i.e. it fails.
+     */
+    boolean matches();
+
+    /**
+     * @return {@code true} if the step meets the criterion and keeps meeting it whatever timings are added later,
+     * in which case the simulation can be stopped early. The default implementation is never sure.
+     */
+    default boolean isMatchFinal() {
+        return false;
+    }
+}
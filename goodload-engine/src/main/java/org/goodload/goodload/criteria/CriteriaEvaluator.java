@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.criteria;
+
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.data.StepSkeletonData;
+import org.goodload.goodload.reporting.datasink.SinkSubscriber;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateActionReport;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateSimulationReport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * Evaluates the fail-when criteria for every step of a simulation while it runs, from the histogram snapshots
+ * published by the runners.
+ * <br>
+ * If the simulation should be stopped once it is bound to fail, the evaluator calls back as soon as a step meets
+ * a criterion for good, see {@link CriteriaEvaluation#isMatchFinal()}. The callback is made on the thread
+ * delivering the snapshots, so it must not block.
+ * <br>
+ * The time covered by the simulation, i.e. the intervals of the snapshots of all the steps and the ticks of the
+ * pipeline up to the current time, is shared by every step, see {@link CriteriaEvaluation#cover(long, long)},
+ * so that a step which stalled is evaluated even though its runners publish nothing.
+ * <br>
+ * The steps are identified by their index in the pre-order traversal of the {@link SimulationTree}.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public class CriteriaEvaluator implements SinkSubscriber {
+
+    private final String simulationName;
+
+    private final List<Criteria> criteria;
+
+    private final StepSkeletonData[] steps;
+
+    /**
+     * The evaluations of every criterion, by the index of the step.
+     * The evaluation is {@code null} if the criterion doesn't apply to the step.
+     */
+    private final CriteriaEvaluation[][] evaluations;
+
+    private final Runnable onFinalMatch;
+
+    private volatile boolean finallyMatched = false;
+
+    /**
+     * The simulation covers the time from this to {@link #coveredTo}.
+     */
+    private long coveredFrom = Long.MAX_VALUE;
+
+    private long coveredTo = Long.MIN_VALUE;
+
+    /**
+     * @param simulationName Name of the simulation.
+     * @param simulationTree The structure of the simulation.
+     * @param criteria       The fail-when criteria.
+     * @param onFinalMatch   Called once, when a step meets a criterion for good, or {@code null} if the
+     *                       simulation should run to completion anyway.
+     */
+    public CriteriaEvaluator(String simulationName, SimulationTree simulationTree, List<Criteria> criteria,
+                             Runnable onFinalMatch) {
+        this.simulationName = simulationName;
+        this.criteria = List.copyOf(criteria);
+        this.onFinalMatch = onFinalMatch;
+
+        var stepList = new ArrayList<StepSkeletonData>();
+        for (var scenario : simulationTree.getSteps()) {
+            collectSteps(scenario, stepList);
+        }
+        steps = stepList.toArray(StepSkeletonData[]::new);
+        evaluations = new CriteriaEvaluation[steps.length][this.criteria.size()];
+        for (var stepIndex = 0; stepIndex < steps.length; stepIndex++) {
+            for (var i = 0; i < this.criteria.size(); i++) {
+                if (this.criteria.get(i).appliesTo(steps[stepIndex].getStepName())) {
+                    evaluations[stepIndex][i] = this.criteria.get(i).newEvaluation();
+                }
+            }
+        }
+    }
+
+    private static void collectSteps(StepSkeletonData step, List<StepSkeletonData> steps) {
+        steps.add(step);
+        for (var subStep : step.getSubSteps()) {
+            collectSteps(subStep, steps);
+        }
+    }
+
+    /**
+     * @return {@code true} if a step has met a criterion for good, so the simulation is bound to fail.
+     */
+    public boolean isFinallyMatched() {
+        return finallyMatched;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(ActionReport item) {
+        // The criteria are evaluated from the snapshots
+    }
+
+    @Override
+    public void onHistogramSnapshot(HistogramSnapshot snapshot) {
+        if (snapshot.getStepIndex() < 0 || snapshot.getStepIndex() >= steps.length) {
+            return;
+        }
+        // Cover the interval for every step before adding it, so that it isn't left out of a window it closes
+        cover(snapshot.getIntervalStartTimestampInNanos(),
+                snapshot.getIntervalStartTimestampInNanos() + snapshot.getIntervalLengthInNanos());
+        var stepEvaluations = evaluations[snapshot.getStepIndex()];
+        for (var i = 0; i < stepEvaluations.length; i++) {
+            if (stepEvaluations[i] != null) {
+                stepEvaluations[i].add(snapshot);
+                checkFinalMatch(snapshot.getStepIndex(), i);
+            }
+        }
+    }
+
+    @Override
+    public void onTick() {
+        long now = Util.currentTimestampInNanos();
+        cover(Math.min(coveredFrom, now), now);
+    }
+
+    private void cover(long fromTimestampInNanos, long toTimestampInNanos) {
+        if (fromTimestampInNanos >= coveredFrom && toTimestampInNanos <= coveredTo) {
+            return;
+        }
+        coveredFrom = Math.min(coveredFrom, fromTimestampInNanos);
+        coveredTo = Math.max(coveredTo, toTimestampInNanos);
+        for (var stepIndex = 0; stepIndex < steps.length; stepIndex++) {
+            for (var i = 0; i < criteria.size(); i++) {
+                if (evaluations[stepIndex][i] != null) {
+                    evaluations[stepIndex][i].cover(coveredFrom, coveredTo);
+                    checkFinalMatch(stepIndex, i);
+                }
+            }
+        }
+    }
+
+    private void checkFinalMatch(int stepIndex, int criterionIndex) {
+        if (!finallyMatched && evaluations[stepIndex][criterionIndex].isMatchFinal()) {
+            finallyMatched = true;
+            log.warn("Simulation `{}`: Step `{}` met the fail-when criterion `{}`",
+                    simulationName, steps[stepIndex].getStepName(), criteria.get(criterionIndex));
+            if (onFinalMatch != null) {
+                onFinalMatch.run();
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        log.error(String.format("Simulation `%s`: Failed to evaluate the criteria", simulationName), throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        log.debug("Simulation `{}`: All the criteria have been evaluated", simulationName);
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    /**
+     * Sets whether every step in the report passed, i.e. met none of the criteria.
+     * It must be called after the snapshots have been completely delivered.
+     *
+     * @param simulationReport The report of the simulation, with the steps in the order of the simulation tree.
+     */
+    public void applyTo(AggregateSimulationReport simulationReport) {
+        var passed = true;
+        var stepIndex = 0;
+        for (var scenarioReport : simulationReport.getScenarios()) {
+            var result = applyTo(scenarioReport, stepIndex);
+            stepIndex = result.nextStepIndex();
+            passed &= result.passed();
+        }
+        simulationReport.setPassed(passed);
+    }
+
+    private StepResult applyTo(AggregateActionReport report, int stepIndex) {
+        var passed = true;
+        for (var i = 0; i < criteria.size(); i++) {
+            var evaluation = evaluations[stepIndex][i];
+            if (evaluation != null && evaluation.matches()) {
+                passed = false;
+                log.info("Simulation `{}`: Step `{}` failed, as it met the criterion `{}`",
+                        simulationName, report.getStepName(), criteria.get(i));
+            }
+        }
+        report.setPassed(passed);
+
+        var allPassed = passed;
+        var nextStepIndex = stepIndex + 1;
+        for (var subStepReport : report.getSubSteps()) {
+            var result = applyTo(subStepReport, nextStepIndex);
+            nextStepIndex = result.nextStepIndex();
+            allPassed &= result.passed();
+        }
+        return new StepResult(allPassed, nextStepIndex);
+    }
+
+    private record StepResult(boolean passed, int nextStepIndex) {
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.criteria;
+
+import org.goodload.goodload.exceptions.UnsupportedCriteriaException;
+import org.goodload.goodload.internal.Util;
+
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Creates the criteria from their definitions in goodload.fail-when, or on the command line.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public final class CriteriaParser {
+
+    private static final Pattern PERCENT_FAIL_CRITERIA_PATTERN =
+            Pattern.compile("([0-9]+(?:\\.[0-9]+)?)%[ ]+failure(s)?", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern MINIMUM_FAIL_CRITERIA_PATTERN =
+            Pattern.compile("atleast ([0-9]*) +failure[s]?", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern HISTOGRAM_CRITERIA_PATTERN = Pattern.compile(
+            "(p[0-9]+(?:\\.[0-9]+)?|mean|max|throughput)(?: +of step '([^']+)')? *(<=|>=|<|>) *"
+                    + "([0-9]+(?:\\.[0-9]+)?) *(ns|us|ms|s|/s)(?: +over any ([0-9]+[a-z]+) window)?",
+            Pattern.CASE_INSENSITIVE);
+
+    private CriteriaParser() {
+    }
+
+    /**
+     * Create the Criteria object for a user defined fail-when criterion.
+     *
+     * @param criteriaStr The criterion as defined by the user.
+     * @return The criterion.
+     * @throws UnsupportedCriteriaException If the criterion is not recognized.
+     */
+    public static Criteria parse(String criteriaStr) throws UnsupportedCriteriaException {
+        final var percentFailCriteriaPatternMatcher = PERCENT_FAIL_CRITERIA_PATTERN.matcher(criteriaStr);
+        final var minimumFailCountCriteriaPatternMatcher = MINIMUM_FAIL_CRITERIA_PATTERN.matcher(criteriaStr);
+        final var histogramCriteriaPatternMatcher = HISTOGRAM_CRITERIA_PATTERN.matcher(criteriaStr);
+        if (percentFailCriteriaPatternMatcher.matches()) {
+            return new PercentFailCriteria(Double.parseDouble(percentFailCriteriaPatternMatcher.group(1)));
+        } else if (minimumFailCountCriteriaPatternMatcher.matches()) {
+            return new MinimumFailCountCriteria(Long.parseLong(minimumFailCountCriteriaPatternMatcher.group(1)));
+        } else if (histogramCriteriaPatternMatcher.matches()) {
+            return parseHistogramCriteria(criteriaStr, histogramCriteriaPatternMatcher);
+        }
+        throw new UnsupportedCriteriaException(String.format(
+                "The fail-when criterion '%s' is invalid. Make sure the syntax is correct. " +
+                        "The recognized criteria formats/syntax are %s",
+                criteriaStr,
+                Arrays.toString(new String[]{
+                        MINIMUM_FAIL_CRITERIA_PATTERN.pattern(),
+                        PERCENT_FAIL_CRITERIA_PATTERN.pattern(),
+                        HISTOGRAM_CRITERIA_PATTERN.pattern()
+                })
+        ));
+    }
+
+    /**
+     * Create the latency or throughput criterion matched by {@link #HISTOGRAM_CRITERIA_PATTERN}.
+     * e.g. {@code p99 of step 'Login' > 250ms} or {@code throughput < 100/s over any 1m window}.
+     * The windows are tumbling, i.e. aligned to multiples of their length since the epoch, not sliding.
+     *
+     * @param criteriaStr The criterion as defined by the user.
+     * @param matcher     The matcher which matched the criterion.
+     * @throws UnsupportedCriteriaException If the unit doesn't fit the metric, or the window is invalid.
+     */
+    private static Criteria parseHistogramCriteria(String criteriaStr, Matcher matcher)
+            throws UnsupportedCriteriaException {
+        var metric = matcher.group(1).toLowerCase();
+        var stepName = matcher.group(2);
+        var comparison = Comparison.of(matcher.group(3));
+        var threshold = Double.parseDouble(matcher.group(4));
+        var unit = matcher.group(5).toLowerCase();
+
+        long windowNanos = 0;
+        if (matcher.group(6) != null) {
+            try {
+                windowNanos = TimeUnit.MILLISECONDS.toNanos(Util.parseDurationToMillis(matcher.group(6)));
+            } catch (DateTimeParseException e) {
+                throw new UnsupportedCriteriaException(String.format(
+                        "The window of the fail-when criterion '%s' is not a valid duration", criteriaStr));
+            }
+            if (windowNanos <= 0) {
+                throw new UnsupportedCriteriaException(String.format(
+                        "The window of the fail-when criterion '%s' must be longer than 0", criteriaStr));
+            }
+        }
+
+        if (metric.equals("throughput")) {
+            if (!unit.equals("/s")) {
+                throw new UnsupportedCriteriaException(String.format(
+                        "The throughput in the fail-when criterion '%s' must be per second, e.g. 100/s",
+                        criteriaStr));
+            }
+            return new ThroughputCriteria(stepName, comparison, threshold, windowNanos);
+        }
+
+        double nanosPerUnit = switch (unit) {
+            case "ns" -> 1;
+            case "us" -> 1_000;
+            case "ms" -> 1_000_000;
+            case "s" -> 1_000_000_000;
+            default -> throw new UnsupportedCriteriaException(String.format(
+                    "The latency in the fail-when criterion '%s' must be in ns, us, ms or s", criteriaStr));
+        };
+        try {
+            return switch (metric) {
+                case "mean" -> new LatencyCriteria(stepName, LatencyCriteria.Statistic.MEAN, 0,
+                        comparison, threshold * nanosPerUnit, windowNanos);
+                case "max" -> new LatencyCriteria(stepName, LatencyCriteria.Statistic.MAX, 0,
+                        comparison, threshold * nanosPerUnit, windowNanos);
+                default -> new LatencyCriteria(stepName, LatencyCriteria.Statistic.PERCENTILE,
+                        Double.parseDouble(metric.substring(1)), comparison, threshold * nanosPerUnit, windowNanos);
+            };
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedCriteriaException(String.format(
+                    "The fail-when criterion '%s' is invalid: %s", criteriaStr, e.getMessage()));
+        }
+    }
+}
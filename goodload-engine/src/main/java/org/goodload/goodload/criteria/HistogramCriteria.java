@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.criteria;
+
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.TreeMap;
+
+/**
+ * A criterion on a metric computed from the latency histogram of a step, e.g. a percentile or the throughput.
+ * The step fails if the metric compares with the threshold as specified.
+ * <br>
+ * The metric is either computed over the whole simulation, or over consecutive windows of a fixed length,
+ * in which case the step fails if the metric of any window meets the criterion. The windows are tumbling rather
+ * than sliding: they are aligned to multiples of their length since the epoch, so {@code over any 1m window}
+ * evaluates every minute of the clock, and a breach straddling two windows is split between them. A window is
+ * evaluated once the simulation covers the time one more window length later, and snapshots arriving after that
+ * are left out of it. Only the histograms of the open windows are held, so the cost doesn't grow with the
+ * duration of the simulation.
+ * <br>
+ * The time covered by the simulation, see {@link CriteriaEvaluation#cover(long, long)}, is the time over which
+ * a step is evaluated, whether it completed anything in it or not. Metrics that are defined without executions,
+ * like a throughput of 0, are thus evaluated for a stalled step too: over the whole covered time, and over
+ * every window that is entirely covered.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public abstract class HistogramCriteria implements Criteria {
+
+    /**
+     * The latencies of a step which completed nothing. It is never recorded to.
+     */
+    private static final LatencyHistogram NO_EXECUTIONS = new LatencyHistogram();
+
+    /**
+     * The name of the steps to which the criterion applies, or {@code null} for all the steps.
+     */
+    private final String stepName;
+
+    private final Comparison comparison;
+
+    private final double threshold;
+
+    /**
+     * The length of the windows in nanoseconds, or 0 to compute the metric over the whole simulation.
+     */
+    private final long windowNanos;
+
+    protected HistogramCriteria(String stepName, Comparison comparison, double threshold, long windowNanos) {
+        if (windowNanos < 0) {
+            throw new IllegalArgumentException("The window can't be negative");
+        }
+        this.stepName = stepName;
+        this.comparison = comparison;
+        this.threshold = threshold;
+        this.windowNanos = windowNanos;
+    }
+
+    /**
+     * @param latency       The latencies, in nanoseconds, recorded for the step over the duration.
+     * @param durationNanos The duration over which the latencies were recorded.
+     * @return The value of the metric, in the unit of the threshold.
+     */
+    protected abstract double valueOf(LatencyHistogram latency, long durationNanos);
+
+    /**
+     * @return {@code true} if once the metric over the whole simulation meets the criterion, it keeps meeting it
+     * whatever latencies are recorded later. The default implementation returns {@code false}.
+     */
+    protected boolean isMonotonic() {
+        return false;
+    }
+
+    /**
+     * @return {@code true} if the metric has a value when the step completed nothing over the duration, e.g. a
+     * throughput of 0, in which case time without executions is evaluated too. The default implementation
+     * returns {@code false}.
+     */
+    protected boolean isDefinedWithoutExecutions() {
+        return false;
+    }
+
+    protected Comparison getComparison() {
+        return comparison;
+    }
+
+    @Override
+    public boolean appliesTo(String stepName) {
+        return this.stepName == null || this.stepName.equals(stepName);
+    }
+
+    @Override
+    public CriteriaEvaluation newEvaluation() {
+        return windowNanos > 0 ? new WindowedEvaluation() : new Evaluation();
+    }
+
+    /**
+     * @param metric    The description of the metric, e.g. {@code p99}.
+     * @param threshold The description of the threshold, with its unit.
+     * @return The description of the criterion in the syntax of fail-when.
+     */
+    protected String describe(String metric, String threshold) {
+        var description = new StringBuilder(metric);
+        if (stepName != null) {
+            description.append(" of step '").append(stepName).append('\'');
+        }
+        description.append(' ').append(comparison).append(' ').append(threshold);
+        if (windowNanos > 0) {
+            description.append(" over any ").append(Duration.ofNanos(windowNanos).toString().substring(2).toLowerCase())
+                    .append(" window");
+        }
+        return description.toString();
+    }
+
+    /**
+     * @return The number without trailing zeros, e.g. {@code 250} rather than {@code 250.0}.
+     */
+    protected static String formatNumber(double number) {
+        return BigDecimal.valueOf(number).stripTrailingZeros().toPlainString();
+    }
+
+    private boolean matches(LatencyHistogram latency, long durationNanos) {
+        if (latency.getTotalCount() == 0 && (!isDefinedWithoutExecutions() || durationNanos <= 0)) {
+            return false;
+        }
+        return comparison.test(valueOf(latency, durationNanos), threshold);
+    }
+
+    /**
+     * Merges all the histograms of the step.
+     */
+    private final class Evaluation implements CriteriaEvaluation {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        /**
+         * The simulation covers the time from this to {@link #coveredTo}.
+         */
+        private long coveredFrom = Long.MAX_VALUE;
+
+        private long coveredTo = Long.MIN_VALUE;
+
+        @Override
+        public void cover(long fromTimestampInNanos, long toTimestampInNanos) {
+            coveredFrom = Math.min(coveredFrom, fromTimestampInNanos);
+            coveredTo = Math.max(coveredTo, toTimestampInNanos);
+        }
+
+        @Override
+        public void add(HistogramSnapshot snapshot) {
+            cover(snapshot.getIntervalStartTimestampInNanos(),
+                    snapshot.getIntervalStartTimestampInNanos() + snapshot.getIntervalLengthInNanos());
+            if (snapshot.getCount() > 0) {
+                latency.add(snapshot.getLatency());
+            }
+        }
+
+        @Override
+        public boolean matches() {
+            return HistogramCriteria.this.matches(latency, coveredTo > coveredFrom ? coveredTo - coveredFrom : 0);
+        }
+
+        @Override
+        public boolean isMatchFinal() {
+            return isMonotonic() && matches();
+        }
+    }
+
+    /**
+     * Merges the histograms of the step by window. A window which met the criterion makes the match final.
+     */
+    private final class WindowedEvaluation implements CriteriaEvaluation {
+
+        /**
+         * The histograms of the open windows in which the step completed something, by the index of the window
+         * since the epoch.
+         */
+        private final TreeMap<Long, LatencyHistogram> windows = new TreeMap<>();
+
+        /**
+         * The windows before this have been evaluated.
+         */
+        private long firstOpenWindow = Long.MIN_VALUE;
+
+        /**
+         * The simulation covers the time from this to {@link #coveredTo}.
+         * The first and last windows are only partially covered.
+         */
+        private long coveredFrom = Long.MAX_VALUE;
+
+        private long coveredTo = Long.MIN_VALUE;
+
+        private boolean matched = false;
+
+        @Override
+        public void cover(long fromTimestampInNanos, long toTimestampInNanos) {
+            coveredFrom = Math.min(coveredFrom, fromTimestampInNanos);
+            coveredTo = Math.max(coveredTo, toTimestampInNanos);
+
+            // Keep the window before the newest one open for the snapshots published late
+            long lastClosedWindow = Math.floorDiv(coveredTo - 1, windowNanos) - 2;
+            for (long window = firstCoveredWindow(); window <= lastClosedWindow; window++) {
+                var latency = windows.remove(window);
+                matched |= matches(window, latency != null ? latency : NO_EXECUTIONS);
+            }
+            firstOpenWindow = Math.max(firstOpenWindow, lastClosedWindow + 1);
+        }
+
+        @Override
+        public void add(HistogramSnapshot snapshot) {
+            cover(snapshot.getIntervalStartTimestampInNanos(),
+                    snapshot.getIntervalStartTimestampInNanos() + snapshot.getIntervalLengthInNanos());
+
+            long window = Math.floorDiv(snapshot.getIntervalStartTimestampInNanos(), windowNanos);
+            if (window < firstOpenWindow || snapshot.getCount() == 0) {
+                return;
+            }
+            windows.computeIfAbsent(window, index -> new LatencyHistogram()).add(snapshot.getLatency());
+        }
+
+        private long firstCoveredWindow() {
+            return Math.max(firstOpenWindow, Math.floorDiv(coveredFrom, windowNanos));
+        }
+
+        private boolean matches(long window, LatencyHistogram latency) {
+            long windowStart = window * windowNanos;
+            long windowEnd = windowStart + windowNanos;
+            if (latency.getTotalCount() == 0 && (windowStart < coveredFrom || windowEnd > coveredTo)) {
+                // The executions of the part of the window that isn't covered may just not have been reported yet
+                return false;
+            }
+            long durationNanos = Math.min(windowEnd, coveredTo) - Math.max(windowStart, coveredFrom);
+            return HistogramCriteria.this.matches(latency, durationNanos);
+        }
+
+        @Override
+        public boolean matches() {
+            if (matched) {
+                return true;
+            }
+            if (coveredTo <= coveredFrom) {
+                return false;
+            }
+            long lastWindow = Math.floorDiv(coveredTo - 1, windowNanos);
+            for (long window = firstCoveredWindow(); window <= lastWindow; window++) {
+                if (matches(window, windows.getOrDefault(window, NO_EXECUTIONS))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isMatchFinal() {
+            return matched;
+        }
+    }
+}
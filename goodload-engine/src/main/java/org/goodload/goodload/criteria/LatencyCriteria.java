@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.criteria;
+
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+
+/**
+ * A criterion on the latency of a step, e.g. {@code p99 > 250ms} or {@code mean of step 'Login' >= 1s}.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public class LatencyCriteria extends HistogramCriteria {
+
+    public enum Statistic {
+        PERCENTILE,
+        MEAN,
+        MAX
+    }
+
+    private final Statistic statistic;
+
+    /**
+     * The percentile, if the statistic is {@link Statistic#PERCENTILE}.
+     */
+    private final double percentile;
+
+    private final double thresholdInNanos;
+
+    /**
+     * @param stepName         The name of the steps to which the criterion applies, or {@code null} for all.
+     * @param statistic        The statistic of the latencies compared with the threshold.
+     * @param percentile       The percentile, if the statistic is {@link Statistic#PERCENTILE}.
+     * @param comparison       How the statistic is compared with the threshold.
+     * @param thresholdInNanos The threshold in nanoseconds.
+     * @param windowNanos      The length of the windows over which the statistic is computed,
+     *                         or 0 for the whole simulation.
+     */
+    public LatencyCriteria(String stepName, Statistic statistic, double percentile, Comparison comparison,
+                           double thresholdInNanos, long windowNanos) {
+        super(stepName, comparison, thresholdInNanos, windowNanos);
+        if (statistic == Statistic.PERCENTILE && (percentile < 0 || percentile > 100)) {
+            throw new IllegalArgumentException(String.format("Invalid percentile %s", percentile));
+        }
+        this.statistic = statistic;
+        this.percentile = percentile;
+        this.thresholdInNanos = thresholdInNanos;
+    }
+
+    @Override
+    protected double valueOf(LatencyHistogram latency, long durationNanos) {
+        return switch (statistic) {
+            case PERCENTILE -> latency.getValueAtPercentile(percentile);
+            case MEAN -> latency.getMean();
+            case MAX -> latency.getMax();
+        };
+    }
+
+    /**
+     * The maximum only grows, so once it exceeds the threshold it always will.
+     */
+    @Override
+    protected boolean isMonotonic() {
+        return statistic == Statistic.MAX
+                && (getComparison() == Comparison.GREATER_THAN || getComparison() == Comparison.GREATER_THAN_OR_EQUAL);
+    }
+
+    @Override
+    public String toString() {
+        var metric = switch (statistic) {
+            case PERCENTILE -> "p" + formatNumber(percentile);
+            case MEAN -> "mean";
+            case MAX -> "max";
+        };
+        return describe(metric, formatNumber(thresholdInNanos / 1_000_000) + "ms");
+    }
+}
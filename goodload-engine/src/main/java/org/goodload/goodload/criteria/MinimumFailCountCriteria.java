@@ -14,13 +14,10 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
-
 package org.goodload.goodload.criteria;
 
 import lombok.AllArgsConstructor;
-import org.goodload.goodload.reporting.data.Report;
-
-import java.util.List;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
 
 /**
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
@@ -34,19 +31,40 @@ public class MinimumFailCountCriteria implements Criteria {
      */
     private final long minFailCount;
 
+    @Override
+    public CriteriaEvaluation newEvaluation() {
+        return new Evaluation();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("atleast %d failures", minFailCount);
+    }
+
     /**
-     * Checks if the given list of report satisfies the minimum fail count criteria.
-     * It returns {@code true} when the number of failures is greater than or equal to the
-     * minimum count specified.
-     * @param rawReports The reports which have to be checked.
-     * @return {@code true} if the given criteria is satisfied, else {@code false}
+     * Counts the failures of the step. The number of failures never decreases, so once it reaches
+     * the minimum the match is final.
      */
-    @Override
-    public boolean matches(List<? extends Report> rawReports) {
-        long failCount = rawReports
-                .stream()
-                .filter(report -> !report.isEndedNormally())
-                .count();
-        return failCount >= minFailCount;
+    private final class Evaluation implements CriteriaEvaluation {
+
+        private long failCount = 0;
+
+        @Override
+        public void add(HistogramSnapshot snapshot) {
+            failCount += snapshot.getErrorCount();
+        }
+
+        /**
+         * @return {@code true} when the number of failures is greater than or equal to the minimum count specified.
+         */
+        @Override
+        public boolean matches() {
+            return failCount >= minFailCount;
+        }
+
+        @Override
+        public boolean isMatchFinal() {
+            return matches();
+        }
     }
 }
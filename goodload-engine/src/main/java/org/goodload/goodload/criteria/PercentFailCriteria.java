@@ -14,13 +14,10 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
-
 package org.goodload.goodload.criteria;
 
 import lombok.AllArgsConstructor;
-import org.goodload.goodload.reporting.data.Report;
-
-import java.util.List;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
 
 /**
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
@@ -32,21 +29,41 @@ public class PercentFailCriteria implements Criteria {
     /**
      * The minimum percentage of failed reports which will cause the aggregate report to fail.
      */
-    private final long minPercentOfFailures;
+    private final double minPercentOfFailures;
+
+    @Override
+    public CriteriaEvaluation newEvaluation() {
+        return new Evaluation();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s%% failures", minPercentOfFailures);
+    }
 
     /**
-     * Checks if the given list of report satisfies the minimum percent fail count criteria.
-     * It returns {@code true} when the percentage of failures is greater than or equal to the
-     * minimum percentage specified.
-     * @param rawReports The reports which have to be checked.
-     * @return {@code true} if the given criteria is satisfied, else {@code false}
+     * Tracks the percentage of failed executions of the step. Later executions can lower the percentage,
+     * so the match is never final before the simulation completes.
      */
-    @Override
-    public boolean matches(List<? extends Report> rawReports) {
-        long failCount = rawReports
-                .stream()
-                .filter(report -> !report.isEndedNormally())
-                .count();
-        return failCount / rawReports.size() >= minPercentOfFailures;
+    private final class Evaluation implements CriteriaEvaluation {
+
+        private long count = 0;
+
+        private long failCount = 0;
+
+        @Override
+        public void add(HistogramSnapshot snapshot) {
+            count += snapshot.getCount();
+            failCount += snapshot.getErrorCount();
+        }
+
+        /**
+         * @return {@code true} when the percentage of failures is greater than or equal to the
+         * minimum percentage specified.
+         */
+        @Override
+        public boolean matches() {
+            return count > 0 && failCount * 100.0 / count >= minPercentOfFailures;
+        }
     }
 }
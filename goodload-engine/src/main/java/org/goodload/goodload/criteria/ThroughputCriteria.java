@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.criteria;
+
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+
+/**
+ * A criterion on the number of executions of a step per second, e.g. {@code throughput < 100/s}.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public class ThroughputCriteria extends HistogramCriteria {
+
+    private final double thresholdPerSecond;
+
+    /**
+     * @param stepName           The name of the steps to which the criterion applies, or {@code null} for all.
+     * @param comparison         How the throughput is compared with the threshold.
+     * @param thresholdPerSecond The threshold in executions per second.
+     * @param windowNanos        The length of the windows over which the throughput is computed,
+     *                           or 0 for the whole simulation.
+     */
+    public ThroughputCriteria(String stepName, Comparison comparison, double thresholdPerSecond, long windowNanos) {
+        super(stepName, comparison, thresholdPerSecond, windowNanos);
+        this.thresholdPerSecond = thresholdPerSecond;
+    }
+
+    @Override
+    protected double valueOf(LatencyHistogram latency, long durationNanos) {
+        // A single execution has no duration to speak of
+        return (double) latency.getTotalCount() * Util.NANOS_PER_SECOND / Math.max(durationNanos, 1);
+    }
+
+    @Override
+    protected boolean isDefinedWithoutExecutions() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return describe("throughput", formatNumber(thresholdPerSecond) + "/s");
+    }
+}
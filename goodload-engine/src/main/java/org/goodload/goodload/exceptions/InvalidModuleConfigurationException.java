@@ -16,26 +16,16 @@
  */
 package org.goodload.goodload.exceptions;
 
-import org.goodload.goodload.dsl.Action;
-
 /**
- * Thrown when a check step in a scenario fails.
+ * Thrown when the configuration of a module under {@code goodload.custom} can't be bound to the
+ * configuration class of the module, e.g. unknown properties or values of the wrong type,
+ * or when the module rejects the bound configuration as it starts.
  *
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
  * @since 1.0
  */
-public class CheckFailedException extends RuntimeException {
-
-    /**
-     * Creates an instane of CheckFailedException.
-     * @param simulationName The name of the simulation that failed.
-     * @param action The name of the check step that failed.
-     *               Note that a check is encapsulated by a single step Action object
-     *               which provides the check a name.
-     */
-    public CheckFailedException(String simulationName, Action action) {
-        super(String.format("Check failed for simulation `%s` action `%s`",
-                simulationName,
-                action.getName()));
+public class InvalidModuleConfigurationException extends RuntimeException {
+    public InvalidModuleConfigurationException(String message, Throwable cause) {
+        super(message, cause);
     }
 }
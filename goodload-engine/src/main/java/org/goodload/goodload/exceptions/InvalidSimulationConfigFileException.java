@@ -26,6 +26,10 @@ import java.io.IOException;
  * @since 1.0
  */
 public class InvalidSimulationConfigFileException extends IOException {
+    public InvalidSimulationConfigFileException(String message) {
+        super(message);
+    }
+
     public InvalidSimulationConfigFileException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.userconfig.ArrivalDistribution;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Schedule of an open workload, where the iterations of a scenario are started at a configured
+ * arrival rate independent of how long the previous iterations take to complete.
+ * The arrival rate at any time is the load of the {@link LoadProfile} at that time.
+ * <br>
+ * The schedule is shared by all the runners of a simulation. Every idle runner, i.e. one with fewer
+ * iterations in flight than {@code max-iterations-in-flight}, claims the next arrival and waits until
+ * it is due. If no runner is idle when an arrival is due, the arrival is started late by the first
+ * runner that becomes idle, and the delay is visible as the difference between the intended and the
+ * actual start of the iteration. The {@link #backlog(long)} tells the {@link Simulator} how many
+ * arrivals are overdue, so that it can add more runners.
+ * <br>
+ * It is thread-safe and lock-free.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class ArrivalRateSchedule implements IterationSchedule {
+
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final LoadProfile loadProfile;
+
+    /**
+     * The {@link System#nanoTime()} at which the simulation, and hence the load profile, started.
+     */
+    private final long profileStartNanos;
+
+    private final ArrivalDistribution distribution;
+
+    /**
+     * The {@link System#nanoTime()} after which no iterations will be started.
+     */
+    private final long endNanos;
+
+    /**
+     * Maximum number of arrivals, or {@code null} if the number of arrivals is not limited.
+     */
+    private final Integer maxArrivals;
+
+    /**
+     * Draws uniformly distributed numbers in {@code [0, 1)} for the Poisson arrivals. It may be called by any runner.
+     */
+    private final DoubleSupplier uniformRandom;
+
+    /**
+     * When the next unclaimed arrival is due. The schedule starts when the first runner asks for an iteration,
+     * so that the scenarios after the first one don't start with a backlog of arrivals.
+     */
+    private final AtomicLong nextArrivalNanos = new AtomicLong(NOT_STARTED);
+
+    private final AtomicLong claimedArrivals = new AtomicLong();
+
+    /**
+     * @param loadProfile       The load profile of the simulation, which provides the arrival rate over time.
+     * @param profileStartNanos The {@link System#nanoTime()} at which the load profile started.
+     * @param distribution      How the arrivals are distributed over time.
+     * @param endNanos          The {@link System#nanoTime()} after which no iterations will be started.
+     * @param maxArrivals       Maximum number of iterations to start, or {@code null} for no limit.
+     */
+    ArrivalRateSchedule(
+            LoadProfile loadProfile,
+            long profileStartNanos,
+            ArrivalDistribution distribution,
+            long endNanos,
+            Integer maxArrivals) {
+        this(loadProfile, profileStartNanos, distribution, endNanos, maxArrivals,
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * @param uniformRandom Draws uniformly distributed numbers in {@code [0, 1)} for the Poisson arrivals,
+     *                      from any of the runners.
+     * @see #ArrivalRateSchedule(LoadProfile, long, ArrivalDistribution, long, Integer)
+     */
+    ArrivalRateSchedule(
+            LoadProfile loadProfile,
+            long profileStartNanos,
+            ArrivalDistribution distribution,
+            long endNanos,
+            Integer maxArrivals,
+            DoubleSupplier uniformRandom) {
+        this.loadProfile = loadProfile;
+        this.profileStartNanos = profileStartNanos;
+        this.distribution = distribution;
+        this.endNanos = endNanos;
+        this.maxArrivals = maxArrivals;
+        this.uniformRandom = uniformRandom;
+    }
+
+    @Override
+    public long claimNextIteration() {
+        if (maxArrivals != null && claimedArrivals.getAndIncrement() >= maxArrivals) {
+            return END;
+        }
+        if (nextArrivalNanos.get() == NOT_STARTED) {
+            nextArrivalNanos.compareAndSet(NOT_STARTED, toNanoTime(
+                    loadProfile.nextTimeAbove(0, System.nanoTime() - profileStartNanos)));
+        }
+
+        long intendedStartNanos;
+        long followingArrivalNanos;
+        do {
+            intendedStartNanos = nextArrivalNanos.get();
+            if (intendedStartNanos - endNanos > 0) {
+                return END;
+            }
+            followingArrivalNanos = toNanoTime(
+                    loadProfile.advance(intendedStartNanos - profileStartNanos, nextInterArrivalAmount()));
+        } while (!nextArrivalNanos.compareAndSet(intendedStartNanos, followingArrivalNanos));
+
+        return intendedStartNanos;
+    }
+
+    /**
+     * @param nowNanos The current {@link System#nanoTime()}.
+     * @return The number of arrivals that are due but haven't been claimed by any runner yet.
+     */
+    long backlog(long nowNanos) {
+        long next = nextArrivalNanos.get();
+        if (next == NOT_STARTED || isExhausted(next)) {
+            return 0;
+        }
+        long overdueNanos = Math.min(nowNanos, endNanos) - next;
+        if (overdueNanos < 0) {
+            return 0;
+        }
+        double arrivalsPerSecond = loadProfile.targetAt(nowNanos - profileStartNanos);
+        return (long) (overdueNanos * arrivalsPerSecond / Util.NANOS_PER_SECOND) + 1;
+    }
+
+    private boolean isExhausted(long next) {
+        return next - endNanos > 0 || (maxArrivals != null && claimedArrivals.get() >= maxArrivals);
+    }
+
+    /**
+     * @return The number of arrivals, at the arrival rate of the load profile, after which the next iteration is due.
+     * Always 1 for constant arrivals, and exponentially distributed with mean 1 for Poisson arrivals.
+     */
+    private double nextInterArrivalAmount() {
+        if (distribution == ArrivalDistribution.POISSON) {
+            return -Math.log(1.0 - uniformRandom.getAsDouble());
+        }
+        return 1;
+    }
+
+    /**
+     * @param elapsedNanos Time elapsed since the start of the load profile, or -1 if the profile has ended.
+     * @return The corresponding {@link System#nanoTime()}, or a time after the end of the schedule.
+     */
+    private long toNanoTime(long elapsedNanos) {
+        return elapsedNanos < 0 ? endNanos + 1 : profileStartNanos + elapsedNanos;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import org.goodload.goodload.internal.Util;
+
+/**
+ * Schedule of a closed workload, where every runner starts its next iteration
+ * only after the previous one has completed, or, with {@code max-iterations-in-flight} above 1,
+ * only while it has fewer iterations than that in flight.
+ * <br>
+ * The runner with index {@code i} is active only while the load of the {@link LoadProfile} is above {@code i}.
+ * When the load drops to or below its index, the runner stops starting new iterations until the load rises above
+ * its index again. It lets the runners join gradually during a ramp-up and leave gradually during a ramp-down.
+ * <br>
+ * If the throughput is configured, the iterations of a runner are paced at fixed intervals of
+ * {@code 1 / throughput} seconds. An iteration that couldn't be started on time because the previous
+ * one took too long is started immediately, so the runner catches up with the configured throughput.
+ * <br>
+ * A new schedule is created for every scenario that a runner executes. It is not thread-safe.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class ClosedModelSchedule implements IterationSchedule {
+
+    private final LoadProfile loadProfile;
+
+    /**
+     * The {@link System#nanoTime()} at which the simulation, and hence the load profile, started.
+     */
+    private final long profileStartNanos;
+
+    /**
+     * The {@link System#nanoTime()} after which no iterations will be started.
+     */
+    private final long endNanos;
+
+    /**
+     * The index of the runner this schedule belongs to.
+     */
+    private final int runnerIndex;
+
+    /**
+     * Maximum number of iterations to start, or {@code null} if the number of iterations is not limited.
+     */
+    private final Integer maxIterations;
+
+    /**
+     * Interval between the starts of two consecutive iterations, or 0 if the iterations are not paced.
+     */
+    private final long intervalNanos;
+
+    /**
+     * When the runner became active. Used as the reference point for pacing.
+     */
+    private long activeSinceNanos;
+
+    /**
+     * Number of iterations started since the runner became active.
+     */
+    private long pacedIterations = 0;
+
+    private int startedIterations = 0;
+
+    /**
+     * @param loadProfile       The load profile of the simulation.
+     * @param profileStartNanos The {@link System#nanoTime()} at which the load profile started.
+     * @param endNanos          The {@link System#nanoTime()} after which no iterations will be started.
+     * @param runnerIndex       The index of the runner this schedule belongs to.
+     * @param maxIterations     Maximum number of iterations to start, or {@code null} for no limit.
+     * @param throughput        Maximum number of iterations per second, or {@code null} for no limit.
+     */
+    ClosedModelSchedule(
+            LoadProfile loadProfile,
+            long profileStartNanos,
+            long endNanos,
+            int runnerIndex,
+            Integer maxIterations,
+            Integer throughput) {
+        this.loadProfile = loadProfile;
+        this.profileStartNanos = profileStartNanos;
+        this.endNanos = endNanos;
+        this.runnerIndex = runnerIndex;
+        this.maxIterations = maxIterations;
+        this.intervalNanos = throughput == null || throughput <= 0 ? 0 : Util.NANOS_PER_SECOND / throughput;
+    }
+
+    @Override
+    public long claimNextIteration() {
+        long now = System.nanoTime();
+        if (now - endNanos > 0 || (maxIterations != null && startedIterations >= maxIterations)) {
+            return END;
+        }
+
+        if (loadProfile.targetAt(now - profileStartNanos) <= runnerIndex) {
+            long activeAfterNanos = loadProfile.nextTimeAbove(runnerIndex, now - profileStartNanos);
+            if (activeAfterNanos < 0 || profileStartNanos + activeAfterNanos - endNanos > 0) {
+                return END;
+            }
+            now = profileStartNanos + activeAfterNanos;
+            pacedIterations = 0;
+        }
+
+        startedIterations++;
+        if (intervalNanos == 0) {
+            return now;
+        }
+        if (pacedIterations == 0) {
+            activeSinceNanos = now;
+        }
+        long intendedStartNanos = activeSinceNanos + pacedIterations * intervalNanos;
+        if (intendedStartNanos - endNanos > 0) {
+            return END;
+        }
+        pacedIterations++;
+        return intendedStartNanos;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import org.goodload.goodload.dsl.Action;
+import org.goodload.goodload.dsl.AsyncExecutable;
+import org.goodload.goodload.dsl.Check;
+import org.goodload.goodload.dsl.Executable;
+import org.goodload.goodload.dsl.SequenceElement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A scenario compiled into a flat sequence of instructions, so that the runners can execute its iterations
+ * in a simple loop instead of walking the tree of actions.
+ * <br>
+ * Every action of the scenario, including the scenario itself, is compiled to an {@link #ENTER} instruction,
+ * followed by the instructions of its steps, followed by an {@link #EXIT} instruction. Executables, async
+ * executables and checks are compiled to {@link #EXEC}, {@link #EXEC_ASYNC} and {@link #CHECK} instructions
+ * respectively. The actions are numbered in the order in which they are entered, so the scenario is always
+ * action 0.
+ * <br>
+ * Every action is also given a step index and step ID, which identify it in the reports and are the same in
+ * every runner. See {@link org.goodload.goodload.reporting.data.StepSkeletonData}.
+ * <br>
+ * The plan is immutable and does not depend on the state of any iteration.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class ExecutionPlan {
+
+    /**
+     * Starts the execution of an action.
+     */
+    static final byte ENTER = 0;
+
+    /**
+     * Executes an {@link Executable}.
+     */
+    static final byte EXEC = 1;
+
+    /**
+     * Evaluates a {@link Check}.
+     */
+    static final byte CHECK = 2;
+
+    /**
+     * Ends the execution of an action.
+     */
+    static final byte EXIT = 3;
+
+    /**
+     * Starts an {@link AsyncExecutable}. The iteration is suspended until the stage returned by it completes.
+     */
+    static final byte EXEC_ASYNC = 4;
+
+    /**
+     * The kind of the instruction at every index.
+     */
+    private final byte[] instructions;
+
+    /**
+     * For {@link #ENTER} and {@link #EXIT} the index of the action entered or exited,
+     * for the rest the index of the action containing the step.
+     */
+    private final int[] actionIndices;
+
+    /**
+     * The executable or check of {@link #EXEC}, {@link #EXEC_ASYNC} and {@link #CHECK} instructions,
+     * null for the rest.
+     */
+    private final SequenceElement[] steps;
+
+    /**
+     * The actions in the order in which they are entered.
+     */
+    private final Action[] actions;
+
+    /**
+     * The index of the parent of every action, -1 for the scenario.
+     */
+    private final int[] parentActionIndices;
+
+    /**
+     * The step ID of every action.
+     */
+    private final String[] stepIds;
+
+    /**
+     * The step index of the scenario. The step index of an action is this plus the index of the action.
+     */
+    private final int stepIndexOffset;
+
+    private ExecutionPlan(byte[] instructions, int[] actionIndices, SequenceElement[] steps,
+                          Action[] actions, int[] parentActionIndices, String[] stepIds, int stepIndexOffset) {
+        this.instructions = instructions;
+        this.actionIndices = actionIndices;
+        this.steps = steps;
+        this.actions = actions;
+        this.parentActionIndices = parentActionIndices;
+        this.stepIds = stepIds;
+        this.stepIndexOffset = stepIndexOffset;
+    }
+
+    /**
+     * Compiles the scenarios of a simulation into plans.
+     *
+     * @param scenarios The scenarios of the simulation, in the order in which they are executed.
+     * @return The plans for executing the scenarios, in the same order.
+     */
+    static List<ExecutionPlan> compileAll(List<Action> scenarios) {
+        var plans = new ArrayList<ExecutionPlan>(scenarios.size());
+        var stepIndexOffset = 0;
+        for (var scenarioIndex = 0; scenarioIndex < scenarios.size(); scenarioIndex++) {
+            var plan = compile(scenarios.get(scenarioIndex), scenarioIndex, stepIndexOffset);
+            plans.add(plan);
+            stepIndexOffset += plan.actionCount();
+        }
+        return plans;
+    }
+
+    /**
+     * Compiles the scenario into a plan.
+     *
+     * @param scenario        The scenario to compile.
+     * @param scenarioIndex   The index of the scenario in the simulation.
+     * @param stepIndexOffset The step index of the scenario, i.e. the number of steps in the previous scenarios.
+     * @return The plan for executing the scenario.
+     */
+    static ExecutionPlan compile(Action scenario, int scenarioIndex, int stepIndexOffset) {
+        var compiler = new Compiler();
+        compiler.compile(scenario, -1, String.valueOf(scenarioIndex));
+        return compiler.build(stepIndexOffset);
+    }
+
+    /**
+     * @return The number of instructions in the plan.
+     */
+    int size() {
+        return instructions.length;
+    }
+
+    /**
+     * @return The kind of the instruction at the given index.
+     */
+    byte instructionAt(int index) {
+        return instructions[index];
+    }
+
+    /**
+     * @return The index of the action that the instruction at the given index enters, exits or belongs to.
+     */
+    int actionIndexAt(int index) {
+        return actionIndices[index];
+    }
+
+    /**
+     * @return The executable of the {@link #EXEC} instruction at the given index.
+     */
+    Executable executableAt(int index) {
+        return (Executable) steps[index];
+    }
+
+    /**
+     * @return The async executable of the {@link #EXEC_ASYNC} instruction at the given index.
+     */
+    AsyncExecutable asyncExecutableAt(int index) {
+        return (AsyncExecutable) steps[index];
+    }
+
+    /**
+     * @return The check of the {@link #CHECK} instruction at the given index.
+     */
+    Check checkAt(int index) {
+        return (Check) steps[index];
+    }
+
+    /**
+     * @return The number of actions in the scenario, including the scenario.
+     */
+    int actionCount() {
+        return actions.length;
+    }
+
+    /**
+     * @return The action with the given index.
+     */
+    Action action(int actionIndex) {
+        return actions[actionIndex];
+    }
+
+    /**
+     * @return The index of the parent of the action with the given index, or -1 for the scenario.
+     */
+    int parentActionIndex(int actionIndex) {
+        return parentActionIndices[actionIndex];
+    }
+
+    /**
+     * @return The step index of the action with the given index.
+     */
+    int stepIndex(int actionIndex) {
+        return stepIndexOffset + actionIndex;
+    }
+
+    /**
+     * @return The step ID of the action with the given index.
+     */
+    String stepId(int actionIndex) {
+        return stepIds[actionIndex];
+    }
+
+    private static final class Compiler {
+        private final List<Byte> instructions = new ArrayList<>();
+        private final List<Integer> actionIndices = new ArrayList<>();
+        private final List<SequenceElement> steps = new ArrayList<>();
+        private final List<Action> actions = new ArrayList<>();
+        private final List<Integer> parentActionIndices = new ArrayList<>();
+        private final List<String> stepIds = new ArrayList<>();
+
+        private void compile(Action action, int parentActionIndex, String stepId) {
+            int actionIndex = actions.size();
+            actions.add(action);
+            parentActionIndices.add(parentActionIndex);
+            stepIds.add(stepId);
+
+            add(ENTER, actionIndex, null);
+            var executionSequence = action.getExecutionSequence();
+            for (var position = 0; position < executionSequence.size(); position++) {
+                var step = executionSequence.get(position);
+                if (step instanceof Check check) {
+                    add(CHECK, actionIndex, check);
+                } else if (step instanceof AsyncExecutable asyncExecutable) {
+                    add(EXEC_ASYNC, actionIndex, asyncExecutable);
+                } else if (step instanceof Executable executable) {
+                    add(EXEC, actionIndex, executable);
+                } else if (step instanceof Action nestedAction) {
+                    compile(nestedAction, actionIndex, stepId + "." + position);
+                } else {
+                    throw new IllegalArgumentException(String.format(
+                            "Unsupported step `%s` in action `%s`", step.getClass().getName(), action.getName()));
+                }
+            }
+            add(EXIT, actionIndex, null);
+        }
+
+        private void add(byte instruction, int actionIndex, SequenceElement step) {
+            instructions.add(instruction);
+            actionIndices.add(actionIndex);
+            steps.add(step);
+        }
+
+        private ExecutionPlan build(int stepIndexOffset) {
+            var instructionArray = new byte[instructions.size()];
+            for (var i = 0; i < instructionArray.length; i++) {
+                instructionArray[i] = instructions.get(i);
+            }
+            return new ExecutionPlan(
+                    instructionArray,
+                    actionIndices.stream().mapToInt(Integer::intValue).toArray(),
+                    steps.toArray(SequenceElement[]::new),
+                    actions.toArray(Action[]::new),
+                    parentActionIndices.stream().mapToInt(Integer::intValue).toArray(),
+                    stepIds.toArray(String[]::new),
+                    stepIndexOffset);
+        }
+    }
+}
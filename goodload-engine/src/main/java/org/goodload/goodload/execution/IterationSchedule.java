@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+/**
+ * Decides when a runner should start the next iteration of a scenario.
+ * <br>
+ * The schedule is consulted by a {@link SimulationRunner} before every iteration.
+ * It returns the time at which the iteration is intended to start, so that the delay between the intended
+ * and the actual start can be accounted for in the reports. The runner waits until then, meanwhile resuming
+ * the iterations it has in flight, if any.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+interface IterationSchedule {
+
+    /**
+     * Returned by {@link #claimNextIteration()} when no more iterations should be started.
+     */
+    long END = Long.MIN_VALUE;
+
+    /**
+     * Claims the next iteration without waiting until it is due.
+     *
+     * @return The {@link System#nanoTime()} at which the iteration is intended to start,
+     * or {@link #END} if no more iterations should be started.
+     */
+    long claimNextIteration();
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.userconfig.LoadStage;
+import org.goodload.goodload.userconfig.RampCurve;
+import org.goodload.goodload.userconfig.SimulationConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The load of a simulation over time. The load is the number of concurrent runners in a closed workload,
+ * or the number of iterations started per second in an open workload.
+ * <br>
+ * The profile is a sequence of stages. During each stage the load changes from the target of the previous
+ * stage (0 for the first stage) to the target of the stage, in the shape of the stage's {@link RampCurve}.
+ * The load is 0 after the last stage.
+ * <br>
+ * All the times are in nanoseconds elapsed since the start of the simulation. It is immutable.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class LoadProfile {
+
+    /**
+     * Precision up to which the times are searched.
+     */
+    private static final long SEARCH_PRECISION_NANOS = 1000;
+
+    private final long[] stageStartNanos;
+
+    private final long[] stageEndNanos;
+
+    private final double[] fromTargets;
+
+    private final double[] toTargets;
+
+    private final RampCurve[] curves;
+
+    private LoadProfile(List<Stage> stages) {
+        int count = stages.size();
+        stageStartNanos = new long[count];
+        stageEndNanos = new long[count];
+        fromTargets = new double[count];
+        toTargets = new double[count];
+        curves = new RampCurve[count];
+
+        long start = 0;
+        double from = 0;
+        for (var i = 0; i < count; i++) {
+            var stage = stages.get(i);
+            stageStartNanos[i] = start;
+            stageEndNanos[i] = start + stage.durationNanos();
+            fromTargets[i] = from;
+            toTargets[i] = stage.target();
+            curves[i] = stage.curve();
+            start = stageEndNanos[i];
+            from = stage.target();
+        }
+    }
+
+    /**
+     * Creates the load profile of a simulation, either from its stages, or from its ramp-up,
+     * hold-for and ramp-down durations.
+     *
+     * @param simulationConfig    The configuration of the simulation.
+     * @param defaultHoldForMillis The hold-for duration to use if the simulation doesn't provide one.
+     * @return The load profile of the simulation.
+     */
+    static LoadProfile of(SimulationConfiguration simulationConfig, long defaultHoldForMillis) {
+        var stages = new ArrayList<Stage>();
+
+        if (simulationConfig.hasStages()) {
+            for (LoadStage stage : simulationConfig.getStages()) {
+                stages.add(new Stage(stage.getTarget(), parseDurationToNanos(stage.getDuration()), stage.getCurve()));
+            }
+            return new LoadProfile(stages);
+        }
+
+        double target = simulationConfig.isOpenWorkload()
+                ? simulationConfig.getArrivalRate()
+                : simulationConfig.getConcurrency();
+        long holdForNanos = simulationConfig.getHoldFor() == null
+                ? TimeUnit.MILLISECONDS.toNanos(defaultHoldForMillis)
+                : parseDurationToNanos(simulationConfig.getHoldFor());
+
+        if (simulationConfig.getRampUp() == null) {
+            stages.add(new Stage(target, holdForNanos, RampCurve.STEP));
+        } else {
+            stages.add(new Stage(target, parseDurationToNanos(simulationConfig.getRampUp()),
+                    simulationConfig.getRampUpCurve()));
+            stages.add(new Stage(target, holdForNanos, RampCurve.STEP));
+        }
+        if (simulationConfig.getRampDown() != null) {
+            stages.add(new Stage(0, parseDurationToNanos(simulationConfig.getRampDown()),
+                    simulationConfig.getRampDownCurve()));
+        }
+        return new LoadProfile(stages);
+    }
+
+    /**
+     * @return The total duration of all the stages.
+     */
+    long getDurationNanos() {
+        return stageEndNanos.length == 0 ? 0 : stageEndNanos[stageEndNanos.length - 1];
+    }
+
+    /**
+     * @param elapsedNanos Time elapsed since the start of the simulation.
+     * @return The load at the given time.
+     */
+    double targetAt(long elapsedNanos) {
+        for (var i = 0; i < stageEndNanos.length; i++) {
+            if (elapsedNanos < stageEndNanos[i]) {
+                return valueAt(i, Math.max(elapsedNanos, stageStartNanos[i]));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the earliest time, not before the given time, at which the load is above the given level.
+     * In a closed workload, it is the time at which the runner with index {@code level} should be active.
+     *
+     * @param level        The level which the load should exceed.
+     * @param elapsedNanos Time elapsed since the start of the simulation, from which to search.
+     * @return The earliest time at which the load is above the level, or -1 if it never is.
+     */
+    long nextTimeAbove(double level, long elapsedNanos) {
+        for (var i = 0; i < stageEndNanos.length; i++) {
+            if (stageEndNanos[i] <= elapsedNanos || stageEndNanos[i] == stageStartNanos[i]) {
+                continue;
+            }
+            long low = Math.max(elapsedNanos, stageStartNanos[i]);
+            long high = stageEndNanos[i];
+            if (valueAt(i, low) > level) {
+                return low;
+            }
+            if (toTargets[i] <= level) {
+                // All the curves are monotonic, so the load never exceeds the level in this stage.
+                continue;
+            }
+            while (high - low > SEARCH_PRECISION_NANOS) {
+                long mid = low + (high - low) / 2;
+                if (valueAt(i, mid) > level) {
+                    high = mid;
+                } else {
+                    low = mid;
+                }
+            }
+            return high;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the time at which the integral of the load from the given time reaches the given amount.
+     * In an open workload, it is the time at which the given number of iterations are due.
+     *
+     * @param elapsedNanos Time elapsed since the start of the simulation, from which to integrate.
+     * @param amount       The amount the integral should reach, i.e. the load multiplied by seconds.
+     * @return The time at which the integral reaches the amount, or -1 if the profile ends before that.
+     */
+    long advance(long elapsedNanos, double amount) {
+        double remaining = amount;
+        for (var i = 0; i < stageEndNanos.length; i++) {
+            if (stageEndNanos[i] <= elapsedNanos || stageEndNanos[i] == stageStartNanos[i]) {
+                continue;
+            }
+            long low = Math.max(elapsedNanos, stageStartNanos[i]);
+            long high = stageEndNanos[i];
+
+            if (fromTargets[i] == toTargets[i] || curves[i] == RampCurve.STEP) {
+                // Fast path for stages with constant load
+                double load = toTargets[i];
+                if (load <= 0) {
+                    // Nothing accumulates without load, so the amount is reached in a later stage, if any
+                    if (remaining > 0) {
+                        continue;
+                    }
+                    return low;
+                }
+                double stageAmount = load * (high - low) / Util.NANOS_PER_SECOND;
+                if (stageAmount < remaining) {
+                    remaining -= stageAmount;
+                    continue;
+                }
+                return low + (long) (remaining / load * Util.NANOS_PER_SECOND);
+            }
+
+            double stageAmount = integral(i, low, high);
+            if (stageAmount < remaining) {
+                remaining -= stageAmount;
+                continue;
+            }
+            long from = low;
+            while (high - low > SEARCH_PRECISION_NANOS) {
+                long mid = low + (high - low) / 2;
+                if (integral(i, from, mid) >= remaining) {
+                    high = mid;
+                } else {
+                    low = mid;
+                }
+            }
+            return high;
+        }
+        return -1;
+    }
+
+    private double valueAt(int stage, long elapsedNanos) {
+        return fromTargets[stage]
+                + (toTargets[stage] - fromTargets[stage]) * curves[stage].apply(progress(stage, elapsedNanos));
+    }
+
+    /**
+     * @return The integral of the load (in load multiplied by seconds) within a stage between the given times.
+     */
+    private double integral(int stage, long fromNanos, long toNanos) {
+        return cumulativeIntegral(stage, toNanos) - cumulativeIntegral(stage, fromNanos);
+    }
+
+    private double cumulativeIntegral(int stage, long elapsedNanos) {
+        double progress = progress(stage, elapsedNanos);
+        double durationSeconds = (double) (stageEndNanos[stage] - stageStartNanos[stage]) / Util.NANOS_PER_SECOND;
+        return durationSeconds * (fromTargets[stage] * progress
+                + (toTargets[stage] - fromTargets[stage]) * curves[stage].integral(progress));
+    }
+
+    private double progress(int stage, long elapsedNanos) {
+        long duration = stageEndNanos[stage] - stageStartNanos[stage];
+        if (duration == 0) {
+            return 1;
+        }
+        return Math.min(1.0, Math.max(0.0, (double) (elapsedNanos - stageStartNanos[stage]) / duration));
+    }
+
+    private static long parseDurationToNanos(String duration) {
+        return TimeUnit.MILLISECONDS.toNanos(Util.parseDurationToMillis(duration));
+    }
+
+    private record Stage(double target, long durationNanos, RampCurve curve) {
+    }
+}
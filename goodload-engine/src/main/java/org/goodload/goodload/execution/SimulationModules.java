@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.dsl.SimulationModule;
+import org.goodload.goodload.exceptions.InvalidModuleConfigurationException;
+
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * The modules started for a simulation, see {@link SimulationModule}.
+ * The configuration of every module is bound once, when the module is started.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+final class SimulationModules implements AutoCloseable {
+
+    private final String simulationName;
+
+    private final Map<Class<?>, SimulationModule<?>> modules;
+
+    private SimulationModules(String simulationName, Map<Class<?>, SimulationModule<?>> modules) {
+        this.simulationName = simulationName;
+        this.modules = Collections.unmodifiableMap(modules);
+    }
+
+    /**
+     * Starts all the modules on the classpath of the simulations.
+     * If a module fails to start, the modules already started are closed.
+     *
+     * @param simulationName The name of the simulation.
+     * @param classLoader    The class loader of the simulations.
+     * @param custom         The custom configuration properties provided by the user, may be null.
+     * @return The started modules.
+     * @throws InvalidModuleConfigurationException If the configuration of a module is invalid.
+     */
+    static SimulationModules start(String simulationName, ClassLoader classLoader, Map<String, Object> custom) {
+        var objectMapper = new ObjectMapper();
+        var modules = new LinkedHashMap<Class<?>, SimulationModule<?>>();
+        var started = new SimulationModules(simulationName, modules);
+        try {
+            for (SimulationModule<?> module : ServiceLoader.load(SimulationModule.class, classLoader)) {
+                start(module, simulationName, custom == null ? null : custom.get(module.getName()), objectMapper);
+                modules.put(module.getClass(), module);
+                log.debug("Simulation `{}`: Started module `{}`", simulationName, module.getName());
+            }
+        } catch (RuntimeException | Error e) {
+            started.close();
+            throw e;
+        }
+        return started;
+    }
+
+    private static <C> void start(
+            SimulationModule<C> module, String simulationName, Object configuration, ObjectMapper objectMapper) {
+        C boundConfiguration;
+        try {
+            boundConfiguration = configuration == null
+                    ? module.getConfigurationClass().getDeclaredConstructor().newInstance()
+                    : objectMapper.convertValue(configuration, module.getConfigurationClass());
+        } catch (IllegalArgumentException | ReflectiveOperationException e) {
+            throw new InvalidModuleConfigurationException(String.format(
+                    "Simulation `%s`: The configuration goodload.custom.%s is invalid", simulationName, module.getName()),
+                    e);
+        }
+        try {
+            module.start(simulationName, boundConfiguration);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidModuleConfigurationException(String.format(
+                    "Simulation `%s`: The configuration goodload.custom.%s is invalid: %s",
+                    simulationName, module.getName(), e.getMessage()),
+                    e);
+        }
+    }
+
+    /**
+     * @return The started modules by their classes, to be shared by the sessions of the simulation.
+     */
+    Map<Class<?>, SimulationModule<?>> asMap() {
+        return modules;
+    }
+
+    /**
+     * Closes all the modules. A module failing to close does not prevent the rest from being closed.
+     */
+    @Override
+    public void close() {
+        for (var module : modules.values()) {
+            try {
+                module.close();
+            } catch (RuntimeException e) {
+                log.error(String.format("Simulation `%s`: Failed to close module `%s`",
+                        simulationName, module.getName()), e);
+            }
+        }
+    }
+}
@@ -19,18 +19,31 @@ package org.goodload.goodload.execution;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.goodload.goodload.dsl.*;
-import org.goodload.goodload.exceptions.CheckFailedException;
 import org.goodload.goodload.internal.Util;
-import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.pipeline.ReportPipeline;
+import org.goodload.goodload.reporting.pipeline.ReportRingBuffer;
 import org.goodload.goodload.userconfig.SimulationConfiguration;
 import org.goodload.goodload.userconfig.UserArgs;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
 
 /**
  * Runs a simulation in a thread.
  * n instances of SimulationRunner should be run for n concurrency.
+ * <br>
+ * A runner executes one iteration at a time, except that an iteration waiting for an async step to complete
+ * doesn't keep the runner waiting: the runner starts, or resumes, other iterations meanwhile, up to the
+ * {@code max-iterations-in-flight} of the simulation. All the steps are executed by the runner thread.
  *
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
  * @since 1.0
@@ -39,9 +52,9 @@ import java.util.concurrent.SubmissionPublisher;
 class SimulationRunner implements Callable<Void> {
 
     /**
-     * After how many milliseconds the runner should start execution.
+     * The {@link System#nanoTime()} at which the runner should start execution.
      */
-    private final long runAfterMillis;
+    private final long startNanos;
 
     /**
      * The configuration of the simulation that this runner will execute.
@@ -53,7 +66,17 @@ class SimulationRunner implements Callable<Void> {
      */
     private final Class<? extends Simulation> simulationClass;
 
-    private final SubmissionPublisher<ActionReport> actionReportSubmissionPublisher;
+    /**
+     * The pipeline through which the reports of the runner are delivered to the sink.
+     */
+    private final ReportPipeline reportPipeline;
+
+    /**
+     * The buffer to which the runner publishes the reports of the steps it executes.
+     * It is created when the runner starts, so that runners that are cancelled before starting
+     * don't leave an open buffer in the pipeline.
+     */
+    private ReportRingBuffer reportBuffer;
 
     /**
      * Tag to identify the runner in the logs. It has the format "Simulation `%s` : Runner %d:"
@@ -67,48 +90,70 @@ class SimulationRunner implements Callable<Void> {
     private final int runnerId;
 
     /**
-     * For how many milliseconds should the simulation execute.
-     * New iterations will be started until the duration is over.
-     * This is not being read directly from simulation config as
-     * the {@link Simulator} might want to override the value if
-     * the value exceeds the maxHoldFor value.
+     * Provides the schedule of iterations for the scenario at the given index.
+     * New iterations of a scenario will be started until its schedule ends.
      */
-    private final long holdForMillis;
+    private final IntFunction<IterationSchedule> iterationSchedules;
 
     /**
      * The options set by the user either from command line or parsed from the config file.
      */
     private final UserArgs userArgs;
 
+    /**
+     * The modules started for the simulation, which are provided to the steps through the sessions.
+     */
+    private final SimulationModules modules;
+
+    /**
+     * Records the timings of the steps into histograms which are sent to the sink periodically.
+     */
+    private StepMetricsRecorder metricsRecorder;
+
+    /**
+     * The fraction of the iterations for which raw reports are sent to the sink.
+     */
+    private double rawReportSamplingRate;
+
+    /**
+     * The iterations in flight whose async steps have completed, in the order in which they completed.
+     * They are added by the threads completing the async steps, and resumed by the runner.
+     */
+    private final BlockingQueue<Iteration> resumableIterations = new LinkedBlockingQueue<>();
+
     /**
      * Creates a runner to execute a simulation asynchronously.
      * One runner maintains one concurrency.
      *
      * @param runnerId         The unique ID by which to identify the runner.
-     * @param runAfterMillis   After how many milliseconds should the runner start execution.
+     * @param startNanos       The {@link System#nanoTime()} at which the runner should start execution.
+     *                         The runners are started at different times during a ramp-up.
      * @param simulationConfig The configuration of the simulation that the runner will execute.
      * @param simulationClass  The class file of the simulation that the runner will execute.
-     * @param holdForMillis    For how many milliseconds should the simulation execute.
-     *                         This is not being read directly from simulation config as
-     *                         the {@link Simulator} might want to override the value if
-     *                         the value exceeds the maxHoldFor value.
+     * @param reportPipeline   The pipeline through which the reports of the runner are delivered to the sink.
+     * @param iterationSchedules Provides the schedule of iterations for the scenario at the given index.
+     *                           The schedule decides when the iterations are started and when the runner
+     *                           should move on to the next scenario.
      * @param userArgs         The options set by the user either from command line or parsed from the config file.
+     * @param modules          The modules started for the simulation.
      */
     SimulationRunner(
             int runnerId,
-            int runAfterMillis,
+            long startNanos,
             SimulationConfiguration simulationConfig,
             Class<? extends Simulation> simulationClass,
-            SubmissionPublisher<ActionReport> actionReportSubmissionPublisher,
-            long holdForMillis,
-            UserArgs userArgs) {
-        this.runAfterMillis = runAfterMillis;
+            ReportPipeline reportPipeline,
+            IntFunction<IterationSchedule> iterationSchedules,
+            UserArgs userArgs,
+            SimulationModules modules) {
+        this.startNanos = startNanos;
         this.simulationConfig = simulationConfig;
         this.simulationClass = simulationClass;
-        this.actionReportSubmissionPublisher = actionReportSubmissionPublisher;
+        this.reportPipeline = reportPipeline;
         this.runnerId = runnerId;
-        this.holdForMillis = holdForMillis;
+        this.iterationSchedules = iterationSchedules;
         this.userArgs = userArgs;
+        this.modules = modules;
 
         tag = String.format("Simulation `%s` : Runner %d:", simulationConfig.getName(), runnerId);
     }
@@ -117,14 +162,9 @@ class SimulationRunner implements Callable<Void> {
     public Void call() {
         log.debug("{} : Started", tag);
 
+        reportBuffer = reportPipeline.createBuffer();
         try {
-            Thread.sleep(runAfterMillis);
-
-            final var runnerIdStr = String.valueOf(runnerId);
-
-            long startTimestamp = Util.currentTimestamp();
-            // Time after which no iterations will be started
-            long endIterationsWhenTimestamp = startTimestamp + holdForMillis;
+            Util.sleepUntil(startNanos);
 
             var simulation = simulationClass.getDeclaredConstructor().newInstance();
 
@@ -132,37 +172,29 @@ class SimulationRunner implements Callable<Void> {
 
             var scenarios = simulation.init();
 
-            // Sequentially execute all scenarios in the given simulation
-            for (var currentScenario : scenarios) {
-                var scenarioReport = new ActionReport(currentScenario.getId());
-                scenarioReport.setRunnerId(runnerIdStr);
-                scenarioReport.setStartTimestampInMillis(Util.currentTimestamp());
-
-                simulation.beforeEachScenario(currentScenario.getName());
-
-                // Run iterations until the hold-for duration is over, or user-defined number of iterations
-                // have been completed.
-                for (var iterationIndex = 0;
-                     Util.currentTimestamp() <= endIterationsWhenTimestamp
-                             && (simulationConfig.getIterations() == null || iterationIndex < simulationConfig.getIterations());
-                     iterationIndex++
-                ) {
-                    maintainThroughput(startTimestamp, iterationIndex);
+            var executionPlans = ExecutionPlan.compileAll(scenarios);
+            var idleIterations = allocateIterations(executionPlans);
 
-                    simulation.beforeEachIteration(currentScenario.getName(), iterationIndex);
+            var reportingConfig = userArgs.getYamlConfiguration().getReporting();
+            rawReportSamplingRate = reportingConfig.getRawReportSamplingRate();
+            metricsRecorder = new StepMetricsRecorder(
+                    runnerId,
+                    executionPlans.stream().mapToInt(ExecutionPlan::actionCount).sum(),
+                    TimeUnit.MILLISECONDS.toNanos(Util.parseDurationToMillis(reportingConfig.getHistogramInterval())),
+                    reportBuffer);
 
-                    var session = new Session();
-                    session.setCustomConfigurationProperties(userArgs.getYamlConfiguration().getCustom());
-
-                    var iterationCompletedNormally = execute(session, currentScenario, runnerIdStr, iterationIndex);
-                    if (iterationCompletedNormally) {
-                        scenarioReport.setEndedNormally(false);
-                    }
+            // Sequentially execute all scenarios in the given simulation
+            for (var scenarioIndex = 0; scenarioIndex < scenarios.size(); scenarioIndex++) {
+                var currentScenario = scenarios.get(scenarioIndex);
 
-                    simulation.afterEachIteration(currentScenario.getName(), iterationIndex);
+                simulation.beforeEachScenario(currentScenario.getName());
 
-                    log.trace("{}: Iteration {} finished", tag, iterationIndex);
-                }
+                executeScenario(
+                        simulation,
+                        currentScenario.getName(),
+                        executionPlans.get(scenarioIndex),
+                        iterationSchedules.apply(scenarioIndex),
+                        idleIterations);
 
                 simulation.afterEachScenario(currentScenario.getName());
             }
@@ -170,10 +202,16 @@ class SimulationRunner implements Callable<Void> {
             simulation.afterSimulation();
 
         } catch (InterruptedException e) {
-            log.error(String.format("%s : The runner thread was interrupted.", tag), e);
+            // The runners are interrupted when the simulation is aborted or overruns, which is logged by the simulator
+            log.warn("{} : The runner thread was interrupted.", tag);
             Thread.currentThread().interrupt();
         } catch (Exception e) {
             log.error(String.format("%s : Unknown exception occurred during execution: ", tag), e);
+        } finally {
+            if (metricsRecorder != null) {
+                metricsRecorder.flush();
+            }
+            reportBuffer.close();
         }
 
         log.debug("{} : Ended", tag);
@@ -181,77 +219,392 @@ class SimulationRunner implements Callable<Void> {
     }
 
     /**
-     * Execute all the steps in the given action recursively and generate report.
+     * Allocates the state of as many iterations as the runner may have in flight, sized for the largest of
+     * the plans, so that it can be reused by every iteration of every scenario.
      *
-     * @param session        The session object holding information about current iteration.
-     * @param action         The action whose steps are to be executed.
-     * @param runnerId       The id of the current runner.
-     * @param iterationIndex The iteration in which this action is getting executed.
-     * @return true if the execution completed successfully, false if execution of this or any of the substeps failed.
+     * @return The idle iterations.
      */
-    private boolean execute(Session session, Action action, String runnerId, int iterationIndex) {
-        var actionReport = new ActionReport(action.getId());
-        actionReport.setIterationIndex(iterationIndex);
-        actionReport.setRunnerId(runnerId);
-        long actionStartTimestamp = Util.currentTimestamp();
-        actionReport.setStartTimestampInMillis(actionStartTimestamp);
-
-        action.getExecutionSequence().forEach((step -> {
-            try {
-                if (step instanceof Check check) {
-                    if (!check.condition(session)) {
-                        throw new CheckFailedException(simulationConfig.getName(), action);
-                    }
-                } else if (step instanceof Executable executable) {
-                    executable.function(session);
-                } else if (step instanceof Action nestedAction) {
+    private Deque<Iteration> allocateIterations(List<ExecutionPlan> executionPlans) {
+        int maxActionCount = executionPlans.stream().mapToInt(ExecutionPlan::actionCount).max().orElse(0);
+        int maxIterationsInFlight = Math.max(1, simulationConfig.getMaxIterationsInFlight());
+        var iterations = new ArrayDeque<Iteration>(maxIterationsInFlight);
+        for (var i = 0; i < maxIterationsInFlight; i++) {
+            iterations.push(new Iteration(runnerId * maxIterationsInFlight + i, maxActionCount));
+        }
+        return iterations;
+    }
 
-                    var nestedActionCompletedNormally = execute(session, nestedAction, runnerId, iterationIndex);
+    /**
+     * Runs iterations of a scenario until its schedule ends, i.e. the hold-for duration is over, or user-defined
+     * number of iterations have been started, and then waits for the iterations in flight to complete.
+     * <br>
+     * A new iteration is started whenever there is an idle one and the schedule allows it. An iteration that
+     * reaches an async step is suspended until the step completes, and is then resumed by the runner. The
+     * completed iterations are resumed before starting new ones, and while waiting for the next iteration
+     * to be due.
+     *
+     * @param simulation        The simulation whose hooks to call.
+     * @param scenarioName      The name of the scenario.
+     * @param executionPlan     The compiled scenario.
+     * @param iterationSchedule The schedule of the iterations of the scenario.
+     * @param idleIterations    The iterations which are not in flight. All of them are idle when this returns.
+     * @throws InterruptedException If the runner is interrupted.
+     */
+    private void executeScenario(
+            Simulation simulation,
+            String scenarioName,
+            ExecutionPlan executionPlan,
+            IterationSchedule iterationSchedule,
+            Deque<Iteration> idleIterations) throws InterruptedException {
+        int iterationCount = idleIterations.size();
+        var scheduleEnded = false;
+        for (var iterationIndex = 0; ; ) {
+            for (Iteration iteration; (iteration = resumableIterations.poll()) != null; ) {
+                resume(simulation, iteration, idleIterations);
+            }
 
-                    if (nestedActionCompletedNormally) {
-                        actionReport.setEndedNormally(false);
-                    }
+            if (!scheduleEnded && !idleIterations.isEmpty()) {
+                long intendedStartNanos = iterationSchedule.claimNextIteration();
+                if (intendedStartNanos == IterationSchedule.END) {
+                    scheduleEnded = true;
+                    continue;
                 }
-            } catch (CheckFailedException e) {
-                actionReport.setEndedNormally(false);
-            } catch (Exception e) {
-                log.debug("Error occurred in step {}: {}", actionReport.getStepName(), ExceptionUtils.getStackTrace(e));
-                actionReport.setEndedNormally(false);
-            }
-        }));
-        actionReport.setEndTimestampInMillis(Util.currentTimestamp());
+                awaitIterationStart(simulation, intendedStartNanos, idleIterations);
 
-        actionReportSubmissionPublisher.submit(actionReport);
-        log.trace("{}: Submitted action report {}", tag, actionReport);
+                metricsRecorder.flushIfIntervalEnded();
+                simulation.beforeEachIteration(scenarioName, iterationIndex);
 
-        return actionReport.isEndedNormally();
+                var iteration = idleIterations.pop();
+                iteration.start(scenarioName, executionPlan, iterationIndex++, intendedStartNanos);
+                if (iteration.execute()) {
+                    finish(simulation, iteration, idleIterations);
+                }
+            } else if (idleIterations.size() < iterationCount) {
+                resume(simulation, resumableIterations.take(), idleIterations);
+            } else {
+                return;
+            }
+        }
     }
 
     /**
-     * Sleep the thread for some time to maintain max throughput.
-     * Throughput is the number simulation iterations per second.
-     * The sleep time needed is calculated using formula- <br/>
-     * sleep time (Tsl) = iterationCount (C) / max throughput (M) - simulation duration (T)
-     *
-     * @param startTimestamp When the simulation was started.
-     * @param iterationCount How many iterations have been completed till now.
-     * @throws InterruptedException If the sleeping thread is interrupted.
+     * Blocks until the {@link System#nanoTime()} reaches the intended start of the next iteration,
+     * resuming the iterations whose async steps complete meanwhile.
      */
-    private void maintainThroughput(long startTimestamp, int iterationCount)
+    private void awaitIterationStart(Simulation simulation, long intendedStartNanos, Deque<Iteration> idleIterations)
+            throws InterruptedException {
+        long remainingNanos;
+        while ((remainingNanos = intendedStartNanos - System.nanoTime()) > 0) {
+            var iteration = resumableIterations.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (iteration != null) {
+                resume(simulation, iteration, idleIterations);
+            }
+        }
+    }
+
+    private void resume(Simulation simulation, Iteration iteration, Deque<Iteration> idleIterations)
             throws InterruptedException {
-        var maxThroughput = simulationConfig.getThroughput();
+        if (iteration.resume()) {
+            finish(simulation, iteration, idleIterations);
+        }
+    }
+
+    private void finish(Simulation simulation, Iteration iteration, Deque<Iteration> idleIterations) {
+        simulation.afterEachIteration(iteration.scenarioName, iteration.iterationIndex);
+        log.trace("{}: Iteration {} finished", tag, iteration.iterationIndex);
+        iteration.session = null;
+        idleIterations.push(iteration);
+    }
+
+    /**
+     * The state of an iteration of a scenario, which can be suspended at an async step and resumed when the step
+     * completes. The state is reused by the iterations of the runner, one at a time.
+     * <br>
+     * Only the runner thread uses the state, except for {@link #asyncFailure}, which is set by the thread
+     * completing the async step before the iteration is handed to the runner through
+     * {@link #resumableIterations}.
+     */
+    private final class Iteration {
+
+        private String scenarioName;
+
+        private ExecutionPlan executionPlan;
+
+        private int iterationIndex;
+
+        /**
+         * The ID of the virtual user executing the iterations started in this state, see
+         * {@link Session#getVirtualUserId()}.
+         */
+        private final int virtualUserId;
+
+        private Session session;
+
+        /**
+         * The index of the next instruction of the {@link #executionPlan} to execute.
+         */
+        private int nextInstructionIndex;
+
+        /**
+         * The {@link System#nanoTime()} at which the iteration was scheduled to start.
+         */
+        private long intendedStartNanos;
+
+        /**
+         * True until the first step of the iteration is executed. The actions entered until then
+         * were kept waiting by the schedule and should have started at {@link #intendedStartNanos}.
+         */
+        private boolean startPending;
+
+        /**
+         * If true, then a raw report is sent to the sink for every step of the iteration.
+         */
+        private boolean sampled;
+
+        /**
+         * When the actions of the iteration started, as {@link System#nanoTime()},
+         * indexed by {@link ExecutionPlan#action(int)}.
+         */
+        private final long[] actionStartTimestamps;
+
+        /**
+         * When the actions of the iteration should have started, as {@link System#nanoTime()},
+         * indexed by {@link ExecutionPlan#action(int)}.
+         */
+        private final long[] actionIntendedStartTimestamps;
+
+        /**
+         * Whether the actions of the iteration have executed without errors so far,
+         * indexed by {@link ExecutionPlan#action(int)}.
+         */
+        private final boolean[] actionsEndedNormally;
+
+        /**
+         * The network timings of the requests of the iteration, reset when the state is reused.
+         */
+        private final NetworkMetrics networkMetrics = new NetworkMetrics();
+
+        /**
+         * The totals of the {@link #networkMetrics} when the actions of the iteration started, indexed by
+         * {@code actionIndex * NetworkMetrics.PHASE_COUNT + phase}. The difference with the totals when an action
+         * ends is what the action spent in every phase.
+         */
+        private final long[] actionStartPhaseNanos;
+
+        private final long[] actionStartPhaseCounts;
+
+        /**
+         * The bytes received by the iteration when the actions of the iteration started,
+         * indexed by {@link ExecutionPlan#action(int)}.
+         */
+        private final long[] actionStartBytesReceived;
+
+        /**
+         * Scratch space for computing the time spent in every phase by an action when it ends.
+         */
+        private final long[] phaseNanos = new long[NetworkMetrics.PHASE_COUNT];
+
+        private final long[] phaseCounts = new long[NetworkMetrics.PHASE_COUNT];
+
+        /**
+         * The index of the action containing the async step that the iteration is suspended at.
+         */
+        private int asyncActionIndex;
+
+        /**
+         * The exception with which the async step completed, or null if it completed normally.
+         */
+        private Throwable asyncFailure;
+
+        /**
+         * Hands the iteration to the runner when its async step completes.
+         * Created once, so that suspending an iteration doesn't allocate.
+         */
+        private final BiConsumer<Object, Throwable> onAsyncCompleted = (result, failure) -> {
+            asyncFailure = failure;
+            resumableIterations.add(this);
+        };
+
+        private Iteration(int virtualUserId, int maxActionCount) {
+            this.virtualUserId = virtualUserId;
+            actionStartTimestamps = new long[maxActionCount];
+            actionIntendedStartTimestamps = new long[maxActionCount];
+            actionsEndedNormally = new boolean[maxActionCount];
+            actionStartPhaseNanos = new long[maxActionCount * NetworkMetrics.PHASE_COUNT];
+            actionStartPhaseCounts = new long[maxActionCount * NetworkMetrics.PHASE_COUNT];
+            actionStartBytesReceived = new long[maxActionCount];
+        }
 
-        if (maxThroughput == null) {
-            return;
+        private void start(String scenarioName, ExecutionPlan executionPlan, int iterationIndex,
+                           long intendedStartNanos) {
+            this.scenarioName = scenarioName;
+            this.executionPlan = executionPlan;
+            this.iterationIndex = iterationIndex;
+            this.intendedStartNanos = intendedStartNanos;
+
+            session = new Session();
+            session.setCustomConfigurationProperties(userArgs.getYamlConfiguration().getCustom());
+            session.setVirtualUserId(virtualUserId);
+            session.setModules(modules.asMap());
+            networkMetrics.reset();
+            session.setNetworkMetrics(networkMetrics);
+
+            nextInstructionIndex = 0;
+            startPending = true;
+            sampled = rawReportSamplingRate >= 1
+                    || (rawReportSamplingRate > 0
+                    && ThreadLocalRandom.current().nextDouble() < rawReportSamplingRate);
+        }
+
+        /**
+         * Continues the iteration after its async step has completed.
+         *
+         * @return true if the iteration has completed, false if it has been suspended at another async step.
+         * @throws InterruptedException If the runner is interrupted while waiting for space in the report buffer.
+         */
+        private boolean resume() throws InterruptedException {
+            if (asyncFailure != null) {
+                log.debug("Error occurred in step {}: {}",
+                        executionPlan.action(asyncActionIndex).getName(), ExceptionUtils.getStackTrace(asyncFailure));
+                actionsEndedNormally[asyncActionIndex] = false;
+                asyncFailure = null;
+            }
+            return execute();
         }
-        long simulationDurationInSeconds = (Util.currentTimestamp() - startTimestamp) / 1000;
-        float currentThroughput = (float) iterationCount /
-                simulationDurationInSeconds;
-        if (currentThroughput > maxThroughput) {
-            long requiredWaitTimeInSeconds = iterationCount / maxThroughput - simulationDurationInSeconds;
-            if (requiredWaitTimeInSeconds * 1000 > 0) {
-                Thread.sleep(requiredWaitTimeInSeconds * 1000);
+
+        /**
+         * Executes the iteration, from where it was suspended if it was, and records the timings of every action.
+         * Raw reports of the actions are sent to the sink only if the iteration is sampled.
+         * <br>
+         * A failing step marks the action containing it, and all the actions above it, as failed,
+         * but the remaining steps of the iteration are still executed.
+         *
+         * @return true if the iteration has completed, false if it has been suspended at an async step.
+         * @throws InterruptedException If the runner is interrupted while waiting for space in the report buffer.
+         */
+        private boolean execute() throws InterruptedException {
+            while (nextInstructionIndex < executionPlan.size()) {
+                int instructionIndex = nextInstructionIndex++;
+                int actionIndex = executionPlan.actionIndexAt(instructionIndex);
+                switch (executionPlan.instructionAt(instructionIndex)) {
+                    case ExecutionPlan.ENTER -> {
+                        long actionStartNanos = System.nanoTime();
+                        actionStartTimestamps[actionIndex] = actionStartNanos;
+                        actionIntendedStartTimestamps[actionIndex] = startPending
+                                ? Math.min(intendedStartNanos, actionStartNanos)
+                                : actionStartNanos;
+                        actionsEndedNormally[actionIndex] = true;
+                        actionStartBytesReceived[actionIndex] = networkMetrics.copyTo(
+                                actionStartPhaseNanos, actionStartPhaseCounts, actionIndex * NetworkMetrics.PHASE_COUNT);
+                    }
+                    case ExecutionPlan.EXEC -> {
+                        // Only the steps leading up to the first executed step were kept waiting by the schedule
+                        startPending = false;
+                        try {
+                            executionPlan.executableAt(instructionIndex).function(session);
+                        } catch (Exception e) {
+                            log.debug("Error occurred in step {}: {}",
+                                    executionPlan.action(actionIndex).getName(), ExceptionUtils.getStackTrace(e));
+                            actionsEndedNormally[actionIndex] = false;
+                        }
+                    }
+                    case ExecutionPlan.EXEC_ASYNC -> {
+                        startPending = false;
+                        if (startAsync(instructionIndex, actionIndex)) {
+                            return false;
+                        }
+                    }
+                    case ExecutionPlan.CHECK -> {
+                        startPending = false;
+                        try {
+                            if (!executionPlan.checkAt(instructionIndex).condition(session)) {
+                                log.trace("{}: Check failed in step {}",
+                                        tag, executionPlan.action(actionIndex).getName());
+                                actionsEndedNormally[actionIndex] = false;
+                            }
+                        } catch (Exception e) {
+                            log.debug("Error occurred in step {}: {}",
+                                    executionPlan.action(actionIndex).getName(), ExceptionUtils.getStackTrace(e));
+                            actionsEndedNormally[actionIndex] = false;
+                        }
+                    }
+                    case ExecutionPlan.EXIT -> exit(actionIndex);
+                    default -> throw new IllegalStateException(
+                            "Unknown instruction " + executionPlan.instructionAt(instructionIndex));
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Starts the async step of the instruction.
+         *
+         * @return true if the iteration must be suspended until the step completes, false if the step has failed
+         * to start or has no stage to wait for.
+         */
+        private boolean startAsync(int instructionIndex, int actionIndex) {
+            CompletionStage<?> stage;
+            try {
+                stage = executionPlan.asyncExecutableAt(instructionIndex).function(session);
+            } catch (Exception e) {
+                log.debug("Error occurred in step {}: {}",
+                        executionPlan.action(actionIndex).getName(), ExceptionUtils.getStackTrace(e));
+                actionsEndedNormally[actionIndex] = false;
+                return false;
+            }
+            if (stage == null) {
+                return false;
+            }
+            asyncActionIndex = actionIndex;
+            stage.whenComplete(onAsyncCompleted);
+            return true;
+        }
+
+        /**
+         * Records the timings of the action that has ended, including the time spent in the phases of the network
+         * requests made by the action and its sub-actions, and the bytes they received.
+         */
+        private void exit(int actionIndex) throws InterruptedException {
+            long actionEndTimestamp = Util.toTimestampInNanos(System.nanoTime());
+            long actionStartTimestamp = Util.toTimestampInNanos(actionStartTimestamps[actionIndex]);
+            long actionIntendedStartTimestamp = Util.toTimestampInNanos(actionIntendedStartTimestamps[actionIndex]);
+            int stepIndex = executionPlan.stepIndex(actionIndex);
+
+            int parentActionIndex = executionPlan.parentActionIndex(actionIndex);
+            if (parentActionIndex >= 0 && !actionsEndedNormally[actionIndex]) {
+                actionsEndedNormally[parentActionIndex] = false;
+            }
+
+            long bytesReceived = networkMetrics.copyTo(phaseNanos, phaseCounts, 0);
+            for (var phase = 0; phase < NetworkMetrics.PHASE_COUNT; phase++) {
+                int startIndex = actionIndex * NetworkMetrics.PHASE_COUNT + phase;
+                phaseNanos[phase] = phaseCounts[phase] == actionStartPhaseCounts[startIndex]
+                        ? -1
+                        : phaseNanos[phase] - actionStartPhaseNanos[startIndex];
+            }
+
+            metricsRecorder.record(
+                    stepIndex,
+                    actionStartTimestamp,
+                    actionIntendedStartTimestamp,
+                    actionEndTimestamp,
+                    actionsEndedNormally[actionIndex],
+                    phaseNanos,
+                    bytesReceived - actionStartBytesReceived[actionIndex]);
+
+            if (sampled) {
+                // The slot is reused, hence all of its fields must be set
+                var actionReport = reportBuffer.claim();
+                actionReport.setStepIndex(stepIndex);
+                actionReport.setStepName(null);
+                actionReport.setIterationIndex(iterationIndex);
+                actionReport.setRunnerId(runnerId);
+                actionReport.setStartTimestampInNanos(actionStartTimestamp);
+                actionReport.setIntendedStartTimestampInNanos(actionIntendedStartTimestamp);
+                actionReport.setEndTimestampInNanos(actionEndTimestamp);
+                actionReport.setEndedNormally(actionsEndedNormally[actionIndex]);
+                reportBuffer.publish();
             }
         }
     }
-}
\ No newline at end of file
+}
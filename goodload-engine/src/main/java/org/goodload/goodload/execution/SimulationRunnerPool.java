@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+
+/**
+ * The runners executing a simulation.
+ * Runners can be added while the simulation is running, up to a maximum pool size.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class SimulationRunnerPool {
+
+    private final ExecutorService executorService;
+
+    /**
+     * Creates the runner for the given runner ID.
+     */
+    private final IntFunction<SimulationRunner> runnerFactory;
+
+    private final int maxSize;
+
+    private final List<Future<Void>> runnerFutures = new ArrayList<>();
+
+    /**
+     * Set once all the runners have completed. No more runners are added after that.
+     */
+    private boolean completed = false;
+
+    /**
+     * Set if the simulation was stopped before its end, see {@link #abort()}.
+     */
+    private volatile boolean aborted = false;
+
+    /**
+     * @param executorService The executor on which the runners are executed.
+     * @param runnerFactory   Creates the runner for the given runner ID.
+     * @param maxSize         The maximum number of runners in the pool.
+     */
+    SimulationRunnerPool(ExecutorService executorService, IntFunction<SimulationRunner> runnerFactory, int maxSize) {
+        this.executorService = executorService;
+        this.runnerFactory = runnerFactory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Starts more runners, without exceeding the maximum pool size.
+     *
+     * @param count The number of runners to start.
+     * @return The number of runners actually started.
+     */
+    synchronized int grow(long count) {
+        if (completed) {
+            return 0;
+        }
+        int toStart = (int) Math.min(count, maxSize - runnerFutures.size());
+        for (var i = 0; i < toStart; i++) {
+            runnerFutures.add(executorService.submit(runnerFactory.apply(runnerFutures.size())));
+        }
+        return toStart;
+    }
+
+    /**
+     * Stops the simulation before its end. No more runners are added, and the runners are interrupted,
+     * including those waiting for their next iteration. The runners still publish what they have recorded.
+     * <br>
+     * It doesn't block, so it can be called from any thread.
+     */
+    synchronized void abort() {
+        if (completed) {
+            return;
+        }
+        aborted = true;
+        cancelAll();
+    }
+
+    /**
+     * @return {@code true} if the simulation was stopped before its end by {@link #abort()}.
+     */
+    boolean isAborted() {
+        return aborted;
+    }
+
+    synchronized int size() {
+        return runnerFutures.size();
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Waits for all the runners, including those added while waiting, to complete.
+     * If the runners don't complete before the deadline, all of them are cancelled.
+     * If the pool is aborted, it returns without waiting for the interrupted runners to complete.
+     *
+     * @param deadlineNanos The {@link System#nanoTime()} until which to wait for the runners.
+     * @throws CancellationException If the runners were cancelled because they didn't complete before the deadline.
+     * @throws ExecutionException    If any of the runners completed exceptionally.
+     * @throws InterruptedException  If the current thread was interrupted while waiting.
+     */
+    void awaitCompletion(long deadlineNanos) throws ExecutionException, InterruptedException {
+        for (var i = 0; ; i++) {
+            Future<Void> future;
+            synchronized (this) {
+                if (i >= runnerFutures.size()) {
+                    completed = true;
+                    return;
+                }
+                future = runnerFutures.get(i);
+            }
+            try {
+                future.get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (CancellationException e) {
+                if (!aborted) {
+                    throw e;
+                }
+            } catch (TimeoutException e) {
+                cancelAll();
+                throw new CancellationException("The runners didn't complete before the deadline.");
+            }
+        }
+    }
+
+    private synchronized void cancelAll() {
+        completed = true;
+        for (var future : runnerFutures) {
+            future.cancel(true);
+        }
+    }
+}
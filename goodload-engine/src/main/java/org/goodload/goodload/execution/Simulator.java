@@ -19,27 +19,42 @@ package org.goodload.goodload.execution;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.goodload.goodload.config.GoodloadConfigurationProperties;
-import org.goodload.goodload.dsl.Action;
+import org.goodload.goodload.criteria.CriteriaEvaluator;
 import org.goodload.goodload.dsl.Simulation;
 import org.goodload.goodload.exceptions.SimulatorInterruptedException;
 import org.goodload.goodload.internal.Util;
-import org.goodload.goodload.reporting.data.ActionReport;
 import org.goodload.goodload.reporting.data.SimulationTree;
 import org.goodload.goodload.reporting.data.StepSkeletonData;
+import org.goodload.goodload.reporting.config.ReportingConfigurationProperties;
+import org.goodload.goodload.reporting.datasink.CompositeSink;
+import org.goodload.goodload.reporting.datasink.BufferedSinkSubscriber;
 import org.goodload.goodload.reporting.datasink.Sink;
+import org.goodload.goodload.reporting.datasink.SinkWriterMetrics;
+import org.goodload.goodload.reporting.SimulationReportAggregator;
+import org.goodload.goodload.reporting.StepLatencyStatistics;
+import org.goodload.goodload.reporting.export.ReportExporter;
+import org.goodload.goodload.reporting.live.LiveMetricsCollector;
+import org.goodload.goodload.reporting.live.LiveMetricsReporter;
+import org.goodload.goodload.reporting.pipeline.ReportPipeline;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateSimulationReport;
 import org.goodload.goodload.userconfig.ParsedUserArgs;
 import org.goodload.goodload.userconfig.SimulationConfiguration;
 import org.goodload.goodload.userconfig.UserArgs;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * As the name suggests,
@@ -52,6 +67,12 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class Simulator {
 
+    /**
+     * How often to check whether more runners are needed to maintain the arrival rate of an open workload.
+     */
+    private static final long ARRIVAL_BACKLOG_CHECK_INTERVAL_MILLIS = 10;
+    private static final int MIN_REPORT_BUFFER_SIZE = 64;
+
     @Resource
     private UserArgs userArgs;
 
@@ -62,15 +83,25 @@ public class Simulator {
     private GoodloadConfigurationProperties goodloadConfigurationProperties;
 
     @Resource
-    private Sink sink;
+    private ReportingConfigurationProperties reportingConfigurationProperties;
+
+    @Resource
+    private LiveMetricsReporter liveMetricsReporter;
+
+    /**
+     * The sinks by the names of their beans.
+     */
+    @Resource
+    private Map<String, Sink> sinks;
 
     /**
      * Takes a simulation configuration and executes it.
      * Also generates the report for that simulation.
      *
      * @param simulationConfig The simulation to execute.
+     * @return The aggregate report of the simulation, or null if the simulation is disabled or was interrupted.
      */
-    public void execute(SimulationConfiguration simulationConfig, int simulationId) throws
+    public AggregateSimulationReport execute(SimulationConfiguration simulationConfig, int simulationId) throws
             ClassNotFoundException,
             NoSuchMethodException,
             InvocationTargetException,
@@ -78,7 +109,7 @@ public class Simulator {
             IllegalAccessException {
         if (!simulationConfig.isEnabled()) {
             log.info("Simulation `{}` ignored as it is disabled.", simulationConfig.getName());
-            return;
+            return null;
         }
 
         log.info("Starting simulation `{}`", simulationConfig.getName());
@@ -97,55 +128,125 @@ public class Simulator {
         var simulationInstance = simulationClass.getDeclaredConstructor().newInstance();
 
         var simulationMetadata = prepareSimulationMetadata(simulationInstance);
+        simulationMetadata.setRawReportSamplingRate(
+                userArgs.getYamlConfiguration().getReporting().getRawReportSamplingRate());
 
+        var sink = createSink();
         sink.registerSimulationSkeletonData(simulationMetadata);
 
         long maxHoldFor = Util.parseDurationToMillis(goodloadConfigurationProperties.getMaxHoldFor());
-        long simulationHoldFor = Util.parseDurationToMillis(simulationConfig.getHoldFor());
+        var loadProfile = LoadProfile.of(simulationConfig, maxHoldFor);
+        long simulationDurationNanos = loadProfile.getDurationNanos();
 
-        if (maxHoldFor < simulationHoldFor) {
-            log.warn("The hold-for duration {} is greater than max allowed value of {}, " +
+        if (TimeUnit.MILLISECONDS.toNanos(maxHoldFor) < simulationDurationNanos) {
+            log.warn("The duration of the simulation {} (including ramp-up and ramp-down, or all the stages) " +
+                            "is greater than max allowed value of {}, " +
                             "hence the simulation will be run only for {} duration.",
-                    simulationConfig.getHoldFor(),
+                    Duration.ofNanos(simulationDurationNanos),
                     goodloadConfigurationProperties.getMaxHoldFor(),
                     goodloadConfigurationProperties.getMaxHoldFor());
+            simulationDurationNanos = TimeUnit.MILLISECONDS.toNanos(maxHoldFor);
         }
 
-        long holdForMillis = Math.min(maxHoldFor, simulationHoldFor);
-
         // Forcibly terminate the runner threads if some long-running step in simulation is causing
         // it to run for more than 120% of the hold for value.
         // This prevents Denial of Service attacks due to infinite recursions or loops in simulation.
         long forceEndAfterDuration = (long)
                 ((100.0 + goodloadConfigurationProperties.getGracePeriodPercentage()) / 100 * maxHoldFor);
 
-        var runners = new ArrayList<SimulationRunner>(simulationConfig.getConcurrency());
+        int scenarioCount = simulationInstance.init().size();
+
+        SimulationReportAggregator reportAggregator = null;
+        SinkWriterMetrics sinkWriterMetrics = null;
+        LiveMetricsCollector liveMetrics = null;
+        CriteriaEvaluator criteriaEvaluator = null;
+        var aborted = false;
+        var modules = SimulationModules.start(
+                simulationConfig.getName(),
+                parsedUserArgs.getUserSimulationsClassLoader(),
+                userArgs.getYamlConfiguration().getCustom());
+        var reportExporter = createReportExporter(simulationConfig.getName(), simulationMetadata);
+        // The exporter writes the raw reports to files, so it gets a writer of its own like the sinks, rather than
+        // doing I/O on the thread draining the runners' buffers
+        var exportSubscriber = reportExporter == null ? null : bufferedExportSubscriber(simulationId, reportExporter);
+
+        try (var reportPipeline = new ReportPipeline(String.valueOf(simulationId), reportBufferCapacity())) {
+
+            sink.registerPublisher(reportPipeline);
+
+            long simulationStartNanos = System.nanoTime();
+            reportAggregator = new SimulationReportAggregator(
+                    simulationConfig.getName(), simulationMetadata, Util.toTimestampInNanos(simulationStartNanos));
+            reportPipeline.subscribe(reportAggregator);
+            liveMetrics = new LiveMetricsCollector(simulationConfig.getName(), simulationMetadata);
+            reportPipeline.subscribe(liveMetrics);
+            liveMetricsReporter.start(liveMetrics);
+            long iterationsEndNanos = simulationStartNanos + simulationDurationNanos;
+            var arrivalSchedules = simulationConfig.isOpenWorkload()
+                    ? createArrivalSchedules(simulationConfig, scenarioCount, loadProfile, simulationStartNanos,
+                    iterationsEndNanos)
+                    : null;
+
+            var runnerPool = new SimulationRunnerPool(
+                    parsedUserArgs.getSimulationExecutorService(),
+                    runnerId -> new SimulationRunner(
+                            runnerId,
+                            arrivalSchedules != null
+                                    ? System.nanoTime()
+                                    : runnerStartNanos(loadProfile, simulationStartNanos, runnerId),
+                            simulationConfig,
+                            simulationClass,
+                            reportPipeline,
+                            arrivalSchedules != null
+                                    ? scenarioIndex -> arrivalSchedules[scenarioIndex]
+                                    : scenarioIndex -> new ClosedModelSchedule(
+                                    loadProfile,
+                                    simulationStartNanos,
+                                    iterationsEndNanos,
+                                    runnerId,
+                                    simulationConfig.getIterations(),
+                                    simulationConfig.getThroughput()),
+                            userArgs,
+                            modules),
+                    simulationConfig.getEffectiveMaxConcurrency());
+            criteriaEvaluator = new CriteriaEvaluator(
+                    simulationConfig.getName(),
+                    simulationMetadata,
+                    parsedUserArgs.getFailPassCriteria(),
+                    parsedUserArgs.isAbortOnFail() ? runnerPool::abort : null);
+            reportPipeline.subscribe(criteriaEvaluator);
+            if (exportSubscriber != null) {
+                reportPipeline.subscribe(exportSubscriber);
+            }
 
-        try (var actionReportPublisher = new SubmissionPublisher<ActionReport>()) {
+            // In a closed workload all the runners are started upfront, and each of them waits until the load profile
+            // requires it to be active. In an open workload, more runners are started as and when needed.
+            runnerPool.grow(simulationConfig.isOpenWorkload()
+                    ? simulationConfig.getConcurrency()
+                    : simulationConfig.getEffectiveMaxConcurrency());
 
-            sink.registerPublisher(actionReportPublisher);
+            ScheduledExecutorService runnerPoolMonitor = null;
+            if (arrivalSchedules != null) {
+                runnerPoolMonitor = monitorArrivalBacklog(simulationConfig, arrivalSchedules, runnerPool);
+            }
 
-            for (var runnerId = 0; runnerId < simulationConfig.getConcurrency(); runnerId++) {
-                var runner = new SimulationRunner(
-                        runnerId,
-                        0,
-                        simulationConfig,
-                        simulationClass,
-                        actionReportPublisher,
-                        holdForMillis,
-                        userArgs);
-                runners.add(runner);
+            try {
+                runnerPool.awaitCompletion(simulationStartNanos + TimeUnit.MILLISECONDS.toNanos(forceEndAfterDuration));
+            } finally {
+                if (runnerPoolMonitor != null) {
+                    runnerPoolMonitor.shutdownNow();
+                }
             }
 
-            var futures = parsedUserArgs.getSimulationExecutorService().invokeAll(
-                    runners,
-                    forceEndAfterDuration,
-                    TimeUnit.MILLISECONDS);
-            for (var future : futures) {
-                future.get();
+            aborted = runnerPool.isAborted();
+            if (aborted) {
+                log.warn("Simulation `{}` was aborted because it is bound to fail.", simulationConfig.getName());
             }
 
+            // Deliver all the buffered reports to the sink before closing it
+            reportPipeline.close();
             sink.close();
+            sinkWriterMetrics = sink.getWriterMetrics();
         } catch (CancellationException e) {
             throw new SimulatorInterruptedException(
                     String.format(
@@ -158,61 +259,254 @@ public class Simulator {
         } catch (ExecutionException e) {
             log.error("An exception occurred while executing the simulation", e.getCause());
         } catch (InterruptedException e) {
+            closeQuietly(exportSubscriber);
             log.error(String.format(
                             "The simulation `%s` was interrupted before completion.",
                             simulationConfig.getName()),
                     e);
             Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
+            closeQuietly(exportSubscriber);
             throw new RuntimeException(e);
+        } finally {
+            if (liveMetrics != null) {
+                liveMetricsReporter.stop(liveMetrics);
+            }
+            // The runners have ended, or have been cancelled, hence nothing uses the modules anymore
+            modules.close();
         }
 
         log.info("Simulation `{}` completed.", simulationConfig.getName());
 
         log.info("Simulation `{}`: Generating aggregate report...", simulationConfig.getName());
-        // TODO: Generate aggregate report
-//
-//        return reportAggregator.aggregate(
-//                simulationConfig.getName(),
-//                simulationReport,
-//                simulationEndTime - simulationStartTime);
+
+        if (reportAggregator == null) {
+            closeQuietly(exportSubscriber);
+            return null;
+        }
+        var aggregateReport = reportAggregator.aggregate(StepLatencyStatistics.DEFAULT_PERCENTILES);
+        criteriaEvaluator.applyTo(aggregateReport);
+        aggregateReport.setAborted(aborted);
+        for (var scenarioReport : aggregateReport.getScenarios()) {
+            log.info("Simulation `{}`: Scenario `{}`: {} iterations, {} failed, mean {} ms, max {} ms",
+                    simulationConfig.getName(),
+                    scenarioReport.getStepName(),
+                    scenarioReport.getIterations(),
+                    scenarioReport.getErrorCount(),
+                    String.format("%.3f", scenarioReport.getLatency().getMean() / 1_000_000),
+                    String.format("%.3f", scenarioReport.getLatency().getMaximum() / 1_000_000.0));
+        }
+        log.info("Simulation `{}` {}.", simulationConfig.getName(), aggregateReport.isPassed() ? "passed" : "failed");
+        if (sinkWriterMetrics != null) {
+            aggregateReport.setSinkDroppedReports(sinkWriterMetrics.getDroppedCount());
+            aggregateReport.setSinkSampledOutReports(sinkWriterMetrics.getSampledOutCount());
+            aggregateReport.setSinkSpilledReports(sinkWriterMetrics.getSpilledCount());
+            aggregateReport.setSinkFailedReports(sinkWriterMetrics.getFailedCount());
+            if (sinkWriterMetrics.getDroppedCount() + sinkWriterMetrics.getSampledOutCount()
+                    + sinkWriterMetrics.getFailedCount() > 0) {
+                log.warn("Simulation `{}`: The sink couldn't keep up and is missing {} dropped, {} sampled out "
+                                + "and {} failed reports. The aggregate report is complete.",
+                        simulationConfig.getName(),
+                        sinkWriterMetrics.getDroppedCount(),
+                        sinkWriterMetrics.getSampledOutCount(),
+                        sinkWriterMetrics.getFailedCount());
+            }
+        }
+        if (reportExporter != null) {
+            try {
+                reportExporter.export(aggregateReport);
+            } catch (IOException e) {
+                log.error(String.format("Simulation `%s`: Failed to export the report", simulationConfig.getName()), e);
+            }
+        }
+        return aggregateReport;
     }
 
-    private static SimulationTree prepareSimulationMetadata(Simulation simulationInstance) {
-        var simulationTree = new SimulationTree();
-        simulationTree.setSimulationId(UUID.randomUUID().toString());
-        simulationTree.setSimulationName(simulationInstance.getClass().getCanonicalName());
+    /**
+     * @return The capacity of the runners' report buffers, scaled down by the raw report sampling rate, as only the
+     * sampled iterations generate reports, and 0 if no iteration is sampled.
+     */
+    private int reportBufferCapacity() {
+        double samplingRate = Math.min(1, userArgs.getYamlConfiguration().getReporting().getRawReportSamplingRate());
+        if (samplingRate <= 0) {
+            return 0;
+        }
+        int configuredSize = goodloadConfigurationProperties.getReportBufferSize();
+        return (int) Math.min(configuredSize,
+                Math.max(MIN_REPORT_BUFFER_SIZE, Math.ceil(configuredSize * samplingRate)));
+    }
 
-        var steps = new LinkedList<StepSkeletonData>();
+    private BufferedSinkSubscriber bufferedExportSubscriber(int simulationId, ReportExporter reportExporter) {
+        var fanOut = reportingConfigurationProperties.getFanOut();
+        return new BufferedSinkSubscriber("export-" + simulationId, reportExporter, fanOut.getBatchSize(),
+                fanOut.getFlushInterval(), fanOut.getBackpressurePolicy());
+    }
 
-        for (var action : simulationInstance.init()) {
-            steps.add(mapActionToStepSkeletonData(action));
+    private static void closeQuietly(BufferedSinkSubscriber exportSubscriber) {
+        if (exportSubscriber == null) {
+            return;
         }
+        try {
+            exportSubscriber.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to close the exporter", e);
+        }
+    }
 
-        simulationTree.setSteps(steps);
-
-        return simulationTree;
+    /**
+     * @return The exporter of the reports in the formats configured by the user, or null if no format has been
+     * configured or the export files can't be created.
+     */
+    private ReportExporter createReportExporter(String simulationName, SimulationTree simulationTree) {
+        if (parsedUserArgs.getExportFormats().isEmpty()) {
+            return null;
+        }
+        var reportingConfig = userArgs.getYamlConfiguration().getReporting();
+        var directory = Path.of(reportingConfig.getExportDirectoryPath() == null
+                ? "."
+                : reportingConfig.getExportDirectoryPath());
+        try {
+            return new ReportExporter(directory, parsedUserArgs.getExportFormats(), reportingConfig.isExportGzip(),
+                    reportingConfig.isIncludeRawReport(), simulationName, simulationTree);
+        } catch (IOException e) {
+            log.error(String.format("Simulation `%s`: Failed to create the export files in %s, the report will not " +
+                    "be exported", simulationName, directory.toAbsolutePath()), e);
+            return null;
+        }
     }
 
-    private static StepSkeletonData mapActionToStepSkeletonData(Action sourceAction) {
-        var subSteps = sourceAction
-                .getExecutionSequence()
-                .stream()
-                .filter(sequenceElement -> sequenceElement instanceof Action)
-                .map(sequenceElement -> (Action) sequenceElement)
+    /**
+     * @return The only sink, or a sink fanning the reports out to all the sinks if there are more than one.
+     */
+    private Sink createSink() {
+        if (sinks.size() == 1) {
+            return sinks.values().iterator().next();
+        }
+        var fanOut = reportingConfigurationProperties.getFanOut();
+        var members = sinks.entrySet().stream()
+                .map(entry -> new CompositeSink.Member(
+                        entry.getKey(),
+                        entry.getValue(),
+                        fanOut.getBackpressurePolicies().getOrDefault(entry.getKey(), fanOut.getBackpressurePolicy())))
                 .toList();
+        return new CompositeSink(members, fanOut.getBatchSize(), fanOut.getFlushInterval());
+    }
 
-        var skeletonSubSteps = new LinkedList<StepSkeletonData>();
+    /**
+     * Creates the schedules of an open workload. All the runners share a single schedule per scenario.
+     *
+     * @param simulationConfig   The configuration of the simulation.
+     * @param scenarioCount        The number of scenarios in the simulation.
+     * @param loadProfile          The load profile which provides the arrival rate over time.
+     * @param simulationStartNanos The {@link System#nanoTime()} at which the simulation started.
+     * @param iterationsEndNanos   The {@link System#nanoTime()} after which no iterations will be started.
+     * @return The schedules of the scenarios, in the order in which the scenarios are executed.
+     */
+    private static ArrivalRateSchedule[] createArrivalSchedules(
+            SimulationConfiguration simulationConfig,
+            int scenarioCount,
+            LoadProfile loadProfile,
+            long simulationStartNanos,
+            long iterationsEndNanos) {
+        if (simulationConfig.getThroughput() != null) {
+            log.warn("Simulation `{}`: throughput is ignored because arrival-rate has been provided.",
+                    simulationConfig.getName());
+        }
 
-        for (var subStep : subSteps) {
-            skeletonSubSteps.add(mapActionToStepSkeletonData(subStep));
+        var schedules = new ArrivalRateSchedule[scenarioCount];
+        for (var i = 0; i < scenarioCount; i++) {
+            schedules[i] = new ArrivalRateSchedule(
+                    loadProfile,
+                    simulationStartNanos,
+                    simulationConfig.getArrivalDistribution(),
+                    iterationsEndNanos,
+                    simulationConfig.getIterations());
         }
+        return schedules;
+    }
 
-        var targetSkeletonData = new StepSkeletonData();
-        targetSkeletonData.setStepName(sourceAction.getName());
-        targetSkeletonData.setStepId(sourceAction.getId());
-        targetSkeletonData.setSubSteps(skeletonSubSteps);
+    /**
+     * @return The {@link System#nanoTime()} at which the runner with the given index of a closed workload should
+     * start, i.e. when the load profile first requires it to be active.
+     */
+    private static long runnerStartNanos(LoadProfile loadProfile, long simulationStartNanos, int runnerIndex) {
+        long activeAfterNanos = loadProfile.nextTimeAbove(runnerIndex, 0);
+        return simulationStartNanos + Math.max(activeAfterNanos, 0);
+    }
 
-        return targetSkeletonData;
+    /**
+     * Periodically checks if there are any arrivals that are due but not picked up by any runner,
+     * and starts more runners to pick them up.
+     *
+     * @return The executor running the check. It must be shut down once the runners have completed.
+     */
+    private static ScheduledExecutorService monitorArrivalBacklog(
+            SimulationConfiguration simulationConfig,
+            ArrivalRateSchedule[] arrivalSchedules,
+            SimulationRunnerPool runnerPool) {
+        var monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "goodload-runner-pool-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var maxConcurrencyWarningLogged = new AtomicBoolean(false);
+
+        monitor.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            long backlog = 0;
+            for (var arrivalSchedule : arrivalSchedules) {
+                backlog += arrivalSchedule.backlog(now);
+            }
+            if (backlog == 0) {
+                return;
+            }
+            int started = runnerPool.grow(backlog);
+            if (started > 0) {
+                log.debug("Simulation `{}`: Started {} more runners for {} overdue arrivals. Total runners: {}",
+                        simulationConfig.getName(), started, backlog, runnerPool.size());
+            } else if (runnerPool.size() >= runnerPool.getMaxSize()
+                    && maxConcurrencyWarningLogged.compareAndSet(false, true)) {
+                log.warn("Simulation `{}`: All {} runners are busy and the arrival rate can't be maintained. " +
+                                "Increase max-concurrency to start more runners.",
+                        simulationConfig.getName(), runnerPool.getMaxSize());
+            }
+        }, ARRIVAL_BACKLOG_CHECK_INTERVAL_MILLIS, ARRIVAL_BACKLOG_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        return monitor;
+    }
+
+    private static SimulationTree prepareSimulationMetadata(Simulation simulationInstance) {
+        var simulationTree = new SimulationTree();
+        simulationTree.setSimulationId(UUID.randomUUID().toString());
+        simulationTree.setSimulationName(simulationInstance.getClass().getCanonicalName());
+
+        var steps = new LinkedList<StepSkeletonData>();
+
+        for (var executionPlan : ExecutionPlan.compileAll(simulationInstance.init())) {
+            var stepsOfScenario = new StepSkeletonData[executionPlan.actionCount()];
+            for (var actionIndex = 0; actionIndex < executionPlan.actionCount(); actionIndex++) {
+                var step = new StepSkeletonData();
+                step.setStepId(executionPlan.stepId(actionIndex));
+                step.setStepIndex(executionPlan.stepIndex(actionIndex));
+                step.setStepName(executionPlan.action(actionIndex).getName());
+                step.setSubSteps(new LinkedList<>());
+                stepsOfScenario[actionIndex] = step;
+
+                // Actions are indexed in pre-order, so the parent has always been mapped before its sub steps.
+                var parentActionIndex = executionPlan.parentActionIndex(actionIndex);
+                if (parentActionIndex < 0) {
+                    steps.add(step);
+                } else {
+                    stepsOfScenario[parentActionIndex].getSubSteps().add(step);
+                }
+            }
+        }
+
+        simulationTree.setSteps(steps);
+
+        return simulationTree;
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import org.goodload.goodload.dsl.NetworkMetrics;
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+import org.goodload.goodload.reporting.pipeline.ReportRingBuffer;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Records the timings of the steps executed by a runner into histograms, per step and per interval of time,
+ * and publishes a {@link HistogramSnapshot} for every step that was executed when an interval ends.
+ * <br>
+ * An execution is counted in the interval in which it ended, so the intervals of a runner always move forward.
+ * The intervals are aligned to the wall clock, so the snapshots of the same interval from different runners
+ * can be merged. It belongs to a single runner and is not thread-safe.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class StepMetricsRecorder {
+
+    private final int runnerId;
+
+    private final long intervalNanos;
+
+    private final ReportRingBuffer reportBuffer;
+
+    /**
+     * The histograms of the current interval, indexed by step index. Null for steps not executed in the interval.
+     */
+    private final StepMetrics[] stepMetrics;
+
+    /**
+     * The index of the current interval, i.e. the number of intervals since the epoch.
+     */
+    private long currentInterval = Long.MIN_VALUE;
+
+    /**
+     * @param runnerId      ID of the runner recording the timings.
+     * @param stepCount     Number of steps in the simulation.
+     * @param intervalNanos Length of the intervals in nanoseconds.
+     * @param reportBuffer  The buffer to which the snapshots are published.
+     */
+    StepMetricsRecorder(int runnerId, int stepCount, long intervalNanos, ReportRingBuffer reportBuffer) {
+        this.runnerId = runnerId;
+        this.intervalNanos = intervalNanos;
+        this.reportBuffer = reportBuffer;
+        stepMetrics = new StepMetrics[stepCount];
+    }
+
+    /**
+     * Records an execution of a step.
+     *
+     * @param stepIndex          The index of the step in the simulation.
+     * @param startTimestamp     When the step started, in nanoseconds since the epoch.
+     * @param intendedStartTimestamp When the step should have started, in nanoseconds since the epoch.
+     * @param endTimestamp       When the step ended, in nanoseconds since the epoch.
+     * @param endedNormally      False if the step failed.
+     * @param phaseNanos         The time spent by the step in every phase of its network requests, in nanoseconds,
+     *                           indexed by {@link NetworkMetrics.Phase#ordinal()}. Negative for the phases which
+     *                           the step didn't go through.
+     * @param bytesReceived      The number of bytes received by the network requests of the step.
+     */
+    void record(int stepIndex, long startTimestamp, long intendedStartTimestamp, long endTimestamp,
+                boolean endedNormally, long[] phaseNanos, long bytesReceived) {
+        long interval = Math.floorDiv(endTimestamp, intervalNanos);
+        if (interval != currentInterval) {
+            flush();
+            currentInterval = interval;
+        }
+
+        var metrics = stepMetrics[stepIndex];
+        if (metrics == null) {
+            metrics = new StepMetrics();
+            stepMetrics[stepIndex] = metrics;
+        }
+        metrics.latency.recordValue(endTimestamp - startTimestamp);
+        metrics.correctedLatency.recordValue(endTimestamp - Math.min(intendedStartTimestamp, startTimestamp));
+        if (!endedNormally) {
+            metrics.errorCount++;
+        }
+        metrics.firstStartTimestamp = Math.min(metrics.firstStartTimestamp, startTimestamp);
+        metrics.lastEndTimestamp = Math.max(metrics.lastEndTimestamp, endTimestamp);
+        metrics.bytesReceived += bytesReceived;
+        for (var phase = 0; phase < NetworkMetrics.PHASE_COUNT; phase++) {
+            if (phaseNanos[phase] >= 0) {
+                if (metrics.phaseLatencies[phase] == null) {
+                    metrics.phaseLatencies[phase] = new LatencyHistogram();
+                }
+                metrics.phaseLatencies[phase].recordValue(phaseNanos[phase]);
+            }
+        }
+    }
+
+    /**
+     * Publishes the snapshots of the current interval, if the interval has ended.
+     */
+    void flushIfIntervalEnded() {
+        if (currentInterval != Long.MIN_VALUE
+                && Math.floorDiv(Util.currentTimestampInNanos(), intervalNanos) != currentInterval) {
+            flush();
+            currentInterval = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Publishes the snapshots of the current interval, even if it hasn't ended yet.
+     */
+    void flush() {
+        for (var stepIndex = 0; stepIndex < stepMetrics.length; stepIndex++) {
+            var metrics = stepMetrics[stepIndex];
+            if (metrics == null || metrics.latency.getTotalCount() == 0) {
+                continue;
+            }
+            var snapshot = new HistogramSnapshot();
+            snapshot.setStepIndex(stepIndex);
+            snapshot.setRunnerId(runnerId);
+            snapshot.setIntervalStartTimestampInNanos(currentInterval * intervalNanos);
+            snapshot.setIntervalLengthInNanos(intervalNanos);
+            snapshot.setFirstStartTimestampInNanos(metrics.firstStartTimestamp);
+            snapshot.setLastEndTimestampInNanos(metrics.lastEndTimestamp);
+            snapshot.setErrorCount(metrics.errorCount);
+            snapshot.setBytesReceived(metrics.bytesReceived);
+            snapshot.setLatency(metrics.latency);
+            snapshot.setCorrectedLatency(metrics.correctedLatency);
+            for (var phase = 0; phase < NetworkMetrics.PHASE_COUNT; phase++) {
+                if (metrics.phaseLatencies[phase] != null) {
+                    if (snapshot.getPhaseLatencies() == null) {
+                        snapshot.setPhaseLatencies(new LinkedHashMap<>());
+                    }
+                    snapshot.getPhaseLatencies().put(
+                            NetworkMetrics.phase(phase).getReportName(), metrics.phaseLatencies[phase]);
+                }
+            }
+            reportBuffer.publish(snapshot);
+
+            // The published histograms now belong to the consumer
+            stepMetrics[stepIndex] = new StepMetrics();
+        }
+    }
+
+    private static final class StepMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram correctedLatency = new LatencyHistogram();
+
+        /**
+         * Indexed by {@link NetworkMetrics.Phase#ordinal()}, created when the phase is first recorded,
+         * as most steps don't make network requests.
+         */
+        private final LatencyHistogram[] phaseLatencies = new LatencyHistogram[NetworkMetrics.PHASE_COUNT];
+        private long errorCount = 0;
+        private long bytesReceived = 0;
+        private long firstStartTimestamp = Long.MAX_VALUE;
+        private long lastEndTimestamp = Long.MIN_VALUE;
+    }
+}
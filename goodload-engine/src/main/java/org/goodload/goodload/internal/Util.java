@@ -17,7 +17,8 @@
 package org.goodload.goodload.internal;
 
 import java.time.Duration;
-import java.util.Date;
+import java.time.Instant;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Contains utility methods for things repeatedly used across the project.
@@ -25,17 +26,66 @@ import java.util.Date;
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
  */
 public final class Util {
+    public static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * The {@link System#nanoTime()} when the wall clock was read for {@link #WALL_CLOCK_ANCHOR_NANOS}.
+     */
+    private static final long MONOTONIC_ANCHOR_NANOS;
+
+    /**
+     * Nanoseconds since the epoch, read once per run. The timestamps of the run are derived from it
+     * and the monotonic clock, so they are not affected by adjustments of the wall clock during the run.
+     */
+    private static final long WALL_CLOCK_ANCHOR_NANOS;
+
+    static {
+        var now = Instant.now();
+        MONOTONIC_ANCHOR_NANOS = System.nanoTime();
+        WALL_CLOCK_ANCHOR_NANOS = now.getEpochSecond() * NANOS_PER_SECOND + now.getNano();
+    }
+
     private Util() {
         // Hides the public constructor.
         // No implementation required.
     }
 
-    public static long currentTimestamp() {
-        return new Date().getTime();
+    /**
+     * @return The current time in nanoseconds since the epoch, measured with the monotonic clock.
+     */
+    public static long currentTimestampInNanos() {
+        return toTimestampInNanos(System.nanoTime());
+    }
+
+    /**
+     * Converts a reading of {@link System#nanoTime()} to a timestamp.
+     *
+     * @param nanoTime The value returned by {@link System#nanoTime()} during this run.
+     * @return The time in nanoseconds since the epoch.
+     */
+    public static long toTimestampInNanos(long nanoTime) {
+        return WALL_CLOCK_ANCHOR_NANOS + (nanoTime - MONOTONIC_ANCHOR_NANOS);
     }
 
     public static long parseDurationToMillis(String timePeriod) {
         var duration = Duration.parse("PT" + timePeriod);
         return duration.toMillis();
     }
+
+    /**
+     * Blocks the current thread until {@link System#nanoTime()} reaches the given deadline.
+     * Unlike {@link Thread#sleep(long)}, the deadline is not rounded to milliseconds.
+     *
+     * @param deadlineNanos The {@link System#nanoTime()} until which to block.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public static void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remainingNanos;
+        while ((remainingNanos = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remainingNanos);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
 }
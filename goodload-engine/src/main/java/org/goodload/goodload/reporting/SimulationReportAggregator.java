@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting;
+
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.data.StepSkeletonData;
+import org.goodload.goodload.reporting.datasink.SinkSubscriber;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateActionReport;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateReport;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateSimulationReport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * Aggregates the timings of the steps of a simulation as they are recorded, and generates the
+ * {@link AggregateSimulationReport} once the simulation has completed.
+ * <br>
+ * It consumes the {@link HistogramSnapshot}s published by the runners, and merges them into one set of
+ * histograms and counters per step, so its memory does not grow with the number of executions or the
+ * duration of the simulation, except for the hits per second. The raw reports are ignored as they are only
+ * a sample of the executions.
+ * <br>
+ * The steps are identified by their index in the pre-order traversal of the {@link SimulationTree},
+ * which is the order in which the runners index them.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public class SimulationReportAggregator implements SinkSubscriber {
+
+    private final String simulationName;
+
+    private final SimulationTree simulationTree;
+
+    /**
+     * The second since the epoch in which the simulation started. The hits per second are counted from it.
+     */
+    private final long simulationStartSecond;
+
+    /**
+     * The aggregates of the steps, in the pre-order of the simulation tree.
+     */
+    private final StepAggregate[] stepAggregates;
+
+    /**
+     * @param simulationName             Name of the simulation.
+     * @param simulationTree             The structure of the simulation.
+     * @param simulationStartTimestamp   When the simulation started, in nanoseconds since the epoch.
+     */
+    public SimulationReportAggregator(String simulationName, SimulationTree simulationTree,
+                                      long simulationStartTimestamp) {
+        this.simulationName = simulationName;
+        this.simulationTree = simulationTree;
+        this.simulationStartSecond = simulationStartTimestamp / Util.NANOS_PER_SECOND;
+
+        var steps = new ArrayList<StepSkeletonData>();
+        for (var scenario : simulationTree.getSteps()) {
+            collectSteps(scenario, steps);
+        }
+        stepAggregates = new StepAggregate[steps.size()];
+        for (var i = 0; i < stepAggregates.length; i++) {
+            stepAggregates[i] = new StepAggregate(steps.get(i));
+        }
+    }
+
+    private static void collectSteps(StepSkeletonData step, List<StepSkeletonData> steps) {
+        steps.add(step);
+        for (var subStep : step.getSubSteps()) {
+            collectSteps(subStep, steps);
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(ActionReport item) {
+        // The timings of all the executions are included in the snapshots
+    }
+
+    @Override
+    public void onHistogramSnapshot(HistogramSnapshot snapshot) {
+        if (snapshot.getStepIndex() < 0 || snapshot.getStepIndex() >= stepAggregates.length) {
+            log.warn("Simulation `{}`: Ignoring the timings of unknown step {}",
+                    simulationName, snapshot.getStepIndex());
+            return;
+        }
+        stepAggregates[snapshot.getStepIndex()].add(snapshot);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        log.error(String.format("Simulation `%s`: Failed to aggregate the reports", simulationName), throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        log.debug("Simulation `{}`: All the reports have been aggregated", simulationName);
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    /**
+     * Generates the report from the timings aggregated so far.
+     * It must be called after the reports have been completely delivered.
+     *
+     * @param percentiles The percentiles to include in the latency distributions.
+     * @return The aggregate report of the simulation.
+     */
+    public AggregateSimulationReport aggregate(double... percentiles) {
+        var simulationReport = new AggregateSimulationReport(simulationName);
+        var simulationAggregate = new StepAggregate(null);
+
+        var stepIndex = 0;
+        for (var scenario : simulationTree.getSteps()) {
+            var scenarioAggregate = stepAggregates[stepIndex];
+            simulationAggregate.add(scenarioAggregate);
+
+            var scenarioReport = new AggregateActionReport(scenario.getStepName());
+            stepIndex = buildReport(scenarioReport, stepIndex, percentiles);
+            simulationReport.getScenarios().add(scenarioReport);
+        }
+
+        simulationAggregate.applyTo(simulationReport);
+        simulationAggregate.statistics.applyTo(simulationReport, percentiles);
+        return simulationReport;
+    }
+
+    /**
+     * Fills the report of the step at the given index and its sub-steps.
+     *
+     * @return The index of the step after the sub-steps of this step.
+     */
+    private int buildReport(AggregateActionReport report, int stepIndex, double... percentiles) {
+        var stepAggregate = stepAggregates[stepIndex];
+        stepAggregate.applyTo(report);
+        stepAggregate.statistics.applyTo(report, percentiles);
+        report.setIterations((int) Math.min(Integer.MAX_VALUE, stepAggregate.statistics.getLatency().getTotalCount()));
+
+        var nextStepIndex = stepIndex + 1;
+        for (var subStep : stepAggregate.step.getSubSteps()) {
+            var subStepReport = new AggregateActionReport(subStep.getStepName());
+            nextStepIndex = buildReport(subStepReport, nextStepIndex, percentiles);
+            report.getSubSteps().add(subStepReport);
+        }
+        return nextStepIndex;
+    }
+
+    /**
+     * The aggregated timings of a step.
+     */
+    private final class StepAggregate {
+        private final StepSkeletonData step;
+        private final StepLatencyStatistics statistics = new StepLatencyStatistics();
+        private long errorCount = 0;
+        private long bytesReceived = 0;
+        private long firstStartTimestamp = Long.MAX_VALUE;
+        private long lastEndTimestamp = Long.MIN_VALUE;
+
+        /**
+         * Number of executions that ended in every second since the start of the simulation.
+         * The histogram intervals divide a second and are aligned to it, see
+         * {@link org.goodload.goodload.userconfig.ReportingConfiguration#isValidHistogramInterval(long)}, so all the
+         * executions of a snapshot are counted in the second its interval starts in.
+         */
+        private long[] hitsPerSecond = new long[0];
+
+        private StepAggregate(StepSkeletonData step) {
+            this.step = step;
+        }
+
+        private void add(HistogramSnapshot snapshot) {
+            statistics.add(snapshot);
+            errorCount += snapshot.getErrorCount();
+            bytesReceived += snapshot.getBytesReceived();
+            firstStartTimestamp = Math.min(firstStartTimestamp, snapshot.getFirstStartTimestampInNanos());
+            lastEndTimestamp = Math.max(lastEndTimestamp, snapshot.getLastEndTimestampInNanos());
+            addHits(snapshot.getIntervalStartTimestampInNanos() / Util.NANOS_PER_SECOND - simulationStartSecond,
+                    snapshot.getCount());
+        }
+
+        private void add(StepAggregate other) {
+            statistics.add(other.statistics);
+            errorCount += other.errorCount;
+            bytesReceived += other.bytesReceived;
+            firstStartTimestamp = Math.min(firstStartTimestamp, other.firstStartTimestamp);
+            lastEndTimestamp = Math.max(lastEndTimestamp, other.lastEndTimestamp);
+            for (var second = 0; second < other.hitsPerSecond.length; second++) {
+                addHits(second, other.hitsPerSecond[second]);
+            }
+        }
+
+        private void addHits(long second, long hits) {
+            if (hits == 0) {
+                return;
+            }
+            var index = (int) Math.max(0, second);
+            if (index >= hitsPerSecond.length) {
+                hitsPerSecond = Arrays.copyOf(hitsPerSecond, Math.max(index + 1, hitsPerSecond.length * 2));
+            }
+            hitsPerSecond[index] += hits;
+        }
+
+        private void applyTo(AggregateReport report) {
+            long count = statistics.getLatency().getTotalCount();
+            report.setErrorCount(errorCount);
+            report.setErrorsOccured(errorCount > 0);
+            report.setBytesReceived(bytesReceived);
+            report.setTotalTimeInNanos(statistics.getLatency().getSum());
+            report.setAverageTimeInNanos(count == 0 ? 0 : statistics.getLatency().getSum() / count);
+
+            var hits = new ArrayList<Integer>();
+            if (count > 0) {
+                report.setIterationsStartTimestamp(firstStartTimestamp);
+                report.setIterationsEndTimestamp(lastEndTimestamp);
+                var firstSecond = (int) Math.max(0,
+                        firstStartTimestamp / Util.NANOS_PER_SECOND - simulationStartSecond);
+                var lastSecond = hitsPerSecond.length - 1;
+                while (lastSecond >= firstSecond && hitsPerSecond[lastSecond] == 0) {
+                    lastSecond--;
+                }
+                for (var second = firstSecond; second <= lastSecond; second++) {
+                    hits.add((int) Math.min(Integer.MAX_VALUE, hitsPerSecond[second]));
+                }
+            }
+            report.setHitsAtEverySecond(hits);
+        }
+    }
+}
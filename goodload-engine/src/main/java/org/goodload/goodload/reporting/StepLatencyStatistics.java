@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting;
+
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.data.Report;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateReport;
+import org.goodload.goodload.reporting.reports.aggregate.LatencyDistribution;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the time taken by every execution of a step, both as measured and as corrected for
+ * coordinated omission.
+ * <br>
+ * When a runner falls behind the schedule, e.g. because the system under test stalled, the iterations
+ * that should have been started during the stall are started late, and the time they spent waiting is not
+ * part of their measured time. The corrected time is measured from when the iteration should have started
+ * according to the schedule, which is how long a real user arriving at that time would have waited.
+ * <br>
+ * The schedules start the iterations that were missed as soon as the runner catches up, each with its own
+ * intended start, so the corrected distribution does not need synthetic values to be back-filled.
+ * <br>
+ * The time spent by the step in every phase of its network requests, e.g. DNS or time to first byte, is recorded
+ * in a histogram per phase, which only counts the executions that went through the phase.
+ * It is not thread-safe.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public class StepLatencyStatistics {
+
+    /**
+     * The percentiles included in the aggregate reports.
+     */
+    public static final double[] DEFAULT_PERCENTILES = {50, 90, 95, 99, 99.9};
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LatencyHistogram correctedLatency = new LatencyHistogram();
+
+    /**
+     * The histograms of the phases, keyed by the name of the phase, in the order in which they were first seen.
+     */
+    private final Map<String, LatencyHistogram> phaseLatencies = new LinkedHashMap<>();
+
+    /**
+     * Records the time taken by an execution of the step.
+     *
+     * @param report The report generated for the execution of the step.
+     */
+    public void record(Report report) {
+        latency.recordValue(report.getTotalTimeInNanos());
+        correctedLatency.recordValue(report.getCorrectedTotalTimeInNanos());
+    }
+
+    /**
+     * Adds the times recorded in a snapshot of the histograms of the step.
+     *
+     * @param snapshot The snapshot recorded by a runner.
+     */
+    public void add(HistogramSnapshot snapshot) {
+        latency.add(snapshot.getLatency());
+        correctedLatency.add(snapshot.getCorrectedLatency());
+        if (snapshot.getPhaseLatencies() != null) {
+            addPhases(snapshot.getPhaseLatencies());
+        }
+    }
+
+    /**
+     * Adds the times recorded by another instance to this instance.
+     *
+     * @param other The statistics of the same step recorded separately.
+     */
+    public void add(StepLatencyStatistics other) {
+        latency.add(other.latency);
+        correctedLatency.add(other.correctedLatency);
+        addPhases(other.phaseLatencies);
+    }
+
+    private void addPhases(Map<String, LatencyHistogram> otherPhaseLatencies) {
+        otherPhaseLatencies.forEach((phase, histogram) ->
+                phaseLatencies.computeIfAbsent(phase, name -> new LatencyHistogram()).add(histogram));
+    }
+
+    /**
+     * @return The histogram of the measured times in nanoseconds.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return The histogram of the times in nanoseconds measured from the intended start.
+     */
+    public LatencyHistogram getCorrectedLatency() {
+        return correctedLatency;
+    }
+
+    /**
+     * @return The histograms of the times in nanoseconds spent in the phases of the network requests,
+     * keyed by the name of the phase.
+     */
+    public Map<String, LatencyHistogram> getPhaseLatencies() {
+        return phaseLatencies;
+    }
+
+    /**
+     * Sets the raw and corrected latency distributions of the aggregate report, and the distributions of the phases
+     * of the network requests if the step made any.
+     *
+     * @param report      The aggregate report of the step.
+     * @param percentiles The percentiles to include in the distributions.
+     */
+    public void applyTo(AggregateReport report, double... percentiles) {
+        report.setLatency(LatencyDistribution.of(latency, percentiles));
+        report.setCorrectedLatency(LatencyDistribution.of(correctedLatency, percentiles));
+        if (!phaseLatencies.isEmpty()) {
+            var phaseDistributions = new LinkedHashMap<String, LatencyDistribution>();
+            phaseLatencies.forEach((phase, histogram) ->
+                    phaseDistributions.put(phase, LatencyDistribution.of(histogram, percentiles)));
+            report.setPhaseLatencies(phaseDistributions);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.export;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Reduces time series to a number of points that can be drawn quickly, while keeping their shape.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class Downsampling {
+
+    private Downsampling() {
+    }
+
+    /**
+     * Selects the points to draw with the Largest-Triangle-Three-Buckets algorithm. The first and last points are
+     * always selected, the rest are split into buckets and the point of every bucket forming the largest triangle
+     * with the point selected in the previous bucket and the average of the next bucket is selected. It keeps the
+     * peaks and troughs, unlike averaging.
+     *
+     * @param size      The number of points in the series.
+     * @param x         The x coordinate of the point with the given index, in increasing order.
+     * @param y         The y coordinate of the point with the given index.
+     * @param threshold The maximum number of points to select, at least 3.
+     * @return The indices of the selected points, in increasing order.
+     */
+    static int[] largestTriangleThreeBuckets(int size, IntToDoubleFunction x, IntToDoubleFunction y, int threshold) {
+        if (size <= threshold || threshold < 3) {
+            var all = new int[size];
+            for (var i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        var selected = new int[threshold];
+        selected[0] = 0;
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        int previous = 0;
+        for (var bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+
+            // The average of the next bucket, or the last point for the last bucket
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+            if (bucket == threshold - 3) {
+                nextStart = size - 1;
+                nextEnd = size;
+            }
+            double averageX = 0;
+            double averageY = 0;
+            for (var i = nextStart; i < nextEnd; i++) {
+                averageX += x.applyAsDouble(i);
+                averageY += y.applyAsDouble(i);
+            }
+            averageX /= nextEnd - nextStart;
+            averageY /= nextEnd - nextStart;
+
+            double previousX = x.applyAsDouble(previous);
+            double previousY = y.applyAsDouble(previous);
+            double largestArea = -1;
+            int largest = start;
+            for (var i = start; i < end; i++) {
+                double area = Math.abs((previousX - averageX) * (y.applyAsDouble(i) - previousY)
+                        - (previousX - x.applyAsDouble(i)) * (averageY - previousY));
+                if (area > largestArea) {
+                    largestArea = area;
+                    largest = i;
+                }
+            }
+            selected[bucket + 1] = largest;
+            previous = largest;
+        }
+        selected[threshold - 1] = size - 1;
+        return selected;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.goodload.goodload.exceptions.UnknownExportFormatException;
+
+/**
+ * The formats in which the reports can be exported, see goodload.reporting.export-formats.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public enum ExportFormat {
+    JSON("json", ".json"),
+    JSON_PRETTY("json-pretty", ".pretty.json"),
+    YAML("yaml", ".yaml"),
+    HTML("html", ".html");
+
+    /**
+     * The name of the format in the user's configuration.
+     */
+    private final String name;
+
+    /**
+     * The extension of the exported files, before the extension of the compression if any.
+     */
+    private final String extension;
+
+    ExportFormat(String name, String extension) {
+        this.name = name;
+        this.extension = extension;
+    }
+
+    /**
+     * @param name The name of the format in the user's configuration, case-insensitive.
+     * @return The format with the given name.
+     * @throws UnknownExportFormatException If there is no format with the given name.
+     */
+    public static ExportFormat of(String name) throws UnknownExportFormatException {
+        for (var format : values()) {
+            if (format.name.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new UnknownExportFormatException(String.format(
+                "The export format '%s' is not recognized. The recognized formats are json, json-pretty, yaml and html.",
+                name));
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return {@code true} if the format is a document written with Jackson's streaming generators,
+     * {@code false} for {@link #HTML} which is written once the simulation completes.
+     */
+    boolean isDocument() {
+        return this != HTML;
+    }
+
+    /**
+     * @return A mapper writing the format. The generators it creates close the stream they write to.
+     */
+    ObjectMapper createMapper() {
+        if (this == YAML) {
+            return new ObjectMapper(new YAMLFactory());
+        }
+        return new ObjectMapper(new JsonFactory());
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
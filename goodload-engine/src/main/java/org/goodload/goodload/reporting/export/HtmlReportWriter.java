@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.export;
+
+import org.goodload.goodload.reporting.reports.aggregate.AggregateActionReport;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateSimulationReport;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Writes the report of a simulation as a single HTML page, without any script or external resource:
+ * the tree of steps with their latency percentiles, and the latency and throughput of every step over time
+ * as inline SVG charts.
+ * <br>
+ * The time series are downsampled to at most {@value #MAX_POINTS} points per line, so the page stays small and
+ * opens instantly even for long simulations.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class HtmlReportWriter {
+
+    private static final int MAX_POINTS = 1000;
+
+    private static final int CHART_WIDTH = 960;
+    private static final int CHART_HEIGHT = 240;
+    private static final int MARGIN_LEFT = 64;
+    private static final int MARGIN_RIGHT = 16;
+    private static final int MARGIN_TOP = 16;
+    private static final int MARGIN_BOTTOM = 28;
+
+    private static final String STYLE = """
+            body{font-family:system-ui,sans-serif;margin:2em;color:#222}
+            table{border-collapse:collapse;font-size:.9em}
+            th,td{padding:.3em .7em;border-bottom:1px solid #ddd;text-align:right}
+            th:first-child,td:first-child{text-align:left}
+            .passed{color:#1a7f37}.failed{color:#cf222e}
+            details{margin:.5em 0}summary{cursor:pointer;font-weight:600}
+            svg{display:block;margin:.5em 0}svg text{font-size:11px;fill:#555}
+            .grid{stroke:#eee}.axis{stroke:#999}polyline{fill:none;stroke-width:1.2}
+            .legend span{display:inline-block;margin-right:1.5em;font-size:.85em}
+            """;
+
+    private final Writer writer;
+
+    private final AggregateSimulationReport simulationReport;
+
+    private final StepTimeSeriesCollector timeSeries;
+
+    /**
+     * The first second of the time series, from which the time on the charts is measured.
+     */
+    private final long firstSecond;
+
+    private final List<String> percentileNames = new ArrayList<>();
+
+    HtmlReportWriter(Writer writer, AggregateSimulationReport simulationReport, StepTimeSeriesCollector timeSeries) {
+        this.writer = writer;
+        this.simulationReport = simulationReport;
+        this.timeSeries = timeSeries;
+        this.firstSecond = timeSeries.firstSecond();
+        for (var scenario : simulationReport.getScenarios()) {
+            if (scenario.getLatency() != null) {
+                percentileNames.addAll(scenario.getLatency().getPercentiles().keySet());
+                break;
+            }
+        }
+    }
+
+    void write() throws IOException {
+        var name = escape(simulationReport.getStepName());
+        writer.write("<!DOCTYPE html>\n<html lang=\"en\"><head><meta charset=\"utf-8\"><title>Goodload report: ");
+        writer.write(name);
+        writer.write("</title><style>");
+        writer.write(STYLE);
+        writer.write("</style></head><body>\n<h1>");
+        writer.write(name);
+        writer.write("</h1>\n");
+        writeSummary();
+
+        writer.write("<h2>Steps</h2>\n<table><tr><th>Step</th><th>Executions</th><th>Errors</th><th>Mean (ms)</th>");
+        for (var percentileName : percentileNames) {
+            writer.write("<th>" + escape(percentileName) + " (ms)</th>");
+        }
+        writer.write("<th>Max (ms)</th><th>Result</th></tr>\n");
+        var stepIndex = 0;
+        for (var scenario : simulationReport.getScenarios()) {
+            stepIndex = writeStepRows(scenario, stepIndex, 0);
+        }
+        writer.write("</table>\n");
+
+        writer.write("<h2>Over time</h2>\n");
+        stepIndex = 0;
+        for (var scenario : simulationReport.getScenarios()) {
+            stepIndex = writeStepCharts(scenario, stepIndex, 0);
+        }
+        writer.write("</body></html>\n");
+    }
+
+    private void writeSummary() throws IOException {
+        writer.write("<p class=\"" + (simulationReport.isPassed() ? "passed\">Passed" : "failed\">Failed"));
+        if (simulationReport.isAborted()) {
+            writer.write(", aborted early");
+        }
+        writer.write("</p>\n<table>");
+        if (simulationReport.getIterationsStartTimestamp() > 0) {
+            writeSummaryRow("Started", Instant.ofEpochMilli(simulationReport.getIterationsStartTimestamp() / 1_000_000)
+                    .toString());
+        }
+        if (simulationReport.getIterationsEndTimestamp() > simulationReport.getIterationsStartTimestamp()) {
+            writeSummaryRow("Duration", formatDuration(Duration.ofNanos(
+                    simulationReport.getIterationsEndTimestamp() - simulationReport.getIterationsStartTimestamp())
+                    .toSeconds()));
+        }
+        writeSummaryRow("Errors", String.valueOf(simulationReport.getErrorCount()));
+        long missing = simulationReport.getSinkDroppedReports() + simulationReport.getSinkSampledOutReports()
+                + simulationReport.getSinkFailedReports();
+        if (missing > 0) {
+            writeSummaryRow("Raw reports missing from the sink", String.valueOf(missing));
+        }
+        writer.write("</table>\n");
+    }
+
+    private void writeSummaryRow(String label, String value) throws IOException {
+        writer.write("<tr><td>" + label + "</td><td>" + escape(value) + "</td></tr>");
+    }
+
+    private int writeStepRows(AggregateActionReport report, int stepIndex, int depth) throws IOException {
+        writer.write("<tr><td style=\"padding-left:" + (0.7 + depth * 1.5) + "em\">");
+        writer.write(escape(report.getStepName()));
+        writer.write("</td>");
+        var latency = report.getLatency();
+        writeCell(latency == null ? "0" : String.valueOf(latency.getCount()));
+        writeCell(String.valueOf(report.getErrorCount()));
+        writeCell(latency == null ? "" : formatMillis(latency.getMean()));
+        for (var percentileName : percentileNames) {
+            var value = latency == null ? null : latency.getPercentiles().get(percentileName);
+            writeCell(value == null ? "" : formatMillis(value));
+        }
+        writeCell(latency == null ? "" : formatMillis(latency.getMaximum()));
+        writer.write(report.isPassed() ? "<td class=\"passed\">Passed</td>" : "<td class=\"failed\">Failed</td>");
+        writer.write("</tr>\n");
+
+        var nextStepIndex = stepIndex + 1;
+        for (var subStep : report.getSubSteps()) {
+            nextStepIndex = writeStepRows(subStep, nextStepIndex, depth + 1);
+        }
+        return nextStepIndex;
+    }
+
+    private void writeCell(String value) throws IOException {
+        writer.write("<td>" + value + "</td>");
+    }
+
+    private int writeStepCharts(AggregateActionReport report, int stepIndex, int depth) throws IOException {
+        // The scenarios are expanded, the steps within them can be expanded on demand
+        writer.write(depth == 0 ? "<details open>" : "<details style=\"margin-left:1.5em\">");
+        writer.write("<summary>" + escape(report.getStepName()) + "</summary>\n");
+        var series = timeSeries.get(stepIndex);
+        if (series.size() == 0) {
+            writer.write("<p>Not executed</p>\n");
+        } else {
+            IntToDoubleFunction x = i -> series.second(i) - firstSecond;
+            writeChart("Latency (ms)", series.size(), x, List.of(
+                    new Line("p50", "#2f81f7", series::p50),
+                    new Line("p95", "#d29922", series::p95),
+                    new Line("p99", "#cf222e", series::p99)));
+            writeChart("Throughput (per second)", series.size(), x, List.of(
+                    new Line("executions", "#1a7f37", series::count),
+                    new Line("errors", "#cf222e", series::errorCount)));
+        }
+
+        var nextStepIndex = stepIndex + 1;
+        for (var subStep : report.getSubSteps()) {
+            nextStepIndex = writeStepCharts(subStep, nextStepIndex, depth + 1);
+        }
+        writer.write("</details>\n");
+        return nextStepIndex;
+    }
+
+    private record Line(String name, String color, IntToDoubleFunction y) {
+    }
+
+    private void writeChart(String title, int size, IntToDoubleFunction x, List<Line> lines) throws IOException {
+        double maxX = Math.max(x.applyAsDouble(size - 1), 1);
+        double maxY = 0;
+        for (var line : lines) {
+            for (var i = 0; i < size; i++) {
+                maxY = Math.max(maxY, line.y().applyAsDouble(i));
+            }
+        }
+        maxY = niceCeiling(maxY);
+
+        int plotWidth = CHART_WIDTH - MARGIN_LEFT - MARGIN_RIGHT;
+        int plotHeight = CHART_HEIGHT - MARGIN_TOP - MARGIN_BOTTOM;
+        var svg = new StringBuilder(16 * 1024);
+        svg.append("<div class=\"legend\"><b>").append(title).append("</b> ");
+        for (var line : lines) {
+            svg.append("<span style=\"color:").append(line.color()).append("\">&#9632; ")
+                    .append(line.name()).append("</span>");
+        }
+        svg.append("</div><svg width=\"").append(CHART_WIDTH).append("\" height=\"").append(CHART_HEIGHT)
+                .append("\" viewBox=\"0 0 ").append(CHART_WIDTH).append(' ').append(CHART_HEIGHT).append("\">");
+
+        for (var tick = 0; tick <= 4; tick++) {
+            double y = MARGIN_TOP + plotHeight - plotHeight * tick / 4.0;
+            svg.append(String.format(Locale.ROOT,
+                    "<line class=\"grid\" x1=\"%d\" x2=\"%d\" y1=\"%.1f\" y2=\"%.1f\"/>"
+                            + "<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">%s</text>",
+                    MARGIN_LEFT, CHART_WIDTH - MARGIN_RIGHT, y, y, MARGIN_LEFT - 6, y + 4,
+                    formatNumber(maxY * tick / 4)));
+        }
+        for (var tick = 0; tick <= 6; tick++) {
+            double xPosition = MARGIN_LEFT + plotWidth * tick / 6.0;
+            svg.append(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%d\" text-anchor=\"middle\">%s</text>",
+                    xPosition, CHART_HEIGHT - 8, formatDuration(Math.round(maxX * tick / 6))));
+        }
+        svg.append(String.format(Locale.ROOT,
+                "<line class=\"axis\" x1=\"%d\" x2=\"%d\" y1=\"%d\" y2=\"%d\"/>",
+                MARGIN_LEFT, CHART_WIDTH - MARGIN_RIGHT, MARGIN_TOP + plotHeight, MARGIN_TOP + plotHeight));
+
+        for (var line : lines) {
+            var points = Downsampling.largestTriangleThreeBuckets(size, x, line.y(), MAX_POINTS);
+            svg.append("<polyline stroke=\"").append(line.color()).append("\" points=\"");
+            for (var i : points) {
+                svg.append(String.format(Locale.ROOT, "%.1f,%.1f ",
+                        MARGIN_LEFT + plotWidth * x.applyAsDouble(i) / maxX,
+                        MARGIN_TOP + plotHeight - plotHeight * line.y().applyAsDouble(i) / maxY));
+            }
+            svg.append("\"/>");
+        }
+        svg.append("</svg>\n");
+        writer.write(svg.toString());
+    }
+
+    /**
+     * @return The smallest of 1, 2 or 5 times a power of 10 that is at least the value, so the grid lines of
+     * the chart are at round values.
+     */
+    private static double niceCeiling(double value) {
+        if (value <= 0) {
+            return 1;
+        }
+        double magnitude = Math.pow(10, Math.floor(Math.log10(value)));
+        for (var factor : new double[]{1, 2, 5, 10}) {
+            if (factor * magnitude >= value) {
+                return factor * magnitude;
+            }
+        }
+        return 10 * magnitude;
+    }
+
+    private static String formatNumber(double value) {
+        return value == Math.rint(value)
+                ? String.valueOf((long) value)
+                : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static String formatMillis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000);
+    }
+
+    private static String formatDuration(long seconds) {
+        return seconds >= 3600
+                ? String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60)
+                : String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        var escaped = new StringBuilder(text.length());
+        for (var i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            switch (c) {
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '&' -> escaped.append("&amp;");
+                case '"' -> escaped.append("&quot;");
+                case '\'' -> escaped.append("&#39;");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
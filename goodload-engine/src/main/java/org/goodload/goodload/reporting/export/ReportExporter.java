@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.data.StepSkeletonData;
+import org.goodload.goodload.reporting.datasink.SinkSubscriber;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateSimulationReport;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the reports of a simulation to a file per format, writing them with Jackson's streaming generators
+ * as they come, so that the exported document is never held in memory.
+ * <br>
+ * Every file contains a single document with the name of the simulation, the raw reports and the aggregate
+ * report, in that order. The raw reports are written as they are delivered by the report pipeline, if they are
+ * included. The aggregate report is written once the simulation completes, by
+ * {@link #export(AggregateSimulationReport)}, which completes the files.
+ * <br>
+ * The {@link ExportFormat#HTML} report is written by {@link #export(AggregateSimulationReport)} too, from the
+ * aggregate report and the time series of the steps collected from the histogram snapshots.
+ * <br>
+ * If the simulation doesn't complete, the exporter must be closed, which deletes the incomplete files.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public class ReportExporter implements SinkSubscriber {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final DateTimeFormatter FILE_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final String simulationName;
+
+    /**
+     * The steps by their index, to resolve the IDs and names of the steps of the raw reports.
+     */
+    private final StepSkeletonData[] steps;
+
+    private final boolean includeRawReports;
+
+    private final List<Export> exports = new ArrayList<>();
+
+    /**
+     * The path of the HTML report, or {@code null} if it is not exported.
+     */
+    private final Path htmlPath;
+
+    /**
+     * The time series for the HTML report, or {@code null} if it is not exported.
+     */
+    private final StepTimeSeriesCollector timeSeries;
+
+    private boolean completed = false;
+
+    private boolean htmlFailed = false;
+
+    /**
+     * Creates the files of the export and starts the documents.
+     *
+     * @param directory      The directory in which to create the files. It is created if it doesn't exist.
+     * @param formats        The formats in which to export the reports, one file per format.
+     * @param gzip              Whether to compress the files with gzip. The HTML report is never compressed.
+     * @param includeRawReports Whether to write the raw reports in the documents.
+     * @param simulationName    Name of the simulation.
+     * @param simulationTree    The structure of the simulation.
+     * @throws IOException If any of the files can't be created. The files already created are deleted.
+     */
+    public ReportExporter(Path directory, Collection<ExportFormat> formats, boolean gzip, boolean includeRawReports,
+                          String simulationName, SimulationTree simulationTree) throws IOException {
+        this.simulationName = simulationName;
+        this.includeRawReports = includeRawReports;
+
+        var stepList = new ArrayList<StepSkeletonData>();
+        for (var scenario : simulationTree.getSteps()) {
+            collectSteps(scenario, stepList);
+        }
+        steps = stepList.toArray(StepSkeletonData[]::new);
+
+        Files.createDirectories(directory);
+        var baseName = simulationName.replaceAll("[^A-Za-z0-9._-]", "_")
+                + "-" + LocalDateTime.now().format(FILE_TIMESTAMP_FORMAT);
+        if (formats.contains(ExportFormat.HTML)) {
+            htmlPath = directory.resolve(baseName + ExportFormat.HTML.getExtension());
+            timeSeries = new StepTimeSeriesCollector(steps.length);
+        } else {
+            htmlPath = null;
+            timeSeries = null;
+        }
+        try {
+            for (var format : formats) {
+                if (!format.isDocument()) {
+                    continue;
+                }
+                var path = directory.resolve(baseName + format.getExtension() + (gzip ? ".gz" : ""));
+                exports.add(new Export(format, path, gzip));
+            }
+            for (var export : exports) {
+                var generator = export.generator;
+                generator.writeStartObject();
+                generator.writeStringField("simulationName", simulationName);
+                generator.writeStringField("simulationId", simulationTree.getSimulationId());
+                generator.writeArrayFieldStart("rawReports");
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static void collectSteps(StepSkeletonData step, List<StepSkeletonData> steps) {
+        steps.add(step);
+        for (var subStep : step.getSubSteps()) {
+            collectSteps(subStep, steps);
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onHistogramSnapshot(HistogramSnapshot snapshot) {
+        if (timeSeries != null) {
+            timeSeries.add(snapshot);
+        }
+    }
+
+    /**
+     * Writes a raw report to every file, if they are included. A file that fails to be written is left
+     * incomplete, hence it is not written to anymore and is deleted when the exporter is closed.
+     *
+     * @throws UncheckedIOException If the report can't be written to any of the files, in which case the pipeline
+     *                              stops delivering reports to the exporter.
+     */
+    @Override
+    public void onNext(ActionReport report) {
+        if (!includeRawReports || exports.isEmpty()) {
+            return;
+        }
+        var step = report.getStepIndex() >= 0 && report.getStepIndex() < steps.length
+                ? steps[report.getStepIndex()]
+                : null;
+        IOException failure = null;
+        var failedExports = 0;
+        for (var export : exports) {
+            if (export.failed) {
+                failedExports++;
+                continue;
+            }
+            try {
+                var generator = export.generator;
+                generator.writeStartObject();
+                generator.writeNumberField("stepIndex", report.getStepIndex());
+                if (step != null) {
+                    generator.writeStringField("stepId", step.getStepId());
+                    generator.writeStringField("stepName", step.getStepName());
+                }
+                generator.writeNumberField("runnerId", report.getRunnerId());
+                generator.writeNumberField("iterationIndex", report.getIterationIndex());
+                generator.writeNumberField("startTimestampInNanos", report.getStartTimestampInNanos());
+                generator.writeNumberField("intendedStartTimestampInNanos",
+                        report.getIntendedStartTimestampInNanos());
+                generator.writeNumberField("endTimestampInNanos", report.getEndTimestampInNanos());
+                generator.writeNumberField("totalTimeInNanos", report.getTotalTimeInNanos());
+                generator.writeBooleanField("endedNormally", report.isEndedNormally());
+                generator.writeEndObject();
+            } catch (IOException e) {
+                log.error(String.format("Simulation `%s`: Failed to export the raw reports to %s, it will be deleted",
+                        simulationName, export.path), e);
+                export.failed = true;
+                failedExports++;
+                failure = e;
+            }
+        }
+        if (failedExports == exports.size() && failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        log.error(String.format("Simulation `%s`: Failed to export the raw reports, the exported files will " +
+                "miss the rest of them.", simulationName), throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        log.debug("Simulation `{}`: All the raw reports have been exported", simulationName);
+    }
+
+    /**
+     * Writes the aggregate report and completes the files, and writes the HTML report. It must be called after
+     * the reports have been completely delivered.
+     *
+     * @param simulationReport The aggregate report of the simulation.
+     * @throws IOException If any of the files can't be written, or failed to be written earlier, in which case
+     *                     they are deleted. The files written successfully are kept.
+     */
+    public void export(AggregateSimulationReport simulationReport) throws IOException {
+        IOException failure = null;
+        try {
+            for (var export : exports) {
+                if (export.failed) {
+                    failure = new IOException(String.format("The raw reports failed to be exported to %s",
+                            export.path));
+                    continue;
+                }
+                try {
+                    var generator = export.generator;
+                    generator.writeEndArray();
+                    generator.writeFieldName("report");
+                    export.mapper.writeValue(generator, simulationReport);
+                    generator.writeEndObject();
+                    generator.close();
+                    log.info("Simulation `{}`: Exported the report to {}", simulationName, export.path);
+                } catch (IOException e) {
+                    export.failed = true;
+                    failure = e;
+                }
+            }
+            if (htmlPath != null) {
+                timeSeries.complete();
+                try (var writer = Files.newBufferedWriter(htmlPath)) {
+                    new HtmlReportWriter(writer, simulationReport, timeSeries).write();
+                    log.info("Simulation `{}`: Exported the report to {}", simulationName, htmlPath);
+                } catch (IOException e) {
+                    htmlFailed = true;
+                    failure = e;
+                }
+            }
+            completed = true;
+        } finally {
+            close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Closes the files. Unless the report was exported, the files are incomplete and are deleted, as are the files
+     * which failed to be written.
+     */
+    @Override
+    public void close() {
+        for (var export : exports) {
+            try {
+                export.generator.close();
+            } catch (IOException e) {
+                log.debug("Failed to close the export {}", export.path, e);
+            }
+            if (!completed || export.failed) {
+                try {
+                    Files.deleteIfExists(export.path);
+                } catch (IOException e) {
+                    log.warn("Failed to delete the incomplete export {}", export.path, e);
+                }
+            }
+        }
+        if ((!completed || htmlFailed) && htmlPath != null) {
+            try {
+                Files.deleteIfExists(htmlPath);
+            } catch (IOException e) {
+                log.warn("Failed to delete the incomplete export {}", htmlPath, e);
+            }
+        }
+    }
+
+    /**
+     * A file in one of the formats.
+     */
+    private static final class Export {
+        private final Path path;
+        private final ObjectMapper mapper;
+        private final JsonGenerator generator;
+
+        /**
+         * Whether writing the file has failed, which leaves the document incomplete.
+         */
+        private boolean failed = false;
+
+        private Export(ExportFormat format, Path path, boolean gzip) throws IOException {
+            this.path = path;
+            this.mapper = format.createMapper();
+            OutputStream outputStream = Files.newOutputStream(path);
+            if (gzip) {
+                outputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+            }
+            this.generator = mapper.getFactory().createGenerator(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+            if (format == ExportFormat.JSON_PRETTY) {
+                generator.useDefaultPrettyPrinter();
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.export;
+
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the throughput and latency percentiles of every step per second, from the histogram snapshots
+ * published by the runners, for the charts of the HTML report.
+ * <br>
+ * Only the histograms of the last few seconds are held. A second is summarised once snapshots of
+ * {@value #GRACE_SECONDS} seconds later arrive, and the snapshots arriving after that are left out of
+ * the time series. The aggregate report is not affected by them.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class StepTimeSeriesCollector {
+
+    private static final int GRACE_SECONDS = 5;
+
+    private final int stepCount;
+
+    private final StepTimeSeries[] series;
+
+    /**
+     * The histograms of the seconds not summarised yet, by step index, and their error counts.
+     */
+    private final TreeMap<Long, Second> openSeconds = new TreeMap<>();
+
+    private long closedSecond = Long.MIN_VALUE;
+
+    StepTimeSeriesCollector(int stepCount) {
+        this.stepCount = stepCount;
+        series = new StepTimeSeries[stepCount];
+        for (var i = 0; i < stepCount; i++) {
+            series[i] = new StepTimeSeries();
+        }
+    }
+
+    void add(HistogramSnapshot snapshot) {
+        if (snapshot.getStepIndex() < 0 || snapshot.getStepIndex() >= stepCount || snapshot.getCount() == 0) {
+            return;
+        }
+        long second = Math.floorDiv(snapshot.getIntervalStartTimestampInNanos(), Util.NANOS_PER_SECOND);
+        if (second <= closedSecond) {
+            // Too late for its second
+            return;
+        }
+        openSeconds.computeIfAbsent(second, s -> new Second(stepCount)).add(snapshot);
+
+        while (openSeconds.firstKey() < openSeconds.lastKey() - GRACE_SECONDS) {
+            close(openSeconds.pollFirstEntry());
+        }
+    }
+
+    /**
+     * Summarises the seconds still open. It is called once all the snapshots have been added.
+     */
+    void complete() {
+        while (!openSeconds.isEmpty()) {
+            close(openSeconds.pollFirstEntry());
+        }
+    }
+
+    private void close(Map.Entry<Long, Second> entry) {
+        long second = entry.getKey();
+        var window = entry.getValue();
+        for (var stepIndex = 0; stepIndex < stepCount; stepIndex++) {
+            var latency = window.latency[stepIndex];
+            if (latency != null) {
+                series[stepIndex].add(second, latency, window.errorCounts[stepIndex]);
+            }
+        }
+        closedSecond = second;
+    }
+
+    /**
+     * @return The time series of the step with the given index.
+     */
+    StepTimeSeries get(int stepIndex) {
+        return series[stepIndex];
+    }
+
+    /**
+     * @return The first second, since the epoch, of all the time series, or {@link Long#MAX_VALUE} if they are empty.
+     */
+    long firstSecond() {
+        long first = Long.MAX_VALUE;
+        for (var stepSeries : series) {
+            if (stepSeries.size() > 0) {
+                first = Math.min(first, stepSeries.second(0));
+            }
+        }
+        return first;
+    }
+
+    private static final class Second {
+        private final LatencyHistogram[] latency;
+        private final long[] errorCounts;
+
+        private Second(int stepCount) {
+            latency = new LatencyHistogram[stepCount];
+            errorCounts = new long[stepCount];
+        }
+
+        private void add(HistogramSnapshot snapshot) {
+            int stepIndex = snapshot.getStepIndex();
+            if (latency[stepIndex] == null) {
+                latency[stepIndex] = new LatencyHistogram();
+            }
+            latency[stepIndex].add(snapshot.getLatency());
+            errorCounts[stepIndex] += snapshot.getErrorCount();
+        }
+    }
+
+    /**
+     * The summary of a step for every second in which it was executed, in columns.
+     * The latencies are in milliseconds.
+     */
+    static final class StepTimeSeries {
+        private int size = 0;
+        private long[] seconds = new long[64];
+        private int[] counts = new int[64];
+        private int[] errorCounts = new int[64];
+        private float[] p50 = new float[64];
+        private float[] p95 = new float[64];
+        private float[] p99 = new float[64];
+        private float[] max = new float[64];
+
+        private void add(long second, LatencyHistogram latency, long errorCount) {
+            if (size == seconds.length) {
+                int capacity = size * 2;
+                seconds = Arrays.copyOf(seconds, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                errorCounts = Arrays.copyOf(errorCounts, capacity);
+                p50 = Arrays.copyOf(p50, capacity);
+                p95 = Arrays.copyOf(p95, capacity);
+                p99 = Arrays.copyOf(p99, capacity);
+                max = Arrays.copyOf(max, capacity);
+            }
+            seconds[size] = second;
+            counts[size] = (int) Math.min(latency.getTotalCount(), Integer.MAX_VALUE);
+            errorCounts[size] = (int) Math.min(errorCount, Integer.MAX_VALUE);
+            p50[size] = latency.getValueAtPercentile(50) / 1_000_000f;
+            p95[size] = latency.getValueAtPercentile(95) / 1_000_000f;
+            p99[size] = latency.getValueAtPercentile(99) / 1_000_000f;
+            max[size] = latency.getMax() / 1_000_000f;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long second(int i) {
+            return seconds[i];
+        }
+
+        int count(int i) {
+            return counts[i];
+        }
+
+        int errorCount(int i) {
+            return errorCounts[i];
+        }
+
+        float p50(int i) {
+            return p50[i];
+        }
+
+        float p95(int i) {
+            return p95[i];
+        }
+
+        float p99(int i) {
+            return p99[i];
+        }
+
+        float max(int i) {
+            return max[i];
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2023 Divyansh Shekhar Gaur
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,16 +14,11 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
-package org.goodload.goodload.plugin.datasink.sqlite.data;
-
-import org.goodload.goodload.plugin.datasink.sqlite.models.ActionReportEntity;
-import org.springframework.data.jpa.repository.JpaRepository;
-
-
 /**
+ * Contains classes exporting the reports of a simulation to files.
+ *
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ *
  * @since 1.0
  */
-public interface IterationReportRepository extends JpaRepository<ActionReportEntity, Integer> {
-
-}
+package org.goodload.goodload.reporting.export;
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.live;
+
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.datasink.SinkSubscriber;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+import org.goodload.goodload.reporting.reports.aggregate.LatencyDistribution;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Collects the metrics of the scenarios of a simulation in windows of one second while it runs.
+ * <br>
+ * The windows are built from the {@link HistogramSnapshot}s that the runners publish anyway, on the thread
+ * delivering them, so collecting the metrics costs the runners nothing. A snapshot is counted in the second in
+ * which its interval starts. A window is published once snapshots of a grace period of seconds later have been
+ * received, to give the runners time to publish their snapshots of the second, and it is then available through
+ * {@link #getLatest()} without locking.
+ * <br>
+ * A runner publishes the snapshot of an interval only once it records a step ending in a later interval or starts
+ * an iteration, so a runner busy in a long step publishes late. The grace period starts at
+ * {@value #MIN_GRACE_SECONDS} seconds and is widened to the lag of every snapshot that arrives too late for its
+ * window, up to {@value #MAX_GRACE_SECONDS} seconds, so that the windows wait for the slowest runners.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public class LiveMetricsCollector implements SinkSubscriber {
+
+    /**
+     * The percentiles of the latencies in the published windows.
+     */
+    static final double[] PERCENTILES = {50, 95, 99};
+
+    private static final int MIN_GRACE_SECONDS = 2;
+
+    private static final int MAX_GRACE_SECONDS = 60;
+
+    /**
+     * Number of windows being filled at once, which covers the longest grace period. The windows are reused
+     * in a ring.
+     */
+    private static final int WINDOW_COUNT = MAX_GRACE_SECONDS + 2;
+
+    private final String simulationName;
+
+    private final String[] scenarioNames;
+
+    /**
+     * The index of the scenario of a step by the index of the step, or -1 for the steps that aren't scenarios.
+     */
+    private final int[] scenarioIndices;
+
+    private final Window[] windows = new Window[WINDOW_COUNT];
+
+    private final long[] totalCounts;
+
+    private final long[] totalErrorCounts;
+
+    private long newestSecond = Long.MIN_VALUE;
+
+    private long publishedSecond = Long.MIN_VALUE;
+
+    private int graceSeconds = MIN_GRACE_SECONDS;
+
+    private final AtomicReference<LiveMetricsSnapshot> latest = new AtomicReference<>();
+
+    /**
+     * @param simulationName Name of the simulation.
+     * @param simulationTree The structure of the simulation.
+     */
+    public LiveMetricsCollector(String simulationName, SimulationTree simulationTree) {
+        this.simulationName = simulationName;
+        var scenarios = simulationTree.getSteps();
+        scenarioNames = new String[scenarios.size()];
+        int stepCount = 0;
+        for (var i = 0; i < scenarios.size(); i++) {
+            scenarioNames[i] = scenarios.get(i).getStepName();
+            stepCount = Math.max(stepCount, scenarios.get(i).getStepIndex() + 1);
+        }
+        scenarioIndices = new int[stepCount];
+        Arrays.fill(scenarioIndices, -1);
+        for (var i = 0; i < scenarios.size(); i++) {
+            scenarioIndices[scenarios.get(i).getStepIndex()] = i;
+        }
+        totalCounts = new long[scenarios.size()];
+        totalErrorCounts = new long[scenarios.size()];
+        for (var i = 0; i < WINDOW_COUNT; i++) {
+            windows[i] = new Window(scenarios.size());
+        }
+    }
+
+    /**
+     * @return The metrics of the latest second that has been published, or {@code null} if none has been yet.
+     */
+    public LiveMetricsSnapshot getLatest() {
+        return latest.get();
+    }
+
+    public String getSimulationName() {
+        return simulationName;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(ActionReport item) {
+        // The metrics are collected from the snapshots
+    }
+
+    @Override
+    public void onHistogramSnapshot(HistogramSnapshot snapshot) {
+        int scenarioIndex = snapshot.getStepIndex() < scenarioIndices.length
+                ? scenarioIndices[snapshot.getStepIndex()]
+                : -1;
+        if (scenarioIndex >= 0) {
+            totalCounts[scenarioIndex] += snapshot.getCount();
+            totalErrorCounts[scenarioIndex] += snapshot.getErrorCount();
+        }
+
+        long second = Math.floorDiv(snapshot.getIntervalStartTimestampInNanos(), Util.NANOS_PER_SECOND);
+        if (second <= publishedSecond) {
+            // Too late for its window, but the following windows will wait long enough for it
+            widenGracePeriod(newestSecond - second);
+            return;
+        }
+        if (second > newestSecond) {
+            newestSecond = second;
+            if (newestSecond - graceSeconds > publishedSecond) {
+                publish(newestSecond - graceSeconds);
+            }
+        }
+
+        var window = windows[(int) Math.floorMod(second, WINDOW_COUNT)];
+        if (window.second != second) {
+            window.reset(second);
+        }
+        window.runners.set(snapshot.getRunnerId());
+        if (scenarioIndex >= 0) {
+            window.latency[scenarioIndex].add(snapshot.getLatency());
+            window.errorCounts[scenarioIndex] += snapshot.getErrorCount();
+        }
+    }
+
+    private void widenGracePeriod(long lagSeconds) {
+        if (lagSeconds < graceSeconds || graceSeconds == MAX_GRACE_SECONDS) {
+            return;
+        }
+        graceSeconds = (int) Math.min(MAX_GRACE_SECONDS, lagSeconds + 1);
+        log.debug("Simulation `{}`: Live metrics are published {} seconds late to include the snapshots of "
+                + "long steps", simulationName, graceSeconds);
+    }
+
+    private void publish(long second) {
+        var window = windows[(int) Math.floorMod(second, WINDOW_COUNT)];
+        if (window.second != second) {
+            // Nothing happened in that second
+            window.reset(second);
+        }
+
+        var metrics = new LiveMetricsSnapshot();
+        metrics.setSimulationName(simulationName);
+        metrics.setTimestampInNanos(second * Util.NANOS_PER_SECOND);
+        metrics.setActiveUsers(window.runners.cardinality());
+        for (var i = 0; i < scenarioNames.length; i++) {
+            var stepMetrics = new LiveMetricsSnapshot.StepMetrics();
+            stepMetrics.setStepName(scenarioNames[i]);
+            stepMetrics.setCount(window.latency[i].getTotalCount());
+            stepMetrics.setErrorCount(window.errorCounts[i]);
+            stepMetrics.setTotalCount(totalCounts[i]);
+            stepMetrics.setTotalErrorCount(totalErrorCounts[i]);
+            stepMetrics.setLatency(LatencyDistribution.of(window.latency[i], PERCENTILES));
+            metrics.getSteps().add(stepMetrics);
+        }
+        latest.set(metrics);
+        publishedSecond = second;
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        log.error(String.format("Simulation `%s`: Failed to collect live metrics", simulationName), throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        // Publish the last second that has been received
+        if (newestSecond > publishedSecond) {
+            publish(newestSecond);
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    private static final class Window {
+
+        private long second = Long.MIN_VALUE;
+
+        private final LatencyHistogram[] latency;
+
+        private final long[] errorCounts;
+
+        private final BitSet runners = new BitSet();
+
+        private Window(int scenarioCount) {
+            latency = new LatencyHistogram[scenarioCount];
+            for (var i = 0; i < scenarioCount; i++) {
+                latency[i] = new LatencyHistogram();
+            }
+            errorCounts = new long[scenarioCount];
+        }
+
+        private void reset(long second) {
+            this.second = second;
+            for (var histogram : latency) {
+                histogram.reset();
+            }
+            Arrays.fill(errorCounts, 0);
+            runners.clear();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.live;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.config.GoodloadConfigurationProperties;
+import org.goodload.goodload.internal.Util;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reports the live metrics of the running simulation, see {@link LiveMetricsCollector}, as a summary logged
+ * periodically and through a local HTTP endpoint.
+ * <br>
+ * The endpoint serves the metrics of the latest second as JSON at {@code /metrics.json} and in the OpenMetrics
+ * text format at {@code /metrics}. Once a simulation completes, the endpoint keeps serving its last metrics
+ * until the next simulation starts.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class LiveMetricsReporter {
+
+    static final String OPEN_METRICS_CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    @Resource
+    private GoodloadConfigurationProperties goodloadConfigurationProperties;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    private final AtomicReference<LiveMetricsCollector> current = new AtomicReference<>();
+
+    private ScheduledExecutorService consoleExecutor;
+
+    private HttpServer httpServer;
+
+    /**
+     * Starts reporting the metrics collected by the collector, instead of those of the previous simulation.
+     *
+     * @param collector The collector of the running simulation.
+     */
+    public synchronized void start(LiveMetricsCollector collector) {
+        if (consoleExecutor != null) {
+            consoleExecutor.shutdownNow();
+            consoleExecutor = null;
+        }
+        current.set(collector);
+        var properties = goodloadConfigurationProperties.getLiveMetrics();
+
+        if (properties.isHttpEnabled() && httpServer == null) {
+            startHttpServer(properties.getHttpHost(), properties.getHttpPort());
+        }
+
+        if (properties.isConsoleEnabled()) {
+            long intervalMillis = Util.parseDurationToMillis(properties.getConsoleInterval());
+            consoleExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "goodload-live-metrics-console");
+                thread.setDaemon(true);
+                return thread;
+            });
+            consoleExecutor.scheduleAtFixedRate(
+                    () -> logSummary(collector), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic summary of the collector and logs the summary of its last second.
+     *
+     * @param collector The collector of the simulation that completed.
+     */
+    public synchronized void stop(LiveMetricsCollector collector) {
+        if (consoleExecutor != null) {
+            consoleExecutor.shutdownNow();
+            consoleExecutor = null;
+        }
+        if (current.get() == collector && goodloadConfigurationProperties.getLiveMetrics().isConsoleEnabled()) {
+            logSummary(collector);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+
+    private void logSummary(LiveMetricsCollector collector) {
+        var metrics = collector.getLatest();
+        if (metrics == null) {
+            return;
+        }
+        var summary = new StringJoiner(" | ");
+        summary.add(metrics.getActiveUsers() + " users");
+        for (var step : metrics.getSteps()) {
+            var latency = step.getLatency();
+            summary.add(String.format(Locale.ROOT, "`%s` %d/s, %d errors/s, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms",
+                    step.getStepName(),
+                    step.getCount(),
+                    step.getErrorCount(),
+                    latency.getPercentiles().get("p50") / 1_000_000.0,
+                    latency.getPercentiles().get("p95") / 1_000_000.0,
+                    latency.getPercentiles().get("p99") / 1_000_000.0));
+        }
+        var time = LocalTime.ofInstant(
+                Instant.ofEpochSecond(0, metrics.getTimestampInNanos()), ZoneId.systemDefault());
+        log.info("Simulation `{}` at {}: {}", metrics.getSimulationName(), TIME_FORMAT.format(time), summary);
+    }
+
+    private void startHttpServer(String host, int port) {
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            log.warn(String.format("Failed to serve live metrics at %s:%d", host, port), e);
+            return;
+        }
+        httpServer.createContext("/metrics", exchange -> respond(exchange, false));
+        httpServer.createContext("/metrics.json", exchange -> respond(exchange, true));
+        httpServer.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "goodload-live-metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        httpServer.start();
+        log.info("Serving live metrics at http://{}:{}/metrics", host, httpServer.getAddress().getPort());
+    }
+
+    private void respond(HttpExchange exchange, boolean json) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            var collector = current.get();
+            var metrics = collector == null ? null : collector.getLatest();
+            if (metrics == null) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            var body = json
+                    ? objectMapper.writeValueAsBytes(metrics)
+                    : toOpenMetrics(metrics).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", json ? "application/json" : OPEN_METRICS_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Formats the metrics in the OpenMetrics text format.
+     */
+    static String toOpenMetrics(LiveMetricsSnapshot metrics) {
+        var simulationLabel = "simulation=\"" + escapeLabelValue(metrics.getSimulationName()) + "\"";
+        var text = new StringBuilder();
+
+        text.append("# TYPE goodload_active_users gauge\n");
+        text.append("# HELP goodload_active_users Number of runners that executed steps in the last second.\n");
+        text.append("goodload_active_users{").append(simulationLabel).append("} ")
+                .append(metrics.getActiveUsers()).append('\n');
+
+        text.append("# TYPE goodload_step_rate gauge\n");
+        text.append("# HELP goodload_step_rate Executions of the step per second.\n");
+        for (var step : metrics.getSteps()) {
+            appendSample(text, "goodload_step_rate", simulationLabel, step, null, step.getCount());
+        }
+
+        text.append("# TYPE goodload_step_error_rate gauge\n");
+        text.append("# HELP goodload_step_error_rate Failed executions of the step per second.\n");
+        for (var step : metrics.getSteps()) {
+            appendSample(text, "goodload_step_error_rate", simulationLabel, step, null, step.getErrorCount());
+        }
+
+        text.append("# TYPE goodload_step_latency_seconds gauge\n");
+        text.append("# UNIT goodload_step_latency_seconds seconds\n");
+        text.append("# HELP goodload_step_latency_seconds Time taken by the step in the last second.\n");
+        for (var step : metrics.getSteps()) {
+            for (var percentile : LiveMetricsCollector.PERCENTILES) {
+                var value = step.getLatency().getPercentiles().get("p" + (int) percentile);
+                appendSample(text, "goodload_step_latency_seconds", simulationLabel, step,
+                        "quantile=\"" + percentile / 100 + "\"", value / 1e9);
+            }
+        }
+
+        text.append("# TYPE goodload_step_executions counter\n");
+        text.append("# HELP goodload_step_executions Executions of the step since the simulation started.\n");
+        for (var step : metrics.getSteps()) {
+            appendSample(text, "goodload_step_executions_total", simulationLabel, step, null, step.getTotalCount());
+        }
+
+        text.append("# TYPE goodload_step_errors counter\n");
+        text.append("# HELP goodload_step_errors Failed executions of the step since the simulation started.\n");
+        for (var step : metrics.getSteps()) {
+            appendSample(text, "goodload_step_errors_total", simulationLabel, step, null,
+                    step.getTotalErrorCount());
+        }
+
+        text.append("# EOF\n");
+        return text.toString();
+    }
+
+    private static void appendSample(StringBuilder text, String name, String simulationLabel,
+                                     LiveMetricsSnapshot.StepMetrics step, String extraLabel, double value) {
+        text.append(name).append('{').append(simulationLabel)
+                .append(",step=\"").append(escapeLabelValue(step.getStepName())).append('"');
+        if (extraLabel != null) {
+            text.append(',').append(extraLabel);
+        }
+        text.append("} ");
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
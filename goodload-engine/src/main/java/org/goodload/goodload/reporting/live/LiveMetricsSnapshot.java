@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.live;
+
+import lombok.Data;
+import org.goodload.goodload.reporting.reports.aggregate.LatencyDistribution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The metrics of a simulation in one second while it runs.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Data
+public class LiveMetricsSnapshot {
+
+    private String simulationName;
+
+    /**
+     * The start of the second, in nanoseconds since the epoch.
+     */
+    private long timestampInNanos;
+
+    /**
+     * Number of runners that executed steps in the second.
+     */
+    private int activeUsers;
+
+    /**
+     * The metrics of the top level steps, i.e. the scenarios, in the order in which they are executed.
+     */
+    private List<StepMetrics> steps = new ArrayList<>();
+
+    @Data
+    public static class StepMetrics {
+
+        private String stepName;
+
+        /**
+         * Number of executions of the step that ended in the second.
+         */
+        private long count;
+
+        /**
+         * Number of executions of the step that ended in the second and failed.
+         */
+        private long errorCount;
+
+        /**
+         * Number of executions of the step since the simulation started.
+         */
+        private long totalCount;
+
+        /**
+         * Number of failed executions of the step since the simulation started.
+         */
+        private long totalErrorCount;
+
+        /**
+         * The time taken by the executions of the step that ended in the second.
+         */
+        private LatencyDistribution latency;
+    }
+}
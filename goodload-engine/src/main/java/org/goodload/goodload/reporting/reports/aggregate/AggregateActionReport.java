@@ -18,7 +18,6 @@ package org.goodload.goodload.reporting.reports.aggregate;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
-import org.goodload.goodload.reporting.data.ActionReport;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -40,11 +39,6 @@ public class AggregateActionReport extends AggregateReport {
      */
     private List<AggregateActionReport> subSteps = new ArrayList<>();
 
-    /**
-     * Raw report used for calculating aggregate.
-     */
-    private List<ActionReport> rawReports = new ArrayList<>();
-
     /**
      * If the action passed all the fail-pass criteria then true, else false.
      *
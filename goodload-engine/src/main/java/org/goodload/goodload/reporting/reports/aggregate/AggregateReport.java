@@ -21,6 +21,7 @@ import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Report generated after aggregating individual reports generated when simulations are run.
@@ -39,17 +40,17 @@ public abstract class AggregateReport implements Serializable {
     private String stepName;
 
     /**
-     * Timestamp when the first iteration started
+     * Timestamp in nanoseconds since the epoch when the first iteration started
      */
     private long iterationsStartTimestamp;
 
     /**
-     * Timestamp when the last iteration ended
+     * Timestamp in nanoseconds since the epoch when the last iteration ended
      */
     private long iterationsEndTimestamp;
 
     /**
-     * The total time (in milliseconds) taken by a step to execute.
+     * The total time (in nanoseconds) taken by a step to execute.
      * Only includes the actual time spent in executing an iteration
      * and not the time spent in initialization of the steps/iteration
      * by the engine.
@@ -58,15 +59,20 @@ public abstract class AggregateReport implements Serializable {
      * be counted towards the aggregate. Only the internal boilerplate
      * is ignored.
      * <br>
-     * Hence, the totalTimeInMillis may or may not be equal to
+     * Hence, the totalTimeInNanos may or may not be equal to
      * {@code iterationsEndTimestamp - iterationsStartTimestamp}
      */
-    private long totalTimeInMillis;
+    private long totalTimeInNanos;
 
     /**
-     * Average time in milliseconds. It is equal to totalTimeInMillis / number of iterations.
+     * Average time in nanoseconds. It is equal to totalTimeInNanos / number of iterations.
      */
-    private long averageTimeInMillis;
+    private long averageTimeInNanos;
+
+    /**
+     * Number of executions of the step that failed.
+     */
+    private long errorCount;
 
     /**
      * If true, then the execution of the step failed due to some error.
@@ -74,12 +80,39 @@ public abstract class AggregateReport implements Serializable {
      */
     private boolean errorsOccured = false;
 
+    /**
+     * Number of bytes received by the network requests of the step and its sub-steps, including the headers.
+     * The bodies are counted as received, i.e. before they are decompressed.
+     */
+    private long bytesReceived;
+
     /**
      * Store number of hits for every second the step was run.
-     * The actual time in second for number of hits at index i = startTimeInMillis / 1000 + i
+     * The actual time in second for number of hits at index i = iterationsStartTimestamp / 1_000_000_000 + i
      */
     private List<Integer> hitsAtEverySecond;
 
+    /**
+     * Distribution of the time taken by the step, as measured from the actual start of every execution.
+     */
+    private LatencyDistribution latency;
+
+    /**
+     * Distribution of the time taken by the step, as measured from when every execution should have started
+     * according to the load profile. It includes the time the executions were delayed because the runners
+     * were behind schedule, i.e. it is corrected for coordinated omission. Compare it with {@link #latency}
+     * to find out if the load generator kept up with the intended load.
+     */
+    private LatencyDistribution correctedLatency;
+
+    /**
+     * Distributions of the time spent by the step in the phases of its network requests, keyed by the name of the
+     * phase: dns, connect, tls, time-to-first-byte and body. A phase is included only if some executions of the step
+     * went through it, e.g. the requests that reuse a kept-alive connection don't connect, and the field is null
+     * if the step made no network requests. The time of a phase includes the requests of the sub-steps.
+     */
+    private Map<String, LatencyDistribution> phaseLatencies;
+
     protected AggregateReport(String stepName) {
         this.stepName = stepName;
     }
@@ -34,6 +34,39 @@ public class AggregateSimulationReport extends AggregateReport {
      */
     private List<AggregateActionReport> scenarios = new ArrayList<>();
 
+    /**
+     * Whether none of the steps met any of the fail-when criteria.
+     */
+    private boolean passed = false;
+
+    /**
+     * Whether the simulation was stopped before its end because a step met a fail-when criterion for good.
+     * The aggregates cover what was executed until then.
+     */
+    private boolean aborted = false;
+
+    /**
+     * Number of reports the sink discarded because it couldn't keep up with them,
+     * see {@link org.goodload.goodload.reporting.datasink.BackpressurePolicy}.
+     * The aggregates above are not affected, but the reports written by the sink are incomplete.
+     */
+    private long sinkDroppedReports;
+
+    /**
+     * Number of reports the sink left out by sampling because it couldn't keep up with them.
+     */
+    private long sinkSampledOutReports;
+
+    /**
+     * Number of reports the sink spilled to the disk because it couldn't keep up with them. They are not lost.
+     */
+    private long sinkSpilledReports;
+
+    /**
+     * Number of reports the sink failed to write.
+     */
+    private long sinkFailedReports;
+
     public AggregateSimulationReport(String name) {
         super(name);
     }
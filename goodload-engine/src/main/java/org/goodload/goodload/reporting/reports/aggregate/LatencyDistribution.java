@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.reports.aggregate;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Summary of the distribution of the time taken by a step.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+public class LatencyDistribution implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of times the step was executed.
+     */
+    private long count;
+
+    /**
+     * Minimum time in nanoseconds.
+     */
+    private long minimum;
+
+    /**
+     * Mean time in nanoseconds.
+     */
+    private double mean;
+
+    /**
+     * Maximum time in nanoseconds.
+     */
+    private long maximum;
+
+    /**
+     * Time in nanoseconds at the percentiles, keyed by the name of the percentile, e.g. "p99.9".
+     */
+    private Map<String, Long> percentiles = new LinkedHashMap<>();
+
+    /**
+     * Summarises the values recorded in a histogram.
+     *
+     * @param histogram   The histogram of times in nanoseconds.
+     * @param percentiles The percentiles to include in the summary.
+     * @return The summary of the distribution.
+     */
+    public static LatencyDistribution of(LatencyHistogram histogram, double... percentiles) {
+        var distribution = new LatencyDistribution();
+        distribution.setCount(histogram.getTotalCount());
+        distribution.setMinimum(histogram.getMin());
+        distribution.setMean(histogram.getMean());
+        distribution.setMaximum(histogram.getMax());
+        for (var percentile : percentiles) {
+            distribution.getPercentiles().put(percentileName(percentile), histogram.getValueAtPercentile(percentile));
+        }
+        return distribution;
+    }
+
+    /**
+     * @return The name of the percentile, e.g. "p50" for 50 and "p99.9" for 99.9.
+     */
+    static String percentileName(double percentile) {
+        return "p" + BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString();
+    }
+}
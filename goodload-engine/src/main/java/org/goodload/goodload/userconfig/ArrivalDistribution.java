@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.userconfig;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * How the start times of iterations are distributed in an open workload.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public enum ArrivalDistribution {
+    /**
+     * Iterations are started at fixed intervals of {@code 1 / arrival-rate} seconds.
+     */
+    @JsonProperty("constant")
+    CONSTANT,
+
+    /**
+     * The intervals between the starts of iterations are exponentially distributed with
+     * mean {@code 1 / arrival-rate} seconds, i.e. the iterations arrive as a Poisson process.
+     * This resembles the traffic generated by a large number of independent users.
+     */
+    @JsonProperty("poisson")
+    POISSON
+}
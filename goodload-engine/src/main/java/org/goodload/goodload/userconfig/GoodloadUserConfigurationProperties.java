@@ -47,12 +47,24 @@ public class GoodloadUserConfigurationProperties implements Serializable {
 
     /**
      * Define when the aggregate report for a given step/group/scenario should fail depending
-     * upon how much of the iteration for that step/group/scenario fails.
+     * upon how much of the iteration for that step/group/scenario fails, e.g. `5% failures`,
+     * `atleast 4 failures`, or on its latency or throughput, e.g. `p99 of step 'Login' > 250ms`,
+     * `mean > 100ms`, `throughput < 50/s` or `p95 > 1s over any 1m window`. The windows are tumbling, i.e.
+     * every minute of the clock for `1m`, rather than sliding.
      * @since 1.0
      */
     @JsonProperty(value="fail-when")
     private List<String> failPassCriteria = new ArrayList<>();
 
+    /**
+     * Stop a simulation as soon as one of its steps meets a fail-when criterion that can't be undone by
+     * the rest of the simulation, e.g. `atleast 10 failures` once the step has failed 10 times.
+     * Percentage criteria are only decided at the end of the simulation.
+     * @since 1.0
+     */
+    @JsonProperty(value="abort-on-fail")
+    private boolean abortOnFail = false;
+
     /**
      * Properties and configuration that affect how the reports are generated.
      * @since 1.0
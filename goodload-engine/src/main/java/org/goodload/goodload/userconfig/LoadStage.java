@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.userconfig;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * A stage of the load profile of a simulation.
+ * During the stage, the load changes from the target of the previous stage (0 for the first stage)
+ * to the target of this stage. Either {@code concurrency} or {@code arrival-rate} must be provided,
+ * and all the stages of a simulation must use the same one.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Data
+public class LoadStage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of concurrent runners at the end of the stage.
+     * @since 1.0
+     */
+    private Integer concurrency;
+
+    /**
+     * The number of iterations started per second at the end of the stage.
+     * If provided, the simulation is run as an open workload.
+     * @since 1.0
+     */
+    @JsonProperty(value = "arrival-rate")
+    private Double arrivalRate;
+
+    /**
+     * How long it takes to reach the target, e.g. {@code 30s}, {@code 5m}.
+     * @since 1.0
+     */
+    private String duration;
+
+    /**
+     * The shape in which the load changes to reach the target.
+     * {@code linear} by default.
+     * @since 1.0
+     */
+    private RampCurve curve = RampCurve.LINEAR;
+
+    /**
+     * @return The number of concurrent runners, or the arrival rate at the end of the stage.
+     */
+    @JsonIgnore
+    public double getTarget() {
+        return arrivalRate != null ? arrivalRate : concurrency;
+    }
+}
@@ -20,11 +20,14 @@ package org.goodload.goodload.userconfig;
 import lombok.Getter;
 import lombok.Setter;
 import org.goodload.goodload.criteria.Criteria;
+import org.goodload.goodload.reporting.export.ExportFormat;
 import org.springframework.stereotype.Component;
 
 import java.net.URLClassLoader;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -45,6 +48,16 @@ public class ParsedUserArgs {
      */
     private List<Criteria> failPassCriteria = new LinkedList<>();
 
+    /**
+     * Whether to stop a simulation once it is bound to fail, from goodload.abort-on-fail property
+     */
+    private boolean abortOnFail = false;
+
+    /**
+     * Formats from goodload.reporting.export-formats property
+     */
+    private Set<ExportFormat> exportFormats = EnumSet.noneOf(ExportFormat.class);
+
     /**
      * The loader used to load classes from user's simulation jar file.
      * @since 1.0
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.userconfig;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The shape in which the load changes from one level to another during a ramp-up, ramp-down or a stage.
+ * The load is the number of concurrent runners in a closed workload, or the arrival rate in an open workload.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public enum RampCurve {
+    /**
+     * The load changes at a constant pace.
+     */
+    @JsonProperty("linear")
+    LINEAR {
+        @Override
+        public double apply(double progress) {
+            return progress;
+        }
+
+        @Override
+        public double integral(double progress) {
+            return progress * progress / 2;
+        }
+    },
+
+    /**
+     * The load changes slowly in the beginning and quickly towards the end.
+     */
+    @JsonProperty("ease-in")
+    EASE_IN {
+        @Override
+        public double apply(double progress) {
+            return progress * progress;
+        }
+
+        @Override
+        public double integral(double progress) {
+            return progress * progress * progress / 3;
+        }
+    },
+
+    /**
+     * The load changes quickly in the beginning and slowly towards the end.
+     */
+    @JsonProperty("ease-out")
+    EASE_OUT {
+        @Override
+        public double apply(double progress) {
+            return progress * (2 - progress);
+        }
+
+        @Override
+        public double integral(double progress) {
+            return progress * progress - progress * progress * progress / 3;
+        }
+    },
+
+    /**
+     * The load changes slowly in the beginning and towards the end, and quickly in the middle.
+     */
+    @JsonProperty("ease-in-out")
+    EASE_IN_OUT {
+        @Override
+        public double apply(double progress) {
+            return progress * progress * (3 - 2 * progress);
+        }
+
+        @Override
+        public double integral(double progress) {
+            return progress * progress * progress * (1 - progress / 2);
+        }
+    },
+
+    /**
+     * The load jumps to the target level immediately and stays there.
+     * Useful for step and spike tests.
+     */
+    @JsonProperty("step")
+    STEP {
+        @Override
+        public double apply(double progress) {
+            return progress > 0 ? 1 : 0;
+        }
+
+        @Override
+        public double integral(double progress) {
+            return progress;
+        }
+    };
+
+    /**
+     * @param progress How much of the ramp has elapsed, between 0 and 1.
+     * @return How much of the change in load has been applied, between 0 and 1.
+     */
+    public abstract double apply(double progress);
+
+    /**
+     * @param progress How much of the ramp has elapsed, between 0 and 1.
+     * @return The integral of {@link #apply(double)} from 0 to {@code progress}.
+     */
+    public abstract double integral(double progress);
+}
@@ -18,6 +18,7 @@ package org.goodload.goodload.userconfig;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
+import org.goodload.goodload.internal.Util;
 
 import java.io.Serializable;
 import java.util.Set;
@@ -33,14 +34,44 @@ import java.util.Set;
 public class ReportingConfiguration implements Serializable {
     private static final long serialVersionUID = 1L;
     /**
-     * If true, the generated report will include raw data.
-     * We recommend to keep it disabled (set to {@code false}) for improved
-     * performance and smaller memory footprint.
+     * If true, the exported reports will include the raw reports, i.e. those of the iterations sampled according
+     * to {@code raw-report-sampling-rate}, in addition to the aggregate report.
+     * The raw reports are written as they are generated, so even a large number of them doesn't use more memory,
+     * but we recommend to keep it disabled (set to {@code false}) for improved performance and smaller exports.
      * @since 1.0
      */
     @JsonProperty(value="include-raw-report")
     private boolean includeRawReport = false;
 
+    /**
+     * The fraction of iterations, between 0 and 1, for which a report of every step is sent to the sink
+     * in addition to the histograms. The timings of all the steps are always recorded into histograms which are
+     * sent to the sink once per {@code histogram-interval}, so raw reports are only needed to analyse individual
+     * iterations. Every raw report is a record in the sink, so a high rate slows down the sinks and increases
+     * the size of their output.
+     * @since 1.0
+     */
+    @JsonProperty(value="raw-report-sampling-rate")
+    private double rawReportSamplingRate = 0;
+
+    /**
+     * The length of the intervals for which the histograms of step timings are recorded, e.g. 1s.
+     * The reports count the executions per second, so it must be at most 1s and divide 1s, e.g. 0.1s.
+     * See {@link #isValidHistogramInterval(long)}.
+     * @since 1.0
+     */
+    @JsonProperty(value="histogram-interval")
+    private String histogramInterval = "1s";
+
+    /**
+     * @param intervalNanos The length of a histogram interval in nanoseconds.
+     * @return true if the interval is positive and a whole number of intervals make a second, so that every
+     * interval lies within a second.
+     */
+    public static boolean isValidHistogramInterval(long intervalNanos) {
+        return intervalNanos > 0 && Util.NANOS_PER_SECOND % intervalNanos == 0;
+    }
+
     /**
      * The list of formats in which the simulation reports will be exported.
      * <strong>Accepted values</strong>
@@ -49,6 +80,8 @@ public class ReportingConfiguration implements Serializable {
      *     Reduces export file size.</li>
      *     <li><u>json-pretty</u> : JSON formatted to be understood easily by humans.</li>
      *     <li><u>yaml</u> : Humand readable YAML format.</li>
+     *     <li><u>html</u> : A single page with the tables of the steps and charts of their latency and throughput
+     *     over time, which can be opened in a browser.</li>
      * </ul>
      * @since 1.0
      */
@@ -61,5 +94,12 @@ public class ReportingConfiguration implements Serializable {
      * the directory from where the simulator engine is started.
      */
     @JsonProperty(value="export-directory-path")
-    private String exportDirectoryPath;
+    private String exportDirectoryPath = ".";
+
+    /**
+     * If true, the exported reports are compressed with gzip, and {@code .gz} is appended to their names.
+     * @since 1.0
+     */
+    @JsonProperty(value="export-gzip")
+    private boolean exportGzip = false;
 }
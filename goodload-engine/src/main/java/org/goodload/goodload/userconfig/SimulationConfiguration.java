@@ -16,10 +16,12 @@
  */
 package org.goodload.goodload.userconfig;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * The configuration properties relating to each simulation the user wants to run.
@@ -53,6 +55,38 @@ public class SimulationConfiguration implements Serializable {
      */
     private Integer throughput;
 
+    /**
+     * The number of iterations of the simulation started per second, across all the runners.
+     * If provided, the simulation is run as an open workload: iterations are started at this rate
+     * irrespective of how long the previous iterations take to complete, and the {@code throughput}
+     * is ignored.
+     * Each iteration is picked up by an idle runner. The {@code concurrency} runners are started
+     * upfront, and more runners are added (up to {@code max-concurrency}) when none of them is idle
+     * at the time an iteration is due.
+     * @since 1.0
+     */
+    @JsonProperty(value = "arrival-rate")
+    private Double arrivalRate;
+
+    /**
+     * How the start times of the iterations are distributed when {@code arrival-rate} is provided.
+     * {@code constant} by default.
+     * @since 1.0
+     */
+    @JsonProperty(value = "arrival-distribution")
+    private ArrivalDistribution arrivalDistribution = ArrivalDistribution.CONSTANT;
+
+    /**
+     * The maximum number of runners that may be started for an open workload
+     * when the runners started upfront are not enough to maintain the {@code arrival-rate}.
+     * Defaults to {@code concurrency} (or 1 if the concurrency is not provided),
+     * i.e. no additional runners are started.
+     * Ignored if the {@code arrival-rate} is not provided.
+     * @since 1.0
+     */
+    @JsonProperty(value = "max-concurrency")
+    private Integer maxConcurrency;
+
     /**
      * The maximum number of parallel execution of the simulation.
      * If the concurrency is 4 and throughput is 10, then the actual overall throughput will be 4*10 = 40.
@@ -66,37 +100,82 @@ public class SimulationConfiguration implements Serializable {
      * The maximum number of iterations the simulation will go through in each thread.
      * If the iteration = 10 and concurrency = 4, then total number of iterations of
      * the simulation should be 10 * 4 = 40.
+     * If the {@code arrival-rate} is provided, it is the total number of iterations started
+     * across all the runners instead.
      * @since 1.0
      */
     private Integer iterations;
 
+    /**
+     * The maximum number of iterations that each runner keeps in flight at the same time.
+     * An iteration is in flight while it waits for an async step (see {@code DSL.execAsync}) to complete,
+     * during which the runner starts new iterations, or continues the ones whose async steps have completed.
+     * It allows a single runner to drive many concurrent non-blocking requests.
+     * In a closed workload every runner then executes up to this many iterations concurrently.
+     * {@code 1} by default, i.e. a runner waits for the async steps of its only iteration.
+     * @since 1.0
+     */
+    @JsonProperty(value = "max-iterations-in-flight")
+    private int maxIterationsInFlight = 1;
+
     /**
      * The duration for which the simulation will be executed.
      * New iterations will be started and executed until the duration is over.
      * It is simply to a while loop until duration exceeded.
      * If the number of iterations have also been defined, then the iterations will stop
-     * if either the duration is over or the iteration count is reached (whichever happens first)
+     * if either the duration is over or the iteration count is reached (whichever happens first).
+     * If not provided, the engine's max-hold-for value is used.
      * @since 1.0
      */
     @JsonProperty(value = "hold-for")
     private String holdFor;
 
     /**
-     * <b>Not yet supported. Reserved for future.</b>
-     * How much time should it take to reach from 0 overall throughput to maximum overall throughput.
+     * How much time should it take to reach from 0 to the configured {@code concurrency}
+     * (or {@code arrival-rate} for an open workload) at the start of the simulation.
+     * The runners are started gradually during this time, instead of all of them at once.
+     * The hold-for duration starts after the ramp-up is over.
+     * Ignored if {@code stages} are provided.
      * @since 1.0
      */
     @JsonProperty(value = "ramp-up")
     private String rampUp;
 
     /**
-     * <b>Not yet supported. Reserved for future.</b>
-     * How much time should it take to reach from maximum overall throughput to 0.
+     * The shape in which the load increases during the ramp-up.
+     * {@code linear} by default.
+     * @since 1.0
+     */
+    @JsonProperty(value = "ramp-up-curve")
+    private RampCurve rampUpCurve = RampCurve.LINEAR;
+
+    /**
+     * How much time should it take to reach from the configured {@code concurrency}
+     * (or {@code arrival-rate} for an open workload) to 0 after the hold-for duration is over.
+     * The runners stop starting new iterations one by one during this time.
+     * Ignored if {@code stages} are provided.
      * @since 1.0
      */
     @JsonProperty(value = "ramp-down")
     private String rampDown;
 
+    /**
+     * The shape in which the load decreases during the ramp-down.
+     * {@code linear} by default.
+     * @since 1.0
+     */
+    @JsonProperty(value = "ramp-down-curve")
+    private RampCurve rampDownCurve = RampCurve.LINEAR;
+
+    /**
+     * Multi-stage load profile of the simulation. Each stage changes the load from the target of the previous
+     * stage to its own target over its duration. It allows modelling step, spike and soak tests in a single
+     * simulation. If provided, the {@code ramp-up}, {@code hold-for} and {@code ramp-down} are ignored, and
+     * the simulation runs for the total duration of the stages.
+     * @since 1.0
+     */
+    private List<LoadStage> stages;
+
     /**
      * Enable or disable a simulation.
      * The simulation is executed only if this value is set to true,
@@ -105,4 +184,35 @@ public class SimulationConfiguration implements Serializable {
      * @since 1.0
      */
     private boolean enabled = true;
+
+    /**
+     * @return {@code true} if the simulation should be run as an open workload, i.e. the iterations
+     * are started at a configured arrival rate.
+     */
+    @JsonIgnore
+    public boolean isOpenWorkload() {
+        return arrivalRate != null || (hasStages() && stages.get(0).getArrivalRate() != null);
+    }
+
+    /**
+     * @return {@code true} if a multi-stage load profile has been provided.
+     */
+    @JsonIgnore
+    public boolean hasStages() {
+        return stages != null && !stages.isEmpty();
+    }
+
+    /**
+     * @return The maximum number of runners that may be executing this simulation at the same time.
+     */
+    @JsonIgnore
+    public int getEffectiveMaxConcurrency() {
+        if (isOpenWorkload()) {
+            return Math.max(1, Math.max(concurrency, maxConcurrency == null ? 0 : maxConcurrency));
+        }
+        if (hasStages()) {
+            return (int) Math.ceil(stages.stream().mapToDouble(LoadStage::getTarget).max().orElse(0));
+        }
+        return concurrency;
+    }
 }
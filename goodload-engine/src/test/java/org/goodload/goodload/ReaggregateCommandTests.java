@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload;
+
+import org.goodload.goodload.plugin.datasink.rawlog.RawLogWriter;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.data.StepSkeletonData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class ReaggregateCommandTests {
+
+    private static final long BASE = TimeUnit.SECONDS.toNanos(1_700_000_000L);
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes 20 iterations of Login (0) > [Submit (1)] started every 100ms. Submit takes 40ms and Login 50ms, except
+     * in the last iteration in which Submit fails after 400ms. The reports are delivered in the order of their end.
+     */
+    @BeforeEach
+    public void writeRawLog() throws IOException {
+        try (var writer = new RawLogWriter(directory, 1 << 16, simulationTree())) {
+            for (var iteration = 0; iteration < 20; iteration++) {
+                long start = BASE + iteration * 100 * MILLIS;
+                boolean last = iteration == 19;
+                writer.write(report(1, iteration, start, start + (last ? 400 : 40) * MILLIS, !last));
+                writer.write(report(0, iteration, start, start + (last ? 410 : 50) * MILLIS, !last));
+            }
+        }
+    }
+
+    @Test
+    public void testReaggregate() throws IOException {
+        var report = new ReaggregateCommand().run("--raw-log", directory.toString(), "--percentiles", "50,100");
+
+        Assertions.assertNotNull(report);
+        Assertions.assertEquals("Simulation", report.getStepName());
+        Assertions.assertEquals(1, report.getScenarios().size());
+        var login = report.getScenarios().get(0);
+        Assertions.assertEquals("Login", login.getStepName());
+        Assertions.assertEquals(20, login.getIterations());
+        Assertions.assertEquals(1, login.getErrorCount());
+        var submit = login.getSubSteps().get(0);
+        Assertions.assertEquals("Submit", submit.getStepName());
+        Assertions.assertEquals(20, submit.getIterations());
+        Assertions.assertEquals(1, submit.getErrorCount());
+        Assertions.assertEquals(BASE, report.getIterationsStartTimestamp());
+        Assertions.assertEquals(BASE + 2_310 * MILLIS, report.getIterationsEndTimestamp());
+        Assertions.assertEquals(List.of(10, 9, 1), login.getHitsAtEverySecond());
+
+        // Without criteria, a failure fails the re-aggregation like a simulation
+        Assertions.assertFalse(report.isPassed());
+    }
+
+    @Test
+    public void testReaggregateWithOtherCriteria() throws IOException {
+        var report = new ReaggregateCommand().run("-l", directory.toString(), "-i", "0.1s",
+                "-f", "max of step 'Submit' > 500ms");
+
+        Assertions.assertNotNull(report);
+        Assertions.assertEquals(20, report.getScenarios().get(0).getIterations());
+        Assertions.assertTrue(report.isPassed());
+
+        report = new ReaggregateCommand().run("-l", directory.toString(), "-i", "0.1s",
+                "-f", "max of step 'Submit' > 500ms", "-f", "p50 of step 'Submit' > 30ms");
+
+        Assertions.assertNotNull(report);
+        Assertions.assertFalse(report.isPassed());
+    }
+
+    @Test
+    public void testInvalidArguments() throws IOException {
+        Assertions.assertNull(new ReaggregateCommand().run("--percentiles", "50"));
+        Assertions.assertNull(new ReaggregateCommand().run("-l", directory.toString(), "-p", "101"));
+        Assertions.assertNull(new ReaggregateCommand().run("-l", directory.toString(), "-i", "0.3s"));
+    }
+
+    /**
+     * Login (0) > [Submit (1)].
+     */
+    private static SimulationTree simulationTree() {
+        var submit = new StepSkeletonData();
+        submit.setStepIndex(1);
+        submit.setStepId("login.submit");
+        submit.setStepName("Submit");
+        submit.setSubSteps(List.of());
+        var login = new StepSkeletonData();
+        login.setStepIndex(0);
+        login.setStepId("login");
+        login.setStepName("Login");
+        login.setSubSteps(List.of(submit));
+        var simulationTree = new SimulationTree();
+        simulationTree.setSimulationId("simulation");
+        simulationTree.setSimulationName("Simulation");
+        simulationTree.setSteps(List.of(login));
+        return simulationTree;
+    }
+
+    private static ActionReport report(int stepIndex, int iterationIndex, long start, long end,
+                                       boolean endedNormally) {
+        var report = new ActionReport(stepIndex);
+        report.setRunnerId(1);
+        report.setIterationIndex(iterationIndex);
+        report.setStartTimestampInNanos(start);
+        report.setEndTimestampInNanos(end);
+        report.setEndedNormally(endedNormally);
+        return report;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.criteria;
+
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.data.StepSkeletonData;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class HistogramCriteriaTests {
+
+    /**
+     * A second since the epoch aligned to the windows of 5 seconds.
+     */
+    private static final long BASE_SECOND = 1_700_000_000L;
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * max > 1s over any 5s window.
+     */
+    private static CriteriaEvaluation newMaxLatencyEvaluation() {
+        return new LatencyCriteria(null, LatencyCriteria.Statistic.MAX, 0, Comparison.GREATER_THAN,
+                TimeUnit.SECONDS.toNanos(1), WINDOW_NANOS).newEvaluation();
+    }
+
+    @Test
+    public void testBreachingWindowIsFinalOnceClosed() {
+        var evaluation = newMaxLatencyEvaluation();
+        for (var second = 0; second < 5; second++) {
+            evaluation.add(snapshot(second, second == 2 ? SLOW : FAST, 1));
+        }
+        Assertions.assertTrue(evaluation.matches());
+        Assertions.assertFalse(evaluation.isMatchFinal());
+
+        // The window before the newest one is kept open for the snapshots published late
+        for (var second = 5; second < 10; second++) {
+            evaluation.add(snapshot(second, FAST, 1));
+        }
+        Assertions.assertFalse(evaluation.isMatchFinal());
+
+        evaluation.add(snapshot(10, FAST, 1));
+        Assertions.assertTrue(evaluation.isMatchFinal());
+        Assertions.assertTrue(evaluation.matches());
+    }
+
+    @Test
+    public void testLateSnapshotIsAddedToOpenWindow() {
+        var evaluation = newMaxLatencyEvaluation();
+        for (var second = 0; second < 10; second++) {
+            evaluation.add(snapshot(second, FAST, 1));
+        }
+        Assertions.assertFalse(evaluation.matches());
+
+        evaluation.add(snapshot(3, SLOW, 1));
+        Assertions.assertTrue(evaluation.matches());
+    }
+
+    @Test
+    public void testLateSnapshotIsLeftOutOfClosedWindow() {
+        var evaluation = newMaxLatencyEvaluation();
+        for (var second = 0; second <= 10; second++) {
+            evaluation.add(snapshot(second, FAST, 1));
+        }
+
+        evaluation.add(snapshot(3, SLOW, 1));
+        Assertions.assertFalse(evaluation.matches());
+        Assertions.assertFalse(evaluation.isMatchFinal());
+    }
+
+    @Test
+    public void testThroughputOfPartiallyCoveredWindow() {
+        // throughput < 10/s over any 5s window
+        var evaluation = new ThroughputCriteria(null, Comparison.LESS_THAN, 10, WINDOW_NANOS).newEvaluation();
+
+        // The first window is only covered from its fourth second, i.e. 20 executions in 2 seconds
+        evaluation.add(snapshot(3, FAST, 10));
+        evaluation.add(snapshot(4, FAST, 10));
+        for (var second = 5; second <= 10; second++) {
+            evaluation.add(snapshot(second, FAST, 10));
+        }
+        Assertions.assertFalse(evaluation.isMatchFinal());
+
+        // 5 executions a second in the second window
+        evaluation = new ThroughputCriteria(null, Comparison.LESS_THAN, 10, WINDOW_NANOS).newEvaluation();
+        for (var second = 0; second <= 10; second++) {
+            evaluation.add(snapshot(second, FAST, second >= 5 ? 5 : 10));
+        }
+        evaluation.add(snapshot(15, FAST, 10));
+        Assertions.assertTrue(evaluation.isMatchFinal());
+    }
+
+    @Test
+    public void testStalledStepFailsThroughputWindow() {
+        // throughput < 10/s over any 5s window
+        var evaluation = new ThroughputCriteria(null, Comparison.LESS_THAN, 10, WINDOW_NANOS).newEvaluation();
+        for (var second = 0; second < 5; second++) {
+            evaluation.add(snapshot(second, FAST, 10));
+        }
+
+        // The step completes nothing from the second window on, while the simulation goes on
+        evaluation.cover(seconds(0), seconds(7));
+        Assertions.assertFalse(evaluation.matches(), "The second window is only partially covered");
+        evaluation.cover(seconds(0), seconds(10));
+        Assertions.assertTrue(evaluation.matches());
+        Assertions.assertFalse(evaluation.isMatchFinal());
+
+        evaluation.cover(seconds(0), seconds(16));
+        Assertions.assertTrue(evaluation.isMatchFinal());
+    }
+
+    @Test
+    public void testLatencyIsNotEvaluatedWithoutExecutions() {
+        var evaluation = newMaxLatencyEvaluation();
+        evaluation.cover(seconds(0), seconds(20));
+        Assertions.assertFalse(evaluation.matches());
+        Assertions.assertFalse(evaluation.isMatchFinal());
+
+        // throughput > 10/s
+        evaluation = new ThroughputCriteria(null, Comparison.GREATER_THAN, 10, 0).newEvaluation();
+        evaluation.cover(seconds(0), seconds(20));
+        Assertions.assertFalse(evaluation.matches());
+    }
+
+    @Test
+    public void testThroughputOverCoveredTime() {
+        // throughput < 10/s
+        var evaluation = new ThroughputCriteria(null, Comparison.LESS_THAN, 10, 0).newEvaluation();
+        Assertions.assertFalse(evaluation.matches(), "Nothing is covered yet");
+
+        // A burst of 100 executions in the first second, then nothing for 99 seconds
+        evaluation.add(snapshot(0, FAST, 100));
+        Assertions.assertFalse(evaluation.matches());
+        evaluation.cover(seconds(0), seconds(100));
+        Assertions.assertTrue(evaluation.matches());
+
+        // A step that never completed anything
+        evaluation = new ThroughputCriteria(null, Comparison.LESS_THAN, 10, 0).newEvaluation();
+        evaluation.cover(seconds(0), seconds(1));
+        Assertions.assertTrue(evaluation.matches());
+    }
+
+    @Test
+    public void testEvaluatorCoversStalledStepWithOtherSteps() {
+        var simulationTree = new SimulationTree();
+        simulationTree.setSteps(List.of(step(0, "Login"), step(1, "Search")));
+        var finalMatches = new int[1];
+        // throughput of step 'Login' < 1/s over any 5s window
+        var evaluator = new CriteriaEvaluator("Simulation", simulationTree,
+                List.of(new ThroughputCriteria("Login", Comparison.LESS_THAN, 1, WINDOW_NANOS)),
+                () -> finalMatches[0]++);
+
+        // Login stalls after its first window, while Search goes on
+        for (var second = 0; second <= 15; second++) {
+            if (second < 5) {
+                evaluator.onHistogramSnapshot(snapshot(0, second, FAST, 10));
+            }
+            evaluator.onHistogramSnapshot(snapshot(1, second, FAST, 10));
+            Assertions.assertEquals(second < 15 ? 0 : 1, finalMatches[0], "After second " + second);
+        }
+        Assertions.assertTrue(evaluator.isFinallyMatched());
+    }
+
+    private static StepSkeletonData step(int stepIndex, String stepName) {
+        var step = new StepSkeletonData();
+        step.setStepIndex(stepIndex);
+        step.setStepName(stepName);
+        step.setSubSteps(List.of());
+        return step;
+    }
+
+    private static long seconds(int second) {
+        return (BASE_SECOND + second) * Util.NANOS_PER_SECOND;
+    }
+
+    private static HistogramSnapshot snapshot(int stepIndex, int second, long latency, int count) {
+        var snapshot = snapshot(second, latency, count);
+        snapshot.setStepIndex(stepIndex);
+        return snapshot;
+    }
+
+    private static HistogramSnapshot snapshot(int second, long latency, int count) {
+        var histogram = new LatencyHistogram();
+        histogram.recordValue(latency, count);
+        var snapshot = new HistogramSnapshot();
+        snapshot.setIntervalStartTimestampInNanos((BASE_SECOND + second) * Util.NANOS_PER_SECOND);
+        snapshot.setIntervalLengthInNanos(Util.NANOS_PER_SECOND);
+        snapshot.setFirstStartTimestampInNanos(snapshot.getIntervalStartTimestampInNanos());
+        snapshot.setLastEndTimestampInNanos(snapshot.getIntervalStartTimestampInNanos() + Util.NANOS_PER_SECOND);
+        snapshot.setLatency(histogram);
+        snapshot.setCorrectedLatency(histogram);
+        return snapshot;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import org.goodload.goodload.userconfig.ArrivalDistribution;
+import org.goodload.goodload.userconfig.SimulationConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class ArrivalRateScheduleTests {
+
+    private static final double ARRIVAL_RATE = 10;
+
+    /**
+     * The profile starts in the future, so the schedule doesn't depend on when the test runs.
+     */
+    private final long profileStartNanos = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+
+    private static LoadProfile constantArrivalRate(String holdFor) {
+        var simulationConfig = new SimulationConfiguration();
+        simulationConfig.setArrivalRate(ARRIVAL_RATE);
+        simulationConfig.setHoldFor(holdFor);
+        return LoadProfile.of(simulationConfig, 0);
+    }
+
+    @Test
+    public void testConstantArrivalsAreEvenlySpaced() {
+        var schedule = new ArrivalRateSchedule(constantArrivalRate("10s"), profileStartNanos,
+                ArrivalDistribution.CONSTANT, profileStartNanos + TimeUnit.SECONDS.toNanos(10), null);
+
+        long first = schedule.claimNextIteration();
+        Assertions.assertTrue(first - profileStartNanos >= 0 && first - profileStartNanos <= 1000,
+                "The first arrival is due as soon as the load is above 0");
+        long previous = first;
+        var arrivals = 1;
+        for (long arrival; (arrival = schedule.claimNextIteration()) != IterationSchedule.END; arrivals++) {
+            Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), arrival - previous, "Arrival " + arrivals);
+            previous = arrival;
+        }
+        Assertions.assertEquals(100, arrivals);
+        Assertions.assertEquals(IterationSchedule.END, schedule.claimNextIteration());
+    }
+
+    @Test
+    public void testPoissonInterArrivalTimesAreExponential() {
+        var random = new Random(7);
+        var schedule = new ArrivalRateSchedule(constantArrivalRate("1h"), profileStartNanos,
+                ArrivalDistribution.POISSON, profileStartNanos + TimeUnit.HOURS.toNanos(1), null,
+                random::nextDouble);
+
+        // The same draws, converted to nanoseconds at the arrival rate
+        var expectedRandom = new Random(7);
+        int count = 10_000;
+        long previous = schedule.claimNextIteration();
+        long first = previous;
+        for (var i = 0; i < count; i++) {
+            long arrival = schedule.claimNextIteration();
+            double interArrivalAmount = -Math.log(1.0 - expectedRandom.nextDouble());
+            Assertions.assertEquals((long) (interArrivalAmount / ARRIVAL_RATE * TimeUnit.SECONDS.toNanos(1)),
+                    arrival - previous, "Arrival " + i);
+            previous = arrival;
+        }
+
+        // 100ms apart on average, within three standard errors of the mean of 10000 draws
+        double meanMillis = (double) (previous - first) / count / TimeUnit.MILLISECONDS.toNanos(1);
+        Assertions.assertEquals(100, meanMillis, 3);
+    }
+
+    @Test
+    public void testMaxArrivalsEndsTheSchedule() {
+        var schedule = new ArrivalRateSchedule(constantArrivalRate("10s"), profileStartNanos,
+                ArrivalDistribution.CONSTANT, profileStartNanos + TimeUnit.SECONDS.toNanos(10), 5);
+        for (var i = 0; i < 5; i++) {
+            Assertions.assertNotEquals(IterationSchedule.END, schedule.claimNextIteration());
+        }
+        Assertions.assertEquals(IterationSchedule.END, schedule.claimNextIteration());
+        Assertions.assertEquals(0, schedule.backlog(profileStartNanos + TimeUnit.SECONDS.toNanos(5)));
+    }
+
+    @Test
+    public void testBacklogCountsTheOverdueArrivals() {
+        var schedule = new ArrivalRateSchedule(constantArrivalRate("10s"), profileStartNanos,
+                ArrivalDistribution.CONSTANT, profileStartNanos + TimeUnit.SECONDS.toNanos(10), null);
+        Assertions.assertEquals(0, schedule.backlog(profileStartNanos), "The schedule hasn't started");
+
+        schedule.claimNextIteration();
+        // The second arrival is due after 100ms, so it and the 4 following it are overdue after 550ms
+        Assertions.assertEquals(0, schedule.backlog(profileStartNanos + TimeUnit.MILLISECONDS.toNanos(50)));
+        Assertions.assertEquals(5, schedule.backlog(profileStartNanos + TimeUnit.MILLISECONDS.toNanos(550)));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import org.goodload.goodload.dsl.Action;
+import org.goodload.goodload.dsl.AsyncExecutable;
+import org.goodload.goodload.dsl.Check;
+import org.goodload.goodload.dsl.Executable;
+import org.goodload.goodload.dsl.SequenceElement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.goodload.goodload.dsl.DSL.check;
+import static org.goodload.goodload.dsl.DSL.exec;
+import static org.goodload.goodload.dsl.DSL.execAsync;
+import static org.goodload.goodload.dsl.DSL.group;
+import static org.goodload.goodload.dsl.DSL.scenario;
+import static org.goodload.goodload.execution.ExecutionPlan.CHECK;
+import static org.goodload.goodload.execution.ExecutionPlan.ENTER;
+import static org.goodload.goodload.execution.ExecutionPlan.EXEC;
+import static org.goodload.goodload.execution.ExecutionPlan.EXEC_ASYNC;
+import static org.goodload.goodload.execution.ExecutionPlan.EXIT;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class ExecutionPlanTests {
+
+    private final Executable login = session -> {
+    };
+
+    private final Executable search = session -> {
+    };
+
+    private final Check found = session -> true;
+
+    private final AsyncExecutable logout = session -> CompletableFuture.completedFuture(null);
+
+    /**
+     * Scenario (0) > Login (1), Browse (2) > [Search (3), check (4)], Logout (5).
+     */
+    private Action browsingScenario() {
+        return scenario("Scenario",
+                exec("Login", login),
+                group("Browse",
+                        exec("Search", search),
+                        check(found)),
+                execAsync("Logout", logout));
+    }
+
+    @Test
+    public void testInstructionStream() {
+        var plan = ExecutionPlan.compile(browsingScenario(), 0, 0);
+
+        byte[] instructions = {
+                ENTER, ENTER, EXEC, EXIT,
+                ENTER, ENTER, EXEC, EXIT, ENTER, CHECK, EXIT, EXIT,
+                ENTER, EXEC_ASYNC, EXIT,
+                EXIT};
+        int[] actionIndices = {
+                0, 1, 1, 1,
+                2, 3, 3, 3, 4, 4, 4, 2,
+                5, 5, 5,
+                0};
+        Assertions.assertEquals(instructions.length, plan.size());
+        for (var i = 0; i < plan.size(); i++) {
+            Assertions.assertEquals(instructions[i], plan.instructionAt(i), "Instruction " + i);
+            Assertions.assertEquals(actionIndices[i], plan.actionIndexAt(i), "Instruction " + i);
+        }
+        Assertions.assertSame(login, plan.executableAt(2));
+        Assertions.assertSame(search, plan.executableAt(6));
+        Assertions.assertSame(found, plan.checkAt(9));
+        Assertions.assertSame(logout, plan.asyncExecutableAt(13));
+    }
+
+    @Test
+    public void testActionsAreIndexedInPreOrder() {
+        var plan = ExecutionPlan.compile(browsingScenario(), 0, 0);
+
+        Assertions.assertEquals(6, plan.actionCount());
+        String[] names = {"Scenario", "Login", "Browse", "Search", null, "Logout"};
+        int[] parents = {-1, 0, 0, 2, 2, 0};
+        for (var actionIndex = 0; actionIndex < plan.actionCount(); actionIndex++) {
+            Assertions.assertEquals(names[actionIndex], plan.action(actionIndex).getName());
+            Assertions.assertEquals(parents[actionIndex], plan.parentActionIndex(actionIndex));
+            Assertions.assertEquals(actionIndex, plan.stepIndex(actionIndex));
+        }
+    }
+
+    @Test
+    public void testStepIdsAreDottedPositions() {
+        var plans = ExecutionPlan.compileAll(List.of(browsingScenario(), scenario("Other", exec("Ping", login))));
+
+        String[] stepIds = {"0", "0.0", "0.1", "0.1.0", "0.1.1", "0.2"};
+        for (var actionIndex = 0; actionIndex < stepIds.length; actionIndex++) {
+            Assertions.assertEquals(stepIds[actionIndex], plans.get(0).stepId(actionIndex));
+        }
+
+        // The step indices of a scenario follow those of the previous scenarios
+        var other = plans.get(1);
+        Assertions.assertEquals("1", other.stepId(0));
+        Assertions.assertEquals("1.0", other.stepId(1));
+        Assertions.assertEquals(6, other.stepIndex(0));
+        Assertions.assertEquals(7, other.stepIndex(1));
+    }
+
+    @Test
+    public void testUnsupportedStepIsRejected() {
+        var scenario = scenario("Scenario", new SequenceElement() {
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ExecutionPlan.compile(scenario, 0, 0));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import org.goodload.goodload.userconfig.LoadStage;
+import org.goodload.goodload.userconfig.RampCurve;
+import org.goodload.goodload.userconfig.SimulationConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class LoadProfileTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The precision of the searches, in nanoseconds.
+     */
+    private static final long PRECISION = 1000;
+
+    private static LoadStage stage(double arrivalRate, String duration, RampCurve curve) {
+        var stage = new LoadStage();
+        stage.setArrivalRate(arrivalRate);
+        stage.setDuration(duration);
+        stage.setCurve(curve);
+        return stage;
+    }
+
+    private static LoadProfile profile(LoadStage... stages) {
+        var simulationConfig = new SimulationConfiguration();
+        simulationConfig.setStages(List.of(stages));
+        return LoadProfile.of(simulationConfig, 0);
+    }
+
+    @Test
+    public void testAdvanceIsInverseOfIntegral() {
+        for (var curve : RampCurve.values()) {
+            // A ramp from 0 to 100/s over 10 seconds, i.e. 500 arrivals for the linear curve
+            var profile = profile(stage(100, "10s", curve), stage(100, "10s", RampCurve.STEP));
+            double rampAmount = 10 * 100 * curve.integral(1);
+            for (double amount : new double[]{0.001, 1, 10, 100, rampAmount / 2, rampAmount - 1}) {
+                long elapsedNanos = profile.advance(0, amount);
+                double progress = (double) elapsedNanos / (10 * SECOND);
+                // The load is at most 100/s, so the amount is off by at most 100/s times the precision
+                Assertions.assertEquals(amount, 10 * 100 * curve.integral(progress), 100.0 * PRECISION / SECOND,
+                        curve.name() + " advanced by " + amount);
+
+                // Advancing in two steps ends where advancing at once does
+                long halfway = profile.advance(0, amount / 2);
+                Assertions.assertEquals(elapsedNanos, profile.advance(halfway, amount / 2), 2 * PRECISION,
+                        curve.name() + " advanced twice by " + amount / 2);
+            }
+            // Past the end of the ramp, the load is constant
+            Assertions.assertEquals(10 * SECOND + SECOND / 2, profile.advance(0, rampAmount + 50), PRECISION,
+                    curve.name());
+        }
+    }
+
+    @Test
+    public void testAdvanceAcrossStageBoundaries() {
+        // 10 arrivals over the linear ramp, then 20 over the constant stage
+        var profile = profile(stage(10, "2s", RampCurve.LINEAR), stage(10, "2s", RampCurve.STEP));
+        Assertions.assertEquals(4 * SECOND, profile.getDurationNanos());
+
+        Assertions.assertEquals(2 * SECOND, profile.advance(0, 10), PRECISION);
+        Assertions.assertEquals(2 * SECOND + SECOND / 2, profile.advance(0, 15));
+        Assertions.assertEquals(2 * SECOND + SECOND / 2, profile.advance(2 * SECOND, 5));
+        Assertions.assertEquals(4 * SECOND, profile.advance(SECOND, 27.5), PRECISION);
+        Assertions.assertEquals(-1, profile.advance(0, 31), "The profile ends before the amount is reached");
+        Assertions.assertEquals(-1, profile.advance(4 * SECOND, 1));
+
+        Assertions.assertEquals(5, profile.targetAt(SECOND), 1e-9);
+        Assertions.assertEquals(10, profile.targetAt(2 * SECOND), 1e-9);
+        Assertions.assertEquals(0, profile.targetAt(4 * SECOND), "The load is 0 after the last stage");
+    }
+
+    @Test
+    public void testZeroLoadStagesAreSkipped() {
+        // 10/s for a second, a pause of 2 seconds, then 10/s again for a second
+        var profile = profile(
+                stage(10, "1s", RampCurve.STEP),
+                stage(0, "2s", RampCurve.STEP),
+                stage(10, "1s", RampCurve.STEP));
+
+        Assertions.assertEquals(SECOND, profile.advance(0, 10));
+        Assertions.assertEquals(3 * SECOND + SECOND / 20, profile.advance(0, 10.5));
+        Assertions.assertEquals(3 * SECOND + SECOND / 10, profile.advance(SECOND + SECOND / 2, 1));
+        Assertions.assertEquals(SECOND + SECOND / 2, profile.advance(SECOND + SECOND / 2, 0),
+                "An amount of 0 is reached immediately, even without load");
+        Assertions.assertEquals(-1, profile.advance(0, 21));
+
+        Assertions.assertEquals(0, profile.targetAt(2 * SECOND));
+        long resumed = profile.nextTimeAbove(0, SECOND + SECOND / 2);
+        Assertions.assertTrue(resumed >= 3 * SECOND && resumed <= 3 * SECOND + PRECISION, "Resumed at " + resumed);
+    }
+
+    @Test
+    public void testStepCurveJumpsToTarget() {
+        var profile = profile(stage(20, "1s", RampCurve.STEP), stage(40, "1s", RampCurve.STEP));
+
+        Assertions.assertEquals(0, profile.targetAt(0), "The load is that of the previous stage at its start");
+        Assertions.assertEquals(20, profile.targetAt(1));
+        Assertions.assertEquals(20, profile.targetAt(SECOND - 1));
+        Assertions.assertEquals(40, profile.targetAt(SECOND + 1));
+        Assertions.assertEquals(SECOND / 2, profile.advance(0, 10));
+        Assertions.assertEquals(SECOND + SECOND / 4, profile.advance(0, 30));
+
+        // In a closed workload, the 21st to 40th runners start with the second stage
+        Assertions.assertTrue(profile.nextTimeAbove(0, 0) <= PRECISION);
+        Assertions.assertTrue(profile.nextTimeAbove(19, 0) <= PRECISION);
+        long start = profile.nextTimeAbove(20, 0);
+        Assertions.assertTrue(start >= SECOND && start <= SECOND + PRECISION, "Started at " + start);
+        Assertions.assertEquals(-1, profile.nextTimeAbove(40, 0));
+    }
+}
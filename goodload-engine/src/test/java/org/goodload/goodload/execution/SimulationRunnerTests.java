@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.execution;
+
+import org.goodload.goodload.dsl.Action;
+import org.goodload.goodload.dsl.Simulation;
+import org.goodload.goodload.reporting.pipeline.ReportPipeline;
+import org.goodload.goodload.userconfig.GoodloadUserConfigurationProperties;
+import org.goodload.goodload.userconfig.SimulationConfiguration;
+import org.goodload.goodload.userconfig.UserArgs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.goodload.goodload.dsl.DSL.execAsync;
+import static org.goodload.goodload.dsl.DSL.scenario;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class SimulationRunnerTests {
+
+    private static final int MAX_ITERATIONS_IN_FLIGHT = 4;
+
+    private static final int ITERATIONS = 200;
+
+    @Test
+    public void testIterationsInFlightAreCapped() throws Exception {
+        var simulationConfig = new SimulationConfiguration();
+        simulationConfig.setName("Simulation");
+        simulationConfig.setMaxIterationsInFlight(MAX_ITERATIONS_IN_FLIGHT);
+        var userArgs = new UserArgs();
+        userArgs.setYamlConfiguration(new GoodloadUserConfigurationProperties());
+
+        // Every iteration is due immediately, so the runner starts as many as it may
+        var claimed = new AtomicInteger();
+        IterationSchedule schedule = () -> claimed.incrementAndGet() <= ITERATIONS
+                ? System.nanoTime()
+                : IterationSchedule.END;
+
+        try (var reportPipeline = new ReportPipeline("test", 0);
+             var modules = SimulationModules.start("Simulation", new URLClassLoader(new URL[0], null), null)) {
+            new SimulationRunner(0, System.nanoTime(), simulationConfig, AsyncSimulation.class, reportPipeline,
+                    scenarioIndex -> schedule, userArgs, modules).call();
+        }
+
+        Assertions.assertEquals(ITERATIONS, AsyncSimulation.COMPLETED.get());
+        Assertions.assertEquals(0, AsyncSimulation.IN_FLIGHT.get());
+        Assertions.assertEquals(MAX_ITERATIONS_IN_FLIGHT, AsyncSimulation.MAX_IN_FLIGHT.get());
+    }
+
+    /**
+     * A scenario whose only step completes asynchronously a millisecond later.
+     */
+    public static class AsyncSimulation implements Simulation {
+
+        private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+        private static final AtomicInteger MAX_IN_FLIGHT = new AtomicInteger();
+
+        private static final AtomicInteger COMPLETED = new AtomicInteger();
+
+        private static final ScheduledExecutorService COMPLETER = Executors.newSingleThreadScheduledExecutor(
+                runnable -> {
+                    var thread = new Thread(runnable, "async-simulation-completer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        @Override
+        public List<Action> init() {
+            return List.of(scenario("Scenario", execAsync("Wait", session -> {
+                MAX_IN_FLIGHT.accumulateAndGet(IN_FLIGHT.incrementAndGet(), Math::max);
+                var future = new CompletableFuture<Void>();
+                COMPLETER.schedule(() -> {
+                    IN_FLIGHT.decrementAndGet();
+                    COMPLETED.incrementAndGet();
+                    future.complete(null);
+                }, 1, TimeUnit.MILLISECONDS);
+                return future;
+            })));
+        }
+    }
+}
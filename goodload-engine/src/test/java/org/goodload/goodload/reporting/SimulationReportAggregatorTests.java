@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting;
+
+import org.goodload.goodload.internal.Util;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.data.StepSkeletonData;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+import org.goodload.goodload.reporting.reports.aggregate.AggregateActionReport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class SimulationReportAggregatorTests {
+
+    private static final long BASE_SECOND = 1_700_000_000L;
+
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Login (0) > [Form (1) > [Submit (2)], Home (3)], Browse (4) > [Search (5)].
+     */
+    private static SimulationTree simulationTree() {
+        var simulationTree = new SimulationTree();
+        simulationTree.setSteps(List.of(
+                step(0, "Login",
+                        step(1, "Form", step(2, "Submit")),
+                        step(3, "Home")),
+                step(4, "Browse",
+                        step(5, "Search"))));
+        return simulationTree;
+    }
+
+    @Test
+    public void testStepsAreMappedInPreOrder() {
+        var aggregator = new SimulationReportAggregator("Simulation", simulationTree(), nanos(0, 0));
+        // Step i is executed i + 1 times, with i errors and 100 * i bytes received
+        for (var stepIndex = 0; stepIndex < 6; stepIndex++) {
+            aggregator.onHistogramSnapshot(
+                    snapshot(stepIndex, nanos(0, 0), stepIndex + 1, stepIndex, 100L * stepIndex));
+        }
+
+        var report = aggregator.aggregate(50, 99);
+
+        Assertions.assertEquals(2, report.getScenarios().size());
+        var login = report.getScenarios().get(0);
+        assertStep(login, "Login", 0, 2);
+        assertStep(login.getSubSteps().get(0), "Form", 1, 1);
+        assertStep(login.getSubSteps().get(0).getSubSteps().get(0), "Submit", 2, 0);
+        assertStep(login.getSubSteps().get(1), "Home", 3, 0);
+        var browse = report.getScenarios().get(1);
+        assertStep(browse, "Browse", 4, 1);
+        assertStep(browse.getSubSteps().get(0), "Search", 5, 0);
+
+        // The simulation adds up its scenarios, not their sub-steps
+        Assertions.assertEquals(4, report.getErrorCount());
+        Assertions.assertEquals(400, report.getBytesReceived());
+        Assertions.assertEquals(List.of(6), report.getHitsAtEverySecond());
+    }
+
+    @Test
+    public void testHitsAtEverySecond() {
+        var aggregator = new SimulationReportAggregator("Simulation", simulationTree(), nanos(0, 500));
+        // Intervals of 100ms, with no executions in the third second
+        aggregator.onHistogramSnapshot(snapshot(0, nanos(1, 0), 3));
+        aggregator.onHistogramSnapshot(snapshot(0, nanos(1, 900), 4));
+        aggregator.onHistogramSnapshot(snapshot(0, nanos(2, 100), 5));
+        aggregator.onHistogramSnapshot(snapshot(0, nanos(4, 0), 6));
+        aggregator.onHistogramSnapshot(snapshot(4, nanos(3, 500), 1));
+        // A runner that published a snapshot of the second 0 late
+        aggregator.onHistogramSnapshot(snapshot(4, nanos(0, 200), 2));
+
+        var report = aggregator.aggregate();
+
+        // The hits of a step are counted from the second of its first execution
+        Assertions.assertEquals(List.of(7, 5, 0, 6), report.getScenarios().get(0).getHitsAtEverySecond());
+        Assertions.assertEquals(List.of(2, 0, 0, 1), report.getScenarios().get(1).getHitsAtEverySecond());
+        Assertions.assertEquals(List.of(2, 7, 5, 1, 6), report.getHitsAtEverySecond());
+        Assertions.assertEquals(nanos(0, 200), report.getIterationsStartTimestamp());
+        Assertions.assertEquals(nanos(4, 100), report.getIterationsEndTimestamp());
+
+        // Steps without executions have no hits
+        Assertions.assertEquals(List.of(), report.getScenarios().get(0).getSubSteps().get(1).getHitsAtEverySecond());
+    }
+
+    @Test
+    public void testSnapshotsOfUnknownStepsAreIgnored() {
+        var aggregator = new SimulationReportAggregator("Simulation", simulationTree(), nanos(0, 0));
+        aggregator.onHistogramSnapshot(snapshot(6, nanos(0, 0), 1));
+        aggregator.onHistogramSnapshot(snapshot(-1, nanos(0, 0), 1));
+
+        var report = aggregator.aggregate();
+        Assertions.assertEquals(List.of(), report.getHitsAtEverySecond());
+        Assertions.assertEquals(0, report.getScenarios().get(0).getIterations());
+    }
+
+    private static void assertStep(AggregateActionReport report, String stepName, int stepIndex, int subStepCount) {
+        Assertions.assertEquals(stepName, report.getStepName());
+        Assertions.assertEquals(stepIndex + 1, report.getIterations(), stepName);
+        Assertions.assertEquals(stepIndex, report.getErrorCount(), stepName);
+        Assertions.assertEquals(100L * stepIndex, report.getBytesReceived(), stepName);
+        Assertions.assertEquals(subStepCount, report.getSubSteps().size(), stepName);
+    }
+
+    private static StepSkeletonData step(int stepIndex, String stepName, StepSkeletonData... subSteps) {
+        var step = new StepSkeletonData();
+        step.setStepIndex(stepIndex);
+        step.setStepName(stepName);
+        step.setSubSteps(List.of(subSteps));
+        return step;
+    }
+
+    /**
+     * @return The timestamp of the given second and millisecond since the base second.
+     */
+    private static long nanos(int second, int millis) {
+        return (BASE_SECOND + second) * Util.NANOS_PER_SECOND + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * @return The snapshot of an interval of 100ms, in which the executions started and ended.
+     */
+    private static HistogramSnapshot snapshot(int stepIndex, long intervalStart, int count) {
+        return snapshot(stepIndex, intervalStart, count, 0, 0);
+    }
+
+    private static HistogramSnapshot snapshot(int stepIndex, long intervalStart, int count, long errorCount,
+                                              long bytesReceived) {
+        var histogram = new LatencyHistogram();
+        histogram.recordValue(LATENCY, count);
+        var snapshot = new HistogramSnapshot();
+        snapshot.setStepIndex(stepIndex);
+        snapshot.setIntervalStartTimestampInNanos(intervalStart);
+        snapshot.setIntervalLengthInNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        snapshot.setFirstStartTimestampInNanos(snapshot.getIntervalStartTimestampInNanos());
+        snapshot.setLastEndTimestampInNanos(
+                snapshot.getIntervalStartTimestampInNanos() + TimeUnit.MILLISECONDS.toNanos(100));
+        snapshot.setErrorCount(errorCount);
+        snapshot.setBytesReceived(bytesReceived);
+        snapshot.setLatency(histogram);
+        snapshot.setCorrectedLatency(histogram);
+        return snapshot;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.export;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class DownsamplingTests {
+
+    @Test
+    public void testSmallSeriesIsKeptWhole() {
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3, 4},
+                Downsampling.largestTriangleThreeBuckets(5, i -> i, i -> i, 5));
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3, 4},
+                Downsampling.largestTriangleThreeBuckets(5, i -> i, i -> i, 2));
+        Assertions.assertArrayEquals(new int[0],
+                Downsampling.largestTriangleThreeBuckets(0, i -> i, i -> i, 3));
+    }
+
+    @Test
+    public void testSelectedPointsStayWithinTheirBuckets() {
+        var random = new Random(3);
+        int[][] sizesAndThresholds = {{4, 3}, {10, 3}, {11, 4}, {100, 7}, {1_000, 333}, {1_001, 1_000}, {7, 6}};
+        for (var sizeAndThreshold : sizesAndThresholds) {
+            int size = sizeAndThreshold[0];
+            int threshold = sizeAndThreshold[1];
+            double[] y = random.doubles(size).toArray();
+
+            int[] selected = Downsampling.largestTriangleThreeBuckets(size, i -> i, i -> y[i], threshold);
+
+            String series = size + " points into " + threshold;
+            Assertions.assertEquals(threshold, selected.length, series);
+            Assertions.assertEquals(0, selected[0], series);
+            Assertions.assertEquals(size - 1, selected[threshold - 1], series);
+            double bucketSize = (double) (size - 2) / (threshold - 2);
+            for (var bucket = 0; bucket < threshold - 2; bucket++) {
+                int start = (int) (bucket * bucketSize) + 1;
+                int end = (int) ((bucket + 1) * bucketSize) + 1;
+                int point = selected[bucket + 1];
+                Assertions.assertTrue(start <= point && point < end,
+                        series + ": point " + point + " outside of bucket [" + start + ", " + end + ")");
+                Assertions.assertTrue(selected[bucket] < point, series);
+            }
+        }
+    }
+
+    @Test
+    public void testPeaksAreKept() {
+        int size = 1_000;
+        double[] y = new double[size];
+        y[123] = 100;
+        y[789] = -100;
+
+        int[] selected = Downsampling.largestTriangleThreeBuckets(size, i -> i * 10.0, i -> y[i], 20);
+
+        Assertions.assertTrue(contains(selected, 123));
+        Assertions.assertTrue(contains(selected, 789));
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (var v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
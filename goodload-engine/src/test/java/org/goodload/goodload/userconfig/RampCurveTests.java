@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.userconfig;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class RampCurveTests {
+
+    private static final int STEPS = 100_000;
+
+    @Test
+    public void testCurvesGoFromStartToTarget() {
+        for (var curve : RampCurve.values()) {
+            Assertions.assertEquals(0, curve.apply(0), 1e-12, curve.name());
+            Assertions.assertEquals(1, curve.apply(1), 1e-12, curve.name());
+            Assertions.assertEquals(0, curve.integral(0), 1e-12, curve.name());
+            for (var i = 1; i <= 100; i++) {
+                Assertions.assertTrue(curve.apply(i / 100.0) >= curve.apply((i - 1) / 100.0),
+                        curve.name() + " is not monotonic at " + i + "%");
+            }
+        }
+        Assertions.assertEquals(1, RampCurve.STEP.apply(1e-9));
+    }
+
+    @Test
+    public void testIntegralsMatchCurves() {
+        for (var curve : RampCurve.values()) {
+            // Midpoint rule, which is exact for the linear curve and within 1e-10 for the rest
+            double integral = 0;
+            for (var i = 0; i < STEPS; i++) {
+                double progress = (i + 0.5) / STEPS;
+                integral += curve.apply(progress) / STEPS;
+                if ((i + 1) % (STEPS / 10) == 0) {
+                    double upTo = (double) (i + 1) / STEPS;
+                    Assertions.assertEquals(integral, curve.integral(upTo), 1e-9, curve.name() + " up to " + upTo);
+                }
+            }
+        }
+    }
+}
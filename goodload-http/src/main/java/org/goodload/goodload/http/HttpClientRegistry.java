@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.http;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.goodload.goodload.http.config.HttpConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the HTTP clients of a simulation, so that the requests reuse the kept-alive connections
+ * instead of connecting to the server, and doing the TLS handshake, on every request.
+ * <br>
+ * There is one client shared by all the virtual users. In
+ * {@link HttpConfigurationProperties.ConnectionMode#PER_VIRTUAL_USER} mode every virtual user gets a client derived
+ * from it with its own pool of connections, which still shares the dispatcher and the threads of the shared client.
+ * Each of the iterations a runner has in flight is a virtual user of its own, see
+ * {@link org.goodload.goodload.dsl.Session#getVirtualUserId()}.
+ * <br>
+ * The dispatcher limits how many requests sent with {@link HttpRequestBuilder#goAsync()} are in flight. With HTTP/2
+ * the requests to the same host are multiplexed over a single connection.
+ * <br>
+ * The clients record the phases of the requests in the {@link org.goodload.goodload.dsl.NetworkMetrics}
+ * of the sessions that send them.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public class HttpClientRegistry implements AutoCloseable {
+
+    private final HttpConfigurationProperties.ClientConfiguration configuration;
+
+    private final long keepAliveNanos;
+
+    private final OkHttpClient sharedClient;
+
+    /**
+     * The clients of the virtual users by their IDs, only in
+     * {@link HttpConfigurationProperties.ConnectionMode#PER_VIRTUAL_USER} mode.
+     */
+    private final Map<Integer, OkHttpClient> virtualUserClients = new ConcurrentHashMap<>();
+
+    /**
+     * @param configuration The configuration of the clients.
+     * @throws java.time.format.DateTimeParseException If any of the durations is invalid.
+     */
+    public HttpClientRegistry(HttpConfigurationProperties.ClientConfiguration configuration) {
+        this.configuration = configuration;
+        keepAliveNanos = parseDuration(configuration.getKeepAlive()).toNanos();
+        var dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(configuration.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(configuration.getMaxRequestsPerHost());
+        sharedClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .protocols(protocols(configuration.getProtocol()))
+                .connectionPool(newConnectionPool())
+                .connectTimeout(parseDuration(configuration.getConnectTimeout()))
+                .readTimeout(parseDuration(configuration.getReadTimeout()))
+                .writeTimeout(parseDuration(configuration.getWriteTimeout()))
+                .callTimeout(parseDuration(configuration.getCallTimeout()))
+                .retryOnConnectionFailure(configuration.isRetryOnConnectionFailure())
+                .eventListenerFactory(NetworkMetricsListener.FACTORY)
+                .build();
+    }
+
+    /**
+     * @param virtualUserId The ID of the virtual user sending the request, see
+     *                      {@link org.goodload.goodload.dsl.Session#getVirtualUserId()}.
+     * @return The client with which the virtual user should send its requests.
+     */
+    public OkHttpClient clientFor(int virtualUserId) {
+        if (configuration.getConnectionMode() == HttpConfigurationProperties.ConnectionMode.SHARED) {
+            return sharedClient;
+        }
+        return virtualUserClients.computeIfAbsent(virtualUserId,
+                id -> sharedClient.newBuilder().connectionPool(newConnectionPool()).build());
+    }
+
+    /**
+     * Closes all the connections and stops the threads of the clients.
+     */
+    @Override
+    public void close() {
+        sharedClient.dispatcher().executorService().shutdown();
+        sharedClient.connectionPool().evictAll();
+        for (var client : virtualUserClients.values()) {
+            client.connectionPool().evictAll();
+        }
+        virtualUserClients.clear();
+    }
+
+    private ConnectionPool newConnectionPool() {
+        return new ConnectionPool(configuration.getMaxIdleConnections(), keepAliveNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static List<Protocol> protocols(HttpConfigurationProperties.Protocol protocol) {
+        return switch (protocol) {
+            case AUTO -> List.of(Protocol.HTTP_2, Protocol.HTTP_1_1);
+            case HTTP_1_1 -> List.of(Protocol.HTTP_1_1);
+            case H2C -> List.of(Protocol.H2_PRIOR_KNOWLEDGE);
+        };
+    }
+
+    /**
+     * @param duration A duration like 10s or 5m.
+     * @return The parsed duration.
+     */
+    static Duration parseDuration(String duration) {
+        return Duration.parse("PT" + duration);
+    }
+}
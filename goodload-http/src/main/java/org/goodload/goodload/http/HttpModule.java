@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.dsl.SimulationModule;
+import org.goodload.goodload.http.config.HttpConfigurationProperties;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The HTTP module of a simulation, which holds the HTTP clients shared by its requests.
+ * Its configuration is provided under {@code goodload.custom.http}.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public class HttpModule implements SimulationModule<HttpConfigurationProperties> {
+
+    public static final String NAME = "http";
+
+    private HttpConfigurationProperties configuration;
+
+    private HttpClientRegistry clientRegistry;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Class<HttpConfigurationProperties> getConfigurationClass() {
+        return HttpConfigurationProperties.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException If any of the durations of the client configuration is invalid.
+     */
+    @Override
+    public void start(String simulationName, HttpConfigurationProperties configuration) {
+        validateDurations(configuration.getClient());
+        validateCaptureLimit(configuration.getResponse().getCaptureLimitKb());
+        this.configuration = configuration;
+        clientRegistry = new HttpClientRegistry(configuration.getClient());
+        log.debug("Simulation `{}`: HTTP clients configured with {}", simulationName, configuration.getClient());
+    }
+
+    private static void validateDurations(HttpConfigurationProperties.ClientConfiguration client) {
+        validateDuration("keep-alive", client.getKeepAlive());
+        validateDuration("connect-timeout", client.getConnectTimeout());
+        validateDuration("read-timeout", client.getReadTimeout());
+        validateDuration("write-timeout", client.getWriteTimeout());
+        validateDuration("call-timeout", client.getCallTimeout());
+    }
+
+    private static void validateCaptureLimit(int captureLimitKb) {
+        if (captureLimitKb < 0
+                || captureLimitKb > HttpConfigurationProperties.ResponseConfiguration.MAX_CAPTURE_LIMIT_KB) {
+            throw new IllegalArgumentException(String.format(
+                    "goodload.custom.http.response.capture-limit-kb must be between 0 and %d, but is %d",
+                    HttpConfigurationProperties.ResponseConfiguration.MAX_CAPTURE_LIMIT_KB, captureLimitKb));
+        }
+    }
+
+    private static void validateDuration(String property, String duration) {
+        if (duration == null) {
+            throw new IllegalArgumentException(String.format(
+                    "goodload.custom.http.client.%s must be a duration like 10s or 5m, but is not set", property));
+        }
+        Duration parsed;
+        try {
+            parsed = HttpClientRegistry.parseDuration(duration);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(String.format(
+                    "goodload.custom.http.client.%s must be a duration like 10s or 5m, but is %s", property, duration),
+                    e);
+        }
+        if (parsed.isNegative()) {
+            throw new IllegalArgumentException(String.format(
+                    "goodload.custom.http.client.%s must not be negative, but is %s", property, duration));
+        }
+    }
+
+    @Override
+    public HttpConfigurationProperties getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * @return The HTTP clients of the simulation.
+     */
+    public HttpClientRegistry getClientRegistry() {
+        return clientRegistry;
+    }
+
+    @Override
+    public void close() {
+        if (clientRegistry != null) {
+            clientRegistry.close();
+        }
+    }
+}
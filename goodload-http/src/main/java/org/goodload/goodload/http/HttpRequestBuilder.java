@@ -16,20 +16,24 @@
  */
 package org.goodload.goodload.http;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
+import okhttp3.Response;
 import org.goodload.goodload.core.exceptions.ExecutionFailedException;
+import org.goodload.goodload.dsl.NetworkMetrics;
 import org.goodload.goodload.dsl.Session;
 import org.goodload.goodload.http.config.HttpConfigurationProperties;
 import org.goodload.goodload.http.exceptions.HttpMethodDoesNotSupportBodyException;
 import org.goodload.goodload.http.exceptions.HttpMethodRequiresNonNullBodyException;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 /**
@@ -44,13 +48,19 @@ import java.util.function.Function;
 public class HttpRequestBuilder {
     private final Request.Builder httpRequest = new Request.Builder();
 
-    private final OkHttpClient okHttpClient = new OkHttpClient();
-
     private RequestBody requestBody;
 
     private HttpMethod httpMethod;
 
-    private HttpConfigurationProperties httpConfigurationProperties;
+    /**
+     * The body mode of the request, or null to use the configured one.
+     */
+    private HttpConfigurationProperties.ResponseBodyMode responseBodyMode;
+
+    /**
+     * The capture limit of the request in kilobytes, or 0 to use the configured one.
+     */
+    private int captureLimitKb;
 
     @NonNull
     private Session session;
@@ -151,6 +161,45 @@ public class HttpRequestBuilder {
         return this;
     }
 
+    /**
+     * Reads the body of the response without keeping it, overriding the configured body mode.
+     * The length of the body is still available in the {@link HttpResponse}.
+     *
+     * @return The current builder for chaining.
+     */
+    public HttpRequestBuilder discardBody() {
+        responseBodyMode = HttpConfigurationProperties.ResponseBodyMode.DISCARD;
+        return this;
+    }
+
+    /**
+     * Keeps the start of the body of the response for the checks, overriding the configured body mode.
+     *
+     * @param limitKb The number of kilobytes to keep. The rest of the body is read and dropped.
+     * @return The current builder for chaining.
+     * @throws IllegalArgumentException If the limit is negative or more than
+     *                                  {@link HttpConfigurationProperties.ResponseConfiguration#MAX_CAPTURE_LIMIT_KB}.
+     */
+    public HttpRequestBuilder captureBody(int limitKb) {
+        if (limitKb < 0 || limitKb > HttpConfigurationProperties.ResponseConfiguration.MAX_CAPTURE_LIMIT_KB) {
+            throw new IllegalArgumentException(String.format("The capture limit must be between 0 and %d KB, but is %d",
+                    HttpConfigurationProperties.ResponseConfiguration.MAX_CAPTURE_LIMIT_KB, limitKb));
+        }
+        responseBodyMode = HttpConfigurationProperties.ResponseBodyMode.CAPTURE;
+        captureLimitKb = limitKb;
+        return this;
+    }
+
+    /**
+     * Keeps the whole body of the response, overriding the configured body mode.
+     *
+     * @return The current builder for chaining.
+     */
+    public HttpRequestBuilder captureFullBody() {
+        responseBodyMode = HttpConfigurationProperties.ResponseBodyMode.FULL;
+        return this;
+    }
+
     /**
      * Access and/or modify the HTTP request directly.
      *
@@ -165,16 +214,83 @@ public class HttpRequestBuilder {
     /**
      * Finalize the current http request.
      *
+     * @return The response, whose body has been consumed as configured, see {@link #captureBody(int)}.
+     * @throws HttpMethodDoesNotSupportBodyException  If the HTTP method does not allow sending a request body.
+     * @throws HttpMethodRequiresNonNullBodyException if the HTTP method requires request body to be provided
+     *                                                but the provided request body is null.
+     */
+    public HttpResponse go()
+            throws HttpMethodDoesNotSupportBodyException,
+            HttpMethodRequiresNonNullBodyException {
+
+        var module = session.getModule(HttpModule.class);
+        var httpConfigurationProperties = module == null ? Defaults.CONFIGURATION : module.getConfiguration();
+        var request = buildRequest();
+
+        try (var response = client(module).newCall(request).execute()) {
+            return handleResponse(request, response, httpConfigurationProperties);
+        } catch (IOException e) {
+            throw new ExecutionFailedException(e);
+        }
+    }
+
+    /**
+     * Finalize the current http request and send it without blocking the current thread.
+     * Use it in a step defined with {@code DSL.execAsync}, so that the runner can execute other iterations
+     * while the request is in flight:
+     * <pre>{@code
+     * execAsync("Get user", session -> http(session).get(url).goAsync())
+     * }</pre>
+     * The response is handled by a thread of the HTTP client, which also runs the code chained to the returned
+     * future, before the iteration continues.
+     *
+     * @return A future which completes with the response when it has been received and its body has been consumed,
+     * or completes exceptionally with an {@link ExecutionFailedException} if the request fails.
      * @throws HttpMethodDoesNotSupportBodyException  If the HTTP method does not allow sending a request body.
      * @throws HttpMethodRequiresNonNullBodyException if the HTTP method requires request body to be provided
      *                                                but the provided request body is null.
      */
-    public void go()
+    public CompletableFuture<HttpResponse> goAsync()
             throws HttpMethodDoesNotSupportBodyException,
             HttpMethodRequiresNonNullBodyException {
 
-        readHttpConfigurationProperties(session);
+        var module = session.getModule(HttpModule.class);
+        var httpConfigurationProperties = module == null ? Defaults.CONFIGURATION : module.getConfiguration();
+        var request = buildRequest();
+
+        var future = new CompletableFuture<HttpResponse>();
+        client(module).newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(new ExecutionFailedException(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                HttpResponse httpResponse;
+                try (response) {
+                    httpResponse = handleResponse(request, response, httpConfigurationProperties);
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(new ExecutionFailedException(e));
+                    return;
+                }
+                // Completed once the response is closed, so that all the phases of the call have been recorded
+                future.complete(httpResponse);
+            }
+        });
+        return future;
+    }
 
+    /**
+     * Builds the request with the configured method and body.
+     *
+     * @throws HttpMethodDoesNotSupportBodyException  If the HTTP method does not allow sending a request body.
+     * @throws HttpMethodRequiresNonNullBodyException if the HTTP method requires request body to be provided
+     *                                                but the provided request body is null.
+     */
+    private Request buildRequest()
+            throws HttpMethodDoesNotSupportBodyException,
+            HttpMethodRequiresNonNullBodyException {
         if (requestBody != null && !okhttp3.internal.http.HttpMethod.permitsRequestBody(httpMethod.name())) {
             throw HttpMethodDoesNotSupportBodyException.forMethod(httpMethod);
         } else if (requestBody == null && okhttp3.internal.http.HttpMethod.requiresRequestBody(httpMethod.name())) {
@@ -208,30 +324,61 @@ public class HttpRequestBuilder {
                 throw new UnsupportedOperationException("The http method " + httpMethod + "is not yet supported.");
         }
 
-        try {
-            var request = httpRequest.build();
-            var response = okHttpClient.newCall(request).execute();
+        // Lets the client record the phases of the call in the metrics of the iteration
+        httpRequest.tag(NetworkMetrics.class, session.getNetworkMetrics());
+        return httpRequest.build();
+    }
 
-            if (httpConfigurationProperties.getLogging().isRequestHeaders()) {
-                log.debug("HTTP: Request headers {}", request.headers());
-            }
-            if (httpConfigurationProperties.getLogging().isRequestBody()) {
-                log.debug("HTTP: Request body {}", request.body().toString());
-            }
-            if (httpConfigurationProperties.getLogging().isResponseCode()) {
-                log.debug("HTTP: Response code {}", response.code());
-            }
-            if (httpConfigurationProperties.getLogging().isResponseHeaders()) {
-                log.debug("HTTP: Response headers {}", response.headers());
-            }
-            if (httpConfigurationProperties.getLogging().isResponseBody()) {
-                log.debug("HTTP: Response body {}", response.body().string());
+    /**
+     * Consumes the body of the response and logs the request and the response as configured.
+     * The body is streamed, only the part of it kept by the body mode is buffered, see {@link ResponseBodyReader}.
+     */
+    private HttpResponse handleResponse(Request request, Response response,
+                                        HttpConfigurationProperties httpConfigurationProperties) throws IOException {
+        var responseConfiguration = httpConfigurationProperties.getResponse();
+        var bodyMode = responseBodyMode != null ? responseBodyMode : responseConfiguration.getBodyMode();
+        int captureLimit = (captureLimitKb > 0 ? captureLimitKb : responseConfiguration.getCaptureLimitKb()) * 1024;
+        var httpResponse = ResponseBodyReader.read(response, switch (bodyMode) {
+            // The start of a discarded body is kept only to be logged
+            case DISCARD -> httpConfigurationProperties.getLogging().isResponseBody() ? captureLimit : 0;
+            case CAPTURE -> captureLimit;
+            case FULL -> Integer.MAX_VALUE;
+        });
+
+        if (httpConfigurationProperties.getLogging().isRequestHeaders()) {
+            log.debug("HTTP: Request headers {}", request.headers());
+        }
+        if (httpConfigurationProperties.getLogging().isRequestBody()) {
+            log.debug("HTTP: Request body {}", request.body().toString());
+        }
+        if (httpConfigurationProperties.getLogging().isResponseCode()) {
+            log.debug("HTTP: Response code {}", response.code());
+        }
+        if (httpConfigurationProperties.getLogging().isResponseHeaders()) {
+            log.debug("HTTP: Response headers {}", response.headers());
+        }
+        if (httpConfigurationProperties.getLogging().isResponseBody()) {
+            if (httpResponse.isBodyTruncated()) {
+                log.debug("HTTP: Response body ({} of {} bytes) {}", httpResponse.getBody().length,
+                        httpResponse.getBodyLength(), httpResponse.bodyAsString());
+            } else {
+                log.debug("HTTP: Response body {}", httpResponse.bodyAsString());
             }
+        }
+        return httpResponse;
+    }
 
-            response.body().close();
-        } catch (IOException e) {
-            throw new ExecutionFailedException(e);
+    /**
+     * @param module The HTTP module of the simulation, or null if it hasn't been started.
+     * @return The client of the current virtual user, from the HTTP module of the simulation.
+     * Falls back to a client shared by the whole JVM if the module hasn't been started, e.g. when the step
+     * is executed outside the engine.
+     */
+    private OkHttpClient client(HttpModule module) {
+        if (module == null) {
+            return Defaults.CLIENT;
         }
+        return module.getClientRegistry().clientFor(session.getVirtualUserId());
     }
 
     /**
@@ -244,27 +391,13 @@ public class HttpRequestBuilder {
     }
 
     /**
-     * Reads the configuration properties defined with prefix {@code goodload.custom.http}
-     * as a POJO. Expects the engine to provide these values in the session object as a LinkedHashMap.
-     *
-     * @param session This contains the information about current iteration.
-     *                It is provided by the engine when running the simulation.
-     *                The method expects the engine to put the user-provided
-     *                goodload.custom to be provided in the session.
+     * Lazily creates the client and the configuration used when the HTTP module hasn't been started.
      */
-    private void readHttpConfigurationProperties(Session session) {
-        if (session.getCustomConfigurationProperties() == null
-                || session.getCustomConfigurationProperties().get("http") == null) {
-            return;
-        }
+    private static class Defaults {
+        private static final OkHttpClient CLIENT = new OkHttpClient.Builder()
+                .eventListenerFactory(NetworkMetricsListener.FACTORY)
+                .build();
 
-        var objectMapper = new ObjectMapper();
-        httpConfigurationProperties = objectMapper
-                .convertValue(
-                        session.getCustomConfigurationProperties().get("http"),
-                        HttpConfigurationProperties.class);
-        if (httpConfigurationProperties == null) {
-            log.error("The configuration for http module goodload.custom.http is invalid.");
-        }
+        private static final HttpConfigurationProperties CONFIGURATION = new HttpConfigurationProperties();
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.http;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The response to a request sent with {@link HttpRequestBuilder}.
+ * <br>
+ * The body has already been consumed when the response is returned. How much of it is kept depends on the body mode
+ * of the request, see {@link org.goodload.goodload.http.config.HttpConfigurationProperties.ResponseBodyMode}:
+ * nothing in discard mode, the start of it in capture mode, and all of it in full mode.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public class HttpResponse {
+    /**
+     * The status code of the response.
+     * @since 1.0
+     */
+    private final int code;
+
+    /**
+     * The headers of the response.
+     * @since 1.0
+     */
+    private final Headers headers;
+
+    /**
+     * The media type of the body, or null if the server didn't send one.
+     * @since 1.0
+     */
+    private final MediaType contentType;
+
+    /**
+     * The part of the body that was kept. Empty in discard mode, unless the response bodies are logged.
+     * @since 1.0
+     */
+    private final byte[] body;
+
+    /**
+     * The length of the whole body in bytes, as decompressed by the client.
+     * @since 1.0
+     */
+    private final long bodyLength;
+
+    /**
+     * @return true if only the start of the body was kept.
+     * @since 1.0
+     */
+    public boolean isBodyTruncated() {
+        return body.length < bodyLength;
+    }
+
+    /**
+     * @return The part of the body that was kept, decoded with the charset of its media type, UTF-8 by default.
+     * A truncated body may end in the middle of a character.
+     * @since 1.0
+     */
+    public String bodyAsString() {
+        Charset charset = contentType == null ? null : contentType.charset();
+        return new String(body, charset == null ? StandardCharsets.UTF_8 : charset);
+    }
+}
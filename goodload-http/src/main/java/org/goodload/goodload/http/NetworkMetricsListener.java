@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.http;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import org.goodload.goodload.dsl.NetworkMetrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+/**
+ * Records the phases of a call, and the bytes it received, into the {@link NetworkMetrics} of the session that
+ * sent it, which is attached to the request as its tag. See {@link NetworkMetrics.Phase}.
+ * The bytes of the body are counted as received from the connection, i.e. before they are decompressed.
+ * <br>
+ * A listener is created for every call. It accumulates the phases of the call in its own fields, which only the
+ * thread executing the call touches, and adds them to the metrics of the session once, when the call ends or fails.
+ * The calls without network metrics, e.g. the ones sent by custom code with the client,
+ * get {@link EventListener#NONE}.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class NetworkMetricsListener extends EventListener {
+
+    /**
+     * Creates the listeners of the calls of the clients.
+     */
+    static final EventListener.Factory FACTORY = call -> {
+        var networkMetrics = call.request().tag(NetworkMetrics.class);
+        return networkMetrics == null ? EventListener.NONE : new NetworkMetricsListener(networkMetrics);
+    };
+
+    private final NetworkMetrics networkMetrics;
+
+    private long dnsStartNanos;
+
+    private long connectStartNanos;
+
+    private long secureConnectStartNanos;
+
+    private long requestStartNanos;
+
+    private long responseBodyStartNanos;
+
+    /**
+     * The time spent in every phase of the call, indexed by {@link NetworkMetrics.Phase#ordinal()}.
+     */
+    private final long[] phaseNanos = new long[NetworkMetrics.PHASE_COUNT];
+
+    /**
+     * The number of times the call went through every phase, indexed likewise.
+     */
+    private final long[] phaseCounts = new long[NetworkMetrics.PHASE_COUNT];
+
+    private long bytesReceived;
+
+    private NetworkMetricsListener(NetworkMetrics networkMetrics) {
+        this.networkMetrics = networkMetrics;
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        add(NetworkMetrics.Phase.DNS, System.nanoTime() - dnsStartNanos);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStartNanos = System.nanoTime();
+        secureConnectStartNanos = 0;
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStartNanos = System.nanoTime();
+        add(NetworkMetrics.Phase.CONNECT, secureConnectStartNanos - connectStartNanos);
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        add(NetworkMetrics.Phase.TLS, System.nanoTime() - secureConnectStartNanos);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        // The connect phase of a TLS connection ends when the handshake starts
+        if (secureConnectStartNanos == 0) {
+            add(NetworkMetrics.Phase.CONNECT, System.nanoTime() - connectStartNanos);
+        }
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+                              IOException ioe) {
+        connectEnd(call, inetSocketAddress, proxy, protocol);
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        // A call that is retried or follows a redirect sends several requests, each is timed from its headers
+        requestStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        add(NetworkMetrics.Phase.TIME_TO_FIRST_BYTE, System.nanoTime() - requestStartNanos);
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        bytesReceived += response.headers().byteCount();
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        responseBodyStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        add(NetworkMetrics.Phase.BODY, System.nanoTime() - responseBodyStartNanos);
+        bytesReceived += byteCount;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        networkMetrics.record(phaseNanos, phaseCounts, bytesReceived);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        networkMetrics.record(phaseNanos, phaseCounts, bytesReceived);
+    }
+
+    private void add(NetworkMetrics.Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+        phaseCounts[phase.ordinal()]++;
+    }
+}
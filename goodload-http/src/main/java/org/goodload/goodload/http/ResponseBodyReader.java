@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.http;
+
+import okhttp3.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Consumes the bodies of the responses without buffering them whole.
+ * <br>
+ * The body is read in chunks into a buffer borrowed from a small pool, so the bytes which are not kept are dropped
+ * without allocating. Only the bytes which are kept are copied. The pool is bounded rather than per thread,
+ * as every runner has a thread of its own, possibly a virtual one, and there can be tens of thousands of them.
+ * Above the bound the buffers are allocated for the response and dropped afterwards.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class ResponseBodyReader {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * The maximum number of idle buffers kept in the pool.
+     */
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private static final BlockingQueue<byte[]> BUFFERS = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+    private ResponseBodyReader() {
+        // Hide the default constructor.
+    }
+
+    /**
+     * Reads the whole body of the response, keeping only its start.
+     *
+     * @param response     The response whose body to read. It still has to be closed by the caller.
+     * @param captureLimit The maximum number of bytes to keep, 0 to keep none.
+     * @return The response with the part of the body that was kept.
+     * @throws IOException If the body couldn't be read.
+     */
+    static HttpResponse read(Response response, int captureLimit) throws IOException {
+        var body = response.body();
+        if (body == null) {
+            return new HttpResponse(response.code(), response.headers(), null, EMPTY, 0);
+        }
+
+        ByteArrayOutputStream captured = null;
+        if (captureLimit > 0) {
+            long contentLength = body.contentLength();
+            captured = new ByteArrayOutputStream((int) Math.min(captureLimit,
+                    contentLength >= 0 ? contentLength : BUFFER_SIZE));
+        }
+
+        var buffer = BUFFERS.poll();
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        }
+        var source = body.source();
+        long bodyLength = 0;
+        try {
+            for (int read; (read = source.read(buffer)) != -1; ) {
+                if (captured != null && captured.size() < captureLimit) {
+                    captured.write(buffer, 0, Math.min(read, captureLimit - captured.size()));
+                }
+                bodyLength += read;
+            }
+        } finally {
+            BUFFERS.offer(buffer);
+        }
+
+        return new HttpResponse(response.code(), response.headers(), body.contentType(),
+                captured == null ? EMPTY : captured.toByteArray(), bodyLength);
+    }
+}
@@ -33,7 +33,19 @@ public class HttpConfigurationProperties {
      * Configurations that affect how the logging is performed by HTTP module.
      * @since 1.0
      */
-    private LoggingConfiguration logging;
+    private LoggingConfiguration logging = new LoggingConfiguration();
+
+    /**
+     * Configurations of the HTTP clients shared by the requests of a simulation.
+     * @since 1.0
+     */
+    private ClientConfiguration client = new ClientConfiguration();
+
+    /**
+     * Configurations of how the bodies of the responses are consumed.
+     * @since 1.0
+     */
+    private ResponseConfiguration response = new ResponseConfiguration();
 
     @Data
     public static class LoggingConfiguration {
@@ -72,4 +84,164 @@ public class HttpConfigurationProperties {
         @JsonProperty(value="response-body")
         private boolean responseBody = false;
     }
+
+    @Data
+    public static class ClientConfiguration {
+        /**
+         * Whether all the virtual users share a pool of connections, or every virtual user has its own pool.
+         * A virtual user has its own connections in a real browser, while a shared pool needs fewer connections.
+         * @since 1.0
+         */
+        @JsonProperty(value="connection-mode")
+        private ConnectionMode connectionMode = ConnectionMode.SHARED;
+
+        /**
+         * The maximum number of idle connections kept alive in a pool.
+         * @since 1.0
+         */
+        @JsonProperty(value="max-idle-connections")
+        private int maxIdleConnections = 256;
+
+        /**
+         * How long an idle connection is kept alive in a pool, e.g. 5m.
+         * @since 1.0
+         */
+        @JsonProperty(value="keep-alive")
+        private String keepAlive = "5m";
+
+        /**
+         * The timeout for connecting to the server, e.g. 10s. 0 means no timeout.
+         * @since 1.0
+         */
+        @JsonProperty(value="connect-timeout")
+        private String connectTimeout = "10s";
+
+        /**
+         * The timeout for reading from a connection, e.g. 10s. 0 means no timeout.
+         * @since 1.0
+         */
+        @JsonProperty(value="read-timeout")
+        private String readTimeout = "10s";
+
+        /**
+         * The timeout for writing to a connection, e.g. 10s. 0 means no timeout.
+         * @since 1.0
+         */
+        @JsonProperty(value="write-timeout")
+        private String writeTimeout = "10s";
+
+        /**
+         * The timeout for the whole request, including redirects and retries, e.g. 30s. 0 means no timeout.
+         * @since 1.0
+         */
+        @JsonProperty(value="call-timeout")
+        private String callTimeout = "0s";
+
+        /**
+         * If true, a request is retried on another connection when a pooled connection turns out to be stale.
+         * @since 1.0
+         */
+        @JsonProperty(value="retry-on-connection-failure")
+        private boolean retryOnConnectionFailure = true;
+
+        /**
+         * The maximum number of requests sent asynchronously that are in flight at the same time.
+         * The requests above it are queued until others complete.
+         * @since 1.0
+         */
+        @JsonProperty(value="max-requests")
+        private int maxRequests = 1024;
+
+        /**
+         * The maximum number of requests sent asynchronously to a single host that are in flight at the same time.
+         * With HTTP/1.1 every request in flight needs a connection of its own, while HTTP/2 multiplexes them.
+         * @since 1.0
+         */
+        @JsonProperty(value="max-requests-per-host")
+        private int maxRequestsPerHost = 1024;
+
+        /**
+         * The version of HTTP in which to send the requests.
+         * @since 1.0
+         */
+        private Protocol protocol = Protocol.AUTO;
+    }
+
+    @Data
+    public static class ResponseConfiguration {
+        /**
+         * The largest capture limit, as the bytes it stands for must fit in an {@code int}.
+         */
+        public static final int MAX_CAPTURE_LIMIT_KB = Integer.MAX_VALUE / 1024;
+
+        /**
+         * How the bodies of the responses are consumed, unless a request overrides it.
+         * @since 1.0
+         */
+        @JsonProperty(value="body-mode")
+        private ResponseBodyMode bodyMode = ResponseBodyMode.DISCARD;
+
+        /**
+         * The number of kilobytes at the start of a body which are kept in {@link ResponseBodyMode#CAPTURE} mode.
+         * It also limits how much of a body is logged in {@link ResponseBodyMode#DISCARD} mode.
+         * It must not be more than {@link #MAX_CAPTURE_LIMIT_KB}.
+         * @since 1.0
+         */
+        @JsonProperty(value="capture-limit-kb")
+        private int captureLimitKb = 64;
+    }
+
+    public enum ResponseBodyMode {
+        /**
+         * The body is read through a reusable buffer and dropped, only its length is kept.
+         */
+        @JsonProperty("discard")
+        DISCARD,
+
+        /**
+         * The start of the body, up to the capture limit, is kept for the checks, and the rest is dropped.
+         */
+        @JsonProperty("capture")
+        CAPTURE,
+
+        /**
+         * The whole body is kept. Large bodies take as much memory, so use it only for the requests that need it.
+         */
+        @JsonProperty("full")
+        FULL
+    }
+
+    public enum Protocol {
+        /**
+         * HTTP/2 if the server supports it over TLS, HTTP/1.1 otherwise.
+         */
+        @JsonProperty("auto")
+        AUTO,
+
+        /**
+         * Always HTTP/1.1.
+         */
+        @JsonProperty("http1.1")
+        HTTP_1_1,
+
+        /**
+         * HTTP/2 over cleartext connections, without upgrading from HTTP/1.1. The server must support it.
+         */
+        @JsonProperty("h2c")
+        H2C
+    }
+
+    public enum ConnectionMode {
+        /**
+         * All the virtual users share one pool of connections.
+         */
+        @JsonProperty("shared")
+        SHARED,
+
+        /**
+         * Every virtual user has its own pool of connections.
+         */
+        @JsonProperty("per-virtual-user")
+        PER_VIRTUAL_USER
+    }
 }
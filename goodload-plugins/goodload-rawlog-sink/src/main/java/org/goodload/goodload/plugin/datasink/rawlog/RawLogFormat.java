@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2023 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.plugin.datasink.rawlog;
+
+/**
+ * The layout of a raw log. A raw log is a directory with a {@value #METADATA_FILE_NAME} file describing the steps of
+ * the simulation, and segment files of fixed-width records, one per raw report, in the order in which the reports
+ * were delivered. All the numbers are little-endian.
+ * <br>
+ * A segment starts with a header of {@value #HEADER_SIZE} bytes:
+ * <pre>
+ *  0  long  magic, "GLRAWLOG"
+ *  8  int   version
+ * 12  int   size of a record
+ * 16  long  base timestamp, in nanoseconds since the epoch
+ * 24  long  number of records in the segment
+ * 32  int   index of the segment
+ * </pre>
+ * followed by the records of {@value #RECORD_SIZE} bytes:
+ * <pre>
+ *  0  int   step index
+ *  4  int   runner ID
+ *  8  int   iteration index
+ * 12  int   bit 31 set if the step failed, bits 0-30 the delay of the start behind the schedule in microseconds
+ * 16  int   start timestamp minus the base timestamp of the segment, in microseconds
+ * 20  int   bits 30-31 the unit of the duration, bits 0-29 the end timestamp minus the stored start in that unit
+ * </pre>
+ * The base timestamp of a segment is the start of its first record. The reports are delivered in the order in which
+ * they end, so a later record may have started before the first one, and its start offset is negative. A report
+ * whose start offset doesn't fit an int, about 35 minutes either way, is written to a new segment instead.
+ * <br>
+ * The duration is stored in nanoseconds up to about a second ({@link #DURATION_NANOS}), in microseconds up to about
+ * 17 minutes ({@link #DURATION_MICROS}) and in milliseconds beyond ({@link #DURATION_MILLIS}), so the short actions
+ * keep their full precision and the long ones keep a precision well below that of the latency histograms.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public final class RawLogFormat {
+
+    public static final long MAGIC = 0x474F4C5741524C47L;
+
+    public static final int VERSION = 1;
+
+    public static final int HEADER_SIZE = 64;
+
+    public static final int RECORD_SIZE = 24;
+
+    static final int BASE_TIMESTAMP_OFFSET = 16;
+
+    static final int RECORD_COUNT_OFFSET = 24;
+
+    static final int SEGMENT_INDEX_OFFSET = 32;
+
+    static final int FAILED_BIT = 0x8000_0000;
+
+    static final int MAX_SCHEDULE_LAG_MICROS = 0x7FFF_FFFF;
+
+    static final int DURATION_UNIT_SHIFT = 30;
+
+    static final int MAX_DURATION_VALUE = 0x3FFF_FFFF;
+
+    static final int DURATION_NANOS = 0;
+
+    static final int DURATION_MICROS = 1;
+
+    static final int DURATION_MILLIS = 2;
+
+    public static final String METADATA_FILE_NAME = "simulation.meta";
+
+    static final String SEGMENT_FILE_PREFIX = "segment-";
+
+    static final String SEGMENT_FILE_SUFFIX = ".glr";
+
+    private RawLogFormat() {
+    }
+
+    static String segmentFileName(int segmentIndex) {
+        return String.format("%s%06d%s", SEGMENT_FILE_PREFIX, segmentIndex, SEGMENT_FILE_SUFFIX);
+    }
+
+    /**
+     * @param durationInNanos The duration, negative durations are stored as 0.
+     * @return The duration in the finest unit in which it fits, saturated at the largest number of milliseconds.
+     */
+    static int encodeDuration(long durationInNanos) {
+        long duration = Math.max(durationInNanos, 0);
+        if (duration <= MAX_DURATION_VALUE) {
+            return (int) duration;
+        }
+        if (duration / 1_000 <= MAX_DURATION_VALUE) {
+            return DURATION_MICROS << DURATION_UNIT_SHIFT | (int) (duration / 1_000);
+        }
+        return DURATION_MILLIS << DURATION_UNIT_SHIFT | (int) Math.min(duration / 1_000_000, MAX_DURATION_VALUE);
+    }
+
+    /**
+     * @return The duration encoded by {@link #encodeDuration(long)}, in nanoseconds.
+     */
+    static long decodeDuration(int encodedDuration) {
+        long value = encodedDuration & MAX_DURATION_VALUE;
+        return switch (encodedDuration >>> DURATION_UNIT_SHIFT) {
+            case DURATION_NANOS -> value;
+            case DURATION_MICROS -> value * 1_000;
+            default -> value * 1_000_000;
+        };
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2023 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.plugin.datasink.rawlog;
+
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.data.StepSkeletonData;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads a raw log written by {@link RawLogWriter}, e.g. to aggregate the reports of a simulation again.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public class RawLogReader {
+
+    private final Path directory;
+
+    private final SimulationTree simulationTree;
+
+    private final List<Path> segments;
+
+    /**
+     * Reads the metadata of the log and finds its segments.
+     *
+     * @param directory The directory of the log.
+     * @throws IOException If the directory doesn't contain a log that can be read.
+     */
+    public RawLogReader(Path directory) throws IOException {
+        this.directory = directory;
+        this.simulationTree = readMetadata(directory.resolve(RawLogFormat.METADATA_FILE_NAME));
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files
+                    .filter(file -> file.getFileName().toString().startsWith(RawLogFormat.SEGMENT_FILE_PREFIX)
+                            && file.getFileName().toString().endsWith(RawLogFormat.SEGMENT_FILE_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static SimulationTree readMetadata(Path path) throws IOException {
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int version = input.readInt();
+            if (version != RawLogFormat.VERSION) {
+                throw new IOException(String.format("Unsupported version %d of the raw log metadata %s",
+                        version, path));
+            }
+            var simulationTree = new SimulationTree();
+            simulationTree.setSimulationId(input.readUTF());
+            simulationTree.setSimulationName(input.readUTF());
+            int stepCount = input.readInt();
+            var steps = new ArrayList<StepSkeletonData>(stepCount);
+            var scenarios = new LinkedList<StepSkeletonData>();
+            for (var i = 0; i < stepCount; i++) {
+                var step = new StepSkeletonData();
+                step.setStepIndex(input.readInt());
+                step.setStepId(input.readUTF());
+                step.setStepName(input.readUTF());
+                step.setSubSteps(new LinkedList<>());
+                steps.add(step);
+                int parentStepIndex = input.readInt();
+                // The steps are in pre-order, so the parent has always been read before its sub steps
+                if (parentStepIndex < 0) {
+                    scenarios.add(step);
+                } else {
+                    steps.get(parentStepIndex).getSubSteps().add(step);
+                }
+            }
+            simulationTree.setSteps(scenarios);
+            return simulationTree;
+        }
+    }
+
+    public SimulationTree getSimulationTree() {
+        return simulationTree;
+    }
+
+    /**
+     * @return The start timestamp of the first record written to the log, in nanoseconds since the epoch,
+     * or 0 if the log is empty.
+     * @throws IOException If the first segment can't be read.
+     */
+    public long getFirstTimestamp() throws IOException {
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        try (var channel = FileChannel.open(segments.get(0))) {
+            var header = ByteBuffer.allocate(RawLogFormat.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Read the whole header
+            }
+            return header.getLong(RawLogFormat.BASE_TIMESTAMP_OFFSET);
+        }
+    }
+
+    /**
+     * Reads all the records of the log in the order in which they were written.
+     *
+     * @param consumer Receives the records. The report passed to it is reused once it returns.
+     * @return The number of records read.
+     * @throws IOException If a segment can't be read.
+     */
+    public long read(Consumer<ActionReport> consumer) throws IOException {
+        var report = new ActionReport();
+        long total = 0;
+        for (var segmentPath : segments) {
+            total += readSegment(segmentPath, report, consumer);
+        }
+        return total;
+    }
+
+    private long readSegment(Path segmentPath, ActionReport report, Consumer<ActionReport> consumer)
+            throws IOException {
+        try (var channel = FileChannel.open(segmentPath)) {
+            var segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            if (segment.remaining() < RawLogFormat.HEADER_SIZE
+                    || segment.getLong(0) != RawLogFormat.MAGIC
+                    || segment.getInt(8) != RawLogFormat.VERSION
+                    || segment.getInt(12) != RawLogFormat.RECORD_SIZE) {
+                throw new IOException(String.format("%s is not a segment of a raw log of version %d",
+                        segmentPath, RawLogFormat.VERSION));
+            }
+            long baseTimestamp = segment.getLong(RawLogFormat.BASE_TIMESTAMP_OFFSET);
+            long recordCount = Math.min(segment.getLong(RawLogFormat.RECORD_COUNT_OFFSET),
+                    (channel.size() - RawLogFormat.HEADER_SIZE) / RawLogFormat.RECORD_SIZE);
+
+            segment.position(RawLogFormat.HEADER_SIZE);
+            for (long i = 0; i < recordCount; i++) {
+                report.setStepIndex(segment.getInt());
+                report.setRunnerId(segment.getInt());
+                report.setIterationIndex(segment.getInt());
+                int status = segment.getInt();
+                long start = baseTimestamp + segment.getInt() * 1_000L;
+                long scheduleLagMicros = status & RawLogFormat.MAX_SCHEDULE_LAG_MICROS;
+                report.setStartTimestampInNanos(start);
+                report.setIntendedStartTimestampInNanos(start - scheduleLagMicros * 1_000);
+                report.setEndTimestampInNanos(start + RawLogFormat.decodeDuration(segment.getInt()));
+                report.setEndedNormally((status & RawLogFormat.FAILED_BIT) == 0);
+                consumer.accept(report);
+            }
+            return recordCount;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return directory.toString();
+    }
+}
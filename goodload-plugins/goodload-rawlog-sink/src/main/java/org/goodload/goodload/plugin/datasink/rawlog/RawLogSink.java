@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2023 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.plugin.datasink.rawlog;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.datasink.Sink;
+import org.goodload.goodload.reporting.datasink.SinkSubscriber;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Flow;
+
+/**
+ * Writes the raw reports to a raw log, see {@link RawLogFormat}. Writing a record is a copy to a memory-mapped
+ * file, so unlike the database sinks the reports are written on the thread delivering them, without buffering.
+ * <br>
+ * Only the raw reports are logged, i.e. those of the iterations sampled according to raw-report-sampling-rate,
+ * so it should be 1 for the log to be aggregated again into the same report, which is warned about otherwise.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class RawLogSink extends Sink {
+
+    private final RawLogSinkConfigurationProperties rawLogSinkConfigurationProperties;
+
+    private SimulationTree simulationTree;
+
+    @Override
+    public void registerSimulationSkeletonData(SimulationTree simulationTree) {
+        this.simulationTree = simulationTree;
+    }
+
+    @Override
+    protected SinkSubscriber createSubscriber() {
+        var directory = Path.of(rawLogSinkConfigurationProperties.getDirectory(), simulationTree.getSimulationId());
+        var segmentSize = rawLogSinkConfigurationProperties.getSegmentSize().toBytes();
+        if (segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException(String.format(
+                    "The segment size of the raw log %s must be less than 2GB", segmentSize));
+        }
+        if (simulationTree.getRawReportSamplingRate() < 1) {
+            log.warn("Simulation `{}`: The raw log only gets the reports of the iterations sampled by "
+                            + "raw-report-sampling-rate {}, so aggregating it again won't reproduce the report",
+                    simulationTree.getSimulationName(), simulationTree.getRawReportSamplingRate());
+        }
+        try {
+            var writer = new RawLogWriter(directory, (int) segmentSize, simulationTree);
+            log.info("Simulation `{}`: Writing the raw reports to {}", simulationTree.getSimulationName(),
+                    directory.toAbsolutePath());
+            return new RawLogSinkSubscriber(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create the raw log " + directory, e);
+        }
+    }
+
+    @Slf4j
+    protected static class RawLogSinkSubscriber implements SinkSubscriber {
+
+        private final RawLogWriter writer;
+
+        private Flow.Subscription subscription = null;
+
+        public RawLogSinkSubscriber(RawLogWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ActionReport item) {
+            try {
+                writer.write(item);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.error("Failed to write the raw log, the remaining reports will not be written to it", throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            log.debug("Raw log completed with {} records", writer.getRecordCount());
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            writer.close();
+        }
+    }
+}
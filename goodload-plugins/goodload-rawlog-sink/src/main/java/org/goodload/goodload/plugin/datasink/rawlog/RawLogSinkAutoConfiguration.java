@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2023 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.plugin.datasink.rawlog;
+
+import org.goodload.goodload.reporting.datasink.Sink;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@AutoConfiguration
+@EnableConfigurationProperties(RawLogSinkConfigurationProperties.class)
+@ConditionalOnProperty(prefix = RawLogSinkConfigurationProperties.PREFIX, name = "enabled", havingValue = "true")
+public class RawLogSinkAutoConfiguration {
+    @Bean
+    public Sink rawLogSink(RawLogSinkConfigurationProperties rawLogSinkConfigurationProperties) {
+        return new RawLogSink(rawLogSinkConfigurationProperties);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2023 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.plugin.datasink.rawlog;
+
+import lombok.Data;
+import org.goodload.goodload.reporting.config.ReportingConfigurationProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@ConfigurationProperties(prefix = RawLogSinkConfigurationProperties.PREFIX)
+@Data
+public class RawLogSinkConfigurationProperties {
+    public static final String PREFIX = ReportingConfigurationProperties.PREFIX + ".sink.raw-log";
+
+    /**
+     * If true, the raw reports are also written to a raw log, which can be aggregated again later
+     * with the {@code reaggregate} command.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The directory in which a raw log is created for every simulation, named after the ID of the simulation.
+     */
+    private String directory = Path.of(System.getProperty("java.io.tmpdir"), "goodload", "raw-logs").toString();
+
+    /**
+     * The size of the segment files of a raw log. It must be less than 2GB.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+}
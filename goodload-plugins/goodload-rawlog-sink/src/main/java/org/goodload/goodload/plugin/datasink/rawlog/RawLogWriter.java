@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2023 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.plugin.datasink.rawlog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.data.StepSkeletonData;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends raw reports to a raw log, see {@link RawLogFormat}. Every segment is mapped into memory, so writing a
+ * record only copies it to the mapped buffer, and the operating system writes the pages to the file in the
+ * background. Once a segment is full, or a report started too far from the base timestamp of the segment to be
+ * stored, the writer moves on to a new one.
+ * <br>
+ * The number of records in the header is updated with every record, so the log can be read even if the writer
+ * is not closed. It is not thread-safe.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public class RawLogWriter implements AutoCloseable {
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer segment;
+
+    private int segmentIndex = -1;
+
+    private long baseTimestamp;
+
+    private long recordCount;
+
+    private long totalRecordCount = 0;
+
+    /**
+     * Creates the directory of the log and writes the metadata of the simulation to it.
+     *
+     * @param directory      The directory of the log. It must not contain another log.
+     * @param segmentSize    The size of a segment in bytes, including its header.
+     * @param simulationTree The structure of the simulation.
+     * @throws IOException If the directory or the metadata can't be written.
+     */
+    public RawLogWriter(Path directory, int segmentSize, SimulationTree simulationTree) throws IOException {
+        if (segmentSize < RawLogFormat.HEADER_SIZE + RawLogFormat.RECORD_SIZE) {
+            throw new IllegalArgumentException(String.format("The segment size %d is too small", segmentSize));
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        writeMetadata(directory.resolve(RawLogFormat.METADATA_FILE_NAME), simulationTree);
+    }
+
+    /**
+     * Writes the ID and name of the simulation, followed by the steps in pre-order as their index, ID, name and
+     * the index of their parent, -1 for the scenarios.
+     */
+    private static void writeMetadata(Path path, SimulationTree simulationTree) throws IOException {
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(RawLogFormat.VERSION);
+            output.writeUTF(simulationTree.getSimulationId());
+            output.writeUTF(simulationTree.getSimulationName());
+            output.writeInt(countSteps(simulationTree));
+            for (var scenario : simulationTree.getSteps()) {
+                writeStep(output, scenario, -1);
+            }
+        }
+    }
+
+    private static int countSteps(SimulationTree simulationTree) {
+        var count = 0;
+        for (var scenario : simulationTree.getSteps()) {
+            count += countSteps(scenario);
+        }
+        return count;
+    }
+
+    private static int countSteps(StepSkeletonData step) {
+        var count = 1;
+        for (var subStep : step.getSubSteps()) {
+            count += countSteps(subStep);
+        }
+        return count;
+    }
+
+    private static void writeStep(DataOutputStream output, StepSkeletonData step, int parentStepIndex)
+            throws IOException {
+        output.writeInt(step.getStepIndex());
+        output.writeUTF(step.getStepId());
+        output.writeUTF(step.getStepName());
+        output.writeInt(parentStepIndex);
+        for (var subStep : step.getSubSteps()) {
+            writeStep(output, subStep, step.getStepIndex());
+        }
+    }
+
+    /**
+     * Appends the report to the log.
+     *
+     * @throws IOException If a new segment can't be created.
+     */
+    public void write(ActionReport report) throws IOException {
+        long start = report.getStartTimestampInNanos();
+        long startOffsetMicros = Math.floorDiv(start - baseTimestamp, 1_000);
+        if (segment == null || segment.remaining() < RawLogFormat.RECORD_SIZE
+                || startOffsetMicros != (int) startOffsetMicros) {
+            nextSegment(start);
+            startOffsetMicros = 0;
+        }
+        long intendedStart = report.getIntendedStartTimestampInNanos();
+        long scheduleLagMicros = intendedStart > 0 && intendedStart < start ? (start - intendedStart) / 1_000 : 0;
+        int status = (int) Math.min(scheduleLagMicros, RawLogFormat.MAX_SCHEDULE_LAG_MICROS)
+                | (report.isEndedNormally() ? 0 : RawLogFormat.FAILED_BIT);
+
+        segment.putInt(report.getStepIndex());
+        segment.putInt(report.getRunnerId());
+        segment.putInt(report.getIterationIndex());
+        segment.putInt(status);
+        segment.putInt((int) startOffsetMicros);
+        // The duration is relative to the start the reader will see, so the end keeps its precision
+        segment.putInt(RawLogFormat.encodeDuration(
+                report.getEndTimestampInNanos() - (baseTimestamp + startOffsetMicros * 1_000)));
+        segment.putLong(RawLogFormat.RECORD_COUNT_OFFSET, ++recordCount);
+        totalRecordCount++;
+    }
+
+    /**
+     * @return The number of records written to all the segments.
+     */
+    public long getRecordCount() {
+        return totalRecordCount;
+    }
+
+    private void nextSegment(long baseTimestamp) throws IOException {
+        closeSegment();
+        segmentIndex++;
+        this.baseTimestamp = baseTimestamp;
+        recordCount = 0;
+        channel = FileChannel.open(directory.resolve(RawLogFormat.segmentFileName(segmentIndex)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putLong(RawLogFormat.MAGIC);
+        segment.putInt(RawLogFormat.VERSION);
+        segment.putInt(RawLogFormat.RECORD_SIZE);
+        segment.putLong(baseTimestamp);
+        segment.putLong(0);
+        segment.putInt(segmentIndex);
+        segment.position(RawLogFormat.HEADER_SIZE);
+        // Only whole records fit in the segment
+        segment.limit(RawLogFormat.HEADER_SIZE
+                + (segmentSize - RawLogFormat.HEADER_SIZE) / RawLogFormat.RECORD_SIZE * RawLogFormat.RECORD_SIZE);
+    }
+
+    /**
+     * Writes the mapped segment to the file and truncates the unused space at its end.
+     */
+    private void closeSegment() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            segment.force();
+            try {
+                channel.truncate(RawLogFormat.HEADER_SIZE + recordCount * RawLogFormat.RECORD_SIZE);
+            } catch (IOException e) {
+                // Some platforms don't allow truncating a mapped file, the readers rely on the record count anyway
+                log.debug("Failed to truncate the segment {} of the raw log {}", segmentIndex, directory, e);
+            }
+        } finally {
+            channel.close();
+            channel = null;
+            segment = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2023 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.plugin.datasink.rawlog;
+
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.SimulationTree;
+import org.goodload.goodload.reporting.data.StepSkeletonData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class RawLogTests {
+
+    private static final long BASE = TimeUnit.SECONDS.toNanos(1_700_000_000L);
+
+    private static final int SEGMENT_SIZE = 1 << 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        var reports = List.of(
+                report(0, 1, 0, BASE, BASE + 1_234_567, true),
+                // Delivered after the first report, but started before it
+                report(1, 2, 0, BASE - 5_000_500, BASE + 2_000_000, false),
+                // Behind the schedule by 3ms
+                lagging(report(0, 2, 1, BASE + 10_000_000, BASE + 15_000_000, true), 3_000_000),
+                // Longer than the nanoseconds and the microseconds of a duration can hold
+                report(1, 1, 1, BASE + 20_000_000, BASE + 20_000_000 + TimeUnit.SECONDS.toNanos(5) + 999, true),
+                report(0, 3, 7, BASE + 30_000_000, BASE + 30_000_000 + TimeUnit.HOURS.toNanos(1) + 999_999, true));
+
+        try (var writer = new RawLogWriter(directory, SEGMENT_SIZE, simulationTree())) {
+            for (var report : reports) {
+                writer.write(report);
+            }
+            Assertions.assertEquals(reports.size(), writer.getRecordCount());
+        }
+
+        var reader = new RawLogReader(directory);
+        var simulationTree = reader.getSimulationTree();
+        Assertions.assertEquals("simulation", simulationTree.getSimulationId());
+        Assertions.assertEquals("Simulation", simulationTree.getSimulationName());
+        Assertions.assertEquals(1, simulationTree.getSteps().size());
+        var scenario = simulationTree.getSteps().get(0);
+        Assertions.assertEquals("Login", scenario.getStepName());
+        Assertions.assertEquals("Submit", scenario.getSubSteps().get(0).getStepName());
+        Assertions.assertEquals(1, scenario.getSubSteps().get(0).getStepIndex());
+        Assertions.assertEquals(BASE, reader.getFirstTimestamp());
+
+        var read = readAll(reader);
+        Assertions.assertEquals(reports.size(), read.size());
+        for (var i = 0; i < reports.size(); i++) {
+            var expected = reports.get(i);
+            var actual = read.get(i);
+            Assertions.assertEquals(expected.getStepIndex(), actual.getStepIndex());
+            Assertions.assertEquals(expected.getRunnerId(), actual.getRunnerId());
+            Assertions.assertEquals(expected.getIterationIndex(), actual.getIterationIndex());
+            Assertions.assertEquals(expected.isEndedNormally(), actual.isEndedNormally());
+        }
+
+        // The starts are stored in microseconds, rounded down also before the base timestamp
+        Assertions.assertEquals(BASE - 5_001_000, read.get(1).getStartTimestampInNanos());
+        Assertions.assertEquals(BASE + 10_000_000, read.get(2).getStartTimestampInNanos());
+        // Short durations keep their nanoseconds, so do the ends
+        Assertions.assertEquals(BASE + 1_234_567, read.get(0).getEndTimestampInNanos());
+        Assertions.assertEquals(BASE + 2_000_000, read.get(1).getEndTimestampInNanos());
+        Assertions.assertEquals(8_000_000, read.get(2).getCorrectedTotalTimeInNanos());
+        Assertions.assertEquals(read.get(2).getStartTimestampInNanos() - 3_000_000,
+                read.get(2).getIntendedStartTimestampInNanos());
+        // Long durations keep their microseconds, and beyond about 17 minutes their milliseconds
+        Assertions.assertEquals(TimeUnit.SECONDS.toNanos(5), read.get(3).getTotalTimeInNanos());
+        Assertions.assertEquals(TimeUnit.HOURS.toNanos(1), read.get(4).getTotalTimeInNanos());
+    }
+
+    @Test
+    public void testSegmentRotation() throws IOException {
+        // Room for two records per segment
+        int segmentSize = RawLogFormat.HEADER_SIZE + 2 * RawLogFormat.RECORD_SIZE + RawLogFormat.RECORD_SIZE / 2;
+        var starts = new long[]{
+                BASE,
+                BASE + 1_000,
+                // The segment is full
+                BASE + 2_000,
+                // Too far from the base timestamp of the segment for an int of microseconds
+                BASE + TimeUnit.HOURS.toNanos(1),
+                // Too far before it
+                BASE + TimeUnit.MINUTES.toNanos(20),
+                BASE + TimeUnit.MINUTES.toNanos(30)};
+        try (var writer = new RawLogWriter(directory, segmentSize, simulationTree())) {
+            for (var i = 0; i < starts.length; i++) {
+                writer.write(report(0, 1, i, starts[i], starts[i] + 1_000, true));
+            }
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertEquals(List.of(
+                            RawLogFormat.segmentFileName(0),
+                            RawLogFormat.segmentFileName(1),
+                            RawLogFormat.segmentFileName(2),
+                            RawLogFormat.segmentFileName(3),
+                            RawLogFormat.METADATA_FILE_NAME),
+                    files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+
+        var read = readAll(new RawLogReader(directory));
+        Assertions.assertEquals(starts.length, read.size());
+        for (var i = 0; i < starts.length; i++) {
+            Assertions.assertEquals(i, read.get(i).getIterationIndex());
+            Assertions.assertEquals(starts[i], read.get(i).getStartTimestampInNanos());
+            Assertions.assertEquals(starts[i] + 1_000, read.get(i).getEndTimestampInNanos());
+        }
+    }
+
+    @Test
+    public void testDurationEncoding() {
+        Assertions.assertEquals(0, RawLogFormat.decodeDuration(RawLogFormat.encodeDuration(-5)));
+        Assertions.assertEquals(RawLogFormat.MAX_DURATION_VALUE,
+                RawLogFormat.decodeDuration(RawLogFormat.encodeDuration(RawLogFormat.MAX_DURATION_VALUE)));
+        Assertions.assertEquals((RawLogFormat.MAX_DURATION_VALUE + 1L) / 1_000 * 1_000,
+                RawLogFormat.decodeDuration(RawLogFormat.encodeDuration(RawLogFormat.MAX_DURATION_VALUE + 1L)));
+        Assertions.assertEquals(RawLogFormat.MAX_DURATION_VALUE * 1_000L,
+                RawLogFormat.decodeDuration(RawLogFormat.encodeDuration(RawLogFormat.MAX_DURATION_VALUE * 1_000L)));
+        Assertions.assertEquals((RawLogFormat.MAX_DURATION_VALUE * 1_000L + 1_000_000) / 1_000_000 * 1_000_000,
+                RawLogFormat.decodeDuration(
+                        RawLogFormat.encodeDuration(RawLogFormat.MAX_DURATION_VALUE * 1_000L + 1_000_000)));
+        // Saturated at the largest number of milliseconds
+        Assertions.assertEquals(RawLogFormat.MAX_DURATION_VALUE * 1_000_000L,
+                RawLogFormat.decodeDuration(RawLogFormat.encodeDuration(Long.MAX_VALUE)));
+    }
+
+    /**
+     * Login (0) > [Submit (1)].
+     */
+    private static SimulationTree simulationTree() {
+        var submit = new StepSkeletonData();
+        submit.setStepIndex(1);
+        submit.setStepId("login.submit");
+        submit.setStepName("Submit");
+        submit.setSubSteps(List.of());
+        var login = new StepSkeletonData();
+        login.setStepIndex(0);
+        login.setStepId("login");
+        login.setStepName("Login");
+        login.setSubSteps(List.of(submit));
+        var simulationTree = new SimulationTree();
+        simulationTree.setSimulationId("simulation");
+        simulationTree.setSimulationName("Simulation");
+        simulationTree.setSteps(List.of(login));
+        return simulationTree;
+    }
+
+    private static ActionReport report(int stepIndex, int runnerId, int iterationIndex, long start, long end,
+                                       boolean endedNormally) {
+        var report = new ActionReport(stepIndex);
+        report.setRunnerId(runnerId);
+        report.setIterationIndex(iterationIndex);
+        report.setStartTimestampInNanos(start);
+        report.setEndTimestampInNanos(end);
+        report.setEndedNormally(endedNormally);
+        return report;
+    }
+
+    private static ActionReport lagging(ActionReport report, long scheduleLagInNanos) {
+        report.setIntendedStartTimestampInNanos(report.getStartTimestampInNanos() - scheduleLagInNanos);
+        return report;
+    }
+
+    /**
+     * @return Copies of the records, since the reader reuses its report.
+     */
+    private static List<ActionReport> readAll(RawLogReader reader) throws IOException {
+        var reports = new ArrayList<ActionReport>();
+        reader.read(report -> {
+            var copy = report(report.getStepIndex(), report.getRunnerId(), report.getIterationIndex(),
+                    report.getStartTimestampInNanos(), report.getEndTimestampInNanos(), report.isEndedNormally());
+            copy.setIntendedStartTimestampInNanos(report.getIntendedStartTimestampInNanos());
+            reports.add(copy);
+        });
+        return reports;
+    }
+}
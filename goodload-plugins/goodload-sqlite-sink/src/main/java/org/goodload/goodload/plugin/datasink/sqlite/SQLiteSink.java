@@ -16,19 +16,26 @@
  */
 package org.goodload.goodload.plugin.datasink.sqlite;
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.goodload.goodload.plugin.datasink.sqlite.data.IterationReportRegistry;
+import org.goodload.goodload.plugin.datasink.sqlite.data.SQLiteReportBatch;
+import org.goodload.goodload.plugin.datasink.sqlite.data.SQLiteReportWriter;
 import org.goodload.goodload.plugin.datasink.sqlite.data.SimulationRepository;
-import org.goodload.goodload.plugin.datasink.sqlite.models.ActionReportEntity;
 import org.goodload.goodload.plugin.datasink.sqlite.models.SimulationEntity;
 import org.goodload.goodload.plugin.datasink.sqlite.models.StepSkeletonEntity;
 import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
 import org.goodload.goodload.reporting.data.SimulationTree;
 import org.goodload.goodload.reporting.data.StepSkeletonData;
+import org.goodload.goodload.reporting.datasink.BackpressurePolicy;
+import org.goodload.goodload.reporting.datasink.BufferedReportWriter;
 import org.goodload.goodload.reporting.datasink.Sink;
 import org.goodload.goodload.reporting.datasink.SinkSubscriber;
+import org.goodload.goodload.reporting.datasink.SinkWriterMetrics;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.LinkedList;
 import java.util.UUID;
 import java.util.concurrent.Flow;
@@ -38,17 +45,23 @@ import java.util.concurrent.Flow;
  * @since 1.0
  */
 @Slf4j
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class SQLiteSink extends Sink {
 
-    private final IterationReportRegistry iterationReportRegistry;
+    private final DataSource dataSource;
 
     private final SimulationRepository simulationRepository;
 
     private final SQLiteSinkConfigurationProperties sqLiteSinkConfigurationProperties;
 
+    /**
+     * ID of the simulation whose reports are written by this sink, to relate them to the steps of the simulation.
+     */
+    private String simulationId;
+
     @Override
     public void registerSimulationSkeletonData(SimulationTree simulationTree) {
+        simulationId = simulationTree.getSimulationId();
         var simulationEntity = new SimulationEntity();
         simulationEntity.setSimulationId(simulationTree.getSimulationId());
         simulationEntity.setSimulationName(simulationTree.getSimulationName());
@@ -60,12 +73,14 @@ public class SQLiteSink extends Sink {
     private StepSkeletonEntity mapStepDataToEntity(StepSkeletonData stepSkeletonData, String simulationId, String parentStepId) {
         var entity = new StepSkeletonEntity();
         entity.setStepName(stepSkeletonData.getStepName());
+        entity.setId(simulationId + ":" + stepSkeletonData.getStepId());
         entity.setStepId(stepSkeletonData.getStepId());
+        entity.setStepIndex(stepSkeletonData.getStepIndex());
         entity.setSimulationId(simulationId);
         entity.setParentStepId(parentStepId);
         var subStepEntities = new LinkedList<StepSkeletonEntity>();
         for (var subStepData : stepSkeletonData.getSubSteps()) {
-            var subStepEntity = mapStepDataToEntity(subStepData, simulationId, entity.getStepId());
+            var subStepEntity = mapStepDataToEntity(subStepData, simulationId, entity.getId());
             subStepEntities.add(subStepEntity);
         }
         entity.setSubSteps(subStepEntities);
@@ -74,25 +89,40 @@ public class SQLiteSink extends Sink {
 
     @Override
     protected SinkSubscriber createSubscriber() {
-        return new SQLiteSinkSubscriber(iterationReportRegistry, sqLiteSinkConfigurationProperties.getBatchSize());
+        try {
+            return new SQLiteSinkSubscriber(
+                    new SQLiteReportWriter(dataSource, simulationId),
+                    sqLiteSinkConfigurationProperties.getBatchSize(),
+                    sqLiteSinkConfigurationProperties.getFlushInterval(),
+                    sqLiteSinkConfigurationProperties.getBackpressurePolicy());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to open the report database", e);
+        }
     }
 
+    /**
+     * Hands the reports over to a {@link BufferedReportWriter}, which writes them to the database on its own thread.
+     */
     @Slf4j
     protected static class SQLiteSinkSubscriber implements SinkSubscriber {
 
-        private final LinkedList<ActionReport> batch = new LinkedList<>();
+        private final SQLiteReportWriter sqLiteReportWriter;
 
-        private final IterationReportRegistry iterationReportRegistry;
-
-        private final int batchSize;
+        private final BufferedReportWriter<SQLiteReportBatch> writer;
 
         private final String subscriberId = UUID.randomUUID().toString();
 
         private Flow.Subscription subscription = null;
 
-        public SQLiteSinkSubscriber(IterationReportRegistry iterationReportRegistry, int batchSize) {
-            this.iterationReportRegistry = iterationReportRegistry;
-            this.batchSize = batchSize;
+        public SQLiteSinkSubscriber(SQLiteReportWriter sqLiteReportWriter, int batchSize, Duration flushInterval,
+                                    BackpressurePolicy backpressurePolicy) {
+            this.sqLiteReportWriter = sqLiteReportWriter;
+            this.writer = new BufferedReportWriter<>(
+                    "sqlite",
+                    () -> new SQLiteReportBatch(batchSize),
+                    sqLiteReportWriter::write,
+                    flushInterval,
+                    backpressurePolicy);
         }
 
         @Override
@@ -104,48 +134,38 @@ public class SQLiteSink extends Sink {
 
         @Override
         public void onNext(ActionReport item) {
-            synchronized (batch) {
-                batch.add(item);
-            }
-            if (batch.size() >= batchSize) {
-                processBatch();
-            }
-            subscription.request(Long.MAX_VALUE);
+            writer.add(item);
+        }
+
+        @Override
+        public void onHistogramSnapshot(HistogramSnapshot snapshot) {
+            writer.add(snapshot);
         }
 
         @Override
         public void onError(Throwable throwable) {
             log.error(String.format("Sink subscriber with ID %s failed with error: ", subscriberId), throwable);
-            processBatch();
         }
 
         @Override
         public void onComplete() {
             log.debug("Sink subscriber with ID {} completed: ", subscriberId);
-            processBatch();
         }
 
-        private void processBatch() {
-            LinkedList<ActionReport> batchCopy;
-            synchronized (batch) {
-                // Copy the batch to new list so that we don't block the subscriber while we write data to SQLite
-                batchCopy = new LinkedList<>(batch);
-                batch.clear();
-            }
-
-            try {
-                log.debug("Writing {} report rows to sqlite", batchCopy.size());
-                iterationReportRegistry.insertAll(batchCopy.stream().map(ActionReportEntity::fromAction).toList());
-            } catch (Exception e) {
-                log.error("Failed to write iteration report batch", e);
-            }
+        @Override
+        public SinkWriterMetrics getWriterMetrics() {
+            return writer.getMetrics();
         }
 
         @Override
-        public void close() {
-            synchronized (batch) {
+        public void close() throws Exception {
+            if (subscription != null) {
                 subscription.cancel();
-                processBatch();
+            }
+            try {
+                writer.close();
+            } finally {
+                sqLiteReportWriter.close();
             }
         }
     }
@@ -16,7 +16,6 @@
  */
 package org.goodload.goodload.plugin.datasink.sqlite;
 
-import org.goodload.goodload.plugin.datasink.sqlite.data.IterationReportRegistry;
 import org.goodload.goodload.plugin.datasink.sqlite.data.SimulationRepository;
 import org.goodload.goodload.reporting.datasink.Sink;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
@@ -43,10 +42,10 @@ import java.util.UUID;
 public class SQLiteSinkAutoConfiguration {
     @Bean
     public Sink sink(
-            IterationReportRegistry iterationReportRegistry,
+            DataSource dataSource,
             SimulationRepository simulationRepository,
             SQLiteSinkConfigurationProperties sqLiteSinkConfigurationProperties) {
-        return new SQLiteSink(iterationReportRegistry, simulationRepository, sqLiteSinkConfigurationProperties);
+        return new SQLiteSink(dataSource, simulationRepository, sqLiteSinkConfigurationProperties);
     }
 
     @Bean
@@ -18,8 +18,11 @@ package org.goodload.goodload.plugin.datasink.sqlite;
 
 import lombok.Data;
 import org.goodload.goodload.reporting.config.ReportingConfigurationProperties;
+import org.goodload.goodload.reporting.datasink.BackpressurePolicy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 /**
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
  * @since 1.0
@@ -27,7 +30,21 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = SQLiteSinkConfigurationProperties.PREFIX)
 @Data
 public class SQLiteSinkConfigurationProperties {
-    public static final String PREFIX = ReportingConfigurationProperties.PREFIX + ".sink.sqlite.batch-size";
+    public static final String PREFIX = ReportingConfigurationProperties.PREFIX + ".sink.sqlite";
+
+    /**
+     * Number of reports written to the database in one transaction.
+     */
+    private int batchSize = 10000;
+
+    /**
+     * Maximum time for which a report waits before it is written to the database,
+     * so that the reports of a long simulation can be watched while it runs.
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
 
-    private int batchSize = 1000;
+    /**
+     * What to do with the reports while the database can't keep up with them.
+     */
+    private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2023 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.plugin.datasink.sqlite.data;
+
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.datasink.ReportBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of reports and snapshots waiting to be written to the database.
+ * <br>
+ * The values of the action reports are copied into one array per column, so that the reports can be reused by
+ * the publisher and buffering a report doesn't allocate. The snapshots aren't reused, so they are kept as is.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public class SQLiteReportBatch implements ReportBatch {
+
+    private final int[] stepIndices;
+
+    private final int[] runnerIds;
+
+    private final int[] iterationIndices;
+
+    private final long[] startTimestampsInNanos;
+
+    private final long[] intendedStartTimestampsInNanos;
+
+    private final long[] endTimestampsInNanos;
+
+    private final boolean[] endedNormally;
+
+    private int size = 0;
+
+    private final List<HistogramSnapshot> snapshots = new ArrayList<>();
+
+    /**
+     * @param capacity The maximum number of reports in the batch, and separately of snapshots.
+     */
+    public SQLiteReportBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Batch capacity must be positive, found " + capacity);
+        }
+        stepIndices = new int[capacity];
+        runnerIds = new int[capacity];
+        iterationIndices = new int[capacity];
+        startTimestampsInNanos = new long[capacity];
+        intendedStartTimestampsInNanos = new long[capacity];
+        endTimestampsInNanos = new long[capacity];
+        endedNormally = new boolean[capacity];
+    }
+
+    /**
+     * Copies the values of the report to the end of the batch.
+     *
+     * @param report The report to add.
+     * @throws IllegalStateException If the batch is full.
+     */
+    @Override
+    public void add(ActionReport report) {
+        if (reportCount() == stepIndices.length) {
+            throw new IllegalStateException("Batch is full");
+        }
+        stepIndices[size] = report.getStepIndex();
+        runnerIds[size] = report.getRunnerId();
+        iterationIndices[size] = report.getIterationIndex();
+        startTimestampsInNanos[size] = report.getStartTimestampInNanos();
+        intendedStartTimestampsInNanos[size] = report.getIntendedStartTimestampInNanos();
+        endTimestampsInNanos[size] = report.getEndTimestampInNanos();
+        endedNormally[size] = report.isEndedNormally();
+        size++;
+    }
+
+    /**
+     * @param snapshot The snapshot to add.
+     * @throws IllegalStateException If the batch is full.
+     */
+    @Override
+    public void add(HistogramSnapshot snapshot) {
+        if (snapshots.size() == stepIndices.length) {
+            throw new IllegalStateException("Batch is full");
+        }
+        snapshots.add(snapshot);
+    }
+
+    @Override
+    public int capacity() {
+        return stepIndices.length;
+    }
+
+    @Override
+    public int size() {
+        return size + snapshots.size();
+    }
+
+    /**
+     * @return Whether either the reports or the snapshots have reached the capacity of the batch.
+     */
+    @Override
+    public boolean isFull() {
+        return size == stepIndices.length || snapshots.size() == stepIndices.length;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        snapshots.clear();
+    }
+
+    int reportCount() {
+        return size;
+    }
+
+    List<HistogramSnapshot> snapshots() {
+        return snapshots;
+    }
+
+    int stepIndexAt(int index) {
+        return stepIndices[index];
+    }
+
+    int runnerIdAt(int index) {
+        return runnerIds[index];
+    }
+
+    int iterationIndexAt(int index) {
+        return iterationIndices[index];
+    }
+
+    long startTimestampInNanosAt(int index) {
+        return startTimestampsInNanos[index];
+    }
+
+    long intendedStartTimestampInNanosAt(int index) {
+        return intendedStartTimestampsInNanos[index];
+    }
+
+    long endTimestampInNanosAt(int index) {
+        return endTimestampsInNanos[index];
+    }
+
+    boolean endedNormallyAt(int index) {
+        return endedNormally[index];
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2023 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.plugin.datasink.sqlite.data;
+
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Writes the reports of a simulation to the report database over a single JDBC connection.
+ * <br>
+ * The reports are inserted with prepared statements that insert many rows at once, and every batch is written
+ * in a single transaction. The connection puts the database in WAL journal mode and doesn't wait for the writes
+ * to reach the disk during the simulation, which is only done once the writer is closed.
+ * The rows are keyed by the integer rowid of SQLite, so no keys are generated for the reports. The histograms of
+ * the network phases of a snapshot are written to their own table, one row per phase, and are joined with the
+ * snapshot on the step, runner and start of the interval.
+ * <br>
+ * A writer is not thread safe.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public class SQLiteReportWriter implements AutoCloseable {
+
+    /**
+     * Number of rows inserted by one statement. The statement has 8 parameters for every row, which keeps
+     * the number of parameters below 999, the lowest limit of parameters SQLite can be compiled with.
+     */
+    static final int ROWS_PER_STATEMENT = 64;
+
+    private static final String ACTION_REPORT_INSERT = "INSERT INTO action_report (simulation_id, step_index, "
+            + "runner_id, iteration_index, start_timestamp_in_nanos, intended_start_timestamp_in_nanos, "
+            + "end_timestamp_in_nanos, ended_normally) VALUES ";
+
+    private static final String ACTION_REPORT_ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String HISTOGRAM_SNAPSHOT_INSERT = "INSERT INTO histogram_snapshot (simulation_id, "
+            + "step_index, runner_id, interval_start_timestamp_in_nanos, interval_length_in_nanos, count, "
+            + "error_count, bytes_received, latency, corrected_latency) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String HISTOGRAM_SNAPSHOT_PHASE_INSERT = "INSERT INTO histogram_snapshot_phase "
+            + "(simulation_id, step_index, runner_id, interval_start_timestamp_in_nanos, phase, latency) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final String simulationId;
+
+    private final Connection connection;
+
+    private final PreparedStatement multiRowReportStatement;
+
+    private final PreparedStatement singleRowReportStatement;
+
+    private final PreparedStatement snapshotStatement;
+
+    private final PreparedStatement snapshotPhaseStatement;
+
+    private boolean closed = false;
+
+    /**
+     * Opens the connection the writer writes to.
+     *
+     * @param dataSource   The report database.
+     * @param simulationId The ID of the simulation whose reports are written.
+     * @throws SQLException If the connection can't be opened or configured.
+     */
+    public SQLiteReportWriter(DataSource dataSource, String simulationId) throws SQLException {
+        this.simulationId = simulationId;
+        this.connection = dataSource.getConnection();
+        try {
+            try (var statement = connection.createStatement()) {
+                // WAL is a property of the database, but synchronous only applies to this connection
+                statement.execute("PRAGMA journal_mode = WAL");
+                statement.execute("PRAGMA synchronous = OFF");
+            }
+            connection.setAutoCommit(false);
+            multiRowReportStatement = connection.prepareStatement(actionReportInsert(ROWS_PER_STATEMENT));
+            singleRowReportStatement = connection.prepareStatement(actionReportInsert(1));
+            snapshotStatement = connection.prepareStatement(HISTOGRAM_SNAPSHOT_INSERT);
+            snapshotPhaseStatement = connection.prepareStatement(HISTOGRAM_SNAPSHOT_PHASE_INSERT);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private static String actionReportInsert(int rows) {
+        var values = new StringJoiner(", ", ACTION_REPORT_INSERT, "");
+        for (var row = 0; row < rows; row++) {
+            values.add(ACTION_REPORT_ROW);
+        }
+        return values.toString();
+    }
+
+    /**
+     * Inserts the reports and snapshots of the batch in one transaction. The batch is not cleared.
+     *
+     * @param batch The reports and snapshots to insert.
+     * @throws SQLException If the batch can't be inserted, in which case none of it is.
+     */
+    public void write(SQLiteReportBatch batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            insertReports(batch);
+            insertSnapshots(batch.snapshots());
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+    }
+
+    private void insertReports(SQLiteReportBatch batch) throws SQLException {
+        var index = 0;
+        for (; index + ROWS_PER_STATEMENT <= batch.reportCount(); index += ROWS_PER_STATEMENT) {
+            for (var row = 0; row < ROWS_PER_STATEMENT; row++) {
+                bindReport(multiRowReportStatement, row * 8, batch, index + row);
+            }
+            multiRowReportStatement.executeUpdate();
+        }
+        for (; index < batch.reportCount(); index++) {
+            bindReport(singleRowReportStatement, 0, batch, index);
+            singleRowReportStatement.executeUpdate();
+        }
+    }
+
+    private void bindReport(PreparedStatement statement, int offset, SQLiteReportBatch batch, int index)
+            throws SQLException {
+        statement.setString(offset + 1, simulationId);
+        statement.setInt(offset + 2, batch.stepIndexAt(index));
+        statement.setInt(offset + 3, batch.runnerIdAt(index));
+        statement.setInt(offset + 4, batch.iterationIndexAt(index));
+        statement.setLong(offset + 5, batch.startTimestampInNanosAt(index));
+        statement.setLong(offset + 6, batch.intendedStartTimestampInNanosAt(index));
+        statement.setLong(offset + 7, batch.endTimestampInNanosAt(index));
+        statement.setBoolean(offset + 8, batch.endedNormallyAt(index));
+    }
+
+    private void insertSnapshots(List<HistogramSnapshot> snapshots) throws SQLException {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        var hasPhases = false;
+        for (var snapshot : snapshots) {
+            snapshotStatement.setString(1, simulationId);
+            snapshotStatement.setInt(2, snapshot.getStepIndex());
+            snapshotStatement.setInt(3, snapshot.getRunnerId());
+            snapshotStatement.setLong(4, snapshot.getIntervalStartTimestampInNanos());
+            snapshotStatement.setLong(5, snapshot.getIntervalLengthInNanos());
+            snapshotStatement.setLong(6, snapshot.getCount());
+            snapshotStatement.setLong(7, snapshot.getErrorCount());
+            snapshotStatement.setLong(8, snapshot.getBytesReceived());
+            snapshotStatement.setBytes(9, snapshot.getLatency().encode());
+            snapshotStatement.setBytes(10, snapshot.getCorrectedLatency().encode());
+            snapshotStatement.addBatch();
+            hasPhases |= addPhases(snapshot);
+        }
+        snapshotStatement.executeBatch();
+        if (hasPhases) {
+            snapshotPhaseStatement.executeBatch();
+        }
+    }
+
+    private boolean addPhases(HistogramSnapshot snapshot) throws SQLException {
+        if (snapshot.getPhaseLatencies() == null || snapshot.getPhaseLatencies().isEmpty()) {
+            return false;
+        }
+        for (var phase : snapshot.getPhaseLatencies().entrySet()) {
+            snapshotPhaseStatement.setString(1, simulationId);
+            snapshotPhaseStatement.setInt(2, snapshot.getStepIndex());
+            snapshotPhaseStatement.setInt(3, snapshot.getRunnerId());
+            snapshotPhaseStatement.setLong(4, snapshot.getIntervalStartTimestampInNanos());
+            snapshotPhaseStatement.setString(5, phase.getKey());
+            snapshotPhaseStatement.setBytes(6, phase.getValue().encode());
+            snapshotPhaseStatement.addBatch();
+        }
+        return true;
+    }
+
+    /**
+     * Makes the written reports durable, moves them from the WAL into the database file and closes the connection.
+     *
+     * @throws SQLException If the connection fails to close.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            connection.commit();
+            connection.setAutoCommit(true);
+            try (var statement = connection.createStatement()) {
+                statement.execute("PRAGMA synchronous = FULL");
+                statement.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+        } catch (SQLException e) {
+            log.warn("Failed to checkpoint the report database", e);
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -40,9 +40,20 @@ public class StepSkeletonEntity implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The step ID qualified by the simulation ID, since the step IDs are only unique within a simulation.
+     */
     @Id
+    private String id;
+
+    @Column(nullable = false)
+    @NotNull
     private String stepId;
 
+    @Column(nullable = false)
+    @NotNull
+    private Integer stepIndex;
+
     @Column(nullable = false)
     @NotNull
     private String stepName;
@@ -17,20 +17,51 @@
 
 CREATE TABLE action_metadata
 (
+    id             varchar(255) not null,
     step_id        varchar(255) not null,
+    step_index     integer      not null,
     parent_step_id varchar(255),
     simulation_id  varchar(255) not null,
     step_name      varchar(255) not null,
-    primary key (step_id)
+    primary key (id)
 );
 CREATE TABLE action_report
 (
-    id                        varchar(255) not null,
-    end_timestamp_in_millis   bigint       not null,
-    ended_normally            boolean      not null,
-    iteration_index           integer      not null,
-    start_timestamp_in_millis bigint       not null,
-    step_id                   varchar(255) not null,
+    id                                integer      not null,
+    end_timestamp_in_nanos            bigint       not null,
+    ended_normally                    boolean      not null,
+    iteration_index                   integer      not null,
+    start_timestamp_in_nanos          bigint       not null,
+    intended_start_timestamp_in_nanos bigint       not null,
+    simulation_id                     varchar(255) not null,
+    step_index                        integer      not null,
+    runner_id                         integer      not null,
+    primary key (id)
+);
+CREATE TABLE histogram_snapshot
+(
+    id                                integer      not null,
+    simulation_id                     varchar(255) not null,
+    step_index                        integer      not null,
+    runner_id                         integer      not null,
+    interval_start_timestamp_in_nanos bigint       not null,
+    interval_length_in_nanos          bigint       not null,
+    count                             bigint       not null,
+    error_count                       bigint       not null,
+    bytes_received                    bigint       not null,
+    latency                           blob         not null,
+    corrected_latency                 blob         not null,
+    primary key (id)
+);
+CREATE TABLE histogram_snapshot_phase
+(
+    id                                integer      not null,
+    simulation_id                     varchar(255) not null,
+    step_index                        integer      not null,
+    runner_id                         integer      not null,
+    interval_start_timestamp_in_nanos bigint       not null,
+    phase                             varchar(255) not null,
+    latency                           blob         not null,
     primary key (id)
 );
 CREATE TABLE simulation_metadata
@@ -17,8 +17,13 @@
 package org.goodload.goodload.reporting.config;
 
 import lombok.Data;
+import org.goodload.goodload.reporting.datasink.BackpressurePolicy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
  * @since 1.0
@@ -28,4 +33,34 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class ReportingConfigurationProperties {
 
     public static final String PREFIX = "goodload.reporting";
+
+    /**
+     * How the reports are fanned out when there's more than one sink,
+     * see {@link org.goodload.goodload.reporting.datasink.CompositeSink}.
+     */
+    private FanOutProperties fanOut = new FanOutProperties();
+
+    @Data
+    public static class FanOutProperties {
+        /**
+         * Number of reports buffered for a sink in each of the two batches of its writer.
+         */
+        private int batchSize = 4096;
+
+        /**
+         * Maximum time for which a report is buffered before it is delivered to a sink.
+         */
+        private Duration flushInterval = Duration.ofMillis(100);
+
+        /**
+         * What to do with the reports while a sink can't keep up, for the sinks not in backpressure-policies.
+         * Anything but block prevents a slow sink from holding back the others.
+         */
+        private BackpressurePolicy backpressurePolicy = BackpressurePolicy.SPILL;
+
+        /**
+         * The backpressure policy of a sink, by the name of its bean.
+         */
+        private Map<String, BackpressurePolicy> backpressurePolicies = new HashMap<>();
+    }
 }
@@ -36,7 +36,7 @@ public class ActionReport extends Report {
      */
     private int iterationIndex;
 
-    public ActionReport(String actionId) {
-        super(actionId);
+    public ActionReport(int stepIndex) {
+        super(stepIndex);
     }
 }
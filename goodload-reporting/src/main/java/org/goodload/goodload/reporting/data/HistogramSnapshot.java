@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.data;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.goodload.goodload.reporting.histogram.LatencyHistogram;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * The times taken by all the executions of a step by a runner that ended within an interval, e.g. a second.
+ * <br>
+ * Snapshots are mergeable: the snapshots of the same step and interval from different runners can be added
+ * together to get the distribution for the whole simulation.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+public class HistogramSnapshot implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Index of the step this snapshot belongs to. See {@link StepSkeletonData#getStepIndex()}.
+     */
+    private int stepIndex;
+
+    /**
+     * Id of the simulation runner that recorded the snapshot.
+     */
+    private int runnerId;
+
+    /**
+     * Start of the interval, in nanoseconds since the epoch.
+     */
+    private long intervalStartTimestampInNanos;
+
+    /**
+     * Length of the interval in nanoseconds.
+     */
+    private long intervalLengthInNanos;
+
+    /**
+     * When the first of the executions in the snapshot started, in nanoseconds since the epoch.
+     */
+    private long firstStartTimestampInNanos;
+
+    /**
+     * When the last of the executions in the snapshot ended, in nanoseconds since the epoch.
+     */
+    private long lastEndTimestampInNanos;
+
+    /**
+     * Number of executions of the step that failed.
+     */
+    private long errorCount;
+
+    /**
+     * Number of bytes received by the network requests of the executions, including the headers.
+     */
+    private long bytesReceived;
+
+    /**
+     * Histogram of the times taken by the step in nanoseconds, measured from the actual start.
+     */
+    private LatencyHistogram latency;
+
+    /**
+     * Histogram of the times taken by the step in nanoseconds, measured from the intended start.
+     * See {@link Report#getIntendedStartTimestampInNanos()}.
+     */
+    private LatencyHistogram correctedLatency;
+
+    /**
+     * Histograms of the time spent by the step in the phases of its network requests, in nanoseconds, keyed by the
+     * name of the phase, e.g. "time-to-first-byte". Only the phases which the step went through are included, and
+     * the map is null if there are none.
+     */
+    private Map<String, LatencyHistogram> phaseLatencies;
+
+    /**
+     * @return Number of executions of the step.
+     */
+    public long getCount() {
+        return latency == null ? 0 : latency.getTotalCount();
+    }
+}
@@ -37,23 +37,40 @@ public abstract class Report implements Serializable {
     private static final long serialVersionUID = 1L;
 
     /**
-     * ID of the step this report belongs to.
+     * Index of the step this report belongs to. See {@link StepSkeletonData#getStepIndex()}.
      */
-    private String stepId;
+    private int stepIndex;
     /**
-     * Name of the step this report belongs to.
+     * Name of the step this report belongs to. It is not set by the runners, the name can be resolved
+     * from the {@link SimulationTree} using the step index.
      */
     private String stepName;
 
     /**
-     * When the execution started for the step/action/scenario this report belongs to.
+     * When the execution started for the step/action/scenario this report belongs to,
+     * in nanoseconds since the epoch.
+     * <br>
+     * The timestamps of a run are measured with a monotonic clock anchored to the wall clock once
+     * at the start of the run, so the difference between two timestamps is an accurate duration.
      */
-    private long startTimestampInMillis;
+    private long startTimestampInNanos;
 
     /**
-     * When the execution started for the step/action/scenario this report belongs to
+     * When the execution of the step/action/scenario this report belongs to should have started according to
+     * the load profile of the simulation. If the runner fell behind the schedule, e.g. because previous iterations
+     * took longer than expected, then this is earlier than {@link #startTimestampInNanos} and the difference
+     * is the time the user would have spent waiting. It is in nanoseconds since the epoch.
+     * <br>
+     * Only the iteration and the steps that start it are delayed by the schedule, for the rest of the steps
+     * of an iteration this is same as {@link #startTimestampInNanos}. It is 0 if the schedule is not known.
      */
-    private long endTimestampInMillis;
+    private long intendedStartTimestampInNanos;
+
+    /**
+     * When the execution ended for the step/action/scenario this report belongs to,
+     * in nanoseconds since the epoch.
+     */
+    private long endTimestampInNanos;
 
     /**
      * If false, then the execution of the step failed due to some error.
@@ -64,18 +81,32 @@ public abstract class Report implements Serializable {
     /**
      * Id of the simulation runner.
      */
-    private String runnerId;
+    private int runnerId;
 
-    public long getTotalTimeInMillis() {
-        return endTimestampInMillis - startTimestampInMillis;
+    /**
+     * @return The time taken by the step in nanoseconds.
+     */
+    public long getTotalTimeInNanos() {
+        return endTimestampInNanos - startTimestampInNanos;
+    }
+
+    /**
+     * @return The time taken by the step including the time it was delayed for by the schedule falling behind,
+     * i.e. the latency corrected for coordinated omission, in nanoseconds.
+     */
+    public long getCorrectedTotalTimeInNanos() {
+        if (intendedStartTimestampInNanos <= 0 || intendedStartTimestampInNanos > startTimestampInNanos) {
+            return getTotalTimeInNanos();
+        }
+        return endTimestampInNanos - intendedStartTimestampInNanos;
     }
 
-    protected Report(String stepId) {
-        this.stepId = stepId;
+    protected Report(int stepIndex) {
+        this.stepIndex = stepIndex;
     }
 
-    protected Report(String stepId, String stepName) {
-        this.stepId = stepId;
+    protected Report(int stepIndex, String stepName) {
+        this.stepIndex = stepIndex;
         this.stepName = stepName;
     }
 }
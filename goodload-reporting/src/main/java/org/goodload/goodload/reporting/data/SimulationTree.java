@@ -40,4 +40,10 @@ public class SimulationTree implements Serializable {
     private String simulationName;
 
     private List<StepSkeletonData> steps;
+
+    /**
+     * The fraction of the iterations whose raw reports are delivered to the sinks, see raw-report-sampling-rate.
+     * The snapshots are delivered for all of them.
+     */
+    private double rawReportSamplingRate = 1;
 }
@@ -36,8 +36,20 @@ public class StepSkeletonData implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Identifies the step by its position in the simulation, which is the same in every run of the simulation
+     * as long as its structure doesn't change. It is the index of the scenario followed by the position of the
+     * step in every enclosing group, separated by dots. For example {@code 0.2.1} is the second step of the
+     * group that is the third step of the first scenario.
+     */
     private String stepId;
 
+    /**
+     * Index of the step in the simulation, used to identify the step in the reports. The steps are indexed in
+     * pre-order, i.e. a group comes before its steps, and the scenarios are indexed one after another.
+     */
+    private int stepIndex;
+
     private String stepName;
 
     private List<StepSkeletonData> subSteps;
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.datasink;
+
+/**
+ * What a {@link BufferedReportWriter} does with the reports it receives while the sink can't keep up,
+ * i.e. while one batch is full and the other one is still being written.
+ * <br>
+ * Only {@link #BLOCK} slows the simulation down, since the runners wait once the reports stop being delivered.
+ * The other policies keep the load as configured at the cost of the completeness of the reports written by
+ * the sink, and the number of reports affected is included in the results of the simulation.
+ * The histogram snapshots are always handled as with {@link #BLOCK}.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public enum BackpressurePolicy {
+    /**
+     * Wait until the sink has written the other batch. No report is lost, but the delivery of the reports,
+     * and eventually the runners, are slowed down to the speed of the sink.
+     */
+    BLOCK,
+
+    /**
+     * Discard the report if the batch is full.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Keep only one in N reports, where N grows as the batch fills up: every report is kept while the batch is
+     * less than half full, one in 2 until it is three quarters full, one in 4 until seven eighths full and so on.
+     * The reports that arrive once the batch is full are discarded.
+     */
+    SAMPLE,
+
+    /**
+     * Write the reports that don't fit in the batch to a file on the disk, from which they are written to the
+     * sink once it has caught up. No report is lost as long as there's space on the disk.
+     */
+    SPILL
+}
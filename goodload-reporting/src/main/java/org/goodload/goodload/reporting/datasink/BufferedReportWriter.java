@@ -0,0 +1,484 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.datasink;
+
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Writes the reports delivered to a sink on a dedicated thread, so that the thread delivering the reports
+ * doesn't wait for the I/O of the sink.
+ * <br>
+ * The writer has two batches. The reports are added to one of them while the other one is written, and
+ * the batches are swapped once the batch being filled is full, or once it has been filling for the flush
+ * interval, so that the reports are written in time even when they are generated slowly. What happens to the
+ * reports that arrive while the other batch is still being written depends on the {@link BackpressurePolicy}.
+ *
+ * @param <B> The type of the batches.
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public class BufferedReportWriter<B extends ReportBatch> implements AutoCloseable {
+
+    /**
+     * Writes a batch of reports to the sink.
+     *
+     * @param <B> The type of the batches.
+     */
+    @FunctionalInterface
+    public interface BatchWriter<B> {
+        /**
+         * Writes the reports in the batch. The batch is cleared by the caller once this method returns.
+         *
+         * @param batch The batch to write.
+         * @throws Exception If the batch couldn't be written.
+         */
+        void write(B batch) throws Exception;
+    }
+
+    private final String name;
+
+    private final BatchWriter<B> batchWriter;
+
+    private final long flushIntervalNanos;
+
+    private final BackpressurePolicy backpressurePolicy;
+
+    private final Thread writerThread;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a batch has to be written.
+     */
+    private final Condition batchPending = lock.newCondition();
+
+    /**
+     * Signalled when a batch has been written.
+     */
+    private final Condition batchWritten = lock.newCondition();
+
+    // The fields below are guarded by the lock.
+
+    private B filling;
+
+    /**
+     * The other batch, when it is neither waiting to be written nor being written.
+     */
+    private B spare;
+
+    /**
+     * The batch waiting to be written.
+     */
+    private B pending;
+
+    private long fillingSinceNanos;
+
+    private long pendingSinceNanos;
+
+    private int writingSize = 0;
+
+    private long writingSinceNanos;
+
+    private boolean closed = false;
+
+    private long writtenCount = 0;
+
+    private long failedCount = 0;
+
+    private long droppedCount = 0;
+
+    private long sampledOutCount = 0;
+
+    private long sampleSequence = 0;
+
+    private long spilledCount = 0;
+
+    /**
+     * Created when the first report is spilled. It is appended to with the lock held, but read without it.
+     */
+    private volatile ReportSpillFile spillFile;
+
+    /**
+     * Starts the writer thread.
+     *
+     * @param name               Name of the writer, used to name its thread.
+     * @param batchFactory       Creates the two batches.
+     * @param batchWriter        Writes the batches to the sink.
+     * @param flushInterval      Maximum time for which a report waits before its batch is written.
+     * @param backpressurePolicy What to do with the reports while the sink can't keep up.
+     */
+    public BufferedReportWriter(String name, Supplier<B> batchFactory, BatchWriter<B> batchWriter,
+                                Duration flushInterval, BackpressurePolicy backpressurePolicy) {
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Flush interval must be positive, found " + flushInterval);
+        }
+        this.name = name;
+        this.batchWriter = batchWriter;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.backpressurePolicy = backpressurePolicy;
+        this.filling = batchFactory.get();
+        this.spare = batchFactory.get();
+        writerThread = new Thread(this::writeBatches, "goodload-sink-writer-" + name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Adds the report to the batch being filled, unless the {@link BackpressurePolicy} discards or spills it.
+     *
+     * @param report The report. It is copied by the batch.
+     * @throws IllegalStateException If the writer is closed.
+     */
+    public void add(ActionReport report) {
+        lock.lock();
+        try {
+            checkOpen();
+            if (filling.isFull() && spare != null) {
+                swap();
+            }
+            if (spare == null && !admitWhileWriting(report)) {
+                return;
+            }
+            if (awaitRoom()) {
+                filling.add(report);
+                afterAdd();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the snapshot to the batch being filled. Snapshots are never discarded, so this waits for the other
+     * batch to be written if the batch being filled is full.
+     *
+     * @param snapshot The snapshot.
+     * @throws IllegalStateException If the writer is closed.
+     */
+    public void add(HistogramSnapshot snapshot) {
+        lock.lock();
+        try {
+            checkOpen();
+            if (awaitRoom()) {
+                filling.add(snapshot);
+                afterAdd();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Can't add reports to a closed writer");
+        }
+    }
+
+    /**
+     * Applies the backpressure policy to a report that arrives while the other batch is being written.
+     *
+     * @return Whether the report should be added to the batch being filled.
+     */
+    private boolean admitWhileWriting(ActionReport report) {
+        switch (backpressurePolicy) {
+            case DROP_NEWEST -> {
+                if (filling.isFull()) {
+                    droppedCount++;
+                    return false;
+                }
+            }
+            case SAMPLE -> {
+                int remaining = filling.capacity() - filling.size();
+                if (remaining <= 0) {
+                    droppedCount++;
+                    return false;
+                }
+                // Keep one in N reports, where N doubles every time the remaining space of the batch halves
+                long keepOneIn = Integer.highestOneBit(filling.capacity() / remaining);
+                if (sampleSequence++ % keepOneIn != 0) {
+                    sampledOutCount++;
+                    return false;
+                }
+            }
+            case SPILL -> {
+                if (filling.isFull()) {
+                    spill(report);
+                    return false;
+                }
+            }
+            default -> {
+                // BLOCK waits for room in the batch
+            }
+        }
+        return true;
+    }
+
+    private void spill(ActionReport report) {
+        try {
+            if (spillFile == null) {
+                spillFile = ReportSpillFile.create(name);
+                log.warn("Sink writer {} can't keep up, spilling reports to the disk", name);
+            }
+            spillFile.append(report);
+            spilledCount++;
+        } catch (IOException e) {
+            if (droppedCount++ == 0) {
+                log.error(String.format("Sink writer %s failed to spill, discarding reports", name), e);
+            }
+        }
+    }
+
+    /**
+     * Makes room in the batch being filled, waiting for the other batch to be written if both are full.
+     *
+     * @return {@code false} if the thread was interrupted while waiting, in which case nothing must be added.
+     */
+    private boolean awaitRoom() {
+        while (filling.isFull()) {
+            if (spare != null) {
+                swap();
+            } else {
+                try {
+                    batchWritten.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Interrupted while waiting for the sink to write, discarding a report");
+                    droppedCount++;
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void afterAdd() {
+        if (filling.size() == 1) {
+            fillingSinceNanos = System.nanoTime();
+        }
+        // Hand the batch over as soon as it is full if the writer is idle, so that the next report doesn't wait
+        if (filling.isFull() && spare != null) {
+            swap();
+        }
+    }
+
+    private void swap() {
+        pending = filling;
+        pendingSinceNanos = fillingSinceNanos;
+        filling = spare;
+        spare = null;
+        batchPending.signal();
+    }
+
+    private void writeBatches() {
+        var spilledReport = new ActionReport();
+        while (true) {
+            B batch;
+            lock.lock();
+            try {
+                batch = awaitBatch();
+                if (batch == null) {
+                    return;
+                }
+                pending = null;
+                writingSize = batch.size();
+                writingSinceNanos = pendingSinceNanos;
+            } finally {
+                lock.unlock();
+            }
+
+            write(batch);
+
+            while (true) {
+                // Reports are only spilled while there's no spare batch, so none can be left behind once the
+                // spill file is found empty while holding the lock
+                writeSpilledReports(batch, spilledReport);
+                lock.lock();
+                try {
+                    if (spillFile == null || spillFile.isEmpty()) {
+                        spare = batch;
+                        batchWritten.signalAll();
+                        break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void write(B batch) {
+        var written = true;
+        try {
+            batchWriter.write(batch);
+        } catch (Exception e) {
+            written = false;
+            log.error(String.format("Failed to write a batch of %d reports", batch.size()), e);
+        }
+
+        lock.lock();
+        try {
+            if (written) {
+                writtenCount += batch.size();
+            } else {
+                failedCount += batch.size();
+            }
+            batch.clear();
+            writingSize = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeSpilledReports(B batch, ActionReport spilledReport) {
+        var file = spillFile;
+        if (file == null) {
+            return;
+        }
+        try {
+            while (!file.isEmpty()) {
+                while (!file.isEmpty() && !batch.isFull()) {
+                    file.readInto(batch, spilledReport);
+                }
+                lock.lock();
+                try {
+                    writingSize = batch.size();
+                    writingSinceNanos = System.nanoTime();
+                } finally {
+                    lock.unlock();
+                }
+                write(batch);
+            }
+        } catch (IOException e) {
+            log.error(String.format("Sink writer %s failed to read the spilled reports", name), e);
+            lock.lock();
+            try {
+                failedCount += batch.size() + file.size();
+                batch.clear();
+                spillFile = null;
+            } finally {
+                lock.unlock();
+            }
+            closeSpillFile(file);
+        }
+    }
+
+    /**
+     * Waits until there's a batch to write, swapping the batch being filled once the flush interval has passed.
+     *
+     * @return The batch to write, or {@code null} if the writer is closed and everything has been written.
+     */
+    private B awaitBatch() {
+        while (pending == null) {
+            if (!filling.isEmpty()) {
+                long remainingNanos = fillingSinceNanos + flushIntervalNanos - System.nanoTime();
+                if (remainingNanos <= 0 || closed) {
+                    swap();
+                    break;
+                }
+                awaitNanos(remainingNanos);
+            } else if (closed) {
+                return null;
+            } else {
+                awaitNanos(flushIntervalNanos);
+            }
+        }
+        return pending;
+    }
+
+    private void awaitNanos(long nanos) {
+        try {
+            batchPending.awaitNanos(nanos);
+        } catch (InterruptedException e) {
+            // The writer thread is only stopped by closing the writer, once everything has been written
+            log.debug("Ignoring interrupt of {}", writerThread.getName());
+        }
+    }
+
+    /**
+     * @return The current metrics of the writer.
+     */
+    public SinkWriterMetrics getMetrics() {
+        lock.lock();
+        try {
+            var metrics = new SinkWriterMetrics();
+            long queueDepth = filling.size() + writingSize;
+            long oldestSinceNanos = filling.isEmpty() ? Long.MAX_VALUE : fillingSinceNanos;
+            if (pending != null) {
+                queueDepth += pending.size();
+                oldestSinceNanos = pendingSinceNanos;
+            }
+            if (writingSize > 0) {
+                oldestSinceNanos = writingSinceNanos;
+            }
+            var file = spillFile;
+            if (file != null) {
+                queueDepth += file.size();
+            }
+            metrics.setQueueDepth(queueDepth);
+            metrics.setLagInNanos(queueDepth == 0 || oldestSinceNanos == Long.MAX_VALUE
+                    ? 0
+                    : Math.max(0, System.nanoTime() - oldestSinceNanos));
+            metrics.setWrittenCount(writtenCount);
+            metrics.setFailedCount(failedCount);
+            metrics.setDroppedCount(droppedCount);
+            metrics.setSampledOutCount(sampledOutCount);
+            metrics.setSpilledCount(spilledCount);
+            return metrics;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the remaining reports, including the spilled ones, and stops the writer thread.
+     *
+     * @throws InterruptedException If interrupted while waiting for the remaining reports to be written.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            batchPending.signal();
+        } finally {
+            lock.unlock();
+        }
+        writerThread.join();
+        var file = spillFile;
+        if (file != null) {
+            closeSpillFile(file);
+        }
+        log.debug("Sink writer {} closed: {}", writerThread.getName(), getMetrics());
+    }
+
+    private void closeSpillFile(ReportSpillFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            log.warn(String.format("Failed to delete the spill file of sink writer %s", name), e);
+        }
+    }
+}
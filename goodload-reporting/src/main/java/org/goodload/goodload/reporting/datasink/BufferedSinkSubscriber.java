@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.datasink;
+
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+
+import java.time.Duration;
+import java.util.concurrent.Flow;
+
+/**
+ * Delivers the reports to a subscriber which does I/O, e.g. an exporter, through a {@link BufferedReportWriter},
+ * so that the thread draining the report pipeline doesn't wait for the I/O, and the runners don't wait for
+ * the pipeline, like the sinks do.
+ * <br>
+ * The reports are copied into the batches of the writer and delivered to the subscriber on the thread of the
+ * writer, in order. The subscriber is completed once all the reports have been delivered to it, so the pipeline
+ * completing this subscriber guarantees that the wrapped one has received everything.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public class BufferedSinkSubscriber implements SinkSubscriber {
+
+    private final SinkSubscriber subscriber;
+
+    private final BufferedReportWriter<ReportCopyBatch> writer;
+
+    private volatile boolean failed = false;
+
+    /**
+     * @param name               Name of the subscriber, used to name the thread delivering its reports.
+     * @param subscriber         The subscriber to deliver the reports to.
+     * @param batchSize          Number of reports buffered in each of the two batches of the writer.
+     * @param flushInterval      Maximum time for which a report is buffered before it is delivered.
+     * @param backpressurePolicy What to do with the reports while the subscriber can't keep up.
+     */
+    public BufferedSinkSubscriber(String name, SinkSubscriber subscriber, int batchSize, Duration flushInterval,
+                                  BackpressurePolicy backpressurePolicy) {
+        this.subscriber = subscriber;
+        writer = new BufferedReportWriter<>(
+                name,
+                () -> new ReportCopyBatch(batchSize),
+                this::deliver,
+                flushInterval,
+                backpressurePolicy);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+        // The subscriber receives everything that is buffered, hence its demand is not passed on
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                // Unbounded already
+            }
+
+            @Override
+            public void cancel() {
+                subscription.cancel();
+            }
+        });
+    }
+
+    @Override
+    public void onNext(ActionReport item) {
+        writer.add(item);
+    }
+
+    @Override
+    public void onHistogramSnapshot(HistogramSnapshot snapshot) {
+        writer.add(snapshot);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        subscriber.onError(throwable);
+    }
+
+    /**
+     * Delivers the buffered reports, then completes the subscriber.
+     */
+    @Override
+    public void onComplete() {
+        try {
+            writer.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while delivering the buffered reports, some of them will be missing");
+        }
+        if (!failed) {
+            subscriber.onComplete();
+        }
+    }
+
+    @Override
+    public SinkWriterMetrics getWriterMetrics() {
+        return writer.getMetrics();
+    }
+
+    /**
+     * Stops delivering the reports and closes the subscriber.
+     */
+    @Override
+    public void close() throws Exception {
+        writer.close();
+        subscriber.close();
+    }
+
+    private void deliver(ReportCopyBatch batch) {
+        if (failed) {
+            return;
+        }
+        try {
+            for (var index = 0; index < batch.reportCount(); index++) {
+                subscriber.onNext(batch.report(index));
+            }
+            for (var snapshot : batch.snapshots()) {
+                subscriber.onHistogramSnapshot(snapshot);
+            }
+        } catch (RuntimeException e) {
+            // Like the pipeline, nothing more is delivered to a subscriber that has failed
+            failed = true;
+            subscriber.onError(e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.datasink;
+
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.data.SimulationTree;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fans the reports out to several sinks, so that e.g. the raw reports can be persisted while they are
+ * also watched live.
+ * <br>
+ * Every member sink has its own {@link BufferedReportWriter}, with its own thread, batches and
+ * {@link BackpressurePolicy}, which delivers the reports to the subscriber of the sink. A slow sink can hold
+ * back the others only if its policy is {@link BackpressurePolicy#BLOCK}.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public class CompositeSink extends Sink {
+
+    /**
+     * How long a member writer parks for while its sink has no demand.
+     */
+    private static final long NO_DEMAND_PARK_NANOS = 50_000;
+
+    /**
+     * A sink of the composite.
+     *
+     * @param name               Name of the sink, used to name the thread delivering its reports.
+     * @param sink               The sink.
+     * @param backpressurePolicy What to do with the reports while the sink can't keep up.
+     */
+    public record Member(String name, Sink sink, BackpressurePolicy backpressurePolicy) {
+    }
+
+    private final List<Member> members;
+
+    private final int batchSize;
+
+    private final Duration flushInterval;
+
+    /**
+     * @param members       The sinks to fan the reports out to.
+     * @param batchSize     Number of reports buffered for a sink in each of the two batches of its writer.
+     * @param flushInterval Maximum time for which a report is buffered before it is delivered to a sink.
+     */
+    public CompositeSink(List<Member> members, int batchSize, Duration flushInterval) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A composite sink needs at least one sink");
+        }
+        this.members = List.copyOf(members);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+    }
+
+    @Override
+    public void registerSimulationSkeletonData(SimulationTree simulationTree) {
+        for (var member : members) {
+            member.sink().registerSimulationSkeletonData(simulationTree);
+        }
+    }
+
+    @Override
+    protected SinkSubscriber createSubscriber() {
+        var channels = new ArrayList<MemberChannel>(members.size());
+        for (var member : members) {
+            var channel = new MemberChannel(member, batchSize, flushInterval);
+            member.sink().registerPublisher(channel);
+            channels.add(channel);
+        }
+        return new CompositeSinkSubscriber(channels);
+    }
+
+    /**
+     * Receives the reports from the publisher and adds them to the writer of every member.
+     */
+    private static final class CompositeSinkSubscriber implements SinkSubscriber {
+
+        private final List<MemberChannel> channels;
+
+        private Flow.Subscription subscription;
+
+        private CompositeSinkSubscriber(List<MemberChannel> channels) {
+            this.channels = channels;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ActionReport item) {
+            for (var channel : channels) {
+                channel.writer.add(item);
+            }
+        }
+
+        @Override
+        public void onHistogramSnapshot(HistogramSnapshot snapshot) {
+            for (var channel : channels) {
+                channel.writer.add(snapshot);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.error("Composite sink subscriber failed with error: ", throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            log.debug("Composite sink subscriber completed");
+        }
+
+        /**
+         * @return The metrics of the writers of all the members combined. The number of written reports
+         * is the number written by the member sinks themselves if they buffer their reports.
+         */
+        @Override
+        public SinkWriterMetrics getWriterMetrics() {
+            var combined = new SinkWriterMetrics();
+            for (var channel : channels) {
+                var sinkMetrics = channel.member.sink().getWriterMetrics();
+                add(combined, channel.writer.getMetrics(), sinkMetrics == null);
+                if (sinkMetrics != null) {
+                    add(combined, sinkMetrics, true);
+                }
+            }
+            return combined;
+        }
+
+        private static void add(SinkWriterMetrics combined, SinkWriterMetrics metrics, boolean includeWritten) {
+            combined.setQueueDepth(combined.getQueueDepth() + metrics.getQueueDepth());
+            combined.setLagInNanos(Math.max(combined.getLagInNanos(), metrics.getLagInNanos()));
+            if (includeWritten) {
+                combined.setWrittenCount(combined.getWrittenCount() + metrics.getWrittenCount());
+            }
+            combined.setFailedCount(combined.getFailedCount() + metrics.getFailedCount());
+            combined.setDroppedCount(combined.getDroppedCount() + metrics.getDroppedCount());
+            combined.setSampledOutCount(combined.getSampledOutCount() + metrics.getSampledOutCount());
+            combined.setSpilledCount(combined.getSpilledCount() + metrics.getSpilledCount());
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            Exception failure = null;
+            for (var channel : channels) {
+                try {
+                    channel.close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                } catch (Exception e) {
+                    log.error(String.format("Failed to close sink `%s`", channel.member.name()), e);
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Publishes the reports to a member sink, from the thread of its writer.
+     */
+    private static final class MemberChannel implements Flow.Publisher<ActionReport>, Flow.Subscription {
+
+        private final Member member;
+
+        private final BufferedReportWriter<ReportCopyBatch> writer;
+
+        private final AtomicLong demand = new AtomicLong();
+
+        private volatile Flow.Subscriber<? super ActionReport> subscriber;
+
+        private volatile boolean cancelled = false;
+
+        private MemberChannel(Member member, int batchSize, Duration flushInterval) {
+            this.member = member;
+            this.writer = new BufferedReportWriter<>(
+                    member.name(),
+                    () -> new ReportCopyBatch(batchSize),
+                    this::deliver,
+                    flushInterval,
+                    member.backpressurePolicy());
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ActionReport> subscriber) {
+            if (this.subscriber != null) {
+                subscriber.onError(new IllegalStateException("Sink `" + member.name() + "` already subscribed"));
+                return;
+            }
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Demand must be positive, found " + n));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, requested) -> {
+                long sum = current + requested;
+                return sum < 0 ? Long.MAX_VALUE : sum;
+            });
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void deliver(ReportCopyBatch batch) {
+            var target = subscriber;
+            if (target == null || cancelled) {
+                return;
+            }
+            for (var index = 0; index < batch.reportCount(); index++) {
+                while (demand.get() == 0 && !cancelled) {
+                    LockSupport.parkNanos(NO_DEMAND_PARK_NANOS);
+                }
+                if (cancelled) {
+                    return;
+                }
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                target.onNext(batch.report(index));
+            }
+            if (target instanceof SinkSubscriber sinkSubscriber) {
+                for (var snapshot : batch.snapshots()) {
+                    sinkSubscriber.onHistogramSnapshot(snapshot);
+                }
+            }
+        }
+
+        /**
+         * Delivers the remaining reports, completes the subscriber and closes the sink.
+         */
+        private void close() throws Exception {
+            writer.close();
+            var target = subscriber;
+            if (target != null && !cancelled) {
+                target.onComplete();
+            }
+            member.sink().close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.datasink;
+
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+
+/**
+ * A bounded batch of reports that a sink writes at once, see {@link BufferedReportWriter}.
+ * <br>
+ * The reports passed to {@link #add(ActionReport)} are reused once it returns, so a batch must copy
+ * the values it needs.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public interface ReportBatch {
+
+    /**
+     * Adds the report to the batch. Only called when the batch isn't full.
+     */
+    void add(ActionReport report);
+
+    /**
+     * Adds the snapshot to the batch. Only called when the batch isn't full.
+     */
+    void add(HistogramSnapshot snapshot);
+
+    /**
+     * @return The number of reports and snapshots in the batch.
+     */
+    int size();
+
+    /**
+     * @return The number of reports that fit in the batch.
+     */
+    int capacity();
+
+    /**
+     * @return Whether no more reports or snapshots can be added to the batch.
+     */
+    boolean isFull();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Removes all the reports and snapshots from the batch, so that it can be filled again.
+     */
+    void clear();
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.datasink;
+
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of copies of the reports, which are delivered to a subscriber as they are, see
+ * {@link BufferedSinkSubscriber} and {@link CompositeSink}. The copies are reused once the batch is cleared.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class ReportCopyBatch implements ReportBatch {
+
+    private final ActionReport[] reports;
+
+    private final List<HistogramSnapshot> snapshots = new ArrayList<>();
+
+    private int reportCount = 0;
+
+    ReportCopyBatch(int capacity) {
+        reports = new ActionReport[capacity];
+    }
+
+    /**
+     * @return The number of reports in the batch.
+     */
+    int reportCount() {
+        return reportCount;
+    }
+
+    /**
+     * @param index The index of the report, less than {@link #reportCount()}.
+     * @return The copy of the report.
+     */
+    ActionReport report(int index) {
+        return reports[index];
+    }
+
+    /**
+     * @return The snapshots in the batch.
+     */
+    List<HistogramSnapshot> snapshots() {
+        return snapshots;
+    }
+
+    @Override
+    public void add(ActionReport report) {
+        var copy = reports[reportCount];
+        if (copy == null) {
+            copy = new ActionReport();
+            reports[reportCount] = copy;
+        }
+        copy.setStepIndex(report.getStepIndex());
+        copy.setStepName(report.getStepName());
+        copy.setRunnerId(report.getRunnerId());
+        copy.setIterationIndex(report.getIterationIndex());
+        copy.setStartTimestampInNanos(report.getStartTimestampInNanos());
+        copy.setIntendedStartTimestampInNanos(report.getIntendedStartTimestampInNanos());
+        copy.setEndTimestampInNanos(report.getEndTimestampInNanos());
+        copy.setEndedNormally(report.isEndedNormally());
+        reportCount++;
+    }
+
+    @Override
+    public void add(HistogramSnapshot snapshot) {
+        snapshots.add(snapshot);
+    }
+
+    @Override
+    public int capacity() {
+        return reports.length;
+    }
+
+    @Override
+    public int size() {
+        return reportCount + snapshots.size();
+    }
+
+    @Override
+    public boolean isFull() {
+        return reportCount == reports.length || snapshots.size() == reports.length;
+    }
+
+    @Override
+    public void clear() {
+        reportCount = 0;
+        snapshots.clear();
+    }
+}
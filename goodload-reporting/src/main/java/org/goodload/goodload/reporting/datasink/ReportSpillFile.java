@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.datasink;
+
+import org.goodload.goodload.reporting.data.ActionReport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A temporary file to which a {@link BufferedReportWriter} spills the reports that don't fit in its batches,
+ * see {@link BackpressurePolicy#SPILL}. The reports are read back in the order they were written.
+ * <br>
+ * Only the values needed to write a report are kept, the step name isn't.
+ * The file is deleted when it is closed.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+final class ReportSpillFile implements AutoCloseable {
+
+    /**
+     * Step index, runner ID and iteration index, the three timestamps and whether the step ended normally.
+     */
+    private static final int RECORD_SIZE = 3 * Integer.BYTES + 3 * Long.BYTES + 1;
+
+    /**
+     * Number of records buffered in memory before they are written to the file,
+     * and the maximum number of records read at once.
+     */
+    private static final int BUFFERED_RECORDS = 1024;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(RECORD_SIZE * BUFFERED_RECORDS);
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(RECORD_SIZE * BUFFERED_RECORDS);
+
+    private long writePosition = 0;
+
+    private long readPosition = 0;
+
+    /**
+     * Number of records that haven't been read yet.
+     */
+    private long size = 0;
+
+    private ReportSpillFile(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a spill file in the goodload directory of the temporary directory.
+     *
+     * @param name Name of the writer spilling to the file, used as the prefix of the name of the file.
+     * @return The spill file.
+     * @throws IOException If the file couldn't be created.
+     */
+    static ReportSpillFile create(String name) throws IOException {
+        var directory = Path.of(System.getProperty("java.io.tmpdir"), "goodload", "spill");
+        Files.createDirectories(directory);
+        var path = Files.createTempFile(directory, name + "-", ".spill");
+        return new ReportSpillFile(FileChannel.open(
+                path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE));
+    }
+
+    /**
+     * Appends the report to the file.
+     *
+     * @throws IOException If the file couldn't be written.
+     */
+    synchronized void append(ActionReport report) throws IOException {
+        if (writeBuffer.remaining() < RECORD_SIZE) {
+            flushWrites();
+        }
+        writeBuffer.putInt(report.getStepIndex());
+        writeBuffer.putInt(report.getRunnerId());
+        writeBuffer.putInt(report.getIterationIndex());
+        writeBuffer.putLong(report.getStartTimestampInNanos());
+        writeBuffer.putLong(report.getIntendedStartTimestampInNanos());
+        writeBuffer.putLong(report.getEndTimestampInNanos());
+        writeBuffer.put((byte) (report.isEndedNormally() ? 1 : 0));
+        size++;
+    }
+
+    /**
+     * Reads the oldest reports into the batch, until the batch is full, the file is empty or
+     * {@value #BUFFERED_RECORDS} reports have been read.
+     *
+     * @param batch  The batch to add the reports to.
+     * @param report The report to decode the records into, which the batch copies.
+     * @throws IOException If the file couldn't be read.
+     */
+    synchronized void readInto(ReportBatch batch, ActionReport report) throws IOException {
+        flushWrites();
+        readBuffer.clear();
+        readBuffer.limit((int) Math.min(readBuffer.capacity(), writePosition - readPosition));
+        while (readBuffer.hasRemaining()) {
+            if (channel.read(readBuffer, readPosition + readBuffer.position()) < 0) {
+                throw new IOException("Unexpected end of spill file");
+            }
+        }
+        readBuffer.flip();
+
+        while (readBuffer.remaining() >= RECORD_SIZE && !batch.isFull()) {
+            report.setStepIndex(readBuffer.getInt());
+            report.setRunnerId(readBuffer.getInt());
+            report.setIterationIndex(readBuffer.getInt());
+            report.setStartTimestampInNanos(readBuffer.getLong());
+            report.setIntendedStartTimestampInNanos(readBuffer.getLong());
+            report.setEndTimestampInNanos(readBuffer.getLong());
+            report.setEndedNormally(readBuffer.get() == 1);
+            batch.add(report);
+            readPosition += RECORD_SIZE;
+            size--;
+        }
+
+        if (size == 0) {
+            // Reuse the space of the file once everything has been read
+            channel.truncate(0);
+            readPosition = 0;
+            writePosition = 0;
+        }
+    }
+
+    private void flushWrites() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            writePosition += channel.write(writeBuffer, writePosition);
+        }
+        writeBuffer.clear();
+    }
+
+    /**
+     * @return The number of reports that haven't been read yet.
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
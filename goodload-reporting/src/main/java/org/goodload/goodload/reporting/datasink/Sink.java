@@ -21,7 +21,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.goodload.goodload.reporting.data.ActionReport;
 import org.goodload.goodload.reporting.data.SimulationTree;
 
-import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.Flow;
 
 /**
  * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
@@ -30,7 +30,7 @@ import java.util.concurrent.SubmissionPublisher;
 @Slf4j
 public abstract class Sink implements AutoCloseable {
 
-    private SinkSubscriber actionReportSubscriber;
+    private volatile SinkSubscriber actionReportSubscriber;
 
     @Getter
     private volatile boolean closed;
@@ -51,7 +51,15 @@ public abstract class Sink implements AutoCloseable {
      */
     public abstract void registerSimulationSkeletonData(SimulationTree simulationTree);
 
-    public void registerPublisher(SubmissionPublisher<ActionReport> actionReportSubmissionPublisher) {
+    /**
+     * Subscribes the sink to the reports generated when a simulation is executed.
+     * <br>
+     * The reports passed to the subscriber are only valid until {@link Flow.Subscriber#onNext(Object)} returns,
+     * after which the publisher reuses them. A subscriber must copy the values it needs to keep.
+     *
+     * @param actionReportPublisher The publisher of the reports.
+     */
+    public void registerPublisher(Flow.Publisher<ActionReport> actionReportPublisher) {
         synchronized (this) {
             if (this.actionReportSubscriber != null) {
                 throw new IllegalStateException("Sink already has a registered publisher.");
@@ -60,10 +68,19 @@ public abstract class Sink implements AutoCloseable {
                 throw new IllegalStateException("Can't register publisher to closed sink");
             }
             actionReportSubscriber = createSubscriber();
-            actionReportSubmissionPublisher.subscribe(actionReportSubscriber);
+            actionReportPublisher.subscribe(actionReportSubscriber);
         }
     }
 
+    /**
+     * @return The metrics of the writer of the sink, or {@code null} if the sink has no publisher yet
+     * or doesn't buffer the reports it writes.
+     */
+    public SinkWriterMetrics getWriterMetrics() {
+        var subscriber = actionReportSubscriber;
+        return subscriber == null ? null : subscriber.getWriterMetrics();
+    }
+
     @Override
     public void close() throws Exception {
         synchronized (this) {
@@ -17,15 +17,46 @@
 package org.goodload.goodload.reporting.datasink;
 
 import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
 
 import java.util.concurrent.Flow;
 
 /**
  * Base subscriber for consuming {@link ActionReport}(s) published during simulation execution.
+ * <br>
+ * The reports are reused by the publisher once {@link #onNext(Object)} returns,
+ * so implementations must not retain references to them.
  *
  * @author divsgaur
  * @since 1.0
  */
 public interface SinkSubscriber extends Flow.Subscriber<ActionReport>, AutoCloseable {
 
+    /**
+     * Receives the histograms of step timings recorded by the runners, typically once per second per step
+     * per runner. Unlike the action reports, the snapshots are not reused and may be retained.
+     * <br>
+     * It is called on the same thread as {@link #onNext(Object)}. The default implementation ignores them.
+     *
+     * @param snapshot The snapshot of the histograms of a step.
+     */
+    default void onHistogramSnapshot(HistogramSnapshot snapshot) {
+    }
+
+    /**
+     * Called about once a second while the reports are delivered, even when the runners publish nothing, e.g.
+     * so that a subscriber can tell a stalled step from one whose snapshots are yet to arrive.
+     * <br>
+     * It is called on the same thread as {@link #onNext(Object)}. The default implementation does nothing.
+     */
+    default void onTick() {
+    }
+
+    /**
+     * @return The metrics of the writer of the subscriber, or {@code null} if it writes the reports as they
+     * are delivered.
+     */
+    default SinkWriterMetrics getWriterMetrics() {
+        return null;
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.datasink;
+
+import lombok.Data;
+
+/**
+ * Metrics of the writer of a sink, see {@link BufferedReportWriter}.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Data
+public class SinkWriterMetrics {
+
+    /**
+     * Number of reports and snapshots accepted by the writer that haven't been written yet.
+     */
+    private long queueDepth;
+
+    /**
+     * How long the oldest report or snapshot buffered in memory that hasn't been written yet has been waiting,
+     * or 0 if all of them have been written. Spilled reports are not taken into account.
+     */
+    private long lagInNanos;
+
+    /**
+     * Number of reports and snapshots written.
+     */
+    private long writtenCount;
+
+    /**
+     * Number of reports and snapshots that couldn't be written because the write failed.
+     */
+    private long failedCount;
+
+    /**
+     * Number of reports discarded by the {@link BackpressurePolicy} because the sink couldn't keep up.
+     */
+    private long droppedCount;
+
+    /**
+     * Number of reports left out by {@link BackpressurePolicy#SAMPLE} because the sink couldn't keep up.
+     */
+    private long sampledOutCount;
+
+    /**
+     * Number of reports spilled to the disk by {@link BackpressurePolicy#SPILL}. They are written to the sink
+     * later, so they are not lost.
+     */
+    private long spilledCount;
+}
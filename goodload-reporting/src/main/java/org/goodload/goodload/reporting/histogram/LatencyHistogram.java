@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.histogram;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative values (e.g. latencies) with bounded relative error.
+ * <br>
+ * Values below 256 are counted exactly. Larger values are counted in buckets whose width is
+ * at most 1/128 of the values they contain, i.e. the percentiles reported by the histogram are within
+ * 0.8% of the actual values, irrespective of the unit and magnitude of the values.
+ * The minimum, maximum and mean are exact.
+ * <br>
+ * Only the range of buckets that have been recorded into is allocated, so a histogram of values that are
+ * close to each other takes a few hundred bytes. Histograms can be merged, which allows recording them
+ * separately (e.g. per runner, or per second) and aggregating them later.
+ * <br>
+ * It is not thread-safe.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public final class LatencyHistogram implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of bits of the values that are counted exactly.
+     */
+    private static final int PRECISION_BITS = 8;
+
+    /**
+     * Values below this are counted exactly.
+     */
+    private static final int LINEAR_BUCKET_COUNT = 1 << PRECISION_BITS;
+
+    /**
+     * Number of buckets per power of two above the linear range.
+     */
+    private static final int SUB_BUCKET_COUNT = LINEAR_BUCKET_COUNT >> 1;
+
+    private static final int INITIAL_LENGTH = 16;
+
+    private static final long[] EMPTY = new long[0];
+
+    private static final byte ENCODING_VERSION = 1;
+
+    /**
+     * Counts of the buckets from index {@code offset} to {@code offset + counts.length - 1}.
+     */
+    private long[] counts = EMPTY;
+
+    private int offset = 0;
+
+    private long totalCount = 0;
+
+    private long sum = 0;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max = 0;
+
+    /**
+     * Records a value.
+     *
+     * @param value The value to record. Negative values are recorded as 0.
+     */
+    public void recordValue(long value) {
+        recordValue(value, 1);
+    }
+
+    /**
+     * Records a value multiple times.
+     *
+     * @param value The value to record. Negative values are recorded as 0.
+     * @param count How many times to record the value.
+     */
+    public void recordValue(long value, long count) {
+        if (count <= 0) {
+            return;
+        }
+        if (value < 0) {
+            value = 0;
+        }
+        int index = indexOf(value);
+        ensureCapacity(index, index);
+        counts[index - offset] += count;
+        totalCount += count;
+        sum += value * count;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all the values recorded in another histogram to this histogram.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.totalCount == 0) {
+            return;
+        }
+        int first = -1;
+        int last = -1;
+        for (var i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) {
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        ensureCapacity(other.offset + first, other.offset + last);
+        for (var i = first; i <= last; i++) {
+            counts[other.offset + i - offset] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all the recorded values. The allocated buckets are retained to be reused.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * @return A copy of this histogram.
+     */
+    public LatencyHistogram copy() {
+        var copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * @return The number of values recorded.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return The sum of all the values recorded.
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return The smallest value recorded, or 0 if no values have been recorded.
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * @return The largest value recorded, or 0 if no values have been recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return The mean of the values recorded, or 0 if no values have been recorded.
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100.
+     * @return The value at or below which the given percentage of the recorded values fall,
+     * or 0 if no values have been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+        long cumulativeCount = 0;
+        for (var i = 0; i < counts.length; i++) {
+            cumulativeCount += counts[i];
+            if (cumulativeCount >= rank) {
+                return Math.max(min, Math.min(max, highestValueAt(offset + i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Encodes the histogram into a compact binary form, e.g. to store it. Only the range of buckets between the
+     * smallest and the largest recorded value is encoded, and every count takes as few bytes as needed.
+     *
+     * @return The encoded histogram, which can be decoded by {@link #decode(byte[])}.
+     */
+    public byte[] encode() {
+        int first = 0;
+        int last = -1;
+        if (totalCount > 0) {
+            first = indexOf(min) - offset;
+            last = indexOf(max) - offset;
+        }
+        var buffer = ByteBuffer.allocate(1 + 10 * (6 + Math.max(0, last - first + 1)));
+        buffer.put(ENCODING_VERSION);
+        putVarLong(buffer, totalCount);
+        putVarLong(buffer, sum);
+        putVarLong(buffer, getMin());
+        putVarLong(buffer, max);
+        putVarLong(buffer, offset + first);
+        putVarLong(buffer, last - first + 1);
+        for (var i = first; i <= last; i++) {
+            putVarLong(buffer, counts[i]);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Decodes a histogram encoded by {@link #encode()}.
+     *
+     * @param encoded The encoded histogram.
+     * @return The decoded histogram.
+     * @throws IllegalArgumentException If the data is not an encoded histogram.
+     */
+    public static LatencyHistogram decode(byte[] encoded) {
+        var buffer = ByteBuffer.wrap(encoded);
+        try {
+            if (buffer.get() != ENCODING_VERSION) {
+                throw new IllegalArgumentException("Unsupported histogram encoding version");
+            }
+            var histogram = new LatencyHistogram();
+            histogram.totalCount = getVarLong(buffer);
+            histogram.sum = getVarLong(buffer);
+            long min = getVarLong(buffer);
+            histogram.min = histogram.totalCount == 0 ? Long.MAX_VALUE : min;
+            histogram.max = getVarLong(buffer);
+            int first = (int) getVarLong(buffer);
+            int length = (int) getVarLong(buffer);
+            if (length > 0) {
+                histogram.offset = first;
+                histogram.counts = new long[length];
+                for (var i = 0; i < length; i++) {
+                    histogram.counts[i] = getVarLong(buffer);
+                }
+            }
+            return histogram;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The encoded histogram is truncated", e);
+        }
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (var shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed histogram encoding");
+    }
+
+    /**
+     * Makes sure that buckets from {@code fromIndex} to {@code toIndex} are allocated.
+     */
+    private void ensureCapacity(int fromIndex, int toIndex) {
+        if (counts.length == 0) {
+            offset = Math.max(0, fromIndex - INITIAL_LENGTH / 2);
+            counts = new long[Math.max(INITIAL_LENGTH, toIndex - offset + 1)];
+            return;
+        }
+        if (fromIndex >= offset && toIndex < offset + counts.length) {
+            return;
+        }
+        int newStart = Math.min(offset, fromIndex);
+        int newEnd = Math.max(offset + counts.length, toIndex + 1);
+        // Leave some room to grow further in the same direction
+        int headroom = Math.max(INITIAL_LENGTH, (newEnd - newStart) / 2);
+        if (fromIndex < offset) {
+            newStart = Math.max(0, newStart - headroom);
+        }
+        if (toIndex >= offset + counts.length) {
+            newEnd += headroom;
+        }
+        var newCounts = new long[newEnd - newStart];
+        System.arraycopy(counts, 0, newCounts, offset - newStart, counts.length);
+        counts = newCounts;
+        offset = newStart;
+    }
+
+    /**
+     * @return The index of the bucket in which the value is counted.
+     */
+    static int indexOf(long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+        return SUB_BUCKET_COUNT * shift + (int) (value >>> shift);
+    }
+
+    /**
+     * @return The smallest value counted in the bucket with the given index.
+     */
+    static long lowestValueAt(int index) {
+        if (index < LINEAR_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return (long) (index - SUB_BUCKET_COUNT * shift) << shift;
+    }
+
+    /**
+     * @return The largest value counted in the bucket with the given index.
+     */
+    static long highestValueAt(int index) {
+        return lowestValueAt(index + 1) - 1;
+    }
+}
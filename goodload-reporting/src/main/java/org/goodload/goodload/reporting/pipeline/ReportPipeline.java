@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.goodload.goodload.reporting.datasink.SinkSubscriber;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the reports generated by the simulation runners to the subscribers, e.g. the subscriber of a sink.
+ * <br>
+ * Every runner publishes its reports to its own {@link ReportRingBuffer}, so the runners never contend with
+ * each other, nor allocate, to emit a report. A dedicated thread drains the buffers in a round-robin and
+ * delivers the reports to every subscriber in turn. When the runners don't generate raw reports, the buffer
+ * capacity is 0 and the buffers only pass on the snapshots, so they are neither allocated nor scanned.
+ * The reports passed to {@link Flow.Subscriber#onNext(Object)} are reused once it returns, so subscribers that
+ * need a report later must copy the values they need. The reports are drained only as fast as the subscriber
+ * with the least demand allows.
+ * <br>
+ * The {@link HistogramSnapshot}s published by the runners are delivered to the subscribers that are
+ * {@link SinkSubscriber}s, on the same thread and regardless of the demand, and so are the ticks of
+ * {@link SinkSubscriber#onTick()}.
+ * <br>
+ * Reports published while there are no subscribers, or after all the subscribers have cancelled their
+ * subscriptions, are discarded. Subscribers should subscribe before the runners start.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+@Slf4j
+public final class ReportPipeline implements Flow.Publisher<ActionReport>, AutoCloseable {
+
+    /**
+     * Maximum number of reports drained from one buffer before moving on to the next one.
+     */
+    private static final int DRAIN_BATCH_SIZE = 256;
+
+    /**
+     * How long the drain thread parks for when all the buffers are empty.
+     */
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    /**
+     * How often {@link SinkSubscriber#onTick()} is called.
+     */
+    private static final long TICK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * How long {@link #close()} waits for the producers to close their buffers,
+     * after which the reports that haven't been published are given up on.
+     */
+    private static final long CLOSE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int bufferCapacity;
+
+    private final CopyOnWriteArrayList<ReportRingBuffer> buffers = new CopyOnWriteArrayList<>();
+
+    private final ConcurrentLinkedQueue<HistogramSnapshot> snapshots = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of buffers without slots that haven't been closed yet. They are not in {@link #buffers}.
+     */
+    private final AtomicInteger openSnapshotBuffers = new AtomicInteger();
+
+    private final CopyOnWriteArrayList<PipelineSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final Thread drainThread;
+
+    private final Consumer<ActionReport> deliverToSubscribers = this::deliver;
+
+    private final Consumer<ActionReport> discard = report -> {
+    };
+
+    private volatile boolean closing = false;
+
+    /**
+     * The {@link System#nanoTime()} when {@link #close()} was called.
+     */
+    private volatile long closingSinceNanos;
+
+    /**
+     * Creates the pipeline and starts the thread draining it.
+     *
+     * @param name           Name of the pipeline, used to name the drain thread.
+     * @param bufferCapacity The number of reports each runner can publish before the drain thread consumes them,
+     *                       0 if the runners only publish snapshots.
+     */
+    public ReportPipeline(String name, int bufferCapacity) {
+        this.bufferCapacity = bufferCapacity;
+        drainThread = new Thread(this::drain, "goodload-report-drain-" + name);
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    /**
+     * Creates the buffer to which a runner publishes its reports.
+     * The runner must close the buffer once it won't publish any more reports.
+     *
+     * @return A new buffer, drained by this pipeline.
+     */
+    public ReportRingBuffer createBuffer() {
+        if (closing) {
+            throw new IllegalStateException("Can't create buffers for a closed report pipeline");
+        }
+        if (bufferCapacity == 0) {
+            openSnapshotBuffers.incrementAndGet();
+            return new ReportRingBuffer(0, snapshots, openSnapshotBuffers::decrementAndGet);
+        }
+        var buffer = new ReportRingBuffer(bufferCapacity, snapshots);
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ActionReport> subscriber) {
+        var subscription = new PipelineSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+    }
+
+    /**
+     * Waits until all the buffers have been closed by the runners and drained, then completes the subscribers.
+     * If some buffers are still open after a timeout, e.g. because their runners are stuck, only the reports
+     * published to them so far are delivered.
+     *
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (!closing) {
+            closingSinceNanos = System.nanoTime();
+            closing = true;
+        }
+        LockSupport.unpark(drainThread);
+        drainThread.join();
+    }
+
+    private void drain() {
+        long lastTickNanos = System.nanoTime();
+        while (true) {
+            // Read before draining, so that the last pass is guaranteed to see everything published before closing
+            boolean lastPass = closing;
+            // Likewise, a snapshot buffer closed before this pass has published all of its snapshots
+            int openSnapshotBufferCount = openSnapshotBuffers.get();
+            var drained = 0;
+            for (var buffer : buffers) {
+                drained += drain(buffer);
+                if (buffer.isDrained()) {
+                    buffers.remove(buffer);
+                }
+            }
+            // The snapshots are drained after the buffers, as a runner publishes its last snapshot before closing
+            // its buffer, so they are delivered even if the buffer was found to be closed in this pass.
+            drained += drainSnapshots();
+            long now = System.nanoTime();
+            if (now - lastTickNanos >= TICK_INTERVAL_NANOS) {
+                lastTickNanos = now;
+                tick();
+            }
+            if (drained == 0) {
+                if (lastPass && buffers.isEmpty() && openSnapshotBufferCount == 0) {
+                    break;
+                }
+                if (lastPass && System.nanoTime() - closingSinceNanos > CLOSE_TIMEOUT_NANOS) {
+                    log.warn("{} report buffers were not closed by their runners, their remaining reports " +
+                            "will not be delivered.", buffers.size() + openSnapshotBufferCount);
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+
+        for (var subscription : subscriptions) {
+            if (!subscription.cancelled) {
+                subscription.subscriber.onComplete();
+            }
+        }
+    }
+
+    private int drain(ReportRingBuffer buffer) {
+        long minDemand = Long.MAX_VALUE;
+        var active = false;
+        for (var subscription : subscriptions) {
+            if (!subscription.cancelled) {
+                active = true;
+                minDemand = Math.min(minDemand, subscription.demand.get());
+            }
+        }
+        if (!active) {
+            return buffer.drain(discard, Integer.MAX_VALUE);
+        }
+        if (minDemand <= 0) {
+            return 0;
+        }
+
+        int drained = buffer.drain(deliverToSubscribers, (int) Math.min(DRAIN_BATCH_SIZE, minDemand));
+        for (var subscription : subscriptions) {
+            if (subscription.demand.get() != Long.MAX_VALUE) {
+                subscription.demand.addAndGet(-drained);
+            }
+        }
+        return drained;
+    }
+
+    private int drainSnapshots() {
+        var drained = 0;
+        HistogramSnapshot snapshot;
+        while ((snapshot = snapshots.poll()) != null) {
+            drained++;
+            for (var subscription : subscriptions) {
+                if (subscription.subscriber instanceof SinkSubscriber sinkSubscriber && !subscription.cancelled) {
+                    try {
+                        sinkSubscriber.onHistogramSnapshot(snapshot);
+                    } catch (Exception e) {
+                        subscription.fail(e);
+                    }
+                }
+            }
+        }
+        return drained;
+    }
+
+    private void tick() {
+        for (var subscription : subscriptions) {
+            if (subscription.subscriber instanceof SinkSubscriber sinkSubscriber && !subscription.cancelled) {
+                try {
+                    sinkSubscriber.onTick();
+                } catch (Exception e) {
+                    subscription.fail(e);
+                }
+            }
+        }
+    }
+
+    private void deliver(ActionReport report) {
+        for (var subscription : subscriptions) {
+            if (subscription.cancelled) {
+                continue;
+            }
+            try {
+                subscription.subscriber.onNext(report);
+            } catch (Exception e) {
+                subscription.fail(e);
+            }
+        }
+    }
+
+    private static class PipelineSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ActionReport> subscriber;
+
+        private final AtomicLong demand = new AtomicLong();
+
+        private volatile boolean cancelled = false;
+
+        private PipelineSubscription(Flow.Subscriber<? super ActionReport> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                return;
+            }
+            demand.accumulateAndGet(n, (current, requested) -> {
+                long sum = current + requested;
+                return sum < 0 ? Long.MAX_VALUE : sum;
+            });
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void fail(Exception e) {
+            log.error("A report subscriber failed, the remaining reports will not be delivered to it.", e);
+            cancelled = true;
+            subscriber.onError(e);
+        }
+    }
+}
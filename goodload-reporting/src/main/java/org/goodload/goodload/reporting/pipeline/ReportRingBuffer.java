@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.pipeline;
+
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue of reports between a single producer (a simulation runner) and
+ * a single consumer (the thread draining the {@link ReportPipeline}).
+ * <br>
+ * The reports are not allocated per use. The producer {@link #claim() claims} the next slot, fills it
+ * and {@link #publish() publishes} it. The consumer reads the published slots and releases them,
+ * after which the producer will reuse them. Slots are allocated the first time they are claimed,
+ * so a runner generating few reports doesn't hold on to a full buffer of them.
+ * <br>
+ * If the consumer falls behind and the buffer is full, the producer waits for a slot to be released.
+ * <br>
+ * The producer can also publish {@link HistogramSnapshot}s, which are handed over to the consumer as they are.
+ * A buffer with no slots only accepts snapshots, for runners that don't generate raw reports.
+ *
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ * @since 1.0
+ */
+public final class ReportRingBuffer {
+
+    /**
+     * How long the producer parks for in every attempt while waiting for a free slot.
+     */
+    private static final long FULL_BUFFER_PARK_NANOS = 10_000;
+
+    private final ActionReport[] slots;
+
+    private final int mask;
+
+    /**
+     * Number of reports published by the producer. Written only by the producer.
+     */
+    private final AtomicLong published = new AtomicLong();
+
+    /**
+     * Number of reports released by the consumer. Written only by the consumer.
+     */
+    private final AtomicLong consumed = new AtomicLong();
+
+    /**
+     * The producer's last read of {@link #consumed}, to avoid reading it on every claim.
+     */
+    private long cachedConsumed = 0;
+
+    /**
+     * The queue of snapshots shared by all the buffers of the pipeline.
+     */
+    private final Queue<HistogramSnapshot> snapshots;
+
+    /**
+     * Called once when the producer closes the buffer, e.g. to keep track of the buffers without slots.
+     */
+    private final Runnable onClose;
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param capacity  The number of slots. It is rounded up to a power of 2. If 0, the buffer only accepts snapshots.
+     * @param snapshots The queue to which the histogram snapshots are published.
+     */
+    ReportRingBuffer(int capacity, Queue<HistogramSnapshot> snapshots) {
+        this(capacity, snapshots, () -> {
+        });
+    }
+
+    /**
+     * @param capacity  The number of slots. It is rounded up to a power of 2. If 0, the buffer only accepts snapshots.
+     * @param snapshots The queue to which the histogram snapshots are published.
+     * @param onClose   Called once when the producer closes the buffer.
+     */
+    ReportRingBuffer(int capacity, Queue<HistogramSnapshot> snapshots, Runnable onClose) {
+        this.snapshots = snapshots;
+        this.onClose = onClose;
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity of the report buffer must not be negative");
+        }
+        int size = capacity == 0 || Integer.highestOneBit(capacity) == capacity
+                ? capacity
+                : Integer.highestOneBit(capacity) << 1;
+        slots = new ActionReport[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the next free slot. The returned report retains the values of the report previously published
+     * in the slot, so all of its fields must be overwritten before it is published.
+     * Only the producer may call this method.
+     *
+     * @return The report to fill in.
+     * @throws InterruptedException If the producer is interrupted while waiting for a free slot.
+     * @throws IllegalStateException If the buffer has no slots.
+     */
+    public ActionReport claim() throws InterruptedException {
+        if (slots.length == 0) {
+            throw new IllegalStateException("The report buffer only accepts histogram snapshots");
+        }
+        long index = published.get();
+        if (index - cachedConsumed >= slots.length) {
+            while (index - (cachedConsumed = consumed.get()) >= slots.length) {
+                LockSupport.parkNanos(FULL_BUFFER_PARK_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+        int slotIndex = (int) index & mask;
+        var slot = slots[slotIndex];
+        if (slot == null) {
+            slot = new ActionReport();
+            slots[slotIndex] = slot;
+        }
+        return slot;
+    }
+
+    /**
+     * Makes the slot returned by the last {@link #claim()} available to the consumer.
+     * Only the producer may call this method.
+     */
+    public void publish() {
+        published.lazySet(published.get() + 1);
+    }
+
+    /**
+     * Publishes a snapshot of histograms. The producer must not modify the snapshot afterwards.
+     *
+     * @param snapshot The snapshot to publish.
+     */
+    public void publish(HistogramSnapshot snapshot) {
+        snapshots.add(snapshot);
+    }
+
+    /**
+     * Marks that the producer will not publish any more reports.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            onClose.run();
+        }
+    }
+
+    /**
+     * @return True if the producer has closed the buffer and all the reports have been consumed.
+     */
+    boolean isDrained() {
+        return closed && consumed.get() == published.get();
+    }
+
+    /**
+     * Passes the published reports to the consumer and releases their slots.
+     * The reports must not be used after the consumer returns. Only the consumer may call this method.
+     *
+     * @param consumer The consumer of the reports.
+     * @param limit    The maximum number of reports to consume.
+     * @return The number of reports consumed.
+     */
+    int drain(Consumer<ActionReport> consumer, int limit) {
+        long start = consumed.get();
+        long count = Math.min(published.get() - start, limit);
+        for (long i = 0; i < count; i++) {
+            consumer.accept(slots[(int) (start + i) & mask]);
+        }
+        if (count > 0) {
+            consumed.lazySet(start + count);
+        }
+        return (int) count;
+    }
+}
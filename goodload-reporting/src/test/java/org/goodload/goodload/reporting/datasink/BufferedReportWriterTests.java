@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.datasink;
+
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class BufferedReportWriterTests {
+
+    private static final Duration NO_FLUSH = Duration.ofHours(1);
+
+    @Test
+    public void testDropNewestDropsWhileBothBatchesAreFull() throws InterruptedException {
+        var batchWriter = new GatedBatchWriter();
+        var writer = newWriter(4, batchWriter, NO_FLUSH, BackpressurePolicy.DROP_NEWEST);
+
+        // One batch is being written, the other one fills up, and the rest is dropped
+        addReports(writer, 0, 13);
+        var metrics = writer.getMetrics();
+        Assertions.assertEquals(5, metrics.getDroppedCount());
+        Assertions.assertEquals(8, metrics.getQueueDepth());
+
+        batchWriter.open();
+        writer.close();
+        Assertions.assertEquals(range(0, 8), batchWriter.written);
+        Assertions.assertEquals(8, writer.getMetrics().getWrittenCount());
+        Assertions.assertEquals(5, writer.getMetrics().getDroppedCount());
+    }
+
+    @Test
+    public void testBlockWaitsForTheBatchToBeWritten() throws InterruptedException {
+        var batchWriter = new GatedBatchWriter();
+        var writer = newWriter(4, batchWriter, NO_FLUSH, BackpressurePolicy.BLOCK);
+        addReports(writer, 0, 8);
+
+        var producer = new Thread(() -> addReports(writer, 8, 12));
+        producer.start();
+        producer.join(200);
+        Assertions.assertTrue(producer.isAlive(), "The producer should wait while both batches are full");
+
+        batchWriter.open();
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+        Assertions.assertFalse(producer.isAlive());
+        writer.close();
+        Assertions.assertEquals(range(0, 12), batchWriter.written);
+        Assertions.assertEquals(0, writer.getMetrics().getDroppedCount());
+    }
+
+    @Test
+    public void testSampleThinsOutAsTheBatchFillsUp() throws InterruptedException {
+        var batchWriter = new GatedBatchWriter();
+        var writer = newWriter(8, batchWriter, NO_FLUSH, BackpressurePolicy.SAMPLE);
+        addReports(writer, 0, 108);
+
+        // All of the batch is kept while it is empty, one in 2 from half full, one in 4 from 3/4 full, and so on
+        var metrics = writer.getMetrics();
+        Assertions.assertEquals(9, metrics.getSampledOutCount());
+        Assertions.assertEquals(83, metrics.getDroppedCount());
+
+        batchWriter.open();
+        writer.close();
+        var expected = range(0, 8);
+        expected.addAll(List.of(8, 9, 10, 11, 12, 14, 16, 24));
+        Assertions.assertEquals(expected, batchWriter.written);
+        Assertions.assertEquals(16, writer.getMetrics().getWrittenCount());
+    }
+
+    @Test
+    public void testSpilledReportsAreReplayedOnClose() throws InterruptedException {
+        var batchWriter = new GatedBatchWriter();
+        var writer = newWriter(4, batchWriter, NO_FLUSH, BackpressurePolicy.SPILL);
+        addReports(writer, 0, 20);
+
+        var metrics = writer.getMetrics();
+        Assertions.assertEquals(12, metrics.getSpilledCount());
+        Assertions.assertEquals(20, metrics.getQueueDepth());
+        Assertions.assertEquals(0, metrics.getDroppedCount());
+
+        batchWriter.open();
+        writer.close();
+        // The spilled reports are written before the batch filled meanwhile, with every field the sinks write
+        Assertions.assertEquals(20, batchWriter.written.size());
+        Assertions.assertEquals(range(0, 20), batchWriter.written.stream().sorted().collect(Collectors.toList()));
+        Assertions.assertEquals(20, writer.getMetrics().getWrittenCount());
+        Assertions.assertEquals(0, writer.getMetrics().getQueueDepth());
+    }
+
+    @Test
+    public void testBatchIsWrittenAfterTheFlushInterval() throws InterruptedException {
+        var batchWriter = new GatedBatchWriter();
+        batchWriter.open();
+        var writer = newWriter(100, batchWriter, Duration.ofMillis(50), BackpressurePolicy.BLOCK);
+
+        addReports(writer, 0, 3);
+        awaitWritten(batchWriter, 3);
+        addReports(writer, 3, 5);
+        awaitWritten(batchWriter, 5);
+
+        Assertions.assertEquals(List.of(3, 2), batchWriter.batchSizes);
+        Assertions.assertEquals(5, writer.getMetrics().getWrittenCount());
+        writer.close();
+    }
+
+    private static BufferedReportWriter<ReportCopyBatch> newWriter(int capacity, GatedBatchWriter batchWriter,
+                                                                   Duration flushInterval,
+                                                                   BackpressurePolicy policy) {
+        return new BufferedReportWriter<>("test-" + policy, () -> new ReportCopyBatch(capacity), batchWriter,
+                flushInterval, policy);
+    }
+
+    private static void addReports(BufferedReportWriter<ReportCopyBatch> writer, int from, int to) {
+        var report = new ActionReport();
+        for (var i = from; i < to; i++) {
+            report.setIterationIndex(i);
+            report.setStepIndex(i % 5);
+            report.setRunnerId(i % 3);
+            report.setIntendedStartTimestampInNanos(i * 1000L);
+            report.setStartTimestampInNanos(i * 1000L + 100);
+            report.setEndTimestampInNanos(i * 1000L + 500);
+            report.setEndedNormally(i % 2 == 0);
+            writer.add(report);
+        }
+    }
+
+    private static void awaitWritten(GatedBatchWriter batchWriter, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (batchWriter.written.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(count, batchWriter.written.size());
+    }
+
+    private static List<Integer> range(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * A sink which can't write until it is opened, and checks that the reports are those added.
+     */
+    private static final class GatedBatchWriter implements BufferedReportWriter.BatchWriter<ReportCopyBatch> {
+
+        private final Semaphore gate = new Semaphore(0);
+
+        private final List<Integer> written = new CopyOnWriteArrayList<>();
+
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        void open() {
+            gate.release(Integer.MAX_VALUE / 2);
+        }
+
+        @Override
+        public void write(ReportCopyBatch batch) throws InterruptedException {
+            gate.acquire();
+            for (var i = 0; i < batch.reportCount(); i++) {
+                var report = batch.report(i);
+                int index = report.getIterationIndex();
+                Assertions.assertEquals(index % 5, report.getStepIndex());
+                Assertions.assertEquals(index % 3, report.getRunnerId());
+                Assertions.assertEquals(index * 1000L, report.getIntendedStartTimestampInNanos());
+                Assertions.assertEquals(index * 1000L + 100, report.getStartTimestampInNanos());
+                Assertions.assertEquals(index * 1000L + 500, report.getEndTimestampInNanos());
+                Assertions.assertEquals(index % 2 == 0, report.isEndedNormally());
+                written.add(index);
+            }
+            batchSizes.add(batch.size());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.histogram;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class LatencyHistogramTests {
+
+    @Test
+    public void testValuesBelowLinearRangeAreCountedExactly() {
+        for (long value = 0; value < 256; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            Assertions.assertEquals(value, LatencyHistogram.lowestValueAt(index));
+            Assertions.assertEquals(value, LatencyHistogram.highestValueAt(index));
+        }
+    }
+
+    @Test
+    public void testBucketsAreContiguousAndWithinRelativeError() {
+        int lastIndex = LatencyHistogram.indexOf(Long.MAX_VALUE);
+        for (var index = 0; index < lastIndex; index++) {
+            long lowest = LatencyHistogram.lowestValueAt(index);
+            long highest = LatencyHistogram.highestValueAt(index);
+            Assertions.assertEquals(index, LatencyHistogram.indexOf(lowest));
+            Assertions.assertEquals(index, LatencyHistogram.indexOf(highest));
+            Assertions.assertEquals(highest + 1, LatencyHistogram.lowestValueAt(index + 1));
+            Assertions.assertTrue(highest - lowest + 1 <= Math.max(1, lowest / 128),
+                    "Bucket " + index + " is too wide");
+        }
+        Assertions.assertEquals(lastIndex, LatencyHistogram.indexOf(LatencyHistogram.lowestValueAt(lastIndex)));
+    }
+
+    @Test
+    public void testIndexOfRandomValues() {
+        var random = new Random(42);
+        for (var i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            int index = LatencyHistogram.indexOf(value);
+            Assertions.assertTrue(LatencyHistogram.lowestValueAt(index) <= value);
+            Assertions.assertTrue(value <= LatencyHistogram.highestValueAt(index));
+        }
+    }
+
+    @Test
+    public void testEncodeDecodeRoundTrip() {
+        var histogram = new LatencyHistogram();
+        var random = new Random(7);
+        for (var i = 0; i < 50_000; i++) {
+            histogram.recordValue((long) Math.exp(random.nextGaussian() + 13));
+        }
+        histogram.recordValue(0, 3);
+
+        var decoded = LatencyHistogram.decode(histogram.encode());
+
+        Assertions.assertEquals(histogram.getTotalCount(), decoded.getTotalCount());
+        Assertions.assertEquals(histogram.getSum(), decoded.getSum());
+        Assertions.assertEquals(histogram.getMin(), decoded.getMin());
+        Assertions.assertEquals(histogram.getMax(), decoded.getMax());
+        for (double percentile = 0; percentile <= 100; percentile += 0.5) {
+            Assertions.assertEquals(histogram.getValueAtPercentile(percentile),
+                    decoded.getValueAtPercentile(percentile), "p" + percentile);
+        }
+        Assertions.assertArrayEquals(histogram.encode(), decoded.encode());
+    }
+
+    @Test
+    public void testEncodeDecodeEmptyHistogram() {
+        var decoded = LatencyHistogram.decode(new LatencyHistogram().encode());
+
+        Assertions.assertEquals(0, decoded.getTotalCount());
+        Assertions.assertEquals(0, decoded.getMin());
+        Assertions.assertEquals(0, decoded.getMax());
+
+        decoded.recordValue(5);
+        Assertions.assertEquals(5, decoded.getMin());
+        Assertions.assertEquals(5, decoded.getMax());
+    }
+
+    @Test
+    public void testDecodeRejectsUnknownVersion() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LatencyHistogram.decode(new byte[]{99}));
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2021 Divyansh Shekhar Gaur
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.goodload.goodload.reporting.pipeline;
+
+import org.goodload.goodload.reporting.data.ActionReport;
+import org.goodload.goodload.reporting.data.HistogramSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Divyansh Shekhar Gaur <divyanshshekhar@users.noreply.github.com>
+ */
+public class ReportRingBufferTests {
+
+    @Test
+    public void testReportsAreDeliveredInOrderAcrossWraps() throws InterruptedException {
+        var buffer = new ReportRingBuffer(4, new ConcurrentLinkedQueue<>());
+        var iterations = new ArrayList<Integer>();
+
+        for (var round = 0; round < 5; round++) {
+            for (var i = 0; i < 3; i++) {
+                publish(buffer, round * 3 + i);
+            }
+            Assertions.assertEquals(3, buffer.drain(report -> iterations.add(report.getIterationIndex()), 10));
+        }
+
+        for (var i = 0; i < 15; i++) {
+            Assertions.assertEquals(i, iterations.get(i));
+        }
+    }
+
+    @Test
+    public void testSlotsAreReusedAfterWrapping() throws InterruptedException {
+        var buffer = new ReportRingBuffer(2, new ConcurrentLinkedQueue<>());
+        var first = buffer.claim();
+        buffer.publish();
+        var second = buffer.claim();
+        buffer.publish();
+        buffer.drain(report -> {
+        }, 2);
+
+        Assertions.assertSame(first, buffer.claim());
+        buffer.publish();
+        Assertions.assertSame(second, buffer.claim());
+    }
+
+    @Test
+    public void testCapacityIsRoundedUpToPowerOfTwo() throws InterruptedException {
+        var buffer = new ReportRingBuffer(3, new ConcurrentLinkedQueue<>());
+        for (var i = 0; i < 4; i++) {
+            publish(buffer, i);
+        }
+        Assertions.assertEquals(4, buffer.drain(report -> {
+        }, 10));
+    }
+
+    @Test
+    public void testDrainIsLimited() throws InterruptedException {
+        var buffer = new ReportRingBuffer(8, new ConcurrentLinkedQueue<>());
+        for (var i = 0; i < 5; i++) {
+            publish(buffer, i);
+        }
+        var iterations = new ArrayList<Integer>();
+
+        Assertions.assertEquals(2, buffer.drain(report -> iterations.add(report.getIterationIndex()), 2));
+        Assertions.assertEquals(3, buffer.drain(report -> iterations.add(report.getIterationIndex()), 10));
+        Assertions.assertEquals(0, buffer.drain(report -> iterations.add(report.getIterationIndex()), 10));
+        Assertions.assertEquals(5, iterations.size());
+        Assertions.assertEquals(4, iterations.get(4));
+    }
+
+    @Test
+    public void testClaimWaitsWhileBufferIsFull() throws Exception {
+        var buffer = new ReportRingBuffer(2, new ConcurrentLinkedQueue<>());
+        publish(buffer, 0);
+        publish(buffer, 1);
+
+        var claimed = new CountDownLatch(1);
+        var failure = new AtomicReference<Throwable>();
+        var producer = new Thread(() -> {
+            try {
+                publish(buffer, 2);
+                claimed.countDown();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        producer.start();
+
+        Assertions.assertFalse(claimed.await(100, TimeUnit.MILLISECONDS), "Claimed a slot of a full buffer");
+        var iterations = new ArrayList<Integer>();
+        Assertions.assertEquals(1, buffer.drain(report -> iterations.add(report.getIterationIndex()), 1));
+        Assertions.assertTrue(claimed.await(5, TimeUnit.SECONDS), "Didn't claim the released slot");
+        producer.join();
+        Assertions.assertNull(failure.get());
+
+        buffer.drain(report -> iterations.add(report.getIterationIndex()), 10);
+        Assertions.assertEquals(3, iterations.size());
+        Assertions.assertEquals(1, iterations.get(1));
+        Assertions.assertEquals(2, iterations.get(2));
+    }
+
+    @Test
+    public void testClaimOnFullBufferIsInterruptible() throws Exception {
+        var buffer = new ReportRingBuffer(1, new ConcurrentLinkedQueue<>());
+        publish(buffer, 0);
+
+        var interrupted = new AtomicReference<Throwable>();
+        var producer = new Thread(() -> {
+            try {
+                buffer.claim();
+            } catch (Throwable e) {
+                interrupted.set(e);
+            }
+        });
+        producer.start();
+        producer.interrupt();
+        producer.join(5_000);
+
+        Assertions.assertFalse(producer.isAlive());
+        Assertions.assertInstanceOf(InterruptedException.class, interrupted.get());
+    }
+
+    @Test
+    public void testBufferWithoutSlotsOnlyAcceptsSnapshots() {
+        var snapshots = new ConcurrentLinkedQueue<HistogramSnapshot>();
+        var closeCount = new AtomicInteger();
+        var buffer = new ReportRingBuffer(0, snapshots, closeCount::incrementAndGet);
+
+        Assertions.assertThrows(IllegalStateException.class, buffer::claim);
+        var snapshot = new HistogramSnapshot();
+        buffer.publish(snapshot);
+        Assertions.assertSame(snapshot, snapshots.poll());
+
+        Assertions.assertFalse(buffer.isDrained());
+        buffer.close();
+        buffer.close();
+        Assertions.assertTrue(buffer.isDrained());
+        Assertions.assertEquals(1, closeCount.get());
+    }
+
+    @Test
+    public void testBufferIsDrainedOnceClosedAndConsumed() throws InterruptedException {
+        var buffer = new ReportRingBuffer(4, new ConcurrentLinkedQueue<>());
+        publish(buffer, 0);
+        buffer.close();
+
+        Assertions.assertFalse(buffer.isDrained());
+        buffer.drain(report -> {
+        }, 10);
+        Assertions.assertTrue(buffer.isDrained());
+    }
+
+    private static void publish(ReportRingBuffer buffer, int iterationIndex) throws InterruptedException {
+        ActionReport report = buffer.claim();
+        report.setIterationIndex(iterationIndex);
+        buffer.publish();
+    }
+}
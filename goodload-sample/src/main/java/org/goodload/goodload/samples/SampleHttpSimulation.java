@@ -93,12 +93,12 @@ public class SampleHttpSimulation implements Simulation {
                                 .header("X-Cache-Control", "")
                                 .body(jsonBody(new Sample("sample name", "sample descr")))
                                 .go()),
-                        exec("Logout: Exec 3", session -> http(session)
+                        execAsync("Logout: Exec 3", session -> http(session)
                                 .post("https://www.facebook.com")
                                 .header("AUTHENTICATION", "")
                                 .header("X-Cache-Control", "")
                                 .body(jsonBody(new Sample("sample name", "sample descr")))
-                                .go()))
+                                .goAsync()))
         );
 
         return Arrays.asList(scenario1, scenario2);